@@ -0,0 +1,221 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cache;
+
+import dev.blocky.library.jda.history.HistoryPlanner;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageChannel;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.entities.MessageHistory;
+import net.dv8tion.jda.api.entities.MessageType;
+import net.dv8tion.jda.api.entities.PrivateChannel;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.entities.channel.unions.MessageChannelUnion;
+import net.dv8tion.jda.api.requests.RestAction;
+import net.dv8tion.jda.internal.JDAImpl;
+import net.dv8tion.jda.internal.entities.ReceivedMessage;
+import net.dv8tion.jda.internal.requests.Route;
+import net.dv8tion.jda.internal.utils.config.AuthorizationConfig;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link HistoryPlanner#containsContent(MessageChannel, CharSequence, int) HistoryPlanner#containsContent} with a
+ * {@link MessageCache message cache}, which answers from its {@link ContentIndex content index}, with the same check without a cache,
+ * which fetches the history page by page, for windows of 100 and 10,000 messages.
+ * <br>The history is served by a fake channel, which completes every page request right away, so the check without a cache is
+ * measured without the latency of Discord and only shows the cost of requesting and comparing the pages on the client.
+ * <br>Every query is a content, which is not in the window, so the check without a cache needs to fetch every page.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentIndexBenchmark
+{
+    private static final int QUERIES = 1024;
+    private static final long CHANNEL = 5;
+    private static final long FIRST_ID = 1000;
+
+    @Param({"100", "10000"})
+    public int window;
+
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private JDA api;
+    private MessageChannel channel;
+    private Message[] history;
+    private String[] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        User author = (User) Proxy.newProxyInstance(User.class.getClassLoader(), new Class<?>[]{ User.class },
+                (proxy, method, args) -> method.getName().equals("getIdLong") ? (Object) 1L : null);
+
+        api = new JDAImpl(new AuthorizationConfig("benchmark"));
+        channel = (MessageChannel) Proxy.newProxyInstance(PrivateChannel.class.getClassLoader(),
+                new Class<?>[]{ PrivateChannel.class, MessageChannelUnion.class }, (proxy, method, args) -> invoke(method, args));
+        history = new Message[window];
+        queries = new String[QUERIES];
+
+        MessageCache cache = new MessageCache(window, window);
+
+        for (int i = 0; i < window; i++)
+        {
+            Message message = message(FIRST_ID + i, author, "message number " + i + " with some typical chat content");
+
+            // The history is held from the newest to the oldest message, just like Discord returns it.
+            history[window - 1 - i] = message;
+            cache.add(message);
+        }
+
+        for (int i = 0; i < QUERIES; i++)
+        {
+            queries[i] = "a new message " + i + " with some typical chat content";
+        }
+
+        HistoryPlanner.setCache(cached ? cache : null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        HistoryPlanner.setCache(null);
+    }
+
+    @Benchmark
+    public boolean containsContent()
+    {
+        return HistoryPlanner.containsContent(channel, queries[next++ & (QUERIES - 1)], window).join();
+    }
+
+    private Object invoke(@NotNull Method method, Object[] args)
+    {
+        switch (method.getName())
+        {
+            case "getIdLong":
+                return CHANNEL;
+            case "getJDA":
+                return api;
+            case "getHistory":
+                return new MessageHistory(channel)
+                {
+                    @NotNull
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public RestAction<List<Message>> retrievePast(int amount)
+                    {
+                        CompletableFuture<List<Message>> page = CompletableFuture.completedFuture(page(Long.MAX_VALUE, amount));
+
+                        return (RestAction<List<Message>>) Proxy.newProxyInstance(RestAction.class.getClassLoader(),
+                                new Class<?>[]{ RestAction.class }, (proxy, submit, ignored) -> submit.getName().equals("submit") ? page : null);
+                    }
+                };
+            case "getHistoryBefore":
+                long before = args[0] instanceof Long ? (Long) args[0] : Long.parseUnsignedLong(args[0].toString());
+                List<Message> page = page(before, (Integer) args[1]);
+
+                return new MessageHistory.MessageRetrieveAction(Route.Messages.GET_MESSAGE_HISTORY.compile(Long.toString(CHANNEL)), channel)
+                {
+                    @NotNull
+                    @Override
+                    public CompletableFuture<MessageHistory> submit(boolean shouldQueue)
+                    {
+                        return CompletableFuture.completedFuture(new MessageHistory(channel)
+                        {
+                            @NotNull
+                            @Override
+                            public List<Message> getRetrievedHistory()
+                            {
+                                return page;
+                            }
+                        });
+                    }
+                };
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * The page, which Discord would return for a history request, so a new list is created for every request.
+     */
+    @NotNull
+    private List<Message> page(long beforeId, int amount)
+    {
+        int start = beforeId == Long.MAX_VALUE ? 0 : (int) Math.max(0, Math.min(window, FIRST_ID + window - beforeId));
+        return new ArrayList<>(Arrays.asList(history).subList(start, Math.min(start + amount, window)));
+    }
+
+    @NotNull
+    private Message message(long id, @NotNull User author, @NotNull String text)
+    {
+        return new ReceivedMessage(id, channel, MessageType.DEFAULT, null, false, false, false, null, text, author, null, null, null, null,
+                Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), 0,
+                null, null)
+        {
+            // The intents of a real session are not available here, so the guarded getters are replaced.
+            @Override
+            public String getContentRaw()
+            {
+                return text;
+            }
+
+            @Override
+            public List<Attachment> getAttachments()
+            {
+                return Collections.emptyList();
+            }
+
+            @Override
+            public List<MessageEmbed> getEmbeds()
+            {
+                return Collections.emptyList();
+            }
+        };
+    }
+}
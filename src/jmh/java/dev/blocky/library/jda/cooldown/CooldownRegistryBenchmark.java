@@ -0,0 +1,119 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cooldown;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link CooldownRegistry cooldown registry} with the boxed maps, which held the cooldowns before, while 8 threads check
+ * the cooldowns of random users at the same time.
+ * <br>The unsynchronized map of the old implementation lost updates under contention, so it is guarded by its monitor here.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class CooldownRegistryBenchmark
+{
+    private static final int USERS = 100_000;
+    private static final long DELAY = 5_000;
+    private static final long FIRST_ID = 1L << 40;
+
+    private CooldownRegistry registry;
+    private Map<Long, Long> synchronizedMap;
+    private ConcurrentHashMap<Long, Long> concurrentMap;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        registry = new CooldownRegistry();
+        synchronizedMap = new HashMap<>();
+        concurrentMap = new ConcurrentHashMap<>();
+    }
+
+    @Benchmark
+    public long registry()
+    {
+        return registry.tryAcquire(randomUser(), System.currentTimeMillis(), DELAY);
+    }
+
+    @Benchmark
+    public long synchronizedHashMap()
+    {
+        Long id = randomUser();
+        long now = System.currentTimeMillis();
+
+        synchronized (synchronizedMap)
+        {
+            Long last = synchronizedMap.get(id);
+
+            if (last != null && now - last < DELAY)
+            {
+                return DELAY - (now - last);
+            }
+
+            synchronizedMap.put(id, now);
+            return 0;
+        }
+    }
+
+    @Benchmark
+    public long concurrentHashMap()
+    {
+        long now = System.currentTimeMillis();
+        long[] remaining = new long[1];
+
+        concurrentMap.compute(randomUser(), (id, last) ->
+        {
+            if (last != null && now - last < DELAY)
+            {
+                remaining[0] = DELAY - (now - last);
+                return last;
+            }
+            return now;
+        });
+        return remaining[0];
+    }
+
+    private static long randomUser()
+    {
+        return FIRST_ID + ThreadLocalRandom.current().nextInt(USERS);
+    }
+}
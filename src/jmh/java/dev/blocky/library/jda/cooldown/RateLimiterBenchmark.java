@@ -0,0 +1,75 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cooldown;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link RateLimiter.Algorithm algorithms} of the {@link RateLimiter rate limiter}, while 8 threads acquire permits for
+ * the same users at the same time.
+ * <br>With only a few users, most threads hit the same segments, so this measures the algorithms under contention. With many users, it
+ * measures the cost of the state tables, which grow and evict the obsolete keys.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class RateLimiterBenchmark
+{
+    private static final long FIRST_ID = 1L << 40;
+
+    @Param({"TOKEN_BUCKET", "SLIDING_WINDOW_LOG", "SLIDING_WINDOW_COUNTER"})
+    public RateLimiter.Algorithm algorithm;
+
+    @Param({"16", "100000"})
+    public int users;
+
+    private RateLimiter limiter;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        limiter = RateLimiter.create(algorithm, 5, 30, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public long tryAcquire()
+    {
+        return limiter.tryAcquire(FIRST_ID + ThreadLocalRandom.current().nextInt(users), System.currentTimeMillis());
+    }
+}
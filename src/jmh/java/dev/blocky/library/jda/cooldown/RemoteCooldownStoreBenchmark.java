@@ -0,0 +1,81 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cooldown;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the round trip of a {@link RemoteCooldownStore remote cooldown store} to a {@link CooldownServer cooldown server} on the
+ * loopback interface, while 8 threads share the connection.
+ * <br>The sample mode reports the percentiles, so the p99 latency of a decision can be read from the result.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class RemoteCooldownStoreBenchmark
+{
+    private static final long FIRST_ID = 1L << 40;
+
+    private CooldownServer server;
+    private RemoteCooldownStore store;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException
+    {
+        server = CooldownServer.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), null);
+        store = RemoteCooldownStore.connect(server.getAddress(), 5, TimeUnit.SECONDS, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException
+    {
+        store.close();
+        server.close();
+    }
+
+    @Benchmark
+    public long tryAcquire()
+    {
+        return store.tryAcquire(CooldownScope.Type.USER, FIRST_ID + ThreadLocalRandom.current().nextInt(100_000), 0,
+                System.currentTimeMillis(), 5_000);
+    }
+}
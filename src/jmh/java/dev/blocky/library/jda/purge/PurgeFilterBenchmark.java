@@ -0,0 +1,138 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.purge;
+
+import dev.blocky.library.jda.enums.SafetyClear;
+import net.dv8tion.jda.api.entities.ChannelType;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageChannel;
+import net.dv8tion.jda.api.entities.MessageType;
+import net.dv8tion.jda.api.entities.TextChannel;
+import net.dv8tion.jda.internal.entities.ReceivedMessage;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Compares a compiled {@link PurgeFilter purge filter} with the switch over the {@link SafetyClear safety clear}, which was run for
+ * every message before, over 1 million synthetic messages.
+ * <br>Every tenth message is pinned, every tenth message comes from a webhook and every fifth message is edited.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PurgeFilterBenchmark
+{
+    private static final int MESSAGES = 1_000_000;
+
+    @Param({"ALL", "PINNED_MESSAGES", "NONE"})
+    public SafetyClear clear;
+
+    private Message[] messages;
+    private Predicate<Message> compiled;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        MessageChannel channel = (MessageChannel) Proxy.newProxyInstance(TextChannel.class.getClassLoader(), new Class<?>[]{ TextChannel.class },
+                (proxy, method, args) -> method.getName().equals("getType") ? ChannelType.TEXT : null);
+        Random random = new Random(1);
+
+        messages = new Message[MESSAGES];
+        compiled = PurgeFilter.of(clear).compile();
+
+        for (int i = 0; i < MESSAGES; i++)
+        {
+            messages[i] = new ReceivedMessage(i + 1, channel, MessageType.DEFAULT, null, random.nextInt(10) == 0, false,
+                    random.nextInt(10) == 0, null, "content", null, null, null, random.nextInt(5) == 0 ? OffsetDateTime.now() : null, null,
+                    Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList(),
+                    Collections.emptyList(), 0, null, null);
+        }
+    }
+
+    @Benchmark
+    public int switchFilter()
+    {
+        int matches = 0;
+
+        for (Message message : messages)
+        {
+            if (matches(clear, message))
+            {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int compiledFilter()
+    {
+        int matches = 0;
+
+        for (Message message : messages)
+        {
+            if (compiled.test(message))
+            {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    private static boolean matches(@NotNull SafetyClear clear, @NotNull Message message)
+    {
+        switch (clear)
+        {
+            case NONE:
+                return message.isFromGuild();
+            case ALL:
+                return !message.isEdited() && !message.isPinned() && !message.isWebhookMessage();
+            case PINNED_MESSAGES:
+                return !message.isPinned();
+            case WEBHOOK_MESSAGES:
+                return !message.isWebhookMessage();
+            case EDITED_MESSAGES:
+                return !message.isEdited();
+            default:
+                return false;
+        }
+    }
+}
@@ -15,7 +15,29 @@
  */
 package dev.blocky.library.jda;
 
+import dev.blocky.library.jda.annotations.DeprecatedSince;
+import dev.blocky.library.jda.annotations.ForRemoval;
+import dev.blocky.library.jda.annotations.ReplaceWith;
+import dev.blocky.library.jda.cache.MessageCache;
+import dev.blocky.library.jda.cache.MessageStore;
+import dev.blocky.library.jda.cooldown.CooldownMessage;
+import dev.blocky.library.jda.cooldown.CooldownMetrics;
+import dev.blocky.library.jda.cooldown.CooldownRegistry;
+import dev.blocky.library.jda.cooldown.CooldownScope;
+import dev.blocky.library.jda.cooldown.CooldownSnapshot;
+import dev.blocky.library.jda.cooldown.CooldownStore;
+import dev.blocky.library.jda.cooldown.LocalCooldownStore;
+import dev.blocky.library.jda.cooldown.RateLimiter;
+import dev.blocky.library.jda.cooldown.RemoteCooldownStore;
+import dev.blocky.library.jda.cooldown.TimeSource;
 import dev.blocky.library.jda.enums.SafetyClear;
+import dev.blocky.library.jda.history.HistoryPlanner;
+import dev.blocky.library.jda.purge.PurgeEngine;
+import dev.blocky.library.jda.purge.PurgeFilter;
+import dev.blocky.library.jda.purge.PurgeHandle;
+import dev.blocky.library.jda.purge.PurgeResult;
+import dev.blocky.library.jda.search.MessageIndex;
+import net.dv8tion.jda.api.entities.ChannelType;
 import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.MessageChannel;
 import net.dv8tion.jda.api.entities.TextChannel;
@@ -25,22 +47,41 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 
 import javax.annotation.CheckReturnValue;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 /**
  * This is a class, which has many utility methods in it.
  *
  * @author BlockyDotJar
- * @version v1.1.3
+ * @version v1.1.4
  * @since v1.0.0
  */
 public class Utility
 {
     private final static Logger logger = JDALogger.getLog(Utility.class);
-    private static final HashMap<Long, Long> map = new HashMap<>();
+    private static final LocalCooldownStore localStore = new LocalCooldownStore();
+    private static final CooldownMetrics metrics = new CooldownMetrics();
+
+    private static volatile CooldownMessage cooldownMessage = CooldownMessage.DEFAULT;
+    private static volatile TimeSource timeSource = TimeSource.MONOTONIC;
+    private static volatile CooldownStore cooldownStore = localStore;
+    private static volatile MessageIndex messageIndex;
+    private static volatile MessageStore messageStore;
+
+    private static CooldownSnapshot[] snapshots;
+    private static ScheduledExecutorService checkpointer;
+    private static boolean shutdownHook;
 
     /**
      * Constructs a <b>new</b> {@link Utility utility}.
@@ -50,26 +91,92 @@ public class Utility
     {
     }
 
+    /**
+     * Deletes the specified messages with the {@link PurgeEngine purge engine}, so messages, which are younger than two weeks, are
+     * bulk deleted and all other messages are deleted one by one.
+     *
+     * @param channel  The {@link MessageChannel message channel}, which contains the messages
+     * @param messages The messages, which should be deleted
+     * @return A list with a single future representing the whole purge, which fails with the first failure, if any message could not be deleted
+     */
+    @NotNull
+    protected static List<CompletableFuture<Void>> deleteMessages(@NotNull MessageChannel channel, @NotNull List<Message> messages)
+    {
+        return toFutures(PurgeEngine.purge(channel, messages).getFuture());
+    }
+
+    /**
+     * Deletes the specified messages with the {@link PurgeEngine purge engine}, as soon as they are collected, without blocking the
+     * current thread.
+     *
+     * @param channel  The {@link MessageChannel message channel}, which contains the messages
+     * @param messages The {@link CompletableFuture future}, which is completed with the messages, that should be deleted
+     * @return A list with a single future representing the whole purge, which fails with the first failure, if any message could not be deleted
+     */
+    @NotNull
+    protected static List<CompletableFuture<Void>> deleteMessages(@NotNull MessageChannel channel, @NotNull CompletableFuture<List<Message>> messages)
+    {
+        return Collections.singletonList(messages.thenCompose(collected -> deleteMessages(channel, collected).get(0)));
+    }
+
     /**
      * Checks, which {@link SafetyClear safety clear} enum is given. (if <b>clear</b> equals null, the
      * {@link SafetyClear safety clear} enum  will be set to {@link SafetyClear#NONE SafetyClear#NONE})
+     * <br>This blocks the current thread until the history was read, so it must never be called from a callback of JDA.
      *
      * @param clear   The {@link SafetyClear safety clear} option, which helps for specifying different message types, which will not be deleted
      * @param channel The {@link TextChannel text channel}, which should be initialized
      * @param amount  The amount of messages to delete
      * @return A list of messages representing the precursor of all deletion tasks
+     * @deprecated Use {@link Utility#checkClearSafetyAsync(SafetyClear, MessageChannel, int) Utility#checkClearSafetyAsync(SafetyClear, MessageChannel, int)} instead
      */
     @NotNull
+    @Deprecated
+    @ForRemoval(deadline = "v1.2.0")
+    @DeprecatedSince(version = "v1.1.5")
+    @ReplaceWith(method = "checkClearSafetyAsync(SafetyClear, MessageChannel, int)", clazz = "Utility")
     @CheckReturnValue
     protected static List<Message> checkClearSafety(@Nullable SafetyClear clear, @NotNull TextChannel channel, int amount)
     {
-        List<Message> messages = new ArrayList<>();
+        return checkClearSafetyAsync(clear, channel, amount).join();
+    }
 
-        if (clear == null)
-        {
-            clear = SafetyClear.NONE;
-        }
+    /**
+     * Checks, which {@link SafetyClear safety clear} enum is given. (if <b>clear</b> equals null, the
+     * {@link SafetyClear safety clear} enum  will be set to {@link SafetyClear#NONE SafetyClear#NONE})
+     * <br>This blocks the current thread until the history was read, so it must never be called from a callback of JDA.
+     *
+     * @param clear   The {@link SafetyClear safety clear} option, which helps for specifying different message types, which will not be deleted
+     * @param channel The {@link MessageChannel message channel}, which  should be initialized
+     * @param amount  The amount of messages to delete
+     * @return A list of messages representing the precursor of all deletion tasks
+     * @deprecated Use {@link Utility#checkClearSafetyAsync(SafetyClear, MessageChannel, int) Utility#checkClearSafetyAsync(SafetyClear, MessageChannel, int)} instead
+     */
+    @NotNull
+    @Deprecated
+    @ForRemoval(deadline = "v1.2.0")
+    @DeprecatedSince(version = "v1.1.5")
+    @ReplaceWith(method = "checkClearSafetyAsync(SafetyClear, MessageChannel, int)", clazz = "Utility")
+    @CheckReturnValue
+    protected static List<Message> checkClearSafety(@Nullable SafetyClear clear, @NotNull MessageChannel channel, int amount)
+    {
+        return checkClearSafetyAsync(clear, channel, amount).join();
+    }
 
+    /**
+     * Checks, which {@link SafetyClear safety clear} enum is given, without blocking the current thread. (if <b>clear</b> equals null,
+     * the {@link SafetyClear safety clear} enum will be set to {@link SafetyClear#NONE SafetyClear#NONE})
+     * <br>Every page is requested from the callback of the previous request, so no thread waits for the history.
+     *
+     * @param clear   The {@link SafetyClear safety clear} option, which helps for specifying different message types, which will not be deleted
+     * @param channel The {@link MessageChannel message channel}, which should be initialized
+     * @param amount  The amount of messages to delete
+     * @return A {@link CompletableFuture future}, which is completed with the messages representing the precursor of all deletion tasks
+     */
+    @NotNull
+    @CheckReturnValue
+    protected static CompletableFuture<List<Message>> checkClearSafetyAsync(@Nullable SafetyClear clear, @NotNull MessageChannel channel, int amount)
+    {
         if (amount == 0)
         {
             logger.error("The amount of messages, which you are specifying, equals 0, so it makes no sense that you use this method.",
@@ -81,76 +188,21 @@ public class Utility
             logger.error("The amount of messages, which you are specifying, can not be under 0.",
                     new IllegalArgumentException());
         }
-
-
-        int i = amount + 1;
-
-        for (Message message : channel.getIterableHistory().cache(false))
-        {
-            switch (clear)
-            {
-                case NONE:
-                    if (message.isFromGuild())
-                    {
-                        messages.add(message);
-                    }
-                    break;
-                case ALL:
-                    if (!message.isEdited() && !message.isPinned() && !message.isWebhookMessage())
-                    {
-                        messages.add(message);
-                    }
-                    break;
-                case PINNED_MESSAGES:
-                    if (!message.isPinned())
-                    {
-                        messages.add(message);
-                    }
-                    break;
-                case WEBHOOK_MESSAGES:
-                    if (!message.isWebhookMessage())
-                    {
-                        messages.add(message);
-                    }
-                    break;
-                case EDITED_MESSAGES:
-                    if (!message.isEdited())
-                    {
-                        messages.add(message);
-                    }
-                    break;
-                default:
-                    break;
-            }
-
-            if (--i <= 0)
-            {
-                break;
-            }
-        }
-        return messages;
+        return HistoryPlanner.collect(channel, amount + 1, PurgeFilter.of(clear).compile());
     }
 
     /**
-     * Checks, which {@link SafetyClear safety clear} enum is given. (if <b>clear</b> equals null, the
-     * {@link SafetyClear safety clear} enum  will be set to {@link SafetyClear#NONE SafetyClear#NONE})
+     * Deletes the messages of the newest <b>amount + 1</b> messages of the specified channel, which are accepted by the specified filter,
+     * with the {@link PurgeEngine purge engine}, just like the {@link SafetyClear safety clear} checks would collect them.
      *
-     * @param clear   The {@link SafetyClear safety clear} option, which helps for specifying different message types, which will not be deleted
-     * @param channel The {@link MessageChannel message channel}, which  should be initialized
+     * @param channel The {@link MessageChannel message channel}, which should be purged
      * @param amount  The amount of messages to delete
-     * @return A list of messages representing the precursor of all deletion tasks
+     * @param filter  The filter, which accepts every message, that should be deleted
+     * @return A {@link PurgeHandle handle}, which observes and controls the purge
      */
     @NotNull
-    @CheckReturnValue
-    protected static List<Message> checkClearSafety(@Nullable SafetyClear clear, @NotNull MessageChannel channel, int amount)
+    protected static PurgeHandle purgeLatest(@NotNull MessageChannel channel, int amount, @NotNull Predicate<? super Message> filter)
     {
-        List<Message> messages = new ArrayList<>();
-
-        if (clear == null)
-        {
-            clear = SafetyClear.NONE;
-        }
-
         if (amount == 0)
         {
             logger.error("The amount of messages, which you are specifying, equals 0, so it makes no sense that you use this method.",
@@ -162,173 +214,105 @@ public class Utility
             logger.error("The amount of messages, which you are specifying, can not be under 0.",
                     new IllegalArgumentException());
         }
-
-        int i = amount + 1;
-
-        for (Message message : channel.getIterableHistory().cache(false))
-        {
-            switch (clear)
-            {
-                case NONE:
-                    if (message.isFromGuild())
-                    {
-                        messages.add(message);
-                    }
-                    break;
-                case ALL:
-                    if (!message.isEdited() && !message.isPinned() && !message.isWebhookMessage())
-                    {
-                        messages.add(message);
-                    }
-                    break;
-                case PINNED_MESSAGES:
-                    if (!message.isPinned())
-                    {
-                        messages.add(message);
-                    }
-                    break;
-                case WEBHOOK_MESSAGES:
-                    if (!message.isWebhookMessage())
-                    {
-                        messages.add(message);
-                    }
-                    break;
-                case EDITED_MESSAGES:
-                    if (!message.isEdited())
-                    {
-                        messages.add(message);
-                    }
-                    break;
-                default:
-                    break;
-            }
-
-            if (--i <= 0)
-            {
-                break;
-            }
-        }
-        return messages;
+        return PurgeEngine.purgeLatest(channel, amount + 1, filter, null);
     }
 
     /**
      * Checks, which {@link SafetyClear safety clear} enum is given. (if <b>clear</b> equals null, the
      * {@link SafetyClear safety clear} enum will be set to {@link SafetyClear#NONE SafetyClear#NONE}).
+     * <br>This blocks the current thread until the history was read, so it must never be called from a callback of JDA.
      *
      * @param clear   The {@link SafetyClear safety clear} option, which helps for specifying different message types, which will not be deleted
      * @param channel The {@link TextChannel text channel}, which should be initialized
      * @return A list of messages representing the precursor of all deletion tasks
+     * @deprecated Use {@link Utility#checkChannelClearSafetyAsync(SafetyClear, MessageChannel) Utility#checkChannelClearSafetyAsync(SafetyClear, MessageChannel)} instead
      */
     @NotNull
+    @Deprecated
+    @ForRemoval(deadline = "v1.2.0")
+    @DeprecatedSince(version = "v1.1.5")
+    @ReplaceWith(method = "checkChannelClearSafetyAsync(SafetyClear, MessageChannel)", clazz = "Utility")
     @CheckReturnValue
     protected static List<Message> checkChannelClearSafety(@Nullable SafetyClear clear, @NotNull TextChannel channel)
     {
-        List<Message> messages = new ArrayList<>();
-
-        if (clear == null)
-        {
-            clear = SafetyClear.NONE;
-        }
-
-        for (Message message : channel.getIterableHistory().cache(false))
-        {
-            switch (clear)
-            {
-                case NONE:
-                    if (message.isFromGuild())
-                    {
-                        messages.add(message);
-                    }
-                    break;
-                case ALL:
-                    if (!message.isEdited() && !message.isPinned() && !message.isWebhookMessage())
-                    {
-                        messages.add(message);
-                    }
-                    break;
-                case PINNED_MESSAGES:
-                    if (!message.isPinned())
-                    {
-                        messages.add(message);
-                    }
-                    break;
-                case WEBHOOK_MESSAGES:
-                    if (!message.isWebhookMessage())
-                    {
-                        messages.add(message);
-                    }
-                    break;
-                case EDITED_MESSAGES:
-                    if (!message.isEdited())
-                    {
-                        messages.add(message);
-                    }
-                    break;
-                default:
-                    break;
-            }
-        }
-        return messages;
+        return checkChannelClearSafetyAsync(clear, channel).join();
     }
 
     /**
      * Checks, which {@link SafetyClear safety clear} enum is given. (if <b>clear</b> equals null, the
      * {@link SafetyClear safety clear} enum will be set to {@link SafetyClear#NONE SafetyClear#NONE}).
+     * <br>This blocks the current thread until the history was read, so it must never be called from a callback of JDA.
      *
      * @param clear   The {@link SafetyClear safety clear} option, which helps for specifying different message types, which will not be deleted
      * @param channel The {@link MessageChannel message channel}, which should be initialized
      * @return A list of messages representing the precursor of all deletion tasks
+     * @deprecated Use {@link Utility#checkChannelClearSafetyAsync(SafetyClear, MessageChannel) Utility#checkChannelClearSafetyAsync(SafetyClear, MessageChannel)} instead
      */
     @NotNull
+    @Deprecated
+    @ForRemoval(deadline = "v1.2.0")
+    @DeprecatedSince(version = "v1.1.5")
+    @ReplaceWith(method = "checkChannelClearSafetyAsync(SafetyClear, MessageChannel)", clazz = "Utility")
     @CheckReturnValue
     protected static List<Message> checkChannelClearSafety(@Nullable SafetyClear clear, @NotNull MessageChannel channel)
     {
-        List<Message> messages = new ArrayList<>();
+        return checkChannelClearSafetyAsync(clear, channel).join();
+    }
 
-        if (clear == null)
-        {
-            clear = SafetyClear.NONE;
-        }
+    /**
+     * Checks, which {@link SafetyClear safety clear} enum is given, without blocking the current thread. (if <b>clear</b> equals null,
+     * the {@link SafetyClear safety clear} enum will be set to {@link SafetyClear#NONE SafetyClear#NONE}).
+     * <br>The whole history is fetched page by page and every page is requested from the callback of the previous request.
+     *
+     * @param clear   The {@link SafetyClear safety clear} option, which helps for specifying different message types, which will not be deleted
+     * @param channel The {@link MessageChannel message channel}, which should be initialized
+     * @return A {@link CompletableFuture future}, which is completed with the messages representing the precursor of all deletion tasks
+     */
+    @NotNull
+    @CheckReturnValue
+    protected static CompletableFuture<List<Message>> checkChannelClearSafetyAsync(@Nullable SafetyClear clear, @NotNull MessageChannel channel)
+    {
+        return HistoryPlanner.collect(channel, Integer.MAX_VALUE, PurgeFilter.of(clear).compile());
+    }
+
+    /**
+     * Deletes every message of the history of the specified channel, which may be deleted by the specified {@link SafetyClear safety clear}
+     * option, with the {@link PurgeEngine purge engine}.
+     * <br>The history is streamed page by page, so messages are deleted while the next page is fetched and the memory does not depend on
+     * the size of the channel.
+     *
+     * @param channel The {@link MessageChannel message channel}, which should be purged
+     * @param clear   The {@link SafetyClear safety clear} option, which helps for specifying different message types, which will not be deleted
+     * @return A list with a single future representing the whole purge, which fails with the first failure, if any message could not be deleted
+     */
+    @NotNull
+    protected static List<CompletableFuture<Void>> deleteHistory(@NotNull MessageChannel channel, @Nullable SafetyClear clear)
+    {
+        return toFutures(PurgeEngine.purgeHistory(channel, PurgeFilter.of(clear).compile(), null).getFuture());
+    }
 
-        for (Message message : channel.getIterableHistory().cache(false))
+    @NotNull
+    private static List<CompletableFuture<Void>> toFutures(@NotNull CompletableFuture<PurgeResult> purge)
+    {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+
+        purge.whenComplete((result, error) ->
         {
-            switch (clear)
+            if (error == null && result.getFailure() != null)
             {
-                case NONE:
-                    if (message.isFromGuild())
-                    {
-                        messages.add(message);
-                    }
-                    break;
-                case ALL:
-                    if (!message.isEdited() && !message.isPinned() && !message.isWebhookMessage())
-                    {
-                        messages.add(message);
-                    }
-                    break;
-                case PINNED_MESSAGES:
-                    if (!message.isPinned())
-                    {
-                        messages.add(message);
-                    }
-                    break;
-                case WEBHOOK_MESSAGES:
-                    if (!message.isWebhookMessage())
-                    {
-                        messages.add(message);
-                    }
-                    break;
-                case EDITED_MESSAGES:
-                    if (!message.isEdited())
-                    {
-                        messages.add(message);
-                    }
-                    break;
-                default:
-                    break;
+                error = result.getFailure();
             }
-        }
-        return messages;
+
+            if (error == null)
+            {
+                future.complete(null);
+            }
+            else
+            {
+                future.completeExceptionally(error);
+            }
+        });
+        return Collections.singletonList(future);
     }
 
     /**
@@ -390,14 +374,360 @@ public class Utility
     }
 
     /**
-     * The {@link Utility#map hash map} instance from the {@link Utility utility} class.
+     * Atomically checks the cooldown of a timeouted message and starts a <b>new</b> one, if the last one is over.
+     * (if <b>scope</b> equals null, the {@link CooldownScope cooldown scope} will be set to {@link CooldownScope#USER CooldownScope#USER})
+     *
+     * @param type      The {@link ChannelType channel type}, in which the timeouted message was triggered
+     * @param scope     The {@link CooldownScope cooldown scope}, which specifies for what the cooldown applies
+     * @param userId    The id of the user, who triggered the timeouted message
+     * @param channelId The id of the channel, in which the timeouted message was triggered
+     * @param guildId   The id of the guild, in which the timeouted message was triggered (<b>0</b> if there is no guild)
+     * @param delay     The delay in milliseconds
+     * @return <b>0</b> if the cooldown is over, otherwise the remaining time in milliseconds
+     */
+    protected static long acquireCooldown(@NotNull ChannelType type, @Nullable CooldownScope scope, long userId, long channelId, long guildId, long delay)
+    {
+        if (scope == null)
+        {
+            scope = CooldownScope.USER;
+        }
+
+        long remaining = cooldownStore.tryAcquire(scope.getType(), scope.getPrimaryKey(userId, channelId), scope.getSecondaryKey(channelId, guildId),
+                timeSource.millis(), delay);
+
+        metrics.record(type, userId, remaining);
+        return remaining;
+    }
+
+    /**
+     * Atomically checks the {@link RateLimiter rate limiter} of a timeouted message and consumes a permit, if one is available.
+     * (if <b>scope</b> equals null, the {@link CooldownScope cooldown scope} will be set to {@link CooldownScope#USER CooldownScope#USER})
+     *
+     * @param type      The {@link ChannelType channel type}, in which the timeouted message was triggered
+     * @param limiter   The {@link RateLimiter rate limiter}, which should be checked
+     * @param scope     The {@link CooldownScope cooldown scope}, which specifies for what the rate limit applies
+     * @param userId    The id of the user, who triggered the timeouted message
+     * @param channelId The id of the channel, in which the timeouted message was triggered
+     * @param guildId   The id of the guild, in which the timeouted message was triggered (<b>0</b> if there is no guild)
+     * @return <b>0</b> if a permit was available, otherwise the time in milliseconds until the next permit is available
+     */
+    protected static long acquireRateLimit(@NotNull ChannelType type, @NotNull RateLimiter limiter, @Nullable CooldownScope scope, long userId,
+                                           long channelId, long guildId)
+    {
+        if (scope == null)
+        {
+            scope = CooldownScope.USER;
+        }
+
+        long remaining = cooldownStore.tryAcquire(limiter, scope.getType(), scope.getPrimaryKey(userId, channelId), scope.getSecondaryKey(channelId, guildId),
+                timeSource.millis());
+
+        metrics.record(type, userId, remaining);
+        return remaining;
+    }
+
+    /**
+     * The {@link CooldownRegistry cooldown registry}, which is used by all timeouted messages with the default
+     * {@link CooldownScope#USER user scope}, as long as the {@link LocalCooldownStore local cooldown store} is used.
+     *
+     * @return The {@link CooldownRegistry cooldown registry} of the {@link CooldownScope#USER user scope}
+     */
+    @NotNull
+    public static CooldownRegistry getCooldownRegistry()
+    {
+        return getCooldownRegistry(CooldownScope.Type.USER);
+    }
+
+    /**
+     * The {@link CooldownRegistry cooldown registry}, which is used by all timeouted messages of the specified {@link CooldownScope.Type scope type}.
+     *
+     * @param type The {@link CooldownScope.Type scope type}, whose registry should be returned
+     * @return The {@link CooldownRegistry cooldown registry} of the specified {@link CooldownScope.Type scope type}
+     */
+    @NotNull
+    public static CooldownRegistry getCooldownRegistry(@NotNull CooldownScope.Type type)
+    {
+        return localStore.getRegistry(type);
+    }
+
+    /**
+     * The {@link CooldownMetrics cooldown metrics}, which count the decisions of all timeouted messages.
+     *
+     * @return The {@link CooldownMetrics cooldown metrics} of all timeouted messages
+     */
+    @NotNull
+    public static CooldownMetrics getCooldownMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * The {@link CooldownStore cooldown store}, which decides the cooldowns and rate limits of all timeouted messages.
+     *
+     * @return The {@link CooldownStore cooldown store} of all timeouted messages
+     */
+    @NotNull
+    public static CooldownStore getCooldownStore()
+    {
+        return cooldownStore;
+    }
+
+    /**
+     * Sets the {@link CooldownStore cooldown store}, which decides the cooldowns and rate limits of all timeouted messages.
+     * (if <b>store</b> equals null, the {@link LocalCooldownStore local cooldown store} will be used)
+     * <br>A {@link RemoteCooldownStore remote cooldown store} shares the cooldowns between several processes.
+     *
+     * @param store The {@link CooldownStore cooldown store}, which should be used
+     */
+    public static void setCooldownStore(@Nullable CooldownStore store)
+    {
+        cooldownStore = store == null ? localStore : store;
+    }
+
+    /**
+     * The {@link MessageCache message cache}, from which the history-reading methods read the newest messages.
+     *
+     * @return The {@link MessageCache message cache} or <b>null</b>, if every message is fetched
+     */
+    @Nullable
+    public static MessageCache getMessageCache()
+    {
+        return HistoryPlanner.getCache();
+    }
+
+    /**
+     * Sets the {@link MessageCache message cache}, from which the history-reading methods read the newest messages.
+     * (if <b>cache</b> equals null, every message will be fetched)
+     * <br>The cache must also be registered as an event listener, otherwise it stays empty.
+     *
+     * @param cache The {@link MessageCache message cache}, which should be used
+     */
+    public static void setMessageCache(@Nullable MessageCache cache)
+    {
+        HistoryPlanner.setCache(cache);
+    }
+
+    /**
+     * The {@link MessageIndex message index}, which is searched by the search methods of the channel wrappers.
+     *
+     * @return The {@link MessageIndex message index} or <b>null</b>, if no index is set
+     */
+    @Nullable
+    public static MessageIndex getMessageIndex()
+    {
+        return messageIndex;
+    }
+
+    /**
+     * Sets the {@link MessageIndex message index}, which is searched by the search methods of the channel wrappers.
+     * (if <b>index</b> equals null, every search will find nothing)
+     * <br>The index must also be registered as an event listener, otherwise it only holds the backfilled messages.
+     *
+     * @param index The {@link MessageIndex message index}, which should be used
+     */
+    public static void setMessageIndex(@Nullable MessageIndex index)
+    {
+        messageIndex = index;
+    }
+
+    /**
+     * The {@link MessageStore message store}, against which the stored purges and author lookups of the channel wrappers run.
+     *
+     * @return The {@link MessageStore message store} or <b>null</b>, if no store is set
+     */
+    @Nullable
+    public static MessageStore getMessageStore()
+    {
+        return messageStore;
+    }
+
+    /**
+     * Sets the {@link MessageStore message store}, against which the stored purges and author lookups of the channel wrappers run.
+     * (if <b>store</b> equals null, the stored purges and author lookups will find nothing)
+     * <br>The store must also be registered as an event listener, otherwise it only holds the backfilled messages.
+     *
+     * @param store The {@link MessageStore message store}, which should be used
+     */
+    public static void setMessageStore(@Nullable MessageStore store)
+    {
+        messageStore = store;
+    }
+
+    /**
+     * The {@link TimeSource time source}, which is read once per decision of all timeouted messages.
+     *
+     * @return The {@link TimeSource time source} of all timeouted messages
+     */
+    @NotNull
+    public static TimeSource getTimeSource()
+    {
+        return timeSource;
+    }
+
+    /**
+     * Sets the {@link TimeSource time source}, which is read once per decision of all timeouted messages.
+     * (if <b>source</b> equals null, the {@link TimeSource#MONOTONIC monotonic time source} will be used)
+     * <br>The stored timestamps are not converted, so the time source should be set before the first timeouted message is sent.
+     *
+     * @param source The {@link TimeSource time source}, which should be used
+     */
+    public static void setTimeSource(@Nullable TimeSource source)
+    {
+        timeSource = source == null ? TimeSource.MONOTONIC : source;
+    }
+
+    /**
+     * Persists the {@link CooldownRegistry cooldown registries} of all timeouted messages in the specified directory,
+     * so cooldowns survive a restart.
+     * <br>Every {@link CooldownScope.Type scope type} gets its own {@link CooldownSnapshot cooldown snapshot}, which is loaded
+     * immediately and checkpointed in the specified interval and once more, if the JVM shuts down.
+     * (if {@link TimeUnit the time unit} equals <b>null</b>, there will be used a default {@link TimeUnit time unit}:
+     * {@link TimeUnit#SECONDS TimeUnit#SECONDS})
+     * <br>The {@link TimeSource time source} should be set before this is called.
+     *
+     * @param directory The directory, in which the snapshots should be stored
+     * @param interval  The interval between two checkpoints
+     * @param unit      The {@link TimeUnit time unit} of the interval
+     */
+    public static synchronized void enableCooldownPersistence(@NotNull Path directory, long interval, @Nullable TimeUnit unit)
+    {
+        if (snapshots != null)
+        {
+            logger.error("The cooldown persistence is already enabled.", new IllegalStateException());
+            return;
+        }
+
+        if (interval <= 0)
+        {
+            logger.error("The checkpoint interval, which you are specifying, must be greater than 0.", new IllegalArgumentException());
+            return;
+        }
+
+        CooldownScope.Type[] types = CooldownScope.Type.values();
+        CooldownSnapshot[] opened = new CooldownSnapshot[types.length];
+
+        try
+        {
+            Files.createDirectories(directory);
+
+            for (CooldownScope.Type type : types)
+            {
+                Path file = directory.resolve("cooldowns-" + type.name().toLowerCase(Locale.ROOT).replace('_', '-') + ".bin");
+                opened[type.ordinal()] = CooldownSnapshot.open(file, getCooldownRegistry(type), timeSource);
+            }
+        }
+        catch (IOException e)
+        {
+            logger.error("The cooldown snapshots in " + directory + " could not be opened.", e);
+            return;
+        }
+
+        snapshots = opened;
+        checkpointer = Executors.newSingleThreadScheduledExecutor(runnable ->
+        {
+            Thread thread = new Thread(runnable, "JDA-Commons Cooldown-Checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long period = (unit == null ? TimeUnit.SECONDS : unit).toMillis(interval);
+        checkpointer.scheduleWithFixedDelay(Utility::checkpointCooldowns, period, period, TimeUnit.MILLISECONDS);
+
+        if (!shutdownHook)
+        {
+            Runtime.getRuntime().addShutdownHook(new Thread(Utility::disableCooldownPersistence, "JDA-Commons Cooldown-Shutdown"));
+            shutdownHook = true;
+        }
+    }
+
+    /**
+     * Writes a checkpoint of all {@link CooldownSnapshot cooldown snapshots}, if the cooldown persistence is enabled.
+     */
+    public static synchronized void checkpointCooldowns()
+    {
+        if (snapshots == null)
+        {
+            return;
+        }
+
+        for (CooldownSnapshot snapshot : snapshots)
+        {
+            try
+            {
+                snapshot.checkpoint();
+            }
+            catch (IOException e)
+            {
+                logger.error("The cooldown snapshot " + snapshot.getFile() + " could not be written.", e);
+            }
+        }
+    }
+
+    /**
+     * Writes a last checkpoint of all {@link CooldownSnapshot cooldown snapshots} and stops the cooldown persistence.
+     */
+    public static synchronized void disableCooldownPersistence()
+    {
+        if (snapshots == null)
+        {
+            return;
+        }
+
+        checkpointer.shutdown();
+
+        for (CooldownSnapshot snapshot : snapshots)
+        {
+            try
+            {
+                snapshot.close();
+            }
+            catch (IOException e)
+            {
+                logger.error("The cooldown snapshot " + snapshot.getFile() + " could not be closed.", e);
+            }
+        }
+
+        snapshots = null;
+        checkpointer = null;
+    }
+
+    /**
+     * The {@link CooldownMessage cooldown message}, which is sent by all timeouted messages without a delay message.
+     *
+     * @return The {@link CooldownMessage cooldown message} of all timeouted messages
+     */
+    @NotNull
+    public static CooldownMessage getCooldownMessage()
+    {
+        return cooldownMessage;
+    }
+
+    /**
+     * Sets the {@link CooldownMessage cooldown message}, which is sent by all timeouted messages without a delay message.
+     * (if <b>message</b> equals null, the {@link CooldownMessage#DEFAULT default cooldown message} will be used)
+     *
+     * @param message The {@link CooldownMessage cooldown message}, which should be used
+     */
+    public static void setCooldownMessage(@Nullable CooldownMessage message)
+    {
+        cooldownMessage = message == null ? CooldownMessage.DEFAULT : message;
+    }
+
+    /**
+     * A snapshot of the {@link CooldownRegistry cooldown registry} as {@link HashMap hash map}.
+     * <br>Changes to the returned map will <b>not</b> affect the cooldowns anymore.
      *
-     * @return {@link Utility#map Utility#map}
+     * @return A <b>new</b> {@link HashMap hash map}, which contains all ids and their timestamps
+     * @deprecated Use {@link Utility#getCooldownRegistry() Utility#getCooldownRegistry()} instead
      */
     @NotNull
+    @Deprecated
     @CheckReturnValue
+    @ForRemoval(deadline = "v1.2.0")
+    @DeprecatedSince(version = "v1.1.5")
+    @ReplaceWith(method = "getCooldownRegistry()", clazz = "Utility")
     public static HashMap<Long, Long> getHashMap()
     {
-        return map;
+        return new HashMap<>(getCooldownRegistry().toMap());
     }
 }
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cache;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps the id of an author to the ids of the live messages of a {@link MessageRing ring buffer}, which were written by the author.
+ * <br>The ids of every author are held in a sorted primitive array, so the newest messages of an author are read from the end of
+ * the array and the oldest message, which is the one, that is evicted from the ring, is removed from its start.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+final class AuthorIndex
+{
+    private static final int INITIAL_SIZE = 4;
+
+    private final Map<Long, Ids> authors = new HashMap<>();
+
+    void add(long authorId, long id)
+    {
+        authors.computeIfAbsent(authorId, key -> new Ids()).add(id);
+    }
+
+    void remove(long authorId, long id)
+    {
+        Ids ids = authors.get(authorId);
+
+        if (ids != null && ids.remove(id) && ids.size == 0)
+        {
+            authors.remove(authorId);
+        }
+    }
+
+    /**
+     * Copies at most <b>limit</b> ids of the specified author, which are in the specified range, to the specified array, from the
+     * newest to the oldest one.
+     *
+     * @param authorId The id of the author
+     * @param minId    The smallest id, which should be copied
+     * @param beforeId The id, below which every copied id is
+     * @param limit    The amount of ids, which should be copied
+     * @param into     The array, to which the ids should be copied
+     * @return The amount of copied ids
+     */
+    int read(long authorId, long minId, long beforeId, int limit, long[] into)
+    {
+        Ids ids = authors.get(authorId);
+
+        if (ids == null)
+        {
+            return 0;
+        }
+
+        int index = Arrays.binarySearch(ids.ids, 0, ids.size, beforeId);
+        int read = 0;
+
+        for (int i = (index >= 0 ? index : -index - 1) - 1; i >= 0 && read < limit && ids.ids[i] >= minId; i--)
+        {
+            into[read++] = ids.ids[i];
+        }
+        return read;
+    }
+
+    private static final class Ids
+    {
+        private long[] ids = new long[INITIAL_SIZE];
+        private int size;
+
+        private void add(long id)
+        {
+            if (size == ids.length)
+            {
+                ids = Arrays.copyOf(ids, size << 1);
+            }
+
+            int index = size == 0 || id > ids[size - 1] ? -size - 1 : Arrays.binarySearch(ids, 0, size, id);
+
+            if (index >= 0)
+            {
+                return;
+            }
+
+            int position = -index - 1;
+
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+
+        private boolean remove(long id)
+        {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+
+            if (index < 0)
+            {
+                return false;
+            }
+
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+
+            if (size < ids.length >> 2 && ids.length > INITIAL_SIZE)
+            {
+                ids = Arrays.copyOf(ids, ids.length >> 1);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cache;
+
+/**
+ * An open addressing hash map, which maps the id of an author to the sequence number of the newest record of the author in a single
+ * channel of a {@link MessageStore message store}.
+ * <br>The records of the store are overwritten in the order, in which they were added, so a sequence number, which is less than the
+ * oldest live sequence number, points to an overwritten record. These entries are dropped, before the map grows, so the map never
+ * holds much more authors than the live records of the channel. The map is only accessed, while the monitor of the store is held.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+final class ChainHeads
+{
+    private static final int INITIAL_SIZE = 8;
+    private static final long EMPTY = 0;
+
+    private long[] keys = new long[INITIAL_SIZE];
+    private long[] values = new long[INITIAL_SIZE];
+    private int size;
+
+    /**
+     * The sequence number of the newest record of the specified author.
+     *
+     * @param authorId The id of the author
+     * @return The sequence number or <b>-1</b>, if the author has no record
+     */
+    long get(long authorId)
+    {
+        int mask = keys.length - 1;
+
+        for (int slot = slot(authorId, mask); keys[slot] != EMPTY; slot = (slot + 1) & mask)
+        {
+            if (keys[slot] == authorId)
+            {
+                return values[slot];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sets the sequence number of the newest record of the specified author.
+     * <br>Discord ids are never <b>0</b>, so this id marks an empty slot and must not be put.
+     *
+     * @param authorId The id of the author
+     * @param sequence The sequence number of the newest record of the author
+     * @param oldest   The oldest sequence number of a live record, below which the entries are dropped
+     */
+    void put(long authorId, long sequence, long oldest)
+    {
+        if ((size + 1) << 1 > keys.length)
+        {
+            int live = 0;
+
+            for (int i = 0; i < keys.length; i++)
+            {
+                if (keys[i] != EMPTY && values[i] >= oldest)
+                {
+                    live++;
+                }
+            }
+
+            int length = INITIAL_SIZE;
+
+            while ((live + 1) << 1 > length)
+            {
+                length <<= 1;
+            }
+
+            rehash(length, oldest);
+        }
+
+        if (insert(keys, values, authorId, sequence))
+        {
+            size++;
+        }
+    }
+
+    private void rehash(int length, long oldest)
+    {
+        long[] rehashedKeys = new long[length];
+        long[] rehashedValues = new long[length];
+        int live = 0;
+
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (keys[i] != EMPTY && values[i] >= oldest)
+            {
+                insert(rehashedKeys, rehashedValues, keys[i], values[i]);
+                live++;
+            }
+        }
+
+        keys = rehashedKeys;
+        values = rehashedValues;
+        size = live;
+    }
+
+    private static boolean insert(long[] keys, long[] values, long key, long value)
+    {
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+
+        while (keys[slot] != EMPTY)
+        {
+            if (keys[slot] == key)
+            {
+                values[slot] = value;
+                return false;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        return true;
+    }
+
+    private static int slot(long key, int mask)
+    {
+        long hash = key * 0x9e3779b97f4a7c15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cache;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A fixed-size off-heap ring buffer, which holds the UTF-8 encoded contents of a {@link MessageStore message store}.
+ * <br>Every content is appended at a logical position, which only grows. The physical position in the buffer is the logical position
+ * modulo the capacity and a content never wraps around the end of the buffer. As soon as the buffer is full, the oldest contents are
+ * overwritten, so a content is still available, as long as its logical position is not older than one capacity before the newest one.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+final class ContentArena
+{
+    /**
+     * The logical position of a content, which is not held by the arena.
+     */
+    static final long NONE = -1;
+
+    private final ByteBuffer buffer;
+    private final int capacity;
+
+    private long written;
+
+    ContentArena(int capacity)
+    {
+        this.buffer = ByteBuffer.allocateDirect(capacity);
+        this.capacity = capacity;
+    }
+
+    /**
+     * Appends the specified content and overwrites the oldest contents, if the arena is full.
+     *
+     * @param content The UTF-8 encoded content
+     * @return The logical position of the content or {@link #NONE}, if the content is empty or larger than the arena
+     */
+    long write(@NotNull byte[] content)
+    {
+        if (content.length == 0 || content.length > capacity)
+        {
+            return NONE;
+        }
+
+        int physical = (int) (written % capacity);
+
+        if (capacity - physical < content.length)
+        {
+            // The content does not fit behind the newest one, so it starts at the beginning of the buffer.
+            written += capacity - physical;
+            physical = 0;
+        }
+
+        long position = written;
+
+        buffer.position(physical);
+        buffer.put(content);
+
+        written += content.length;
+        return position;
+    }
+
+    /**
+     * Reads the content at the specified logical position.
+     *
+     * @param position The logical position of the content
+     * @param length   The length of the UTF-8 encoded content
+     * @return The content or <b>null</b>, if the content was already overwritten
+     */
+    @Nullable
+    String read(long position, int length)
+    {
+        if (!isAvailable(position))
+        {
+            return null;
+        }
+
+        byte[] content = new byte[length];
+
+        ByteBuffer read = buffer.duplicate();
+        read.position((int) (position % capacity));
+        read.get(content);
+
+        return new String(content, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Checks, whether the content at the specified logical position was not overwritten yet.
+     *
+     * @param position The logical position of the content
+     * @return <b>true</b>, if the content is still held by the arena
+     */
+    boolean isAvailable(long position)
+    {
+        return position != NONE && position >= written - capacity;
+    }
+
+    int getCapacity()
+    {
+        return capacity;
+    }
+
+    long getWritten()
+    {
+        return written;
+    }
+}
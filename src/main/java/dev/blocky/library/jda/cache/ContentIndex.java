@@ -0,0 +1,136 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cache;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Counts the 64-bit hashes of the contents of the messages of a {@link MessageRing ring buffer}.
+ * <br>The hashes are held in an open-addressing table of primitive arrays with linear probing. The table never holds more hashes
+ * than the ring holds messages, so it is sized once and never grows. A removed hash is not replaced by a tombstone, instead the
+ * following hashes of its probe sequence are shifted back, so a lookup never needs to skip removed entries.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+final class ContentIndex
+{
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long[] keys;
+    private final int[] counts;
+    private final int mask;
+
+    ContentIndex(int capacity)
+    {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) * 2 - 1) << 1;
+
+        this.keys = new long[size];
+        this.counts = new int[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * The 64-bit FNV-1a hash of the specified content.
+     * <br>The hash is never <b>0</b>, because <b>0</b> marks an empty slot of the table.
+     *
+     * @param content The content of a message
+     * @return The hash of the content
+     */
+    static long hash(@NotNull CharSequence content)
+    {
+        long hash = FNV_OFFSET;
+
+        for (int i = 0; i < content.length(); i++)
+        {
+            hash ^= content.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    void add(long hash)
+    {
+        int slot = find(hash);
+
+        if (keys[slot] == 0)
+        {
+            keys[slot] = hash;
+        }
+
+        counts[slot]++;
+    }
+
+    void remove(long hash)
+    {
+        int slot = find(hash);
+
+        if (keys[slot] == 0 || --counts[slot] > 0)
+        {
+            return;
+        }
+
+        // Shifts the following entries of the probe sequence back, so no lookup stops at the emptied slot.
+        int free = slot;
+        int next = slot;
+
+        while (true)
+        {
+            next = (next + 1) & mask;
+
+            if (keys[next] == 0)
+            {
+                break;
+            }
+
+            int home = home(keys[next]);
+
+            if (((next - home) & mask) >= ((next - free) & mask))
+            {
+                keys[free] = keys[next];
+                counts[free] = counts[next];
+                free = next;
+            }
+        }
+
+        keys[free] = 0;
+        counts[free] = 0;
+    }
+
+    int count(long hash)
+    {
+        int slot = find(hash);
+        return keys[slot] == 0 ? 0 : counts[slot];
+    }
+
+    private int find(long hash)
+    {
+        int slot = home(hash);
+
+        while (keys[slot] != 0 && keys[slot] != hash)
+        {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int home(long hash)
+    {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,479 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cache;
+
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageChannel;
+import net.dv8tion.jda.api.events.ReconnectedEvent;
+import net.dv8tion.jda.api.events.ShutdownEvent;
+import net.dv8tion.jda.api.events.channel.ChannelDeleteEvent;
+import net.dv8tion.jda.api.events.message.MessageBulkDeleteEvent;
+import net.dv8tion.jda.api.events.message.MessageDeleteEvent;
+import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+import net.dv8tion.jda.api.events.message.MessageUpdateEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A cache, which holds the newest messages of every channel, from which messages were received, and is fed by the gateway events.
+ * <br>Every channel gets a {@link MessageRing ring buffer} of a specific size, which is updated on every received, updated and
+ * deleted message. All channels together hold at most a specific amount of messages and a specific estimated amount of bytes, and if
+ * there are more, the channels, which were used least recently, are evicted as a whole, until the cache is below a low watermark.
+ * <br>Every ring has its own lock, so events of different channels never wait for each other. Only the eviction takes a lock of the
+ * whole cache and a thread, which finds the cache over its limits, while another thread evicts, does not wait.
+ * <br>The cache only holds the messages, which were received after it was registered, so the history-reading methods read the newest
+ * messages from the cache and only fetch the older messages, which are missing. If the gateway connection is recreated, events may
+ * have been missed, so the whole cache is cleared.
+ * <br>The cache needs to be registered as an event listener (e.g. with {@link net.dv8tion.jda.api.JDA#addEventListener(Object...)
+ * JDA#addEventListener(Object...)}) and is used by the history-reading methods, after it was set with
+ * {@link dev.blocky.library.jda.Utility#setMessageCache(MessageCache) Utility#setMessageCache(MessageCache)}.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+public final class MessageCache extends ListenerAdapter
+{
+    private static final Logger logger = JDALogger.getLog(MessageCache.class);
+    private static final double LOW_WATERMARK = 0.9;
+
+    /**
+     * The default amount of messages, which are held per channel.
+     * <br>A check of the newest messages of a channel is only answered by the cache, if the capacity covers the amount of checked
+     * messages, so a cache, which should answer larger checks, needs a larger capacity.
+     */
+    public static final int DEFAULT_CAPACITY = 200;
+
+    /**
+     * The default amount of messages, which are held by all channels together.
+     */
+    public static final int DEFAULT_MAX_MESSAGES = 100_000;
+
+    /**
+     * The default estimated amount of bytes, which is used by the messages of all channels together.
+     */
+    public static final long DEFAULT_MAX_BYTES = 128L * 1024 * 1024;
+
+    private final int capacity;
+    private final int maxMessages;
+    private final long maxBytes;
+    private final ConcurrentHashMap<Long, MessageRing> rings = new ConcurrentHashMap<>();
+    private final AtomicLong messages = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    /**
+     * Constructs a <b>new</b> {@link MessageCache message cache} with the default sizes.
+     */
+    public MessageCache()
+    {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_MESSAGES, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Constructs a <b>new</b> {@link MessageCache message cache}.
+     * <br>The capacity must be greater than 0 and the maximum amount of messages must not be smaller than the capacity.
+     * (if this is not the case, the default sizes will be used)
+     *
+     * @param capacity    The amount of messages, which are held per channel
+     * @param maxMessages The amount of messages, which are held by all channels together
+     */
+    public MessageCache(int capacity, int maxMessages)
+    {
+        this(capacity, maxMessages, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Constructs a <b>new</b> {@link MessageCache message cache}.
+     * <br>The capacity must be greater than 0, the maximum amount of messages must not be smaller than the capacity and the maximum
+     * amount of bytes must be greater than 0. (if this is not the case, the default sizes will be used)
+     * <br>The size of a message is estimated by the length of its content and the amount of its attachments and embeds, so the
+     * maximum amount of bytes is a bound of the heap, which is used by the cache, and not an exact limit.
+     * <br>The capacity should cover the largest amount of messages, which is checked with
+     * {@link #containsContent(MessageChannel, CharSequence, int)}, because a larger check always needs to fetch the history.
+     *
+     * @param capacity    The amount of messages, which are held per channel
+     * @param maxMessages The amount of messages, which are held by all channels together
+     * @param maxBytes    The estimated amount of bytes, which is used by the messages of all channels together
+     */
+    public MessageCache(int capacity, int maxMessages, long maxBytes)
+    {
+        if (capacity < 1 || maxMessages < capacity || maxBytes < 1)
+        {
+            logger.error("The capacity must be greater than 0, the maximum amount of messages must not be smaller than the capacity and "
+                    + "the maximum amount of bytes must be greater than 0.", new IllegalArgumentException());
+
+            capacity = DEFAULT_CAPACITY;
+            maxMessages = Math.max(DEFAULT_MAX_MESSAGES, capacity);
+            maxBytes = DEFAULT_MAX_BYTES;
+        }
+
+        this.capacity = capacity;
+        this.maxMessages = maxMessages;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public void onMessageReceived(@NotNull MessageReceivedEvent event)
+    {
+        add(event.getMessage());
+    }
+
+    @Override
+    public void onMessageUpdate(@NotNull MessageUpdateEvent event)
+    {
+        MessageRing ring = ring(event.getChannel().getIdLong());
+
+        if (ring != null)
+        {
+            ring.update(event.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessageDelete(@NotNull MessageDeleteEvent event)
+    {
+        MessageRing ring = ring(event.getChannel().getIdLong());
+
+        if (ring != null)
+        {
+            ring.remove(event.getMessageIdLong());
+        }
+    }
+
+    @Override
+    public void onMessageBulkDelete(@NotNull MessageBulkDeleteEvent event)
+    {
+        MessageRing ring = ring(event.getChannel().getIdLong());
+
+        if (ring == null)
+        {
+            return;
+        }
+
+        for (String id : event.getMessageIds())
+        {
+            ring.remove(Long.parseUnsignedLong(id));
+        }
+    }
+
+    @Override
+    public void onChannelDelete(@NotNull ChannelDeleteEvent event)
+    {
+        invalidate(event.getChannel().getIdLong());
+    }
+
+    @Override
+    public void onReconnected(@NotNull ReconnectedEvent event)
+    {
+        // The events between the disconnect and the new session are lost.
+        clear();
+    }
+
+    @Override
+    public void onShutdown(@NotNull ShutdownEvent event)
+    {
+        clear();
+    }
+
+    /**
+     * Adds the specified message to the ring buffer of its channel.
+     * <br>If the cache holds too many messages afterwards, the channels, which were used least recently, are evicted.
+     *
+     * @param message The {@link Message message}, which should be added
+     */
+    public void add(@NotNull Message message)
+    {
+        long channelId = message.getChannel().getIdLong();
+
+        while (true)
+        {
+            MessageRing ring = rings.get(channelId);
+
+            if (ring == null)
+            {
+                ring = rings.computeIfAbsent(channelId, id -> new MessageRing(capacity, message.getIdLong(), messages, bytes));
+            }
+
+            ring.touch();
+
+            if (ring.add(message))
+            {
+                break;
+            }
+
+            // The ring was evicted, after it was looked up, so it is replaced by a new one.
+            rings.remove(channelId, ring);
+        }
+
+        if (isOverLimit(1))
+        {
+            evict(channelId);
+        }
+    }
+
+    /**
+     * Adds at most <b>amount</b> messages of the specified channel, which are older than the specified id, to the specified list,
+     * from the newest to the oldest one.
+     * <br>Only the messages, which are held by the cache, are added. The returned id is the id, before which the messages are not
+     * held by the cache, so the rest of the history needs to be fetched before this id.
+     *
+     * @param channel  The {@link MessageChannel message channel}, whose messages should be read
+     * @param beforeId The id, before which the messages should be read (use {@link Long#MAX_VALUE Long#MAX_VALUE} for the newest messages)
+     * @param amount   The amount of messages, which should be read
+     * @param into     The list, to which the messages should be added
+     * @return The id, before which the history still needs to be fetched, if less than <b>amount</b> messages were read
+     */
+    public long read(@NotNull MessageChannel channel, long beforeId, int amount, @NotNull List<Message> into)
+    {
+        MessageRing ring = ring(channel.getIdLong());
+        return ring == null ? beforeId : ring.read(beforeId, amount, into);
+    }
+
+    /**
+     * Adds at most <b>limit</b> messages of the specified channel, which were written by the specified author and whose ids are in the
+     * specified range, to the specified list, from the newest to the oldest one.
+     * <br>The cached messages are indexed by their authors, so only the messages of the author are read. The returned id is the id,
+     * before which the messages are not held by the cache, so the rest of the history needs to be fetched before this id.
+     *
+     * @param channel  The {@link MessageChannel message channel}, whose messages should be read
+     * @param authorId The id of the author
+     * @param minId    The smallest id, which should be read
+     * @param beforeId The id, before which the messages should be read (use {@link Long#MAX_VALUE Long#MAX_VALUE} for the newest messages)
+     * @param limit    The amount of messages, which should be read
+     * @param into     The list, to which the messages should be added
+     * @return The id, before which the history still needs to be fetched, if less than <b>limit</b> messages were read
+     */
+    public long readByAuthor(@NotNull MessageChannel channel, long authorId, long minId, long beforeId, int limit, @NotNull List<Message> into)
+    {
+        MessageRing ring = ring(channel.getIdLong());
+        return ring == null ? beforeId : ring.readByAuthor(authorId, minId, beforeId, limit, into);
+    }
+
+    /**
+     * Checks if none of the newest <b>amount</b> messages of the specified channel has the specified content.
+     * <br>A <b>false</b> result does not mean, that a message has the content, because the cache may hold less than <b>amount</b>
+     * messages. Use {@link #containsContent(MessageChannel, CharSequence, int)} to tell both cases apart.
+     *
+     * @param channel The {@link MessageChannel message channel}, whose messages should be checked
+     * @param content The content, which should be checked
+     * @param amount  The amount of messages, which should be checked
+     * @return <b>true -</b> If none of the newest <b>amount</b> messages has the content <br><b>false -</b> If this is not known
+     */
+    public boolean isAbsent(@NotNull MessageChannel channel, @NotNull CharSequence content, int amount)
+    {
+        return Boolean.FALSE.equals(containsContent(channel, content, amount));
+    }
+
+    /**
+     * Checks if any of the newest <b>amount</b> messages of the specified channel has the specified content.
+     * <br>The contents of the cached messages are counted by their 64-bit hashes, so a content, which no cached message has, is
+     * decided in constant time. If a cached message has the hash of the content, only the messages with this hash are compared with
+     * the content, so no message needs to be fetched.
+     * <br>The absence of a content is only known, if the ring of the channel holds at least <b>amount</b> messages, so the
+     * {@link #getCapacity() capacity} of the cache needs to cover the amount, which is checked. (e.g. a cache with the
+     * {@link #DEFAULT_CAPACITY default capacity} never decides, that a content is absent from the newest 10,000 messages)
+     *
+     * @param channel The {@link MessageChannel message channel}, whose messages should be checked
+     * @param content The content, which should be checked
+     * @param amount  The amount of messages, which should be checked
+     * @return <b>true -</b> If one of the newest <b>amount</b> messages has the content <br><b>false -</b> If none of them has the content
+     * <br><b>null -</b> If this is not known, because the cache holds less than <b>amount</b> messages of the channel
+     */
+    @Nullable
+    public Boolean containsContent(@NotNull MessageChannel channel, @NotNull CharSequence content, int amount)
+    {
+        MessageRing ring = ring(channel.getIdLong());
+        return ring == null ? null : ring.contains(content, ContentIndex.hash(content), amount);
+    }
+
+    /**
+     * Removes every message of the specified channel from the cache.
+     *
+     * @param channelId The id of the channel
+     */
+    public void invalidate(long channelId)
+    {
+        MessageRing ring = rings.remove(channelId);
+
+        if (ring != null)
+        {
+            ring.evict();
+        }
+    }
+
+    /**
+     * Removes every message from the cache.
+     */
+    public void clear()
+    {
+        for (Long channelId : rings.keySet())
+        {
+            invalidate(channelId);
+        }
+    }
+
+    /**
+     * The amount of channels, whose messages are held by the cache.
+     *
+     * @return The amount of cached channels
+     */
+    public int getChannelCount()
+    {
+        return rings.size();
+    }
+
+    /**
+     * The amount of slots, which are used by all channels together, including the slots of deleted messages.
+     *
+     * @return The amount of used slots
+     */
+    public int getMessageCount()
+    {
+        return (int) messages.get();
+    }
+
+    /**
+     * The estimated amount of bytes, which is used by the messages of all channels together.
+     *
+     * @return The estimated size of the cached messages
+     */
+    public long getByteCount()
+    {
+        return bytes.get();
+    }
+
+    /**
+     * The amount of messages, which are held per channel.
+     *
+     * @return The capacity of every channel
+     */
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * The amount of messages, which are held by all channels together.
+     *
+     * @return The maximum amount of messages
+     */
+    public int getMaxMessages()
+    {
+        return maxMessages;
+    }
+
+    /**
+     * The estimated amount of bytes, which is used by the messages of all channels together.
+     *
+     * @return The maximum estimated size of the cached messages
+     */
+    public long getMaxBytes()
+    {
+        return maxBytes;
+    }
+
+    private MessageRing ring(long channelId)
+    {
+        MessageRing ring = rings.get(channelId);
+
+        if (ring != null)
+        {
+            ring.touch();
+        }
+        return ring;
+    }
+
+    /**
+     * Checks if the cache holds more than the specified fraction of its limits.
+     *
+     * @param fraction The fraction of the limits (<b>1</b> for the limits themselves)
+     * @return <b>true -</b> If the cache holds more messages or bytes <br><b>false -</b> If the cache is below the fraction of its limits
+     */
+    private boolean isOverLimit(double fraction)
+    {
+        return messages.get() > maxMessages * fraction || bytes.get() > maxBytes * fraction;
+    }
+
+    private void evict(long keep)
+    {
+        // Another thread is already evicting, so this thread does not need to wait.
+        if (!evictionLock.tryLock())
+        {
+            return;
+        }
+
+        try
+        {
+            if (!isOverLimit(1))
+            {
+                return;
+            }
+
+            List<Long> channelIds = new ArrayList<>(rings.keySet());
+            long[] lastUsed = new long[channelIds.size()];
+            List<Integer> order = new ArrayList<>(channelIds.size());
+
+            for (int i = 0; i < channelIds.size(); i++)
+            {
+                MessageRing ring = rings.get(channelIds.get(i));
+                lastUsed[i] = ring == null ? Long.MIN_VALUE : ring.getLastUsed();
+                order.add(i);
+            }
+
+            // The stamps are copied first, so the order does not change, while it is sorted.
+            order.sort(Comparator.comparingLong(i -> lastUsed[i]));
+
+            // Every pass evicts down to a low watermark, so the channels are not sorted again on every message.
+            for (int i = 0; i < order.size() && isOverLimit(LOW_WATERMARK); i++)
+            {
+                long channelId = channelIds.get(order.get(i));
+
+                if (channelId != keep)
+                {
+                    invalidate(channelId);
+                }
+            }
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "MessageCache{" +
+                "capacity=" + capacity +
+                ", maxMessages=" + maxMessages +
+                ", maxBytes=" + maxBytes +
+                ", channels=" + getChannelCount() +
+                ", messages=" + getMessageCount() +
+                ", bytes=" + getByteCount() +
+                '}';
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cache;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A view of a single record of a {@link MessageStore message store}.
+ * <br>A scan of the store moves one view from record to record, so a scan does not allocate anything per message. The view is only
+ * valid during the call, to which it was passed, and must not be kept.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+public final class MessageRecord
+{
+    private final MessageStore store;
+
+    private int slot;
+
+    MessageRecord(@NotNull MessageStore store)
+    {
+        this.store = store;
+    }
+
+    void moveTo(int slot)
+    {
+        this.slot = slot;
+    }
+
+    /**
+     * The id of the message.
+     *
+     * @return The id of the message
+     */
+    public long getIdLong()
+    {
+        return store.getId(slot);
+    }
+
+    /**
+     * The id of the author of the message.
+     *
+     * @return The id of the author
+     */
+    public long getAuthorIdLong()
+    {
+        return store.getAuthorId(slot);
+    }
+
+    /**
+     * The id of the channel, which contains the message.
+     *
+     * @return The id of the channel
+     */
+    public long getChannelIdLong()
+    {
+        return store.getChannelId(slot);
+    }
+
+    /**
+     * Checks, whether the message is pinned.
+     *
+     * @return <b>true</b>, if the message is pinned
+     */
+    public boolean isPinned()
+    {
+        return (store.getFlags(slot) & MessageStore.PINNED) != 0;
+    }
+
+    /**
+     * Checks, whether the message was edited.
+     *
+     * @return <b>true</b>, if the message was edited
+     */
+    public boolean isEdited()
+    {
+        return (store.getFlags(slot) & MessageStore.EDITED) != 0;
+    }
+
+    /**
+     * Checks, whether the message was sent by a webhook.
+     *
+     * @return <b>true</b>, if the message was sent by a webhook
+     */
+    public boolean isWebhookMessage()
+    {
+        return (store.getFlags(slot) & MessageStore.WEBHOOK) != 0;
+    }
+
+    /**
+     * Checks, whether the message has attachments.
+     *
+     * @return <b>true</b>, if the message has attachments
+     */
+    public boolean hasAttachments()
+    {
+        return (store.getFlags(slot) & MessageStore.ATTACHMENTS) != 0;
+    }
+
+    /**
+     * Checks, whether the message was sent in a guild.
+     *
+     * @return <b>true</b>, if the message was sent in a guild
+     */
+    public boolean isFromGuild()
+    {
+        return (store.getFlags(slot) & MessageStore.GUILD) != 0;
+    }
+
+    /**
+     * The raw content of the message.
+     * <br>The content is read from the content arena of the store, which only holds the newest contents.
+     *
+     * @return The raw content or <b>null</b>, if the content was already evicted, did not fit into the content arena or the store holds no
+     * contents at all
+     */
+    @Nullable
+    public String getContentRaw()
+    {
+        return store.getContent(slot);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "MessageRecord{" +
+                "id=" + getIdLong() +
+                ", authorId=" + getAuthorIdLong() +
+                ", channelId=" + getChannelIdLong() +
+                ", flags=" + store.getFlags(slot) +
+                '}';
+    }
+}
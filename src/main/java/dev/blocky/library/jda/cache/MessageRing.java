@@ -0,0 +1,389 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cache;
+
+import net.dv8tion.jda.api.entities.Message;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed-size ring buffer, which holds the newest messages of a single channel in the order of their ids.
+ * <br>The ids are held in a primitive array next to the messages, so a message is found with a binary search. A deleted message
+ * leaves a tombstone behind, so the ids stay sorted. As soon as the ring is full, the oldest message is overwritten and the floor
+ * of the ring moves up to its id.
+ * <br>Every message, whose id is above the floor, is held by the ring, unless it was deleted, because the ring starts with the
+ * first message, which was received, and receives every newer message. So the newest messages of a channel can be read from the
+ * ring and only the messages below the floor need to be fetched.
+ * <br>The 64-bit hashes of the contents of all live messages are counted by a {@link ContentIndex content index}, so it can be
+ * decided in constant time, that no live message of the ring has a specific content, and the ids of the live messages are indexed by
+ * their authors by an {@link AuthorIndex author index}. The hash of every message is also held next to its id, so a hash hit is
+ * confirmed by comparing the contents of the messages with an equal hash only.
+ * <br>Every ring has its own lock, so the rings of different channels are updated at the same time. The slots and the estimated sizes
+ * of the messages are added to counters, which are shared by all rings of a {@link MessageCache message cache}, so the cache can evict
+ * rings without locking the rings, that are not evicted.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+final class MessageRing
+{
+    /**
+     * The estimated amount of bytes, which is used by a message without its content, attachments and embeds.
+     */
+    static final int MESSAGE_OVERHEAD = 1024;
+
+    private final long[] ids;
+    private final long[] hashes;
+    private final long[] authors;
+    private final int[] sizes;
+    private final Message[] messages;
+    private final ContentIndex index;
+    private final AuthorIndex authorIndex = new AuthorIndex();
+    private final AtomicLong totalSlots;
+    private final AtomicLong totalBytes;
+
+    private int head;
+    private int size;
+    private int live;
+    private long floor;
+    private long bytes;
+    private boolean evicted;
+    private volatile long lastUsed = System.nanoTime();
+
+    MessageRing(int capacity, long firstId, @NotNull AtomicLong totalSlots, @NotNull AtomicLong totalBytes)
+    {
+        this.ids = new long[capacity];
+        this.hashes = new long[capacity];
+        this.authors = new long[capacity];
+        this.sizes = new int[capacity];
+        this.messages = new Message[capacity];
+        this.index = new ContentIndex(capacity);
+        this.floor = firstId - 1;
+        this.totalSlots = totalSlots;
+        this.totalBytes = totalBytes;
+    }
+
+    /**
+     * The estimated amount of bytes, which is used by the specified message.
+     *
+     * @param message The {@link Message message}, whose size should be estimated
+     * @return The estimated size of the message
+     */
+    static int estimate(@NotNull Message message)
+    {
+        return MESSAGE_OVERHEAD + 2 * message.getContentRaw().length() + 512 * (message.getAttachments().size() + message.getEmbeds().size());
+    }
+
+    /**
+     * Adds the specified message to this ring.
+     * <br>A message, which is older than the newest message of this ring, is inserted at its position.
+     *
+     * @param message The {@link Message message}, which should be added
+     * @return <b>true -</b> If the message was handled by this ring <br><b>false -</b> If this ring was evicted and needs to be replaced
+     */
+    synchronized boolean add(@NotNull Message message)
+    {
+        long id = message.getIdLong();
+
+        if (evicted)
+        {
+            return false;
+        }
+
+        if (id <= floor)
+        {
+            return true;
+        }
+
+        int found = search(id);
+
+        if (found >= 0)
+        {
+            set(slot(found), message);
+            return true;
+        }
+
+        int position = -found - 1;
+
+        if (size == ids.length)
+        {
+            if (position == 0)
+            {
+                // The message is older than every message of a full ring, so it is below the new floor.
+                floor = id;
+                return true;
+            }
+
+            floor = ids[head];
+            clear(head);
+            head = slot(1);
+            size--;
+            position--;
+            totalSlots.decrementAndGet();
+        }
+
+        for (int i = size; i > position; i--)
+        {
+            int to = slot(i);
+            int from = slot(i - 1);
+
+            ids[to] = ids[from];
+            hashes[to] = hashes[from];
+            authors[to] = authors[from];
+            sizes[to] = sizes[from];
+            messages[to] = messages[from];
+        }
+
+        int slot = slot(position);
+
+        ids[slot] = id;
+        messages[slot] = null;
+        set(slot, message);
+        size++;
+        totalSlots.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Replaces a message of this ring with its updated version.
+     *
+     * @param message The updated {@link Message message}
+     */
+    synchronized void update(@NotNull Message message)
+    {
+        int found = search(message.getIdLong());
+
+        if (found >= 0 && messages[slot(found)] != null)
+        {
+            set(slot(found), message);
+        }
+    }
+
+    /**
+     * Leaves a tombstone at the position of the message with the specified id.
+     *
+     * @param id The id of the deleted message
+     */
+    synchronized void remove(long id)
+    {
+        int found = search(id);
+
+        if (found >= 0)
+        {
+            clear(slot(found));
+        }
+    }
+
+    /**
+     * Adds at most <b>amount</b> messages, which are older than the specified id, to the specified list, from the newest to the
+     * oldest one.
+     *
+     * @param beforeId The id, before which the messages should be read
+     * @param amount   The amount of messages, which should be read
+     * @param into     The list, to which the messages should be added
+     * @return The id, before which the history still needs to be fetched, if less than <b>amount</b> messages were read
+     */
+    synchronized long read(long beforeId, int amount, @NotNull List<Message> into)
+    {
+        int found = search(beforeId);
+        int start = (found >= 0 ? found : -found - 1) - 1;
+        int read = 0;
+
+        for (int i = start; i >= 0 && read < amount; i--)
+        {
+            Message message = messages[slot(i)];
+
+            if (message != null)
+            {
+                into.add(message);
+                read++;
+            }
+        }
+        return Math.min(beforeId, floor + 1);
+    }
+
+    /**
+     * Adds at most <b>limit</b> messages of the specified author, whose ids are in the specified range, to the specified list, from
+     * the newest to the oldest one.
+     *
+     * @param authorId The id of the author
+     * @param minId    The smallest id, which should be read
+     * @param beforeId The id, before which the messages should be read
+     * @param limit    The amount of messages, which should be read
+     * @param into     The list, to which the messages should be added
+     * @return The id, before which the history still needs to be fetched, if less than <b>limit</b> messages were read
+     */
+    synchronized long readByAuthor(long authorId, long minId, long beforeId, int limit, @NotNull List<Message> into)
+    {
+        long[] found = new long[Math.min(limit, live)];
+        int read = authorIndex.read(authorId, minId, beforeId, found.length, found);
+
+        for (int i = 0; i < read; i++)
+        {
+            into.add(messages[slot(search(found[i]))]);
+        }
+        return Math.min(beforeId, floor + 1);
+    }
+
+    /**
+     * Checks if any of the newest <b>amount</b> messages of the channel has the specified content.
+     * <br>If no live message has the hash of the content, this is decided in constant time. Otherwise the newest <b>amount</b> live
+     * messages are walked and only the contents of the messages with an equal hash are compared, so two contents with an equal hash
+     * are told apart without any request.
+     * <br>The absence of the content is only decided, if the ring holds at least <b>amount</b> live messages, because otherwise older
+     * messages, which are not held by the ring, would need to be checked.
+     *
+     * @param content The content, which should be checked
+     * @param hash    The {@link ContentIndex#hash(CharSequence) hash} of the content
+     * @param amount  The amount of messages, which should be checked
+     * @return <b>true -</b> If one of the newest <b>amount</b> messages has the content <br><b>false -</b> If none of them has the content
+     * <br><b>null -</b> If the ring holds less than <b>amount</b> live messages and none of them has the content
+     */
+    @Nullable
+    synchronized Boolean contains(@NotNull CharSequence content, long hash, int amount)
+    {
+        if (index.count(hash) == 0)
+        {
+            return live >= amount ? Boolean.FALSE : null;
+        }
+
+        int checked = 0;
+
+        for (int i = size - 1; i >= 0 && checked < amount; i--)
+        {
+            int slot = slot(i);
+            Message message = messages[slot];
+
+            if (message == null)
+            {
+                continue;
+            }
+
+            if (hashes[slot] == hash && message.getContentRaw().contentEquals(content))
+            {
+                return Boolean.TRUE;
+            }
+
+            checked++;
+        }
+        return checked >= amount ? Boolean.FALSE : null;
+    }
+
+    /**
+     * Marks this ring as evicted and removes its slots and bytes from the shared counters.
+     * <br>A message, which is added to an evicted ring, is rejected, so the cache creates a <b>new</b> ring for it.
+     */
+    synchronized void evict()
+    {
+        if (evicted)
+        {
+            return;
+        }
+
+        evicted = true;
+        totalSlots.addAndGet(-size);
+        totalBytes.addAndGet(-bytes);
+    }
+
+    /**
+     * Records, that this ring was used, so the rings, which were used least recently, are evicted first.
+     */
+    void touch()
+    {
+        lastUsed = System.nanoTime();
+    }
+
+    long getLastUsed()
+    {
+        return lastUsed;
+    }
+
+    synchronized int size()
+    {
+        return size;
+    }
+
+    synchronized long getBytes()
+    {
+        return bytes;
+    }
+
+    private void set(int slot, @NotNull Message message)
+    {
+        clear(slot);
+
+        long hash = ContentIndex.hash(message.getContentRaw());
+        long author = message.getAuthor().getIdLong();
+        int estimated = estimate(message);
+
+        messages[slot] = message;
+        hashes[slot] = hash;
+        authors[slot] = author;
+        sizes[slot] = estimated;
+        index.add(hash);
+        authorIndex.add(author, ids[slot]);
+        live++;
+        bytes += estimated;
+
+        if (!evicted)
+        {
+            totalBytes.addAndGet(estimated);
+        }
+    }
+
+    private void clear(int slot)
+    {
+        if (messages[slot] != null)
+        {
+            messages[slot] = null;
+            index.remove(hashes[slot]);
+            authorIndex.remove(authors[slot], ids[slot]);
+            live--;
+            bytes -= sizes[slot];
+
+            if (!evicted)
+            {
+                totalBytes.addAndGet(-sizes[slot]);
+            }
+        }
+    }
+
+    private int slot(int index)
+    {
+        int slot = head + index;
+        return slot >= ids.length ? slot - ids.length : slot;
+    }
+
+    private int search(long id)
+    {
+        // The ring is split into at most two sorted runs, so the run, which may hold the id, is searched.
+        int firstRun = Math.min(size, ids.length - head);
+
+        if (size > firstRun && id > ids[ids.length - 1])
+        {
+            int index = Arrays.binarySearch(ids, 0, size - firstRun, id);
+            return index >= 0 ? index + firstRun : index - firstRun;
+        }
+
+        int index = Arrays.binarySearch(ids, head, head + firstRun, id);
+        return index >= 0 ? index - head : index + head;
+    }
+}
@@ -0,0 +1,742 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cache;
+
+import dev.blocky.library.jda.history.HistoryPlanner;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageChannel;
+import net.dv8tion.jda.api.events.channel.ChannelDeleteEvent;
+import net.dv8tion.jda.api.events.message.MessageBulkDeleteEvent;
+import net.dv8tion.jda.api.events.message.MessageDeleteEvent;
+import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+import net.dv8tion.jda.api.events.message.MessageUpdateEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import javax.annotation.CheckReturnValue;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+/**
+ * A compact store, which retains the history of many channels outside of the Java heap.
+ * <br>Instead of a whole {@link Message message}, every message is stored as a record of {@value #RECORD_SIZE} bytes, which holds
+ * its id, the id of its author, the channel, the flags (pinned, edited, webhook, attachments and guild) and a reference to its content.
+ * The records are held in direct buffers of {@value #SLAB_RECORDS} records each, which are allocated, as soon as they are needed, and
+ * are found by their ids with an open-addressing hash table, which is also held in a direct buffer. As soon as the store is full,
+ * the oldest record is overwritten.
+ * <br>Every record also links to the previous record of its channel and to the previous record of its author in its channel, so a
+ * selection only walks the records of its channel or author instead of the whole store. A link, which points to a record, that was
+ * already overwritten, ends the chain, so overwriting a record never has to update another one.
+ * <br>The contents are held in a separate {@link ContentArena content arena} of a specific size, which overwrites the oldest contents,
+ * so the records can outlive their contents. A record, whose content was overwritten or did not fit into the arena, has no content,
+ * which is told apart from an empty content. So the store holds e.g. 10 million messages in about 470 MB (400 MB of records and about
+ * 67 MB of hash table) plus the content arena and neither the records nor the contents are seen by the garbage collector.
+ * <br>The store is fed by the gateway events, after it was registered as an event listener (e.g. with
+ * {@link net.dv8tion.jda.api.JDA#addEventListener(Object...) JDA#addEventListener(Object...)}), and older messages can be added with
+ * {@link #backfill(MessageChannel, int)}. The records can be filtered with a {@link MessageRecord record} predicate (e.g.
+ * {@link dev.blocky.library.jda.purge.PurgeFilter#compileStored() PurgeFilter#compileStored()}) and the channel wrappers use the
+ * store, after it was set with {@link dev.blocky.library.jda.Utility#setMessageStore(MessageStore) Utility#setMessageStore(MessageStore)}.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+public final class MessageStore extends ListenerAdapter
+{
+    private static final Logger logger = JDALogger.getLog(MessageStore.class);
+
+    /**
+     * The default amount of messages, which are held by the store.
+     */
+    public static final int DEFAULT_MAX_MESSAGES = 1_000_000;
+
+    /**
+     * The default size of the content arena in bytes.
+     */
+    public static final int DEFAULT_CONTENT_SIZE = 64 << 20;
+
+    /**
+     * The size of a single record in bytes.
+     */
+    public static final int RECORD_SIZE = 40;
+
+    /**
+     * The amount of records, which are held by a single slab.
+     */
+    public static final int SLAB_RECORDS = 65536;
+
+    static final int PINNED = 1;
+    static final int EDITED = 1 << 1;
+    static final int WEBHOOK = 1 << 2;
+    static final int ATTACHMENTS = 1 << 3;
+    static final int GUILD = 1 << 4;
+    private static final int DELETED = 1 << 5;
+
+    private static final int ID = 0;
+    private static final int AUTHOR = 8;
+    private static final int CONTENT = 16;
+    private static final int CHANNEL = 24;
+    private static final int FLAGS = 28;
+    private static final int CHANNEL_LINK = 32;
+    private static final int AUTHOR_LINK = 36;
+
+    private static final int FLAG_BITS = 8;
+    private static final int FLAG_MASK = (1 << FLAG_BITS) - 1;
+    private static final int SLAB_SHIFT = 16;
+    private static final int EMPTY = -1;
+    private static final int CHUNK_RECORDS = 4096;
+
+    private final int maxMessages;
+    private final ByteBuffer[] slabs;
+    private final IntBuffer table;
+    private final int mask;
+    private final ContentArena arena;
+    private final MessageRecord view = new MessageRecord(this);
+    private final Map<Long, Integer> channelIndexes = new HashMap<>();
+
+    private long[] channelIds = new long[16];
+    private long[] channelHeads = new long[16];
+    private int[] channelSizes = new int[16];
+    private ChainHeads[] authorHeads = new ChainHeads[16];
+    private int[] freeChannels = new int[16];
+    private int freeCount;
+    private int channelCount;
+    private long written;
+    private int size;
+
+    /**
+     * Constructs a <b>new</b> {@link MessageStore message store} with the default sizes.
+     */
+    public MessageStore()
+    {
+        this(DEFAULT_MAX_MESSAGES, DEFAULT_CONTENT_SIZE);
+    }
+
+    /**
+     * Constructs a <b>new</b> {@link MessageStore message store}.
+     * <br>The maximum amount of messages must be greater than 0 and the size of the content arena must not be negative.
+     * (if this is not the case, the default sizes will be used)
+     * <br>The hash table of the store is allocated right away and takes at most 11 bytes per message. The content arena is also
+     * allocated right away and the records are allocated slab by slab, as soon as they are needed.
+     *
+     * @param maxMessages The amount of messages, which are held by the store
+     * @param contentSize The size of the content arena in bytes (<b>0</b>, if no content should be held)
+     */
+    public MessageStore(int maxMessages, int contentSize)
+    {
+        if (maxMessages < 1 || maxMessages > 1 << 27 || contentSize < 0)
+        {
+            logger.error("The maximum amount of messages must be between 1 and 2^27 and the size of the content arena must not be negative.",
+                    new IllegalArgumentException());
+
+            maxMessages = DEFAULT_MAX_MESSAGES;
+            contentSize = DEFAULT_CONTENT_SIZE;
+        }
+
+        // The table holds at most three quarters of its size, so a lookup only probes a few entries.
+        int tableSize = Integer.highestOneBit(Math.max(maxMessages + maxMessages / 3, 8) - 1) << 1;
+
+        this.maxMessages = maxMessages;
+        this.slabs = new ByteBuffer[(maxMessages + SLAB_RECORDS - 1) >>> SLAB_SHIFT];
+        this.table = ByteBuffer.allocateDirect(tableSize * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+        this.mask = tableSize - 1;
+        this.arena = contentSize == 0 ? null : new ContentArena(contentSize);
+
+        for (int i = 0; i < tableSize; i++)
+        {
+            table.put(i, EMPTY);
+        }
+    }
+
+    @Override
+    public void onMessageReceived(@NotNull MessageReceivedEvent event)
+    {
+        add(event.getMessage());
+    }
+
+    @Override
+    public void onMessageUpdate(@NotNull MessageUpdateEvent event)
+    {
+        add(event.getMessage());
+    }
+
+    @Override
+    public void onMessageDelete(@NotNull MessageDeleteEvent event)
+    {
+        remove(event.getMessageIdLong());
+    }
+
+    @Override
+    public void onMessageBulkDelete(@NotNull MessageBulkDeleteEvent event)
+    {
+        for (String id : event.getMessageIds())
+        {
+            remove(Long.parseUnsignedLong(id));
+        }
+    }
+
+    @Override
+    public void onChannelDelete(@NotNull ChannelDeleteEvent event)
+    {
+        invalidate(event.getChannel().getIdLong());
+    }
+
+    /**
+     * Adds the specified message to the store or updates its record, if it is already held.
+     * <br>If the store is full, the oldest record is overwritten.
+     *
+     * @param message The {@link Message message}, which should be added
+     */
+    public void add(@NotNull Message message)
+    {
+        int flags = 0;
+
+        if (message.isPinned())
+        {
+            flags |= PINNED;
+        }
+
+        if (message.isEdited())
+        {
+            flags |= EDITED;
+        }
+
+        if (message.isWebhookMessage())
+        {
+            flags |= WEBHOOK;
+        }
+
+        if (!message.getAttachments().isEmpty())
+        {
+            flags |= ATTACHMENTS;
+        }
+
+        if (message.isFromGuild())
+        {
+            flags |= GUILD;
+        }
+
+        byte[] content = arena == null ? new byte[0] : message.getContentRaw().getBytes(StandardCharsets.UTF_8);
+
+        add(message.getChannel().getIdLong(), message.getIdLong(), message.getAuthor().getIdLong(), flags, content);
+    }
+
+    private synchronized void add(long channelId, long id, long authorId, int flags, @NotNull byte[] content)
+    {
+        int slot = find(id);
+
+        if (slot == EMPTY)
+        {
+            long sequence = written;
+            slot = (int) (sequence % maxMessages);
+
+            if (written >= maxMessages)
+            {
+                evict(slot);
+            }
+
+            written++;
+            size++;
+
+            int channel = channelIndex(channelId);
+            long oldest = oldest();
+            long channelHead = channelHeads[channel];
+            long authorHead = authorHeads[channel].get(authorId);
+
+            ByteBuffer slab = slab(slot);
+            int offset = offset(slot);
+
+            slab.putLong(offset + ID, id);
+            slab.putLong(offset + AUTHOR, authorId);
+            slab.putInt(offset + CHANNEL, channel);
+            slab.putInt(offset + CHANNEL_LINK, channelHead >= oldest ? (int) (sequence - channelHead) : 0);
+            slab.putInt(offset + AUTHOR_LINK, authorHead >= oldest ? (int) (sequence - authorHead) : 0);
+
+            channelHeads[channel] = sequence;
+            channelSizes[channel]++;
+            authorHeads[channel].put(authorId, sequence, oldest);
+
+            insert(id, slot);
+        }
+
+        long position = arena == null ? ContentArena.NONE : arena.write(content);
+
+        ByteBuffer slab = slab(slot);
+        int offset = offset(slot);
+
+        // The length is kept, even if the content did not fit into the arena, so a dropped content is not read as an empty one.
+        slab.putLong(offset + CONTENT, position);
+        slab.putInt(offset + FLAGS, content.length << FLAG_BITS | flags);
+    }
+
+    /**
+     * Removes the message with the specified id from the store.
+     *
+     * @param id The id of the message, which was deleted
+     */
+    public synchronized void remove(long id)
+    {
+        int slot = find(id);
+
+        if (slot == EMPTY)
+        {
+            return;
+        }
+
+        delete(id);
+        markDeleted(slot);
+    }
+
+    /**
+     * Removes all messages of the specified channel from the store.
+     * <br>Only the records of the channel are walked and the channel is forgotten afterwards.
+     *
+     * @param channelId The id of the channel, which was deleted
+     */
+    public synchronized void invalidate(long channelId)
+    {
+        Integer index = channelIndexes.get(channelId);
+
+        if (index == null)
+        {
+            return;
+        }
+
+        long oldest = oldest();
+
+        // The channel is released by the last deleted record, so the chain is walked from the head, which was read before.
+        for (long sequence = channelHeads[index]; sequence >= oldest; )
+        {
+            int slot = (int) (sequence % maxMessages);
+            ByteBuffer slab = slabs[slot >>> SLAB_SHIFT];
+            int offset = offset(slot);
+
+            if ((slab.getInt(offset + FLAGS) & DELETED) == 0)
+            {
+                delete(slab.getLong(offset + ID));
+                markDeleted(slot);
+            }
+
+            int link = slab.getInt(offset + CHANNEL_LINK);
+            sequence = link == 0 ? -1 : sequence - link;
+        }
+    }
+
+    /**
+     * Adds the newest <b>amount</b> messages of the specified channel to the store.
+     * <br>The history is read with the {@link HistoryPlanner history planner}, so the messages, which are held by the message cache, are
+     * not requested again.
+     *
+     * @param channel The {@link MessageChannel message channel}, whose history should be added
+     * @param amount  The amount of messages, which should be added
+     * @return A {@link CompletableFuture future}, which is completed with the amount of added messages
+     */
+    @NotNull
+    @CheckReturnValue
+    public CompletableFuture<Integer> backfill(@NotNull MessageChannel channel, int amount)
+    {
+        return HistoryPlanner.walk(channel, Long.MAX_VALUE, amount, true, message ->
+        {
+            add(message);
+            return true;
+        });
+    }
+
+    /**
+     * Checks, whether the message with the specified id is held by the store.
+     *
+     * @param id The id of the message
+     * @return <b>true</b>, if the message is held by the store
+     */
+    public synchronized boolean contains(long id)
+    {
+        return find(id) != EMPTY;
+    }
+
+    /**
+     * Selects the ids of all messages of the specified channel, which are accepted by the specified filter.
+     * <br>The filter receives a {@link MessageRecord view}, which is moved from record to record, so it must not be kept. Only the
+     * records of the channel are walked and the monitor of the store is released after every {@value #CHUNK_RECORDS} records, so the
+     * gateway events are not blocked by a long selection.
+     *
+     * @param channelId The id of the channel, whose messages should be selected
+     * @param filter    The filter, which accepts the messages, that should be selected
+     * @return The ids of the accepted messages from the newest to the oldest one
+     */
+    @NotNull
+    public long[] select(long channelId, @NotNull Predicate<? super MessageRecord> filter)
+    {
+        return select(channelId, 0, Long.MAX_VALUE, Integer.MAX_VALUE, false, 0, filter);
+    }
+
+    /**
+     * Selects the ids of the newest <b>limit</b> messages of the specified author in the specified channel, whose ids are in the
+     * specified range.
+     * <br>Only the records of the author in the channel are walked.
+     *
+     * @param channelId The id of the channel, whose messages should be selected
+     * @param authorId  The id of the author
+     * @param minId     The smallest id, which should be selected
+     * @param maxId     The id, below which the ids should be selected
+     * @param limit     The maximum amount of ids, which should be selected
+     * @return The ids of the messages of the author from the newest to the oldest one
+     */
+    @NotNull
+    public long[] selectByAuthor(long channelId, long authorId, long minId, long maxId, int limit)
+    {
+        return select(channelId, minId, maxId, limit, true, authorId, record -> true);
+    }
+
+    /**
+     * The amount of messages, which are held by the store.
+     *
+     * @return The amount of held messages
+     */
+    public synchronized int getMessageCount()
+    {
+        return size;
+    }
+
+    /**
+     * The amount of channels, whose messages are held by the store.
+     * <br>A channel is released, as soon as its last message is removed or evicted.
+     *
+     * @return The amount of stored channels
+     */
+    public synchronized int getChannelCount()
+    {
+        return channelIndexes.size();
+    }
+
+    /**
+     * The amount of messages, which can be held by the store.
+     *
+     * @return The maximum amount of messages
+     */
+    public int getMaxMessages()
+    {
+        return maxMessages;
+    }
+
+    /**
+     * The size of the content arena in bytes.
+     *
+     * @return The size of the content arena
+     */
+    public int getContentSize()
+    {
+        return arena == null ? 0 : arena.getCapacity();
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "MessageStore{" +
+                "messages=" + size +
+                ", maxMessages=" + maxMessages +
+                ", channels=" + channelIndexes.size() +
+                ", contentSize=" + getContentSize() +
+                '}';
+    }
+
+    long getId(int slot)
+    {
+        return slabs[slot >>> SLAB_SHIFT].getLong(offset(slot) + ID);
+    }
+
+    long getAuthorId(int slot)
+    {
+        return slabs[slot >>> SLAB_SHIFT].getLong(offset(slot) + AUTHOR);
+    }
+
+    long getChannelId(int slot)
+    {
+        return channelIds[slabs[slot >>> SLAB_SHIFT].getInt(offset(slot) + CHANNEL)];
+    }
+
+    int getFlags(int slot)
+    {
+        return slabs[slot >>> SLAB_SHIFT].getInt(offset(slot) + FLAGS) & FLAG_MASK;
+    }
+
+    @Nullable
+    String getContent(int slot)
+    {
+        ByteBuffer slab = slabs[slot >>> SLAB_SHIFT];
+        int offset = offset(slot);
+        int length = slab.getInt(offset + FLAGS) >>> FLAG_BITS;
+
+        if (length == 0)
+        {
+            return arena == null ? null : "";
+        }
+        return arena.read(slab.getLong(offset + CONTENT), length);
+    }
+
+    @NotNull
+    private long[] select(long channelId, long minId, long maxId, int limit, boolean byAuthor, long authorId,
+                          @NotNull Predicate<? super MessageRecord> filter)
+    {
+        if (limit < 1)
+        {
+            return new long[0];
+        }
+
+        long[] ids = new long[16];
+        int count = 0;
+        long sequence;
+        int index;
+
+        synchronized (this)
+        {
+            Integer channel = channelIndexes.get(channelId);
+
+            if (channel == null)
+            {
+                return new long[0];
+            }
+
+            index = channel;
+            sequence = byAuthor ? authorHeads[index].get(authorId) : channelHeads[index];
+        }
+
+        int linkOffset = byAuthor ? AUTHOR_LINK : CHANNEL_LINK;
+
+        while (sequence >= 0)
+        {
+            synchronized (this)
+            {
+                // The links of a record never change, until it is overwritten, so the walk continues after the monitor was released.
+                for (int walked = 0; walked < CHUNK_RECORDS && sequence >= oldest(); walked++)
+                {
+                    int slot = (int) (sequence % maxMessages);
+                    ByteBuffer slab = slabs[slot >>> SLAB_SHIFT];
+                    int offset = offset(slot);
+                    long id = slab.getLong(offset + ID);
+
+                    if (slab.getInt(offset + CHANNEL) == index && (slab.getInt(offset + FLAGS) & DELETED) == 0 && id >= minId && id < maxId)
+                    {
+                        view.moveTo(slot);
+
+                        if (filter.test(view))
+                        {
+                            if (count == ids.length)
+                            {
+                                ids = Arrays.copyOf(ids, count << 1);
+                            }
+
+                            ids[count++] = id;
+                        }
+                    }
+
+                    int link = slab.getInt(offset + linkOffset);
+                    sequence = link == 0 ? -1 : sequence - link;
+                }
+
+                if (sequence < oldest())
+                {
+                    break;
+                }
+            }
+        }
+
+        // The records are linked in the order, in which they were added, so the ids need to be sorted.
+        Arrays.sort(ids, 0, count);
+
+        long[] newest = new long[Math.min(count, limit)];
+
+        for (int i = 0; i < newest.length; i++)
+        {
+            newest[i] = ids[count - 1 - i];
+        }
+        return newest;
+    }
+
+    @NotNull
+    private ByteBuffer slab(int slot)
+    {
+        int number = slot >>> SLAB_SHIFT;
+
+        if (slabs[number] == null)
+        {
+            int records = Math.min(SLAB_RECORDS, maxMessages - (number << SLAB_SHIFT));
+            slabs[number] = ByteBuffer.allocateDirect(records * RECORD_SIZE).order(ByteOrder.nativeOrder());
+        }
+        return slabs[number];
+    }
+
+    private int channelIndex(long channelId)
+    {
+        Integer index = channelIndexes.get(channelId);
+
+        if (index != null)
+        {
+            return index;
+        }
+
+        int next;
+
+        if (freeCount > 0)
+        {
+            next = freeChannels[--freeCount];
+        }
+        else
+        {
+            next = channelCount++;
+
+            if (next == channelIds.length)
+            {
+                channelIds = Arrays.copyOf(channelIds, next << 1);
+                channelHeads = Arrays.copyOf(channelHeads, next << 1);
+                channelSizes = Arrays.copyOf(channelSizes, next << 1);
+                authorHeads = Arrays.copyOf(authorHeads, next << 1);
+            }
+        }
+
+        channelIds[next] = channelId;
+        channelHeads[next] = -1;
+        channelSizes[next] = 0;
+        authorHeads[next] = new ChainHeads();
+        channelIndexes.put(channelId, next);
+        return next;
+    }
+
+    private void evict(int slot)
+    {
+        ByteBuffer slab = slabs[slot >>> SLAB_SHIFT];
+        int offset = offset(slot);
+
+        if ((slab.getInt(offset + FLAGS) & DELETED) == 0)
+        {
+            delete(slab.getLong(offset + ID));
+            size--;
+            release(slab.getInt(offset + CHANNEL));
+        }
+    }
+
+    private void markDeleted(int slot)
+    {
+        ByteBuffer slab = slabs[slot >>> SLAB_SHIFT];
+        int offset = offset(slot);
+
+        slab.putInt(offset + FLAGS, slab.getInt(offset + FLAGS) | DELETED);
+        size--;
+        release(slab.getInt(offset + CHANNEL));
+    }
+
+    private void release(int channel)
+    {
+        if (--channelSizes[channel] > 0)
+        {
+            return;
+        }
+
+        // A channel without live records is forgotten, so its index is reused by the next channel.
+        channelIndexes.remove(channelIds[channel]);
+        channelIds[channel] = 0;
+        channelHeads[channel] = -1;
+        authorHeads[channel] = null;
+
+        if (freeCount == freeChannels.length)
+        {
+            freeChannels = Arrays.copyOf(freeChannels, freeCount << 1);
+        }
+
+        freeChannels[freeCount++] = channel;
+    }
+
+    private long oldest()
+    {
+        return Math.max(written - maxMessages, 0);
+    }
+
+    private int find(long id)
+    {
+        for (int i = hash(id) & mask; ; i = (i + 1) & mask)
+        {
+            int slot = table.get(i);
+
+            if (slot == EMPTY || getId(slot) == id)
+            {
+                return slot;
+            }
+        }
+    }
+
+    private void insert(long id, int slot)
+    {
+        int i = hash(id) & mask;
+
+        while (table.get(i) != EMPTY)
+        {
+            i = (i + 1) & mask;
+        }
+
+        table.put(i, slot);
+    }
+
+    private void delete(long id)
+    {
+        int i = hash(id) & mask;
+
+        while (getId(table.get(i)) != id)
+        {
+            i = (i + 1) & mask;
+        }
+
+        // Moves the following entries back, so no lookup stops at the removed entry.
+        for (int j = (i + 1) & mask; ; j = (j + 1) & mask)
+        {
+            int slot = table.get(j);
+
+            if (slot == EMPTY)
+            {
+                break;
+            }
+
+            int home = hash(getId(slot)) & mask;
+
+            if (((j - home) & mask) >= ((j - i) & mask))
+            {
+                table.put(i, slot);
+                i = j;
+            }
+        }
+
+        table.put(i, EMPTY);
+    }
+
+    private static int offset(int slot)
+    {
+        return (slot & (SLAB_RECORDS - 1)) * RECORD_SIZE;
+    }
+
+    private static int hash(long id)
+    {
+        long hash = id * 0x9e3779b97f4a7c15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
@@ -0,0 +1,17 @@
+/**
+ * Root package of the JDA-Commons message cache.
+ *
+ * <br>From here you can navigate to the message cache features. <br>
+ *
+ * <ul>
+ * <li>{@link dev.blocky.library.jda.cache.MessageCache Message cache}
+ * <br>A cache, which holds the newest messages of every channel and is fed by the gateway events.</li>
+ *
+ * <li>{@link dev.blocky.library.jda.cache.MessageRecord Message record}
+ * <br>A view of a single record of a message store, which is passed to the filters of a scan.</li>
+ *
+ * <li>{@link dev.blocky.library.jda.cache.MessageStore Message store}
+ * <br>A compact store, which retains the history of many channels outside of the Java heap.</li>
+ * </ul>
+ */
+package dev.blocky.library.jda.cache;
@@ -0,0 +1,244 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cooldown;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.CheckReturnValue;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A precompiled template for the message, which is sent if a timeouted message is under a delay.
+ * <br>The template may contain the placeholders <b>{user}</b> (the effective name of the member) and <b>{remaining}</b>
+ * (the remaining time in seconds with two decimals), which are resolved without creating any formatter or intermediate
+ * {@link String string}, so the only allocation of a rejected timeouted message is the outbound message itself.
+ * <br>Templates are immutable and thread-safe, so they should be compiled once and reused.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+public final class CooldownMessage
+{
+    /**
+     * The default template, which is used by all timeouted messages without a delay message.
+     */
+    public static final CooldownMessage DEFAULT = compile("{user}, you must wait {remaining} seconds ⌛");
+
+    private static final String USER = "{user}";
+    private static final String REMAINING = "{remaining}";
+    private static final int USER_PART = -1;
+    private static final int REMAINING_PART = -2;
+    private static final int MAX_RETAINED_CAPACITY = 2048;
+
+    /**
+     * The symbols of the default format locale, which are resolved once, just like a <b>new</b> {@link java.text.DecimalFormat decimal format} would do.
+     */
+    private static final DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT));
+    private static final char DECIMAL_SEPARATOR = symbols.getDecimalSeparator();
+    private static final char ZERO_DIGIT = symbols.getZeroDigit();
+
+    private static final ThreadLocal<StringBuilder> builders = ThreadLocal.withInitial(() -> new StringBuilder(128));
+
+    private final String template;
+    private final String[] literals;
+    private final int[] parts;
+
+    private CooldownMessage(@NotNull String template, @NotNull String[] literals, @NotNull int[] parts)
+    {
+        this.template = template;
+        this.literals = literals;
+        this.parts = parts;
+    }
+
+    /**
+     * Compiles the specified template.
+     *
+     * @param template The template, which may contain the placeholders <b>{user}</b> and <b>{remaining}</b>
+     * @return A <b>new</b> {@link CooldownMessage cooldown message}
+     */
+    @NotNull
+    @CheckReturnValue
+    public static CooldownMessage compile(@NotNull CharSequence template)
+    {
+        String text = template.toString();
+        List<String> literals = new ArrayList<>();
+        List<Integer> parts = new ArrayList<>();
+
+        int start = 0;
+
+        while (start < text.length())
+        {
+            int user = text.indexOf(USER, start);
+            int remaining = text.indexOf(REMAINING, start);
+            int next = user < 0 ? remaining : remaining < 0 ? user : Math.min(user, remaining);
+
+            if (next < 0)
+            {
+                next = text.length();
+            }
+
+            if (next > start)
+            {
+                parts.add(literals.size());
+                literals.add(text.substring(start, next));
+            }
+
+            if (next == text.length())
+            {
+                break;
+            }
+
+            if (next == user)
+            {
+                parts.add(USER_PART);
+                start = next + USER.length();
+            }
+            else
+            {
+                parts.add(REMAINING_PART);
+                start = next + REMAINING.length();
+            }
+        }
+
+        int[] compiled = new int[parts.size()];
+
+        for (int i = 0; i < compiled.length; i++)
+        {
+            compiled[i] = parts.get(i);
+        }
+        return new CooldownMessage(text, literals.toArray(new String[0]), compiled);
+    }
+
+    /**
+     * Resolves this template into a <b>new</b> {@link String string}.
+     * <br>The message is built in a buffer of the current thread, so the returned string is the only allocation.
+     *
+     * @param user      The effective name of the member, who is under a delay
+     * @param remaining The remaining time in milliseconds
+     * @return The resolved message
+     */
+    @NotNull
+    @CheckReturnValue
+    public String format(@NotNull CharSequence user, long remaining)
+    {
+        StringBuilder builder = builders.get();
+        builder.setLength(0);
+
+        String message = appendTo(builder, user, remaining).toString();
+
+        if (builder.capacity() > MAX_RETAINED_CAPACITY)
+        {
+            builders.remove();
+        }
+        return message;
+    }
+
+    /**
+     * Resolves this template and appends it to the specified {@link StringBuilder string builder}.
+     *
+     * @param builder   The {@link StringBuilder string builder}, to which the message should be appended
+     * @param user      The effective name of the member, who is under a delay
+     * @param remaining The remaining time in milliseconds
+     * @return The specified {@link StringBuilder string builder}
+     */
+    @NotNull
+    public StringBuilder appendTo(@NotNull StringBuilder builder, @NotNull CharSequence user, long remaining)
+    {
+        for (int part : parts)
+        {
+            switch (part)
+            {
+                case USER_PART:
+                    builder.append(user);
+                    break;
+                case REMAINING_PART:
+                    appendSeconds(builder, remaining);
+                    break;
+                default:
+                    builder.append(literals[part]);
+                    break;
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * Appends milliseconds as seconds with two decimals, which are rounded half-even, like the pattern <b>0.00</b> of a
+     * {@link java.text.DecimalFormat decimal format}.
+     * <br>The rounding is done on the exact amount of milliseconds instead of a <b>double</b>, so ties are never misrounded.
+     *
+     * @param builder The {@link StringBuilder string builder}, to which the seconds should be appended
+     * @param millis  The milliseconds, which should be appended
+     * @return The specified {@link StringBuilder string builder}
+     */
+    @NotNull
+    static StringBuilder appendSeconds(@NotNull StringBuilder builder, long millis)
+    {
+        if (millis < 0)
+        {
+            builder.append(symbols.getMinusSign());
+            millis = -millis;
+        }
+
+        long hundredths = millis / 10;
+        long rest = millis % 10;
+
+        if (rest > 5 || (rest == 5 && (hundredths & 1) == 1))
+        {
+            hundredths++;
+        }
+
+        appendDigits(builder, hundredths / 100);
+        builder.append(DECIMAL_SEPARATOR);
+
+        int fraction = (int) (hundredths % 100);
+        builder.append((char) (ZERO_DIGIT + fraction / 10));
+        builder.append((char) (ZERO_DIGIT + fraction % 10));
+        return builder;
+    }
+
+    private static void appendDigits(@NotNull StringBuilder builder, long value)
+    {
+        if (value >= 10)
+        {
+            appendDigits(builder, value / 10);
+        }
+        builder.append((char) (ZERO_DIGIT + value % 10));
+    }
+
+    /**
+     * The template, this message was compiled from.
+     *
+     * @return The template of this message
+     */
+    @NotNull
+    public String getTemplate()
+    {
+        return template;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CooldownMessage{" +
+                "template=" + template +
+                '}';
+    }
+}
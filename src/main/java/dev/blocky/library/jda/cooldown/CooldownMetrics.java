@@ -0,0 +1,386 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cooldown;
+
+import net.dv8tion.jda.api.entities.ChannelType;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.CheckReturnValue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects metrics about the decisions of all timeouted messages, without adding any lock to them.
+ * <br>Accepted and rejected decisions are counted per {@link ChannelType channel type} with striped {@link LongAdder long adders}.
+ * The remaining times of rejected decisions are counted in a histogram with one bucket per power of two milliseconds.
+ * The most throttled users are tracked by a heavy keeper, which is a fixed array of buckets, whose counts decay with a
+ * probability, which shrinks exponentially with the count, so frequent keys stay while rare keys are replaced.
+ * <br>All metrics can be read at any time with a {@link #snapshot() snapshot}, which does not stop the decisions.
+ * The counters of a snapshot are read one after another, so a snapshot may miss decisions, which happen concurrently.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+public final class CooldownMetrics
+{
+    private static final ChannelType[] channelTypes = ChannelType.values();
+    private static final int HISTOGRAM_BUCKETS = 64;
+    private static final int HEAVY_KEEPER_BUCKETS = 1024;
+    private static final double DECAY_BASE = 1.08;
+    private static final int DEFAULT_TOP = 10;
+
+    private final LongAdder[] allowed = new LongAdder[channelTypes.length];
+    private final LongAdder[] rejected = new LongAdder[channelTypes.length];
+    private final LongAdder[] histogram = new LongAdder[HISTOGRAM_BUCKETS];
+    private final AtomicLongArray keys = new AtomicLongArray(HEAVY_KEEPER_BUCKETS);
+    private final AtomicLongArray counts = new AtomicLongArray(HEAVY_KEEPER_BUCKETS);
+
+    /**
+     * Constructs <b>new</b> {@link CooldownMetrics cooldown metrics}.
+     */
+    public CooldownMetrics()
+    {
+        for (int i = 0; i < channelTypes.length; i++)
+        {
+            allowed[i] = new LongAdder();
+            rejected[i] = new LongAdder();
+        }
+
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++)
+        {
+            histogram[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a decision.
+     *
+     * @param type      The {@link ChannelType channel type}, in which the decision was made
+     * @param userId    The id of the user, who triggered the decision
+     * @param remaining <b>0</b> if the decision was accepted, otherwise the remaining time in milliseconds
+     */
+    public void record(@NotNull ChannelType type, long userId, long remaining)
+    {
+        if (remaining <= 0)
+        {
+            allowed[type.ordinal()].increment();
+            return;
+        }
+
+        rejected[type.ordinal()].increment();
+        histogram[bucketOf(remaining)].increment();
+        track(userId);
+    }
+
+    /**
+     * Reads all metrics.
+     *
+     * @return A <b>new</b> {@link Snapshot snapshot} with the 10 most throttled users
+     */
+    @NotNull
+    @CheckReturnValue
+    public Snapshot snapshot()
+    {
+        return snapshot(DEFAULT_TOP);
+    }
+
+    /**
+     * Reads all metrics.
+     *
+     * @param top The amount of the most throttled users, which should be contained
+     * @return A <b>new</b> {@link Snapshot snapshot}
+     */
+    @NotNull
+    @CheckReturnValue
+    public Snapshot snapshot(int top)
+    {
+        long[] allowedCounts = new long[channelTypes.length];
+        long[] rejectedCounts = new long[channelTypes.length];
+        long[] histogramCounts = new long[HISTOGRAM_BUCKETS];
+
+        for (int i = 0; i < channelTypes.length; i++)
+        {
+            allowedCounts[i] = allowed[i].sum();
+            rejectedCounts[i] = rejected[i].sum();
+        }
+
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++)
+        {
+            histogramCounts[i] = histogram[i].sum();
+        }
+
+        List<HotKey> hotKeys = new ArrayList<>();
+
+        for (int i = 0; i < HEAVY_KEEPER_BUCKETS; i++)
+        {
+            long count = counts.get(i);
+
+            if (count > 0)
+            {
+                hotKeys.add(new HotKey(keys.get(i), count));
+            }
+        }
+
+        hotKeys.sort((a, b) -> Long.compare(b.count, a.count));
+        return new Snapshot(allowedCounts, rejectedCounts, histogramCounts, hotKeys.subList(0, Math.min(Math.max(0, top), hotKeys.size())));
+    }
+
+    /**
+     * Resets all metrics.
+     */
+    public void reset()
+    {
+        for (int i = 0; i < channelTypes.length; i++)
+        {
+            allowed[i].reset();
+            rejected[i].reset();
+        }
+
+        for (LongAdder bucket : histogram)
+        {
+            bucket.reset();
+        }
+
+        for (int i = 0; i < HEAVY_KEEPER_BUCKETS; i++)
+        {
+            counts.set(i, 0);
+        }
+    }
+
+    private void track(long userId)
+    {
+        int bucket = (int) StateTable.mix(userId) & (HEAVY_KEEPER_BUCKETS - 1);
+        long count = counts.get(bucket);
+
+        if (count > 0 && keys.get(bucket) == userId)
+        {
+            counts.incrementAndGet(bucket);
+            return;
+        }
+
+        if (count == 0)
+        {
+            keys.set(bucket, userId);
+            counts.compareAndSet(bucket, 0, 1);
+            return;
+        }
+
+        // The bucket belongs to another key, whose count decays with a probability of DECAY_BASE^-count.
+        if (ThreadLocalRandom.current().nextDouble() < Math.pow(DECAY_BASE, -count) && counts.compareAndSet(bucket, count, count - 1) && count == 1)
+        {
+            keys.set(bucket, userId);
+            counts.compareAndSet(bucket, 0, 1);
+        }
+    }
+
+    private static int bucketOf(long remaining)
+    {
+        return 63 - Long.numberOfLeadingZeros(remaining);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CooldownMetrics{" +
+                "snapshot=" + snapshot(0) +
+                '}';
+    }
+
+    /**
+     * An immutable view of the {@link CooldownMetrics cooldown metrics} at the moment it was taken.
+     */
+    public static final class Snapshot
+    {
+        private final long[] allowed;
+        private final long[] rejected;
+        private final long[] histogram;
+        private final List<HotKey> hotKeys;
+
+        private Snapshot(@NotNull long[] allowed, @NotNull long[] rejected, @NotNull long[] histogram, @NotNull List<HotKey> hotKeys)
+        {
+            this.allowed = allowed;
+            this.rejected = rejected;
+            this.histogram = histogram;
+            this.hotKeys = Collections.unmodifiableList(new ArrayList<>(hotKeys));
+        }
+
+        /**
+         * The amount of accepted decisions in the specified {@link ChannelType channel type}.
+         *
+         * @param type The {@link ChannelType channel type}, whose decisions should be counted
+         * @return The amount of accepted decisions
+         */
+        public long getAllowed(@NotNull ChannelType type)
+        {
+            return allowed[type.ordinal()];
+        }
+
+        /**
+         * The amount of rejected decisions in the specified {@link ChannelType channel type}.
+         *
+         * @param type The {@link ChannelType channel type}, whose decisions should be counted
+         * @return The amount of rejected decisions
+         */
+        public long getRejected(@NotNull ChannelType type)
+        {
+            return rejected[type.ordinal()];
+        }
+
+        /**
+         * The amount of accepted decisions in all {@link ChannelType channel types}.
+         *
+         * @return The amount of accepted decisions
+         */
+        public long getTotalAllowed()
+        {
+            return sum(allowed);
+        }
+
+        /**
+         * The amount of rejected decisions in all {@link ChannelType channel types}.
+         *
+         * @return The amount of rejected decisions
+         */
+        public long getTotalRejected()
+        {
+            return sum(rejected);
+        }
+
+        /**
+         * The histogram of the remaining times of all rejected decisions.
+         * <br>The bucket <b>i</b> counts the remaining times from <b>2^i</b> (inclusive) to <b>2^(i + 1)</b> (exclusive) milliseconds.
+         *
+         * @return A copy of the histogram
+         */
+        @NotNull
+        public long[] getHistogram()
+        {
+            return histogram.clone();
+        }
+
+        /**
+         * Estimates a percentile of the remaining times of all rejected decisions.
+         *
+         * @param percentile The percentile between <b>0</b> and <b>1</b> (e.g. <b>0.99</b>)
+         * @return The upper bound of the histogram bucket, which contains the percentile, in milliseconds (<b>0</b> if there are no rejections)
+         */
+        public long getRemainingPercentile(double percentile)
+        {
+            long total = sum(histogram);
+
+            if (total == 0)
+            {
+                return 0;
+            }
+
+            long rank = (long) Math.ceil(Math.min(1, Math.max(0, percentile)) * total);
+            long seen = 0;
+
+            for (int i = 0; i < histogram.length; i++)
+            {
+                seen += histogram[i];
+
+                if (seen >= rank && histogram[i] > 0)
+                {
+                    return i == 62 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        /**
+         * The most throttled users, which are sorted by their estimated amount of rejections.
+         *
+         * @return An unmodifiable {@link List list} of {@link HotKey hot keys}
+         */
+        @NotNull
+        public List<HotKey> getHotKeys()
+        {
+            return hotKeys;
+        }
+
+        private static long sum(@NotNull long[] values)
+        {
+            long sum = 0;
+
+            for (long value : values)
+            {
+                sum += value;
+            }
+            return sum;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Snapshot{" +
+                    "allowed=" + getTotalAllowed() +
+                    ", rejected=" + getTotalRejected() +
+                    ", p99=" + getRemainingPercentile(0.99) +
+                    ", hotKeys=" + hotKeys +
+                    '}';
+        }
+    }
+
+    /**
+     * A user, who has been throttled frequently.
+     */
+    public static final class HotKey
+    {
+        private final long id;
+        private final long count;
+
+        private HotKey(long id, long count)
+        {
+            this.id = id;
+            this.count = count;
+        }
+
+        /**
+         * The id of the user.
+         *
+         * @return The id of the user
+         */
+        public long getId()
+        {
+            return id;
+        }
+
+        /**
+         * The estimated amount of rejections of the user.
+         *
+         * @return The estimated amount of rejections
+         */
+        public long getCount()
+        {
+            return count;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "HotKey{" +
+                    "id=" + id +
+                    ", count=" + count +
+                    '}';
+        }
+    }
+}
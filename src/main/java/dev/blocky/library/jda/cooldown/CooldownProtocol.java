@@ -0,0 +1,54 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cooldown;
+
+/**
+ * The binary protocol between a {@link RemoteCooldownStore remote cooldown store} and a {@link CooldownServer cooldown server}.
+ * <br>After a handshake (magic and version, both as <b>int</b>), the client sends fixed-width requests and the server answers
+ * every request with a fixed-width response. Requests may be pipelined, the id of a request is echoed by its response.
+ * All values are big-endian.
+ *
+ * <pre>
+ * request  (44 bytes): int id, byte operation, byte scope type, byte algorithm, byte reserved,
+ *                      int permits, long primary, long secondary, long delay or period, long limiter id
+ * response (12 bytes): int id, long result
+ * </pre>
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+final class CooldownProtocol
+{
+    static final int MAGIC = 0x4a44434b;
+    static final int VERSION = 2;
+    static final int HANDSHAKE_SIZE = 8;
+
+    static final int REQUEST_SIZE = 44;
+    static final int RESPONSE_SIZE = 12;
+
+    static final byte COOLDOWN = 0;
+    static final byte RATE_LIMIT = 1;
+
+    /**
+     * The result of a request, which could not be decoded.
+     */
+    static final long INVALID = Long.MIN_VALUE;
+
+    private CooldownProtocol()
+    {
+    }
+}
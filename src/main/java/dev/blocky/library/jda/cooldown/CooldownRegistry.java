@@ -0,0 +1,288 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cooldown;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.CheckReturnValue;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A thread-safe registry, which maps a snowflake id to the timestamp of the last accepted action.
+ * <br>The registry is backed by a lock-striped table of primitive <b>long</b> keys and values,
+ * so neither ids nor timestamps are boxed and threads only contend if they hit the same segment.
+ * <br>Every key consists of a primary and a secondary <b>long</b>, so two snowflakes (e.g. a user and a channel) can be
+ * combined without any collisions. Keys, which only consist of one snowflake, use <b>0</b> as secondary key.
+ * <br>Every entry expires once its delay has passed. Each segment schedules its entries on a {@link TimingWheel timing wheel},
+ * which is advanced whenever the segment is accessed, so the memory is bounded by the amount of <b>active</b> cooldowns.
+ *
+ * @author BlockyDotJar
+ * @version v1.3.0
+ * @since v1.1.5
+ */
+public final class CooldownRegistry
+{
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 64;
+
+    /**
+     * The state of an entry is the timestamp of the last accepted action, the argument is the delay.
+     */
+    private static final StateTable.Updater FIXED_DELAY = new StateTable.Updater()
+    {
+        @Override
+        public long update(@NotNull long[] state, int offset, boolean fresh, long now, long delay)
+        {
+            if (!fresh)
+            {
+                long remaining = delay - (now - state[offset]);
+
+                if (remaining > 0)
+                {
+                    return remaining;
+                }
+            }
+
+            state[offset] = now;
+            return 0;
+        }
+
+        @Override
+        public long deadline(@NotNull long[] state, int offset, long delay)
+        {
+            return state[offset] + delay;
+        }
+    };
+
+    private final StateTable table;
+
+    /**
+     * Constructs a <b>new</b> {@link CooldownRegistry cooldown registry} with the default concurrency level.
+     */
+    public CooldownRegistry()
+    {
+        this(DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Constructs a <b>new</b> {@link CooldownRegistry cooldown registry}.
+     *
+     * @param concurrencyLevel The amount of segments, which will be rounded up to the next power of two
+     */
+    public CooldownRegistry(int concurrencyLevel)
+    {
+        this.table = new StateTable(concurrencyLevel, 1);
+    }
+
+    /**
+     * Atomically checks if the delay for the specified id is over and, if this is the case, stores <b>now</b> as the new timestamp.
+     *
+     * @param id    The snowflake id, which should be checked
+     * @param now   The current time in milliseconds
+     * @param delay The delay in milliseconds, which must have passed since the last accepted action
+     * @return <b>0</b> if the action was accepted, otherwise the remaining time in milliseconds
+     */
+    @CheckReturnValue
+    public long tryAcquire(long id, long now, long delay)
+    {
+        return tryAcquire(id, 0, now, delay);
+    }
+
+    /**
+     * Atomically checks if the delay for the specified composite key is over and, if this is the case, stores <b>now</b> as the new timestamp.
+     * <br>An entry is only taken into account until the longest delay, it has been checked with, has passed.
+     * After that it counts as expired, even if the {@link TimingWheel timing wheel} has not evicted it yet.
+     *
+     * @param primary   The primary key, which should be checked
+     * @param secondary The secondary key, which should be checked
+     * @param now       The current time in milliseconds
+     * @param delay     The delay in milliseconds, which must have passed since the last accepted action
+     * @return <b>0</b> if the action was accepted, otherwise the remaining time in milliseconds
+     */
+    @CheckReturnValue
+    public long tryAcquire(long primary, long secondary, long now, long delay)
+    {
+        return table.update(primary, secondary, now, FIXED_DELAY, delay);
+    }
+
+    /**
+     * Gets the timestamp of the last accepted action for the specified id.
+     *
+     * @param id           The snowflake id, which should be looked up
+     * @param defaultValue The value, which should be returned if the id is not present
+     * @return The timestamp in milliseconds or <b>defaultValue</b> if the id is not present
+     */
+    public long get(long id, long defaultValue)
+    {
+        return get(id, 0, defaultValue);
+    }
+
+    /**
+     * Gets the timestamp of the last accepted action for the specified composite key.
+     *
+     * @param primary      The primary key, which should be looked up
+     * @param secondary    The secondary key, which should be looked up
+     * @param defaultValue The value, which should be returned if the key is not present
+     * @return The timestamp in milliseconds or <b>defaultValue</b> if the key is not present
+     */
+    public long get(long primary, long secondary, long defaultValue)
+    {
+        return table.get(primary, secondary, 0, defaultValue);
+    }
+
+    /**
+     * Checks if the specified id is present in this registry.
+     *
+     * @param id The snowflake id, which should be checked
+     * @return
+     * <b>true</b> - If the id is present
+     * <br><b>false</b> - If the id is not present
+     */
+    public boolean contains(long id)
+    {
+        return contains(id, 0);
+    }
+
+    /**
+     * Checks if the specified composite key is present in this registry.
+     *
+     * @param primary   The primary key, which should be checked
+     * @param secondary The secondary key, which should be checked
+     * @return
+     * <b>true</b> - If the key is present
+     * <br><b>false</b> - If the key is not present
+     */
+    public boolean contains(long primary, long secondary)
+    {
+        return table.contains(primary, secondary);
+    }
+
+    /**
+     * Stores the timestamp for the specified id, regardless of the previous value.
+     *
+     * @param id        The snowflake id, which should be stored
+     * @param timestamp The timestamp in milliseconds
+     * @param delay     The delay in milliseconds, after which the entry expires
+     */
+    public void put(long id, long timestamp, long delay)
+    {
+        put(id, 0, timestamp, delay);
+    }
+
+    /**
+     * Stores the timestamp for the specified composite key, regardless of the previous value.
+     *
+     * @param primary   The primary key, which should be stored
+     * @param secondary The secondary key, which should be stored
+     * @param timestamp The timestamp in milliseconds
+     * @param delay     The delay in milliseconds, after which the entry expires
+     */
+    public void put(long primary, long secondary, long timestamp, long delay)
+    {
+        table.put(primary, secondary, new long[]{ timestamp }, timestamp + delay, timestamp);
+    }
+
+    /**
+     * Removes the specified id from this registry.
+     *
+     * @param id The snowflake id, which should be removed
+     * @return
+     * <b>true</b> - If the id was present
+     * <br><b>false</b> - If the id was not present
+     */
+    public boolean remove(long id)
+    {
+        return remove(id, 0);
+    }
+
+    /**
+     * Removes the specified composite key from this registry.
+     *
+     * @param primary   The primary key, which should be removed
+     * @param secondary The secondary key, which should be removed
+     * @return
+     * <b>true</b> - If the key was present
+     * <br><b>false</b> - If the key was not present
+     */
+    public boolean remove(long primary, long secondary)
+    {
+        return table.remove(primary, secondary);
+    }
+
+    /**
+     * Evicts all entries, whose delay has passed.
+     * <br>This is done automatically whenever a segment is accessed, so this only needs to be called to release the memory
+     * of segments, which have not been accessed for a long time.
+     *
+     * @param now The current time in milliseconds
+     */
+    public void expire(long now)
+    {
+        table.expire(now);
+    }
+
+    /**
+     * The amount of keys in this registry, including expired keys, which have not been evicted yet.
+     * <br>Segments are counted one after another, so the result is only exact if there are no concurrent modifications.
+     *
+     * @return The amount of keys in this registry
+     */
+    public int size()
+    {
+        return table.size();
+    }
+
+    /**
+     * Removes all keys from this registry.
+     */
+    public void clear()
+    {
+        table.clear();
+    }
+
+    /**
+     * The table, which stores the timestamps of this registry.
+     *
+     * @return The {@link StateTable state table} of this registry
+     */
+    @NotNull
+    StateTable getTable()
+    {
+        return table;
+    }
+
+    /**
+     * Copies all entries, which only consist of a snowflake id (secondary key <b>0</b>), into a <b>new</b> {@link Map map}.
+     * <br>This boxes every entry, so it should only be used for debugging or migration purposes.
+     *
+     * @return A <b>new</b> {@link HashMap hash map}, which contains all ids and their timestamps
+     */
+    @NotNull
+    @CheckReturnValue
+    public Map<Long, Long> toMap()
+    {
+        Map<Long, Long> map = new HashMap<>();
+
+        table.forEach((primary, secondary, state, offset, deadline) ->
+        {
+            if (secondary == 0)
+            {
+                map.put(primary, state[offset]);
+            }
+        });
+        return map;
+    }
+}
@@ -0,0 +1,215 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cooldown;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+
+/**
+ * Describes, for what a cooldown applies. (e.g. per user, per user and command or per channel)
+ * <br>A scope packs the snowflakes of a cooldown check into a primary and a secondary <b>long</b> key,
+ * so no {@link String strings} or other objects have to be allocated for any check.
+ * <br>Scopes are immutable, so command scopes should be created once and reused.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+public final class CooldownScope
+{
+    /**
+     * The cooldown applies to a user in every channel and for every command. (this is the default scope)
+     */
+    public static final CooldownScope USER = new CooldownScope(Type.USER, 0, null);
+
+    /**
+     * The cooldown applies to a user in one specific channel.
+     */
+    public static final CooldownScope USER_CHANNEL = new CooldownScope(Type.USER_CHANNEL, 0, null);
+
+    /**
+     * The cooldown applies to a user in one specific guild.
+     */
+    public static final CooldownScope USER_GUILD = new CooldownScope(Type.USER_GUILD, 0, null);
+
+    /**
+     * The cooldown applies to everyone in one specific channel.
+     */
+    public static final CooldownScope CHANNEL = new CooldownScope(Type.CHANNEL, 0, null);
+
+    private final Type type;
+    private final long command;
+    private final String commandName;
+
+    private CooldownScope(@NotNull Type type, long command, @Nullable String commandName)
+    {
+        this.type = type;
+        this.command = command;
+        this.commandName = commandName;
+    }
+
+    /**
+     * Creates a <b>new</b> {@link CooldownScope cooldown scope}, which applies to a user and one specific command.
+     * <br>The name of the command is hashed once, so the returned scope should be stored and reused.
+     *
+     * @param command The name of the command
+     * @return A <b>new</b> {@link CooldownScope cooldown scope} for the specified command
+     */
+    @NotNull
+    public static CooldownScope command(@NotNull CharSequence command)
+    {
+        return new CooldownScope(Type.USER_COMMAND, hash(command), command.toString());
+    }
+
+    /**
+     * The {@link Type type} of this scope.
+     *
+     * @return The {@link Type type} of this scope
+     */
+    @NotNull
+    public Type getType()
+    {
+        return type;
+    }
+
+    /**
+     * The name of the command, if this is a {@link Type#USER_COMMAND user command} scope.
+     *
+     * @return The name of the command or <b>null</b>
+     */
+    @Nullable
+    public String getCommandName()
+    {
+        return commandName;
+    }
+
+    /**
+     * Packs the primary key of a cooldown check.
+     *
+     * @param userId    The id of the user, who triggered the check
+     * @param channelId The id of the channel, in which the check was triggered
+     * @return The primary key for this scope
+     */
+    public long getPrimaryKey(long userId, long channelId)
+    {
+        return type == Type.CHANNEL ? channelId : userId;
+    }
+
+    /**
+     * Packs the secondary key of a cooldown check.
+     *
+     * @param channelId The id of the channel, in which the check was triggered
+     * @param guildId   The id of the guild, in which the check was triggered (<b>0</b> if there is no guild)
+     * @return The secondary key for this scope
+     */
+    public long getSecondaryKey(long channelId, long guildId)
+    {
+        switch (type)
+        {
+            case USER_COMMAND:
+                return command;
+            case USER_CHANNEL:
+                return channelId;
+            case USER_GUILD:
+                return guildId;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * A 64-bit FNV-1a hash of the name of a command or a {@link RateLimiter rate limiter}, which is only computed once per scope or
+     * rate limiter. The hash does not depend on the process, so every client of a {@link CooldownServer cooldown server} gets the same one.
+     */
+    static long hash(@NotNull CharSequence name)
+    {
+        long hash = 0xcbf29ce484222325L;
+
+        for (int i = 0; i < name.length(); i++)
+        {
+            hash ^= name.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+
+        if (o == null || getClass() != o.getClass())
+        {
+            return false;
+        }
+
+        CooldownScope that = (CooldownScope) o;
+
+        return type == that.type && command == that.command;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(type, command);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CooldownScope{" +
+                "type=" + type +
+                ", commandName=" + commandName +
+                '}';
+    }
+
+    /**
+     * Represents the different types of {@link CooldownScope cooldown scopes}.
+     * <br>Each type has its own {@link CooldownRegistry cooldown registry}, so the keys of different types never collide.
+     */
+    public enum Type
+    {
+        /**
+         * The cooldown applies to a user in every channel and for every command.
+         */
+        USER,
+
+        /**
+         * The cooldown applies to a user and one specific command.
+         */
+        USER_COMMAND,
+
+        /**
+         * The cooldown applies to a user in one specific channel.
+         */
+        USER_CHANNEL,
+
+        /**
+         * The cooldown applies to a user in one specific guild.
+         */
+        USER_GUILD,
+
+        /**
+         * The cooldown applies to everyone in one specific channel.
+         */
+        CHANNEL
+    }
+}
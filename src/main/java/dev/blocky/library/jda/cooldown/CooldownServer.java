@@ -0,0 +1,368 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cooldown;
+
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A small cooldown daemon, which decides the cooldowns and rate limits of several processes.
+ * <br>Every connection is served by its own thread, which reads all pipelined requests, that have arrived, decides them with a
+ * {@link LocalCooldownStore local cooldown store} and answers them with a single write.
+ * <br>Rate limits are decided by one {@link RateLimiter rate limiter} per configuration (algorithm, permits and period) and
+ * {@link RateLimiter#named(CharSequence) name}, so only rate limiters with the same configuration and name share their state.
+ * Unnamed rate limiters with the same configuration share their state, unless their keys are separated by a
+ * {@link CooldownScope#command(CharSequence) command scope}.
+ * <br>All decisions use the {@link TimeSource time source} of the server, so the clocks of the clients do not matter.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+public final class CooldownServer implements Closeable
+{
+    private static final Logger logger = JDALogger.getLog(CooldownServer.class);
+    private static final int MAX_BATCH = 1024;
+    private static final CooldownScope.Type[] types = CooldownScope.Type.values();
+    private static final RateLimiter.Algorithm[] algorithms = RateLimiter.Algorithm.values();
+
+    private final LocalCooldownStore store = new LocalCooldownStore();
+    private final ConcurrentHashMap<LimiterKey, RateLimiter> limiters = new ConcurrentHashMap<>();
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+    private final ServerSocketChannel server;
+    private final TimeSource source;
+    private final Thread acceptor;
+
+    private volatile boolean closed;
+
+    private CooldownServer(@NotNull ServerSocketChannel server, @NotNull TimeSource source)
+    {
+        this.server = server;
+        this.source = source;
+        this.acceptor = new Thread(this::accept, "JDA-Commons Cooldown-Server " + server.socket().getLocalSocketAddress());
+
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Starts a <b>new</b> {@link CooldownServer cooldown server}, which listens at the specified address.
+     * <br>(if the {@link TimeSource time source} equals <b>null</b>, there will be used a default {@link TimeSource time source}:
+     * {@link TimeSource#MONOTONIC TimeSource#MONOTONIC})
+     *
+     * @param address The address, at which the server should listen (port <b>0</b> chooses a free port)
+     * @param source  The {@link TimeSource time source}, which decides the cooldowns
+     * @return A <b>new</b> {@link CooldownServer cooldown server}
+     * @throws IOException If the server could not be bound
+     */
+    @NotNull
+    public static CooldownServer start(@NotNull InetSocketAddress address, @Nullable TimeSource source) throws IOException
+    {
+        ServerSocketChannel server = ServerSocketChannel.open();
+
+        try
+        {
+            server.bind(address);
+        }
+        catch (IOException e)
+        {
+            server.close();
+            throw e;
+        }
+        return new CooldownServer(server, source == null ? TimeSource.MONOTONIC : source);
+    }
+
+    /**
+     * Runs a {@link CooldownServer cooldown server} at the loopback address, until the process is stopped.
+     *
+     * @param args The port, at which the server should listen
+     * @throws IOException If the server could not be bound
+     * @throws InterruptedException If the main thread was interrupted
+     */
+    public static void main(@NotNull String[] args) throws IOException, InterruptedException
+    {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7420;
+
+        CooldownServer server = start(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), null);
+        logger.info("The cooldown server is listening at " + server.getAddress() + ".");
+
+        server.acceptor.join();
+    }
+
+    /**
+     * The address, at which this server listens.
+     *
+     * @return The {@link InetSocketAddress address} of this server
+     */
+    @NotNull
+    public InetSocketAddress getAddress()
+    {
+        return (InetSocketAddress) server.socket().getLocalSocketAddress();
+    }
+
+    /**
+     * The {@link LocalCooldownStore local cooldown store}, which decides the cooldowns of this server.
+     *
+     * @return The {@link LocalCooldownStore local cooldown store} of this server
+     */
+    @NotNull
+    public LocalCooldownStore getStore()
+    {
+        return store;
+    }
+
+    /**
+     * Stops this server and closes all connections.
+     *
+     * @throws IOException If the server could not be closed
+     */
+    @Override
+    public void close() throws IOException
+    {
+        closed = true;
+        server.close();
+
+        for (SocketChannel connection : connections)
+        {
+            connection.close();
+        }
+    }
+
+    private void accept()
+    {
+        while (!closed)
+        {
+            try
+            {
+                SocketChannel connection = server.accept();
+                connection.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                connections.add(connection);
+
+                Thread thread = new Thread(() -> serve(connection), "JDA-Commons Cooldown-Connection " + connection.socket().getRemoteSocketAddress());
+                thread.setDaemon(true);
+                thread.start();
+            }
+            catch (ClosedChannelException e)
+            {
+                return;
+            }
+            catch (IOException e)
+            {
+                logger.error("A connection to the cooldown server could not be accepted.", e);
+            }
+        }
+    }
+
+    private void serve(@NotNull SocketChannel connection)
+    {
+        ByteBuffer input = ByteBuffer.allocateDirect(CooldownProtocol.REQUEST_SIZE * MAX_BATCH);
+        ByteBuffer output = ByteBuffer.allocateDirect(CooldownProtocol.RESPONSE_SIZE * MAX_BATCH);
+        LimiterKey probe = new LimiterKey();
+
+        try
+        {
+            input.limit(CooldownProtocol.HANDSHAKE_SIZE);
+
+            while (input.hasRemaining())
+            {
+                if (connection.read(input) < 0)
+                {
+                    throw new EOFException();
+                }
+            }
+
+            if (input.getInt(0) != CooldownProtocol.MAGIC || input.getInt(4) != CooldownProtocol.VERSION)
+            {
+                logger.error("A client with an incompatible protocol tried to connect to the cooldown server.", new IllegalStateException());
+                return;
+            }
+
+            input.flip();
+
+            while (input.hasRemaining())
+            {
+                connection.write(input);
+            }
+
+            input.clear();
+
+            while (!closed)
+            {
+                if (connection.read(input) < 0)
+                {
+                    return;
+                }
+
+                input.flip();
+                output.clear();
+
+                long now = source.millis();
+
+                while (input.remaining() >= CooldownProtocol.REQUEST_SIZE)
+                {
+                    output.putInt(input.getInt());
+                    output.putLong(decide(input, probe, now));
+                }
+
+                input.compact();
+                output.flip();
+
+                while (output.hasRemaining())
+                {
+                    connection.write(output);
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            if (!closed)
+            {
+                logger.error("A connection to the cooldown server was lost.", e);
+            }
+        }
+        finally
+        {
+            connections.remove(connection);
+
+            try
+            {
+                connection.close();
+            }
+            catch (IOException ignored)
+            {
+            }
+        }
+    }
+
+    private long decide(@NotNull ByteBuffer input, @NotNull LimiterKey probe, long now)
+    {
+        byte operation = input.get();
+        int type = input.get();
+        int algorithm = input.get();
+        input.get();
+
+        int permits = input.getInt();
+        long primary = input.getLong();
+        long secondary = input.getLong();
+        long delay = input.getLong();
+        long limiterId = input.getLong();
+
+        if (type < 0 || type >= types.length)
+        {
+            return CooldownProtocol.INVALID;
+        }
+
+        switch (operation)
+        {
+            case CooldownProtocol.COOLDOWN:
+                return store.tryAcquire(types[type], primary, secondary, now, delay);
+            case CooldownProtocol.RATE_LIMIT:
+                if (algorithm < 0 || algorithm >= algorithms.length || permits < 1 || delay < 1)
+                {
+                    return CooldownProtocol.INVALID;
+                }
+
+                probe.set(algorithm, permits, delay, limiterId);
+
+                RateLimiter limiter = limiters.get(probe);
+
+                if (limiter == null)
+                {
+                    limiter = limiters.computeIfAbsent(probe.copy(),
+                            key -> RateLimiter.create(algorithms[key.algorithm], key.permits, key.period, TimeUnit.MILLISECONDS));
+                }
+                return store.tryAcquire(limiter, types[type], primary, secondary, now);
+            default:
+                return CooldownProtocol.INVALID;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CooldownServer{" +
+                "address=" + server.socket().getLocalSocketAddress() +
+                ", connections=" + connections.size() +
+                '}';
+    }
+
+    /**
+     * The configuration and the id of a {@link RateLimiter rate limiter}. Every connection reuses one key to look up the rate limiters.
+     */
+    private static final class LimiterKey
+    {
+        private int algorithm;
+        private int permits;
+        private long period;
+        private long id;
+
+        private void set(int algorithm, int permits, long period, long id)
+        {
+            this.algorithm = algorithm;
+            this.permits = permits;
+            this.period = period;
+            this.id = id;
+        }
+
+        @NotNull
+        private LimiterKey copy()
+        {
+            LimiterKey key = new LimiterKey();
+            key.set(algorithm, permits, period, id);
+            return key;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o)
+        {
+            if (this == o)
+            {
+                return true;
+            }
+
+            if (o == null || getClass() != o.getClass())
+            {
+                return false;
+            }
+
+            LimiterKey that = (LimiterKey) o;
+
+            return algorithm == that.algorithm && permits == that.permits && period == that.period && id == that.id;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * (31 * (31 * algorithm + permits) + Long.hashCode(period)) + Long.hashCode(id);
+        }
+    }
+}
@@ -0,0 +1,381 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cooldown;
+
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Persists a {@link CooldownRegistry cooldown registry} in a file, so cooldowns survive a restart.
+ * <br>The file consists of a header and fixed-width records of four <b>long</b> values (primary key, secondary key, timestamp and deadline).
+ * Every {@link #checkpoint() checkpoint} only appends the entries, which have been modified since the last one, and explicitly
+ * removed keys as tombstones, so the file is never rewritten in full, unless it contains more than twice as many records as
+ * there are entries.
+ * <br>The records are copied into a buffer on the heap, while the locks of the registry are held, and are written and synced after
+ * the locks are released, so the registry is never blocked by the disk. The record count in the header is only updated after the
+ * records are synced, so a crash never exposes a partially written record.
+ * <br>Loading reads the records in chunks, the last record of every key wins and expired entries are skipped.
+ * <br>The timestamps are stored as they are, so the {@link TimeSource time source} must be anchored at the wall clock, like
+ * {@link TimeSource#MONOTONIC TimeSource#MONOTONIC} and {@link TimeSource#WALL_CLOCK TimeSource#WALL_CLOCK} are.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+public final class CooldownSnapshot implements Closeable
+{
+    private static final Logger logger = JDALogger.getLog(CooldownSnapshot.class);
+
+    private static final long MAGIC = 0x4a44434f4f4c444eL;
+    private static final int FORMAT_VERSION = 1;
+    private static final int VERSION_OFFSET = 8;
+    private static final int COUNT_OFFSET = 16;
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORD_SIZE = 32;
+    private static final int CHUNK_RECORDS = 4096;
+    private static final int MAX_RETAINED_STAGING = CHUNK_RECORDS * RECORD_SIZE * 16;
+    private static final long MIN_COMPACTION_RECORDS = 4096;
+
+    private final Path file;
+    private final CooldownRegistry registry;
+    private final TimeSource source;
+    private final long[] state = new long[1];
+    private final ByteBuffer count = ByteBuffer.allocate(8);
+
+    private FileChannel channel;
+    private ByteBuffer staging = newStaging(CHUNK_RECORDS);
+    private long records;
+    private long now;
+    private boolean closed;
+
+    private CooldownSnapshot(@NotNull Path file, @NotNull CooldownRegistry registry, @NotNull TimeSource source)
+    {
+        this.file = file;
+        this.registry = registry;
+        this.source = source;
+    }
+
+    /**
+     * Opens the snapshot in the specified file, loads its entries into the specified {@link CooldownRegistry cooldown registry}
+     * and starts to track the modifications of the registry.
+     * <br>If the file does not exist or is not a snapshot, it will be (re)created.
+     * (if the {@link TimeSource time source} equals <b>null</b>, there will be used a default {@link TimeSource time source}:
+     * {@link TimeSource#MONOTONIC TimeSource#MONOTONIC})
+     *
+     * @param file     The file, in which the snapshot should be stored
+     * @param registry The {@link CooldownRegistry cooldown registry}, which should be persisted
+     * @param source   The {@link TimeSource time source}, which is used by the registry
+     * @return A <b>new</b> {@link CooldownSnapshot cooldown snapshot}
+     * @throws IOException If the file could not be read or written
+     */
+    @NotNull
+    public static CooldownSnapshot open(@NotNull Path file, @NotNull CooldownRegistry registry, @Nullable TimeSource source) throws IOException
+    {
+        CooldownSnapshot snapshot = new CooldownSnapshot(file, registry, source == null ? TimeSource.MONOTONIC : source);
+
+        synchronized (snapshot)
+        {
+            snapshot.load();
+            registry.getTable().track();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Appends every entry, which has been modified since the last checkpoint, to the file and syncs it.
+     * <br>If the file contains more than twice as many records as there are entries, it will be compacted instead.
+     *
+     * @return The amount of records, which have been written
+     * @throws IOException If the file could not be written
+     */
+    public synchronized long checkpoint() throws IOException
+    {
+        if (closed)
+        {
+            throw new IOException("The cooldown snapshot is already closed.");
+        }
+
+        StateTable table = registry.getTable();
+
+        if (records >= MIN_COMPACTION_RECORDS && records > (long) table.size() << 1)
+        {
+            return rewrite();
+        }
+
+        staging.clear();
+        table.checkpoint(false, this::append);
+
+        long written = writeStaged();
+
+        if (written > 0)
+        {
+            commit();
+        }
+        return written;
+    }
+
+    /**
+     * The amount of records in the file, including outdated records and tombstones.
+     *
+     * @return The amount of records in the file
+     */
+    public synchronized long getRecordCount()
+    {
+        return records;
+    }
+
+    /**
+     * The file, in which the snapshot is stored.
+     *
+     * @return The {@link Path path} of the snapshot
+     */
+    @NotNull
+    public Path getFile()
+    {
+        return file;
+    }
+
+    /**
+     * Writes a last checkpoint and closes the file.
+     *
+     * @throws IOException If the file could not be written
+     */
+    @Override
+    public synchronized void close() throws IOException
+    {
+        if (closed)
+        {
+            return;
+        }
+
+        try
+        {
+            checkpoint();
+        }
+        finally
+        {
+            closed = true;
+            channel.close();
+        }
+    }
+
+    private void load() throws IOException
+    {
+        if (!Files.exists(file) || Files.size(file) < HEADER_SIZE)
+        {
+            rewrite();
+            return;
+        }
+
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, 0);
+
+        if (header.getLong(0) != MAGIC || header.getInt(VERSION_OFFSET) != FORMAT_VERSION)
+        {
+            logger.error("The file " + file + " is not a cooldown snapshot, so it will be overwritten.", new IllegalArgumentException());
+            channel.close();
+            rewrite();
+            return;
+        }
+
+        records = Math.min(header.getLong(COUNT_OFFSET), (channel.size() - HEADER_SIZE) / RECORD_SIZE);
+
+        long current = source.millis();
+        StateTable table = registry.getTable();
+        ByteBuffer chunk = newStaging(CHUNK_RECORDS);
+
+        table.ensureCapacity(records);
+
+        for (long read = 0; read < records; read += CHUNK_RECORDS)
+        {
+            int amount = (int) Math.min(CHUNK_RECORDS, records - read);
+
+            chunk.clear().limit(amount * RECORD_SIZE);
+            readFully(chunk, HEADER_SIZE + read * RECORD_SIZE);
+
+            for (int position = 0; position < amount * RECORD_SIZE; position += RECORD_SIZE)
+            {
+                long primary = chunk.getLong(position);
+                long secondary = chunk.getLong(position + 8);
+                long deadline = chunk.getLong(position + 24);
+
+                if (deadline <= current)
+                {
+                    table.remove(primary, secondary);
+                    continue;
+                }
+
+                state[0] = chunk.getLong(position + 16);
+                table.restore(primary, secondary, state, deadline, current);
+            }
+        }
+
+        // Drops the records behind the count, which were written, but never committed.
+        channel.truncate(HEADER_SIZE + records * RECORD_SIZE);
+
+        if (records >= MIN_COMPACTION_RECORDS && records > (long) table.size() << 1)
+        {
+            rewrite();
+        }
+    }
+
+    /**
+     * Writes every entry, which has not expired yet, to a temporary file, which replaces the snapshot afterwards.
+     * <br>Every channel is closed before the move, because an open file cannot be replaced on every platform.
+     */
+    private long rewrite() throws IOException
+    {
+        StateTable table = registry.getTable();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        if (channel != null && channel.isOpen())
+        {
+            channel.close();
+        }
+
+        channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        records = 0;
+        now = source.millis();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putLong(0, MAGIC);
+        header.putInt(VERSION_OFFSET, FORMAT_VERSION);
+        writeFully(header, 0);
+
+        staging.clear();
+        table.checkpoint(true, this::appendActive);
+        writeStaged();
+        commit();
+        channel.close();
+
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return records;
+    }
+
+    private void appendActive(long primary, long secondary, @NotNull long[] state, int offset, long deadline)
+    {
+        if (deadline > now)
+        {
+            append(primary, secondary, state, offset, deadline);
+        }
+    }
+
+    /**
+     * Copies a record into the staging buffer.
+     * <br>This is called while the lock of a segment of the registry is held, so it only touches the heap.
+     */
+    private void append(long primary, long secondary, @NotNull long[] state, int offset, long deadline)
+    {
+        if (staging.remaining() < RECORD_SIZE)
+        {
+            ByteBuffer grown = newStaging(staging.capacity() / RECORD_SIZE * 2);
+            staging.flip();
+            grown.put(staging);
+            staging = grown;
+        }
+
+        staging.putLong(primary);
+        staging.putLong(secondary);
+        staging.putLong(state[offset]);
+        staging.putLong(deadline);
+    }
+
+    /**
+     * Writes the staged records behind the committed records and syncs them.
+     */
+    private long writeStaged() throws IOException
+    {
+        staging.flip();
+
+        long written = staging.remaining() / RECORD_SIZE;
+
+        if (written > 0)
+        {
+            writeFully(staging, HEADER_SIZE + records * RECORD_SIZE);
+            channel.force(false);
+            records += written;
+        }
+
+        if (staging.capacity() > MAX_RETAINED_STAGING)
+        {
+            staging = newStaging(CHUNK_RECORDS);
+        }
+
+        staging.clear();
+        return written;
+    }
+
+    /**
+     * Writes the record count to the header and syncs it, which makes the written records visible to the next load.
+     */
+    private void commit() throws IOException
+    {
+        count.clear();
+        count.putLong(0, records);
+        writeFully(count, COUNT_OFFSET);
+        channel.force(true);
+    }
+
+    private void readFully(@NotNull ByteBuffer target, long position) throws IOException
+    {
+        while (target.hasRemaining())
+        {
+            if (channel.read(target, position + target.position()) < 0)
+            {
+                throw new IOException("The cooldown snapshot " + file + " ends unexpectedly.");
+            }
+        }
+    }
+
+    private void writeFully(@NotNull ByteBuffer source, long position) throws IOException
+    {
+        long start = position - source.position();
+
+        while (source.hasRemaining())
+        {
+            channel.write(source, start + source.position());
+        }
+    }
+
+    @NotNull
+    private static ByteBuffer newStaging(int records)
+    {
+        return ByteBuffer.allocate(records * RECORD_SIZE);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CooldownSnapshot{" +
+                "file=" + file +
+                ", records=" + records +
+                '}';
+    }
+}
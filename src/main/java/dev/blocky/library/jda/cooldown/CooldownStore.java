@@ -0,0 +1,60 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cooldown;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.CheckReturnValue;
+
+/**
+ * The storage, which decides all cooldowns and rate limits of the timeouted messages.
+ * <br>The default store is a {@link LocalCooldownStore local cooldown store}, which only knows the cooldowns of the current process.
+ * Bots, which run their shards in several processes, can use a {@link RemoteCooldownStore remote cooldown store} instead,
+ * so every process shares the cooldowns of a {@link CooldownServer cooldown server}.
+ * <br>Implementations must be thread-safe.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+public interface CooldownStore
+{
+    /**
+     * Atomically checks if the delay for the specified composite key is over and, if this is the case, starts a <b>new</b> cooldown.
+     *
+     * @param type      The {@link CooldownScope.Type scope type}, whose keys should be used
+     * @param primary   The primary key, which should be checked
+     * @param secondary The secondary key, which should be checked
+     * @param now       The current time of the caller in milliseconds (remote stores may use their own clock instead)
+     * @param delay     The delay in milliseconds
+     * @return <b>0</b> if the cooldown is over, otherwise the remaining time in milliseconds
+     */
+    @CheckReturnValue
+    long tryAcquire(@NotNull CooldownScope.Type type, long primary, long secondary, long now, long delay);
+
+    /**
+     * Atomically checks if the specified composite key may perform another action and, if this is the case, consumes a permit.
+     *
+     * @param limiter   The {@link RateLimiter rate limiter}, whose configuration should be used
+     * @param type      The {@link CooldownScope.Type scope type}, whose keys should be used
+     * @param primary   The primary key, which should be checked
+     * @param secondary The secondary key, which should be checked
+     * @param now       The current time of the caller in milliseconds (remote stores may use their own clock instead)
+     * @return <b>0</b> if the action was accepted, otherwise the time in milliseconds until the next permit is available
+     */
+    @CheckReturnValue
+    long tryAcquire(@NotNull RateLimiter limiter, @NotNull CooldownScope.Type type, long primary, long secondary, long now);
+}
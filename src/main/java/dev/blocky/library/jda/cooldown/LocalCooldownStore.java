@@ -0,0 +1,90 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cooldown;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.CheckReturnValue;
+
+/**
+ * A {@link CooldownStore cooldown store}, which keeps all cooldowns in the current process.
+ * <br>Every {@link CooldownScope.Type scope type} has its own {@link CooldownRegistry cooldown registry} and rate limits are
+ * decided by the {@link RateLimiter rate limiters} themselves.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+public final class LocalCooldownStore implements CooldownStore
+{
+    private final CooldownRegistry[] registries = new CooldownRegistry[CooldownScope.Type.values().length];
+
+    /**
+     * Constructs a <b>new</b> {@link LocalCooldownStore local cooldown store}.
+     */
+    public LocalCooldownStore()
+    {
+        for (int i = 0; i < registries.length; i++)
+        {
+            registries[i] = new CooldownRegistry();
+        }
+    }
+
+    @Override
+    @CheckReturnValue
+    public long tryAcquire(@NotNull CooldownScope.Type type, long primary, long secondary, long now, long delay)
+    {
+        return registries[type.ordinal()].tryAcquire(primary, secondary, now, delay);
+    }
+
+    @Override
+    @CheckReturnValue
+    public long tryAcquire(@NotNull RateLimiter limiter, @NotNull CooldownScope.Type type, long primary, long secondary, long now)
+    {
+        return limiter.tryAcquire(type, primary, secondary, now);
+    }
+
+    /**
+     * The {@link CooldownRegistry cooldown registry} of the specified {@link CooldownScope.Type scope type}.
+     *
+     * @param type The {@link CooldownScope.Type scope type}, whose registry should be returned
+     * @return The {@link CooldownRegistry cooldown registry} of the specified {@link CooldownScope.Type scope type}
+     */
+    @NotNull
+    public CooldownRegistry getRegistry(@NotNull CooldownScope.Type type)
+    {
+        return registries[type.ordinal()];
+    }
+
+    @Override
+    public String toString()
+    {
+        return "LocalCooldownStore{" +
+                "size=" + size() +
+                '}';
+    }
+
+    private int size()
+    {
+        int size = 0;
+
+        for (CooldownRegistry registry : registries)
+        {
+            size += registry.size();
+        }
+        return size;
+    }
+}
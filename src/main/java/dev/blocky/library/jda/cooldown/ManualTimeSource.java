@@ -0,0 +1,90 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cooldown;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link TimeSource time source}, which only moves, if it is told to.
+ * <br>This can be used to test or benchmark timeouted messages without waiting for any delay.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+public final class ManualTimeSource implements TimeSource
+{
+    private final AtomicLong millis;
+
+    /**
+     * Constructs a <b>new</b> {@link ManualTimeSource manual time source}, which starts at <b>0</b>.
+     */
+    public ManualTimeSource()
+    {
+        this(0);
+    }
+
+    /**
+     * Constructs a <b>new</b> {@link ManualTimeSource manual time source}.
+     *
+     * @param millis The start time in milliseconds
+     */
+    public ManualTimeSource(long millis)
+    {
+        this.millis = new AtomicLong(millis);
+    }
+
+    @Override
+    public long millis()
+    {
+        return millis.get();
+    }
+
+    /**
+     * Sets the current time of this time source.
+     *
+     * @param millis The <b>new</b> time in milliseconds
+     */
+    public void set(long millis)
+    {
+        this.millis.set(millis);
+    }
+
+    /**
+     * Moves this time source forward.
+     * <br>(if {@link TimeUnit the time unit} equals <b>null</b>, there will be used a default {@link TimeUnit time unit}:
+     * {@link TimeUnit#MILLISECONDS TimeUnit#MILLISECONDS})
+     *
+     * @param duration The duration, which should be added
+     * @param unit     The {@link TimeUnit time unit} of the duration
+     * @return The <b>new</b> time in milliseconds
+     */
+    public long advance(long duration, @Nullable TimeUnit unit)
+    {
+        return millis.addAndGet(unit == null ? duration : unit.toMillis(duration));
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ManualTimeSource{" +
+                "millis=" + millis.get() +
+                '}';
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cooldown;
+
+/**
+ * A {@link TimeSource time source}, which is backed by {@link System#nanoTime() System#nanoTime()} and anchored at the
+ * wall-clock time of its initialization.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+final class MonotonicTimeSource implements TimeSource
+{
+    private final long originMillis = System.currentTimeMillis();
+    private final long originNanos = System.nanoTime();
+
+    @Override
+    public long millis()
+    {
+        return originMillis + (System.nanoTime() - originNanos) / 1000000;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "MonotonicTimeSource{" +
+                "originMillis=" + originMillis +
+                '}';
+    }
+}
@@ -0,0 +1,517 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cooldown;
+
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import javax.annotation.CheckReturnValue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A thread-safe rate limiter, which allows a specific amount of actions in a specific period. (e.g. five uses per 30 seconds)
+ * <br>Unlike a fixed cooldown, a rate limiter allows bursts, so users are not punished for using a command twice in a row.
+ * <br>The state of every key only consists of a few primitive <b>long</b> values, which are stored in lock-striped tables
+ * (one per {@link CooldownScope.Type scope type}) and evicted once they are obsolete, just like the entries of a
+ * {@link CooldownRegistry cooldown registry}.
+ * <br>Rate limiters hold their own state, so they should be created once per command and reused.
+ *
+ * @author BlockyDotJar
+ * @version v1.1.0
+ * @since v1.1.5
+ */
+public final class RateLimiter
+{
+    private static final Logger logger = JDALogger.getLog(RateLimiter.class);
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    private final Algorithm algorithm;
+    private final int permits;
+    private final long period;
+    private final String name;
+    private final long id;
+    private final StateTable.Updater updater;
+    private final StateTable[] tables = new StateTable[CooldownScope.Type.values().length];
+
+    private RateLimiter(@NotNull Algorithm algorithm, int permits, long period, @Nullable TimeUnit unit, @Nullable String name)
+    {
+        if (permits < 1)
+        {
+            logger.error("The amount of permits must be greater than 0.", new IllegalArgumentException());
+            permits = 1;
+        }
+
+        if (period < 1)
+        {
+            logger.error("The period must be greater than 0.", new IllegalArgumentException());
+            period = 1;
+        }
+
+        this.algorithm = algorithm;
+        this.permits = permits;
+        this.period = Math.max(1, (unit == null ? TimeUnit.SECONDS : unit).toMillis(period));
+        this.name = name;
+        this.id = name == null ? 0 : CooldownScope.hash(name);
+
+        int width;
+
+        switch (algorithm)
+        {
+            case TOKEN_BUCKET:
+                updater = new TokenBucket(this.permits, this.period);
+                width = 1;
+                break;
+            case SLIDING_WINDOW_LOG:
+                updater = new SlidingWindowLog(this.permits, this.period);
+                width = this.permits + 1;
+                break;
+            default:
+                updater = new SlidingWindowCounter(this.permits, this.period);
+                width = 3;
+                break;
+        }
+
+        for (int i = 0; i < tables.length; i++)
+        {
+            tables[i] = new StateTable(DEFAULT_CONCURRENCY_LEVEL, width);
+        }
+    }
+
+    /**
+     * Creates a <b>new</b> {@link RateLimiter rate limiter}, which uses the specified {@link Algorithm algorithm}.
+     * <br>(if {@link TimeUnit the time unit} equals <b>null</b>, there will be used a default {@link TimeUnit time unit}:
+     * {@link TimeUnit#SECONDS TimeUnit#SECONDS})
+     *
+     * @param algorithm The {@link Algorithm algorithm}, which should be used
+     * @param permits   The amount of actions, which are allowed within the period
+     * @param period    The period (or window)
+     * @param unit      The {@link TimeUnit time unit} of the period
+     * @return A <b>new</b> {@link RateLimiter rate limiter}
+     */
+    @NotNull
+    @CheckReturnValue
+    public static RateLimiter create(@NotNull Algorithm algorithm, int permits, long period, @Nullable TimeUnit unit)
+    {
+        return new RateLimiter(algorithm, permits, period, unit, null);
+    }
+
+    /**
+     * Creates a <b>new</b> {@link RateLimiter rate limiter}, which uses a {@link Algorithm#TOKEN_BUCKET token bucket}.
+     * <br>(if {@link TimeUnit the time unit} equals <b>null</b>, there will be used a default {@link TimeUnit time unit}:
+     * {@link TimeUnit#SECONDS TimeUnit#SECONDS})
+     *
+     * @param permits The capacity of the bucket, which is refilled continuously within the period
+     * @param period  The time, in which the whole bucket is refilled
+     * @param unit    The {@link TimeUnit time unit} of the period
+     * @return A <b>new</b> {@link RateLimiter rate limiter}
+     */
+    @NotNull
+    @CheckReturnValue
+    public static RateLimiter tokenBucket(int permits, long period, @Nullable TimeUnit unit)
+    {
+        return new RateLimiter(Algorithm.TOKEN_BUCKET, permits, period, unit, null);
+    }
+
+    /**
+     * Creates a <b>new</b> {@link RateLimiter rate limiter}, which uses a {@link Algorithm#SLIDING_WINDOW_LOG sliding window log}.
+     * <br>(if {@link TimeUnit the time unit} equals <b>null</b>, there will be used a default {@link TimeUnit time unit}:
+     * {@link TimeUnit#SECONDS TimeUnit#SECONDS})
+     *
+     * @param permits The amount of actions, which are allowed within the window
+     * @param window  The size of the window
+     * @param unit    The {@link TimeUnit time unit} of the window
+     * @return A <b>new</b> {@link RateLimiter rate limiter}
+     */
+    @NotNull
+    @CheckReturnValue
+    public static RateLimiter slidingWindowLog(int permits, long window, @Nullable TimeUnit unit)
+    {
+        return new RateLimiter(Algorithm.SLIDING_WINDOW_LOG, permits, window, unit, null);
+    }
+
+    /**
+     * Creates a <b>new</b> {@link RateLimiter rate limiter}, which uses a {@link Algorithm#SLIDING_WINDOW_COUNTER sliding window counter}.
+     * <br>(if {@link TimeUnit the time unit} equals <b>null</b>, there will be used a default {@link TimeUnit time unit}:
+     * {@link TimeUnit#SECONDS TimeUnit#SECONDS})
+     *
+     * @param permits The amount of actions, which are allowed within the window
+     * @param window  The size of the window
+     * @param unit    The {@link TimeUnit time unit} of the window
+     * @return A <b>new</b> {@link RateLimiter rate limiter}
+     */
+    @NotNull
+    @CheckReturnValue
+    public static RateLimiter slidingWindowCounter(int permits, long window, @Nullable TimeUnit unit)
+    {
+        return new RateLimiter(Algorithm.SLIDING_WINDOW_COUNTER, permits, window, unit, null);
+    }
+
+    /**
+     * Creates a <b>new</b> {@link RateLimiter rate limiter} with the configuration of this rate limiter and the specified name.
+     * <br>A {@link CooldownServer cooldown server} holds one rate limiter per configuration and name, so the rate limiters of
+     * different commands never share their state on the server, even if their configuration is the same. Every process should use
+     * the same name for the same rate limiter.
+     * <br>The name is hashed once, so the returned rate limiter should be stored and reused.
+     *
+     * @param name The name of the rate limiter (e.g. the name of its command)
+     * @return A <b>new</b> {@link RateLimiter rate limiter} with the specified name
+     */
+    @NotNull
+    @CheckReturnValue
+    public RateLimiter named(@NotNull CharSequence name)
+    {
+        return new RateLimiter(algorithm, permits, period, TimeUnit.MILLISECONDS, name.toString());
+    }
+
+    /**
+     * Atomically checks if the specified id may perform another action and, if this is the case, consumes a permit.
+     *
+     * @param id  The snowflake id, which should be checked
+     * @param now The current time in milliseconds
+     * @return <b>0</b> if the action was accepted, otherwise the time in milliseconds until the next permit is available
+     */
+    @CheckReturnValue
+    public long tryAcquire(long id, long now)
+    {
+        return tryAcquire(CooldownScope.Type.USER, id, 0, now);
+    }
+
+    /**
+     * Atomically checks if the specified composite key may perform another action and, if this is the case, consumes a permit.
+     *
+     * @param type      The {@link CooldownScope.Type scope type}, whose table should be used
+     * @param primary   The primary key, which should be checked
+     * @param secondary The secondary key, which should be checked
+     * @param now       The current time in milliseconds
+     * @return <b>0</b> if the action was accepted, otherwise the time in milliseconds until the next permit is available
+     */
+    @CheckReturnValue
+    public long tryAcquire(@NotNull CooldownScope.Type type, long primary, long secondary, long now)
+    {
+        return tables[type.ordinal()].update(primary, secondary, now, updater, 0);
+    }
+
+    /**
+     * Atomically checks if an action may be performed within the specified {@link CooldownScope cooldown scope} and,
+     * if this is the case, consumes a permit.
+     * (if <b>scope</b> equals null, the {@link CooldownScope cooldown scope} will be set to {@link CooldownScope#USER CooldownScope#USER})
+     *
+     * @param scope     The {@link CooldownScope cooldown scope}, which specifies for what the rate limit applies
+     * @param userId    The id of the user, who triggered the action
+     * @param channelId The id of the channel, in which the action was triggered
+     * @param guildId   The id of the guild, in which the action was triggered (<b>0</b> if there is no guild)
+     * @param now       The current time in milliseconds
+     * @return <b>0</b> if the action was accepted, otherwise the time in milliseconds until the next permit is available
+     */
+    @CheckReturnValue
+    public long tryAcquire(@Nullable CooldownScope scope, long userId, long channelId, long guildId, long now)
+    {
+        if (scope == null)
+        {
+            scope = CooldownScope.USER;
+        }
+
+        return tryAcquire(scope.getType(), scope.getPrimaryKey(userId, channelId), scope.getSecondaryKey(channelId, guildId), now);
+    }
+
+    /**
+     * Evicts all keys, whose state is obsolete.
+     * <br>This is done automatically whenever a segment is accessed, so this only needs to be called to release the memory
+     * of segments, which have not been accessed for a long time.
+     *
+     * @param now The current time in milliseconds
+     */
+    public void expire(long now)
+    {
+        for (StateTable table : tables)
+        {
+            table.expire(now);
+        }
+    }
+
+    /**
+     * The amount of keys in this rate limiter, including obsolete keys, which have not been evicted yet.
+     *
+     * @return The amount of keys in this rate limiter
+     */
+    public int size()
+    {
+        int size = 0;
+
+        for (StateTable table : tables)
+        {
+            size += table.size();
+        }
+        return size;
+    }
+
+    /**
+     * Removes all keys from this rate limiter.
+     */
+    public void clear()
+    {
+        for (StateTable table : tables)
+        {
+            table.clear();
+        }
+    }
+
+    /**
+     * The {@link Algorithm algorithm} of this rate limiter.
+     *
+     * @return The {@link Algorithm algorithm} of this rate limiter
+     */
+    @NotNull
+    public Algorithm getAlgorithm()
+    {
+        return algorithm;
+    }
+
+    /**
+     * The amount of actions, which are allowed within the period.
+     *
+     * @return The amount of permits
+     */
+    public int getPermits()
+    {
+        return permits;
+    }
+
+    /**
+     * The period (or window) of this rate limiter.
+     *
+     * @return The period in milliseconds
+     */
+    public long getPeriod()
+    {
+        return period;
+    }
+
+    /**
+     * The name of this rate limiter.
+     *
+     * @return The name of this rate limiter or <b>null</b>, if it has no name
+     */
+    @Nullable
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * The hash of the name of this rate limiter, which identifies it on a {@link CooldownServer cooldown server}.
+     *
+     * @return The id of this rate limiter or <b>0</b>, if it has no name
+     */
+    long getId()
+    {
+        return id;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "RateLimiter{" +
+                "name=" + name +
+                ", algorithm=" + algorithm +
+                ", permits=" + permits +
+                ", period=" + period +
+                '}';
+    }
+
+    /**
+     * A token bucket, which is implemented as generic cell rate algorithm.
+     * <br>The only state is the theoretical arrival time in microseconds, which is the time, at which the bucket is full again.
+     */
+    private static final class TokenBucket implements StateTable.Updater
+    {
+        private final long interval;
+        private final long tolerance;
+
+        private TokenBucket(int permits, long period)
+        {
+            this.interval = Math.max(1, period * 1000 / permits);
+            this.tolerance = interval * (permits - 1);
+        }
+
+        @Override
+        public long update(@NotNull long[] state, int offset, boolean fresh, long now, long argument)
+        {
+            long current = now * 1000;
+            long arrival = fresh ? current : Math.max(state[offset], current);
+            long excess = arrival - tolerance - current;
+
+            if (excess > 0)
+            {
+                return Math.max(1, (excess + 999) / 1000);
+            }
+
+            state[offset] = arrival + interval;
+            return 0;
+        }
+
+        @Override
+        public long deadline(@NotNull long[] state, int offset, long argument)
+        {
+            return (state[offset] + 999) / 1000;
+        }
+    }
+
+    /**
+     * A sliding window log, which stores the timestamps of the last accepted actions in a ring.
+     * <br>The first value of the state packs the head of the ring (upper 32 bits) and the amount of timestamps (lower 32 bits).
+     */
+    private static final class SlidingWindowLog implements StateTable.Updater
+    {
+        private final int permits;
+        private final long window;
+
+        private SlidingWindowLog(int permits, long window)
+        {
+            this.permits = permits;
+            this.window = window;
+        }
+
+        @Override
+        public long update(@NotNull long[] state, int offset, boolean fresh, long now, long argument)
+        {
+            int count = (int) state[offset];
+            int head = (int) (state[offset] >>> 32);
+
+            if (count < permits)
+            {
+                state[offset + 1 + count] = now;
+                state[offset] = count + 1;
+                return 0;
+            }
+
+            long age = now - state[offset + 1 + head];
+
+            if (age < window)
+            {
+                return window - age;
+            }
+
+            state[offset + 1 + head] = now;
+            head = head + 1 == permits ? 0 : head + 1;
+            state[offset] = ((long) head << 32) | count;
+            return 0;
+        }
+
+        @Override
+        public long deadline(@NotNull long[] state, int offset, long argument)
+        {
+            int count = (int) state[offset];
+            int head = (int) (state[offset] >>> 32);
+            int newest = count < permits ? count - 1 : (head == 0 ? permits : head) - 1;
+
+            return state[offset + 1 + newest] + window;
+        }
+    }
+
+    /**
+     * A sliding window counter, which weights the count of the previous fixed window by its overlap with the sliding window.
+     * <br>The state consists of the index of the current fixed window, the count of the previous and the count of the current window.
+     */
+    private static final class SlidingWindowCounter implements StateTable.Updater
+    {
+        private final int permits;
+        private final long window;
+
+        private SlidingWindowCounter(int permits, long window)
+        {
+            this.permits = permits;
+            this.window = window;
+        }
+
+        @Override
+        public long update(@NotNull long[] state, int offset, boolean fresh, long now, long argument)
+        {
+            long index = Math.floorDiv(now, window);
+            long previous = 0;
+            long current = 0;
+
+            if (!fresh)
+            {
+                long start = state[offset];
+
+                if (index <= start)
+                {
+                    index = start;
+                    previous = state[offset + 1];
+                    current = state[offset + 2];
+                }
+                else if (index == start + 1)
+                {
+                    previous = state[offset + 2];
+                }
+            }
+
+            long elapsed = Math.min(window, now - index * window);
+            long result = 0;
+
+            // previous * (window - elapsed) / window + current + 1 <= permits, without any floating point numbers
+            if (previous * (window - elapsed) + (current + 1) * window <= permits * window)
+            {
+                current++;
+            }
+            else
+            {
+                long free = permits - 1 - current;
+                long needed = free < 0 ? window : window - free * window / previous;
+
+                result = Math.max(1, needed - elapsed);
+            }
+
+            state[offset] = index;
+            state[offset + 1] = previous;
+            state[offset + 2] = current;
+            return result;
+        }
+
+        @Override
+        public long deadline(@NotNull long[] state, int offset, long argument)
+        {
+            return (state[offset] + 2) * window;
+        }
+    }
+
+    /**
+     * Represents the different algorithms of {@link RateLimiter rate limiters}.
+     */
+    public enum Algorithm
+    {
+        /**
+         * A bucket with a specific capacity, which is refilled continuously.
+         * <br>Every action consumes one token, so bursts up to the capacity are allowed.
+         */
+        TOKEN_BUCKET,
+
+        /**
+         * A log of the last accepted actions, which allows exactly the specified amount of actions within any window.
+         * <br>This is the most accurate algorithm, but it stores one timestamp per permit.
+         */
+        SLIDING_WINDOW_LOG,
+
+        /**
+         * An approximation of a sliding window log, which only stores two counters.
+         * <br>The remaining time of a rejected action is only a lower bound, because the counters do not know the exact timestamps.
+         */
+        SLIDING_WINDOW_COUNTER
+    }
+}
@@ -0,0 +1,539 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cooldown;
+
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import javax.annotation.CheckReturnValue;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link CooldownStore cooldown store}, which asks a {@link CooldownServer cooldown server}, so several processes share their cooldowns.
+ * <br>Requests of all threads are queued and written by one writer thread, which sends every request, that has been queued in the
+ * meantime, with a single write. Responses are read by one reader thread, so requests are pipelined and a slow decision never
+ * blocks the decisions of other threads.
+ * <br>If the server does not answer in time or the connection is lost, the decision is made by a fallback store instead,
+ * so timeouted messages never block for longer than the timeout. A lost connection is re-established by the writer thread, which
+ * waits twice as long after every failed attempt (at most 30 seconds), and the fallback store decides in the meantime. A request, which timed out before it was written, is dropped, so the
+ * server never applies it. A request, which was already written, may still be applied by the server, so the cooldown can count on
+ * both the server and the fallback store, but it is never lost.
+ * <br>The server decides with its own {@link TimeSource time source}, so the time, which is passed to this store, is only used by
+ * the fallback store and the clocks of the clients do not need to agree.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+public final class RemoteCooldownStore implements CooldownStore, Closeable
+{
+    private static final Logger logger = JDALogger.getLog(RemoteCooldownStore.class);
+    private static final int MAX_BATCH = 1024;
+    private static final long WARNING_INTERVAL = TimeUnit.SECONDS.toNanos(30);
+    private static final long INITIAL_BACKOFF = 100;
+    private static final long MAX_BACKOFF = TimeUnit.SECONDS.toMillis(30);
+
+    private final InetSocketAddress address;
+    private final String name;
+    private final CooldownStore fallback;
+    private final long timeout;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final ConcurrentHashMap<Integer, Request> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger ids = new AtomicInteger();
+    private final AtomicInteger timeouts = new AtomicInteger();
+    private final AtomicLong lastWarning = new AtomicLong(System.nanoTime() - WARNING_INTERVAL);
+    private final Thread writer;
+
+    private volatile SocketChannel channel;
+    private volatile boolean closed;
+
+    private RemoteCooldownStore(@NotNull InetSocketAddress address, @NotNull SocketChannel channel, @NotNull CooldownStore fallback, long timeout)
+    {
+        this.address = address;
+        this.name = "JDA-Commons Cooldown-Client " + address;
+        this.fallback = fallback;
+        this.timeout = timeout;
+        this.writer = new Thread(this::write, name + " (writer)");
+
+        writer.setDaemon(true);
+        writer.start();
+        connected(channel);
+    }
+
+    /**
+     * Connects to the {@link CooldownServer cooldown server} at the specified address.
+     * <br>(if {@link TimeUnit the time unit} equals <b>null</b>, there will be used a default {@link TimeUnit time unit}:
+     * {@link TimeUnit#MILLISECONDS TimeUnit#MILLISECONDS})
+     * <br>(if the fallback equals <b>null</b>, there will be used a <b>new</b> {@link LocalCooldownStore local cooldown store})
+     *
+     * @param address  The address of the {@link CooldownServer cooldown server}
+     * @param timeout  The time, after which a decision is made by the fallback store
+     * @param unit     The {@link TimeUnit time unit} of the timeout
+     * @param fallback The {@link CooldownStore cooldown store}, which decides, if the server does not answer in time
+     * @return A <b>new</b> {@link RemoteCooldownStore remote cooldown store}
+     * @throws IOException If the connection could not be established
+     */
+    @NotNull
+    public static RemoteCooldownStore connect(@NotNull InetSocketAddress address, long timeout, @Nullable TimeUnit unit,
+                                              @Nullable CooldownStore fallback) throws IOException
+    {
+        return new RemoteCooldownStore(address, open(address), fallback == null ? new LocalCooldownStore() : fallback,
+                (unit == null ? TimeUnit.MILLISECONDS : unit).toNanos(timeout));
+    }
+
+    /**
+     * Opens a connection to the {@link CooldownServer cooldown server} at the specified address and exchanges the handshake.
+     *
+     * @param address The address of the {@link CooldownServer cooldown server}
+     * @return The <b>new</b> connection
+     * @throws IOException If the connection could not be established
+     */
+    @NotNull
+    private static SocketChannel open(@NotNull InetSocketAddress address) throws IOException
+    {
+        SocketChannel channel = SocketChannel.open();
+
+        try
+        {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.connect(address);
+
+            ByteBuffer handshake = ByteBuffer.allocate(CooldownProtocol.HANDSHAKE_SIZE);
+            handshake.putInt(CooldownProtocol.MAGIC).putInt(CooldownProtocol.VERSION).flip();
+
+            while (handshake.hasRemaining())
+            {
+                channel.write(handshake);
+            }
+
+            handshake.clear();
+            readFully(channel, handshake);
+
+            if (handshake.getInt(0) != CooldownProtocol.MAGIC || handshake.getInt(4) != CooldownProtocol.VERSION)
+            {
+                throw new IOException("The server at " + address + " is not a compatible cooldown server.");
+            }
+        }
+        catch (IOException e)
+        {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br>The server decides with its own {@link TimeSource time source}, so <b>now</b> is only used, if the fallback store decides.
+     */
+    @Override
+    @CheckReturnValue
+    public long tryAcquire(@NotNull CooldownScope.Type type, long primary, long secondary, long now, long delay)
+    {
+        if (isConnected())
+        {
+            long result = send(new Request(ids.incrementAndGet(), CooldownProtocol.COOLDOWN, type, null, primary, secondary, delay));
+
+            if (result != CooldownProtocol.INVALID)
+            {
+                return result;
+            }
+        }
+        return fallback.tryAcquire(type, primary, secondary, now, delay);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br>The server decides with its own {@link TimeSource time source}, so <b>now</b> is only used, if the fallback store decides.
+     */
+    @Override
+    @CheckReturnValue
+    public long tryAcquire(@NotNull RateLimiter limiter, @NotNull CooldownScope.Type type, long primary, long secondary, long now)
+    {
+        if (isConnected())
+        {
+            long result = send(new Request(ids.incrementAndGet(), CooldownProtocol.RATE_LIMIT, type, limiter, primary, secondary, limiter.getPeriod()));
+
+            if (result != CooldownProtocol.INVALID)
+            {
+                return result;
+            }
+        }
+        return fallback.tryAcquire(limiter, type, primary, secondary, now);
+    }
+
+    /**
+     * Checks if the connection to the {@link CooldownServer cooldown server} is open.
+     * <br>A lost connection is re-established in the background, so this may return <b>true</b> again later.
+     *
+     * @return
+     * <b>true</b> - If the connection is open
+     * <br><b>false</b> - If the connection has been closed or is lost at the moment
+     */
+    public boolean isConnected()
+    {
+        return !closed && channel != null;
+    }
+
+    /**
+     * Closes the connection for good. All following decisions are made by the fallback store.
+     *
+     * @throws IOException If the connection could not be closed
+     */
+    @Override
+    public void close() throws IOException
+    {
+        SocketChannel current;
+
+        synchronized (this)
+        {
+            closed = true;
+            current = channel;
+            channel = null;
+        }
+
+        writer.interrupt();
+
+        try
+        {
+            if (current != null)
+            {
+                current.close();
+            }
+        }
+        finally
+        {
+            failPending();
+        }
+    }
+
+    private long send(@NotNull Request request)
+    {
+        pending.put(request.id, request);
+        queue.add(request);
+
+        try
+        {
+            return request.result.get(timeout, TimeUnit.NANOSECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            request.result.complete(CooldownProtocol.INVALID);
+            Thread.currentThread().interrupt();
+        }
+        catch (TimeoutException e)
+        {
+            // The writer drops the request, if it was not written yet, and a late response is ignored.
+            if (request.result.complete(CooldownProtocol.INVALID))
+            {
+                warnTimeout();
+            }
+            else
+            {
+                return request.result.getNow(CooldownProtocol.INVALID);
+            }
+        }
+        catch (ExecutionException e)
+        {
+            logger.error("The cooldown server could not decide, so the fallback store decides instead.", e);
+        }
+        finally
+        {
+            pending.remove(request.id);
+        }
+        return CooldownProtocol.INVALID;
+    }
+
+    /**
+     * Logs, that the server did not answer in time, but at most once per {@link #WARNING_INTERVAL interval}, so a slow server does not
+     * flood the log.
+     */
+    private void warnTimeout()
+    {
+        int count = timeouts.incrementAndGet();
+        long now = System.nanoTime();
+        long last = lastWarning.get();
+
+        if (now - last < WARNING_INTERVAL || !lastWarning.compareAndSet(last, now))
+        {
+            return;
+        }
+
+        timeouts.addAndGet(-count);
+        logger.warn(count + " requests to the cooldown server did not get an answer in time within the last "
+                + TimeUnit.NANOSECONDS.toSeconds(now - last) + " seconds, so the fallback store decided instead.");
+    }
+
+    private void write()
+    {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CooldownProtocol.REQUEST_SIZE * MAX_BATCH);
+        List<Request> batch = new ArrayList<>(MAX_BATCH);
+        long backoff = INITIAL_BACKOFF;
+
+        while (!closed)
+        {
+            SocketChannel current = channel;
+
+            if (current == null)
+            {
+                try
+                {
+                    Thread.sleep(backoff);
+                    connected(open(address));
+
+                    backoff = INITIAL_BACKOFF;
+                    logger.info("The connection to the cooldown server at " + address + " was re-established.");
+                }
+                catch (InterruptedException e)
+                {
+                    // The store was closed.
+                }
+                catch (IOException e)
+                {
+                    backoff = Math.min(backoff * 2, MAX_BACKOFF);
+                    logger.debug("The cooldown server at " + address + " could not be reached, so the next attempt follows in " + backoff + " ms.", e);
+                }
+                continue;
+            }
+
+            try
+            {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH - 1);
+
+                buffer.clear();
+
+                for (Request request : batch)
+                {
+                    // A request, which already timed out, was decided by the fallback store, so the server must not apply it.
+                    if (!request.result.isDone())
+                    {
+                        request.encode(buffer);
+                    }
+                }
+
+                buffer.flip();
+
+                while (buffer.hasRemaining())
+                {
+                    current.write(buffer);
+                }
+            }
+            catch (InterruptedException e)
+            {
+                // The store was closed or the reader lost the connection.
+            }
+            catch (IOException e)
+            {
+                disconnect(current, e);
+            }
+            finally
+            {
+                batch.clear();
+            }
+        }
+    }
+
+    private void read(@NotNull SocketChannel current)
+    {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CooldownProtocol.RESPONSE_SIZE * MAX_BATCH);
+
+        try
+        {
+            while (!closed)
+            {
+                if (current.read(buffer) < 0)
+                {
+                    throw new EOFException("The cooldown server closed the connection.");
+                }
+
+                buffer.flip();
+
+                while (buffer.remaining() >= CooldownProtocol.RESPONSE_SIZE)
+                {
+                    Request request = pending.get(buffer.getInt());
+                    long result = buffer.getLong();
+
+                    if (request != null)
+                    {
+                        request.result.complete(result);
+                    }
+                }
+
+                buffer.compact();
+            }
+        }
+        catch (IOException e)
+        {
+            disconnect(current, e);
+        }
+    }
+
+    /**
+     * Uses the specified connection from now on and starts its reader thread.
+     *
+     * @param current The <b>new</b> connection
+     */
+    private synchronized void connected(@NotNull SocketChannel current)
+    {
+        if (closed)
+        {
+            try
+            {
+                current.close();
+            }
+            catch (IOException ignored)
+            {
+            }
+            return;
+        }
+
+        channel = current;
+
+        Thread reader = new Thread(() -> read(current), name + " (reader)");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Drops the specified connection, so the fallback store decides, until the writer thread has re-established it.
+     * <br>Both threads of a connection may lose it, so only the first of them drops it.
+     *
+     * @param lost The connection, which was lost
+     * @param e    The cause of the loss
+     */
+    private void disconnect(@NotNull SocketChannel lost, @NotNull IOException e)
+    {
+        synchronized (this)
+        {
+            if (closed || channel != lost)
+            {
+                return;
+            }
+
+            channel = null;
+        }
+
+        logger.error("The connection to the cooldown server at " + address + " was lost, so the fallback store decides, until it is re-established.", e);
+
+        try
+        {
+            lost.close();
+        }
+        catch (IOException ignored)
+        {
+        }
+
+        failPending();
+
+        if (Thread.currentThread() != writer)
+        {
+            // The writer may wait for a request, so it is woken up to re-establish the connection.
+            writer.interrupt();
+        }
+    }
+
+    private void failPending()
+    {
+        for (Request request : pending.values())
+        {
+            request.result.complete(CooldownProtocol.INVALID);
+        }
+
+        Request request;
+
+        while ((request = queue.poll()) != null)
+        {
+            request.result.complete(CooldownProtocol.INVALID);
+        }
+    }
+
+    private static void readFully(@NotNull SocketChannel channel, @NotNull ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer) < 0)
+            {
+                throw new EOFException("The cooldown server closed the connection.");
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "RemoteCooldownStore{" +
+                "address=" + address +
+                ", connected=" + isConnected() +
+                '}';
+    }
+
+    private static final class Request
+    {
+        private final CompletableFuture<Long> result = new CompletableFuture<>();
+        private final int id;
+        private final byte operation;
+        private final CooldownScope.Type type;
+        private final RateLimiter limiter;
+        private final long primary;
+        private final long secondary;
+        private final long delay;
+
+        private Request(int id, byte operation, @NotNull CooldownScope.Type type, @Nullable RateLimiter limiter, long primary, long secondary, long delay)
+        {
+            this.id = id;
+            this.operation = operation;
+            this.type = type;
+            this.limiter = limiter;
+            this.primary = primary;
+            this.secondary = secondary;
+            this.delay = delay;
+        }
+
+        private void encode(@NotNull ByteBuffer buffer)
+        {
+            buffer.putInt(id);
+            buffer.put(operation);
+            buffer.put((byte) type.ordinal());
+            buffer.put(limiter == null ? 0 : (byte) limiter.getAlgorithm().ordinal());
+            buffer.put((byte) 0);
+            buffer.putInt(limiter == null ? 0 : limiter.getPermits());
+            buffer.putLong(primary);
+            buffer.putLong(secondary);
+            buffer.putLong(delay);
+            buffer.putLong(limiter == null ? 0 : limiter.getId());
+        }
+    }
+}
@@ -0,0 +1,683 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cooldown;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A thread-safe table, which maps a composite key of two <b>long</b> values to a fixed amount of <b>long</b> state values.
+ * <br>The table is split into lock-striped segments, which are open-addressing tables of primitive arrays, so neither keys
+ * nor states are boxed and threads only contend if they hit the same segment.
+ * <br>Every entry has a deadline, after which its state is obsolete. Each segment schedules its entries on a
+ * {@link TimingWheel timing wheel}, which is advanced whenever the segment is accessed, so the memory is bounded by the
+ * amount of <b>active</b> entries. Entries, whose deadline has passed, are treated as absent, even if they have not been evicted yet.
+ * <br>Every modification stamps the entry with the current checkpoint epoch, so a {@link #checkpoint(boolean, EntryConsumer) checkpoint}
+ * only has to pass on the entries, which have been modified since the last one.
+ *
+ * @author BlockyDotJar
+ * @version v1.1.0
+ * @since v1.1.5
+ */
+final class StateTable
+{
+    private static final int MIN_SEGMENT_CAPACITY = 16;
+
+    /**
+     * The primary key <b>0</b> marks an empty slot, so the (invalid) snowflake <b>0</b> is stored as <b>Long#MIN_VALUE</b>.
+     */
+    private static final long ZERO_KEY = Long.MIN_VALUE;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final int width;
+    private final long[] tombstone;
+
+    private volatile int epoch = 1;
+    private volatile boolean tracking;
+
+    /**
+     * Constructs a <b>new</b> {@link StateTable state table}.
+     *
+     * @param concurrencyLevel The amount of segments, which will be rounded up to the next power of two
+     * @param width            The amount of <b>long</b> values, which are stored per entry
+     */
+    StateTable(int concurrencyLevel, int width)
+    {
+        int count = ceilingPowerOfTwo(Math.max(1, Math.min(concurrencyLevel, 1 << 16)));
+
+        this.segments = new Segment[count];
+        this.segmentShift = 64 - Integer.numberOfTrailingZeros(count);
+        this.width = width;
+        this.tombstone = new long[width];
+
+        for (int i = 0; i < count; i++)
+        {
+            segments[i] = new Segment(width);
+        }
+    }
+
+    /**
+     * Atomically updates the state of the specified key with the specified {@link Updater updater}.
+     * <br>Absent and expired entries are passed to the updater as zeroed <b>fresh</b> state.
+     *
+     * @param primary   The primary key
+     * @param secondary The secondary key
+     * @param now       The current time in milliseconds
+     * @param updater   The {@link Updater updater}, which decides and updates the state
+     * @param argument  An argument, which is passed to the updater
+     * @return The result of the {@link Updater updater}
+     */
+    long update(long primary, long secondary, long now, @NotNull Updater updater, long argument)
+    {
+        long key = encode(primary);
+        long hash = hash(key, secondary);
+        Segment segment = segmentFor(hash);
+
+        synchronized (segment)
+        {
+            segment.expire(now);
+
+            int slot = segment.find(key, secondary, hash);
+            boolean inserted = slot < 0;
+            boolean fresh = inserted;
+
+            if (inserted)
+            {
+                slot = segment.insert(key, secondary, hash);
+            }
+            else if (segment.deadlines[slot] <= now)
+            {
+                // The key is still on the wheel, which picks up the new deadline once it drains the old one.
+                segment.clearState(slot);
+                fresh = true;
+            }
+
+            long[] states = segment.states;
+            int offset = slot * width;
+            long result = updater.update(states, offset, fresh, now, argument);
+            long deadline = updater.deadline(states, offset, argument);
+
+            if (inserted)
+            {
+                segment.deadlines[slot] = deadline;
+                segment.wheel.schedule(key, secondary, deadline);
+            }
+            else if (fresh || deadline > segment.deadlines[slot])
+            {
+                segment.deadlines[slot] = deadline;
+            }
+
+            segment.stamps[slot] = epoch;
+            return result;
+        }
+    }
+
+    /**
+     * Gets a state value of the specified key.
+     *
+     * @param primary      The primary key
+     * @param secondary    The secondary key
+     * @param index        The index of the state value
+     * @param defaultValue The value, which should be returned if the key is not present
+     * @return The state value or <b>defaultValue</b> if the key is not present
+     */
+    long get(long primary, long secondary, int index, long defaultValue)
+    {
+        long key = encode(primary);
+        long hash = hash(key, secondary);
+        Segment segment = segmentFor(hash);
+
+        synchronized (segment)
+        {
+            int slot = segment.find(key, secondary, hash);
+            return slot >= 0 ? segment.states[slot * width + index] : defaultValue;
+        }
+    }
+
+    /**
+     * Replaces the state of the specified key.
+     *
+     * @param primary   The primary key
+     * @param secondary The secondary key
+     * @param state     The <b>new</b> state, whose length must equal the width of this table
+     * @param deadline  The deadline in milliseconds
+     * @param now       The current time in milliseconds
+     */
+    void put(long primary, long secondary, @NotNull long[] state, long deadline, long now)
+    {
+        put(primary, secondary, state, deadline, now, epoch);
+    }
+
+    /**
+     * Restores the state of the specified key, without marking it as modified.
+     * <br>This is used to load entries, which are already part of a checkpoint.
+     *
+     * @param primary   The primary key
+     * @param secondary The secondary key
+     * @param state     The state, whose length must equal the width of this table
+     * @param deadline  The deadline in milliseconds
+     * @param now       The current time in milliseconds
+     */
+    void restore(long primary, long secondary, @NotNull long[] state, long deadline, long now)
+    {
+        put(primary, secondary, state, deadline, now, 0);
+    }
+
+    private void put(long primary, long secondary, @NotNull long[] state, long deadline, long now, int stamp)
+    {
+        long key = encode(primary);
+        long hash = hash(key, secondary);
+        Segment segment = segmentFor(hash);
+
+        synchronized (segment)
+        {
+            // Starts the wheel at the current time, because a wheel, which is started by a deadline, would not evict anything before it.
+            segment.expire(now);
+
+            int slot = segment.find(key, secondary, hash);
+
+            if (slot < 0)
+            {
+                slot = segment.insert(key, secondary, hash);
+                segment.wheel.schedule(key, secondary, deadline);
+            }
+
+            System.arraycopy(state, 0, segment.states, slot * width, width);
+            segment.deadlines[slot] = deadline;
+            segment.stamps[slot] = stamp;
+        }
+    }
+
+    /**
+     * Grows the segments, so the specified amount of entries can be inserted without any rehashing,
+     * if the keys are distributed evenly.
+     *
+     * @param expected The expected amount of entries
+     */
+    void ensureCapacity(long expected)
+    {
+        long perSegment = expected / segments.length + 1;
+        int capacity = ceilingPowerOfTwo((int) Math.min(1 << 29, perSegment << 1));
+
+        for (Segment segment : segments)
+        {
+            synchronized (segment)
+            {
+                if (capacity > segment.primaries.length)
+                {
+                    segment.rehash(capacity);
+                }
+            }
+        }
+    }
+
+    boolean contains(long primary, long secondary)
+    {
+        long key = encode(primary);
+        long hash = hash(key, secondary);
+        Segment segment = segmentFor(hash);
+
+        synchronized (segment)
+        {
+            return segment.find(key, secondary, hash) >= 0;
+        }
+    }
+
+    boolean remove(long primary, long secondary)
+    {
+        long key = encode(primary);
+        long hash = hash(key, secondary);
+        Segment segment = segmentFor(hash);
+
+        synchronized (segment)
+        {
+            int slot = segment.find(key, secondary, hash);
+
+            if (slot < 0)
+            {
+                return false;
+            }
+
+            if (tracking)
+            {
+                segment.track(key, secondary);
+            }
+
+            segment.delete(slot);
+            segment.compactWheel();
+            return true;
+        }
+    }
+
+    void expire(long now)
+    {
+        for (Segment segment : segments)
+        {
+            synchronized (segment)
+            {
+                segment.expire(now);
+            }
+        }
+    }
+
+    int size()
+    {
+        int size = 0;
+
+        for (Segment segment : segments)
+        {
+            synchronized (segment)
+            {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    void clear()
+    {
+        for (Segment segment : segments)
+        {
+            synchronized (segment)
+            {
+                segment.reset(MIN_SEGMENT_CAPACITY);
+                segment.wheel.clear();
+                segment.removedSize = 0;
+            }
+        }
+    }
+
+    /**
+     * Starts to remember explicitly removed keys, so they can be passed on as tombstones by the next
+     * {@link #checkpoint(boolean, EntryConsumer) checkpoint}.
+     * <br>Keys, which are evicted by the {@link TimingWheel timing wheel}, are never remembered, because their last checkpointed
+     * deadline has passed as well.
+     */
+    void track()
+    {
+        tracking = true;
+    }
+
+    /**
+     * Passes every entry, which has been modified since the last checkpoint, to the specified {@link EntryConsumer entry consumer}
+     * and starts a <b>new</b> checkpoint epoch. Explicitly removed keys are passed on with the deadline <b>Long#MIN_VALUE</b>.
+     * <br>Checkpoints must not run concurrently. The consumer is called while the lock of a segment is held, so it must not access this table.
+     *
+     * @param full     <b>true</b> if every entry should be passed on, regardless of its epoch
+     * @param consumer The {@link EntryConsumer entry consumer}
+     */
+    void checkpoint(boolean full, @NotNull EntryConsumer consumer)
+    {
+        int previous = epoch;
+        epoch = previous + 1;
+
+        for (Segment segment : segments)
+        {
+            synchronized (segment)
+            {
+                if (!full)
+                {
+                    for (int i = 0; i < segment.removedSize; i += 2)
+                    {
+                        consumer.accept(decode(segment.removed[i]), segment.removed[i + 1], tombstone, 0, Long.MIN_VALUE);
+                    }
+                }
+
+                segment.removedSize = 0;
+
+                for (int i = 0; i < segment.primaries.length; i++)
+                {
+                    if (segment.primaries[i] != 0 && (full || segment.stamps[i] == previous))
+                    {
+                        consumer.accept(decode(segment.primaries[i]), segment.secondaries[i], segment.states, i * width, segment.deadlines[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Passes every entry to the specified {@link EntryConsumer entry consumer}, one segment after another.
+     * <br>The consumer is called while the lock of a segment is held, so it must not access this table.
+     *
+     * @param consumer The {@link EntryConsumer entry consumer}
+     */
+    void forEach(@NotNull EntryConsumer consumer)
+    {
+        for (Segment segment : segments)
+        {
+            synchronized (segment)
+            {
+                for (int i = 0; i < segment.primaries.length; i++)
+                {
+                    if (segment.primaries[i] != 0)
+                    {
+                        consumer.accept(decode(segment.primaries[i]), segment.secondaries[i], segment.states, i * width, segment.deadlines[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    @NotNull
+    private Segment segmentFor(long hash)
+    {
+        return segments[segmentShift == 64 ? 0 : (int) (hash >>> segmentShift)];
+    }
+
+    private static long encode(long id)
+    {
+        return id == 0 ? ZERO_KEY : id;
+    }
+
+    private static long decode(long key)
+    {
+        return key == ZERO_KEY ? 0 : key;
+    }
+
+    private static long hash(long primary, long secondary)
+    {
+        return mix(primary ^ Long.rotateLeft(secondary * 0x9e3779b97f4a7c15L, 32));
+    }
+
+    /**
+     * Spreads the bits of a snowflake id, because the lower bits (worker, process and increment) are barely distributed.
+     */
+    static long mix(long id)
+    {
+        id ^= id >>> 33;
+        id *= 0xff51afd7ed558ccdL;
+        id ^= id >>> 33;
+        id *= 0xc4ceb9fe1a85ec53L;
+        id ^= id >>> 33;
+        return id;
+    }
+
+    static int ceilingPowerOfTwo(int value)
+    {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    /**
+     * Decides and updates the state of one entry. An updater is called while the lock of a segment is held.
+     */
+    interface Updater
+    {
+        /**
+         * @param state    The state array of the segment
+         * @param offset   The offset of the entry in the state array
+         * @param fresh    <b>true</b> if the entry was absent or expired and its state is zeroed
+         * @param now      The current time in milliseconds
+         * @param argument The argument, which was passed to the table
+         * @return The result, which should be returned by the table
+         */
+        long update(@NotNull long[] state, int offset, boolean fresh, long now, long argument);
+
+        /**
+         * @param state    The state array of the segment
+         * @param offset   The offset of the entry in the state array
+         * @param argument The argument, which was passed to the table
+         * @return The time in milliseconds, after which the updated state is obsolete
+         */
+        long deadline(@NotNull long[] state, int offset, long argument);
+    }
+
+    /**
+     * Receives the entries of a {@link StateTable state table}.
+     */
+    interface EntryConsumer
+    {
+        void accept(long primary, long secondary, @NotNull long[] state, int offset, long deadline);
+    }
+
+    /**
+     * A linear probing table, which uses the primary key <b>0</b> as the empty marker.
+     * <br>Every key is scheduled exactly once on the {@link TimingWheel timing wheel} of the segment.
+     * Extending a deadline only updates the table, the wheel reschedules the key lazily once the old deadline is reached.
+     */
+    private static final class Segment implements TimingWheel.Owner
+    {
+        private final TimingWheel wheel = new TimingWheel();
+        private final int width;
+
+        private long[] primaries;
+        private long[] secondaries;
+        private long[] states;
+        private long[] deadlines;
+        private int[] stamps;
+        private long[] removed;
+        private int removedSize;
+        private int mask;
+        private int size;
+
+        private Segment(int width)
+        {
+            this.width = width;
+            reset(MIN_SEGMENT_CAPACITY);
+        }
+
+        private int find(long primary, long secondary, long hash)
+        {
+            int slot = (int) hash & mask;
+
+            while (true)
+            {
+                long current = primaries[slot];
+
+                if (current == primary && secondaries[slot] == secondary)
+                {
+                    return slot;
+                }
+
+                if (current == 0)
+                {
+                    return -1;
+                }
+
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        /**
+         * Inserts a key with a zeroed state. The caller has to set the deadline and to schedule the key.
+         */
+        private int insert(long primary, long secondary, long hash)
+        {
+            if ((size + 1) << 1 > primaries.length)
+            {
+                rehash(primaries.length << 1);
+            }
+
+            int slot = (int) hash & mask;
+
+            while (primaries[slot] != 0)
+            {
+                slot = (slot + 1) & mask;
+            }
+
+            primaries[slot] = primary;
+            secondaries[slot] = secondary;
+            size++;
+            return slot;
+        }
+
+        private void track(long primary, long secondary)
+        {
+            if (removed == null)
+            {
+                removed = new long[MIN_SEGMENT_CAPACITY];
+            }
+            else if (removedSize == removed.length)
+            {
+                long[] grown = new long[removedSize << 1];
+                System.arraycopy(removed, 0, grown, 0, removedSize);
+                removed = grown;
+            }
+
+            removed[removedSize] = primary;
+            removed[removedSize + 1] = secondary;
+            removedSize += 2;
+        }
+
+        private void clearState(int slot)
+        {
+            for (int i = slot * width, end = i + width; i < end; i++)
+            {
+                states[i] = 0;
+            }
+        }
+
+        private void expire(long now)
+        {
+            int before = size;
+
+            wheel.advance(now, this);
+
+            if (size < before && primaries.length > MIN_SEGMENT_CAPACITY && size << 3 < primaries.length)
+            {
+                rehash(Math.max(MIN_SEGMENT_CAPACITY, ceilingPowerOfTwo(size << 2)));
+            }
+        }
+
+        /**
+         * Rebuilds the wheel if explicit removals left too many stale keys on it.
+         */
+        private void compactWheel()
+        {
+            if (wheel.size() <= (size << 1) + MIN_SEGMENT_CAPACITY)
+            {
+                return;
+            }
+
+            wheel.clear();
+
+            for (int i = 0; i < primaries.length; i++)
+            {
+                if (primaries[i] != 0)
+                {
+                    wheel.schedule(primaries[i], secondaries[i], deadlines[i]);
+                }
+            }
+        }
+
+        @Override
+        public long deadlineOf(long primary, long secondary)
+        {
+            int slot = find(primary, secondary, hash(primary, secondary));
+            return slot >= 0 ? deadlines[slot] : Long.MIN_VALUE;
+        }
+
+        @Override
+        public void evict(long primary, long secondary)
+        {
+            int slot = find(primary, secondary, hash(primary, secondary));
+
+            if (slot >= 0)
+            {
+                delete(slot);
+            }
+        }
+
+        /**
+         * Removes the entry at the specified slot and shifts the following entries of the cluster back,
+         * so no tombstones are needed.
+         */
+        private void delete(int slot)
+        {
+            size--;
+
+            int gap = slot;
+            int current = (gap + 1) & mask;
+
+            while (primaries[current] != 0)
+            {
+                int home = (int) hash(primaries[current], secondaries[current]) & mask;
+
+                if (((current - home) & mask) >= ((current - gap) & mask))
+                {
+                    move(current, gap);
+                    gap = current;
+                }
+                current = (current + 1) & mask;
+            }
+
+            primaries[gap] = 0;
+            secondaries[gap] = 0;
+            deadlines[gap] = 0;
+            stamps[gap] = 0;
+            clearState(gap);
+        }
+
+        private void move(int from, int to)
+        {
+            primaries[to] = primaries[from];
+            secondaries[to] = secondaries[from];
+            deadlines[to] = deadlines[from];
+            stamps[to] = stamps[from];
+            System.arraycopy(states, from * width, states, to * width, width);
+        }
+
+        private void rehash(int capacity)
+        {
+            long[] oldPrimaries = primaries;
+            long[] oldSecondaries = secondaries;
+            long[] oldStates = states;
+            long[] oldDeadlines = deadlines;
+            int[] oldStamps = stamps;
+
+            allocate(capacity);
+
+            for (int i = 0; i < oldPrimaries.length; i++)
+            {
+                long primary = oldPrimaries[i];
+
+                if (primary == 0)
+                {
+                    continue;
+                }
+
+                int slot = (int) hash(primary, oldSecondaries[i]) & mask;
+
+                while (primaries[slot] != 0)
+                {
+                    slot = (slot + 1) & mask;
+                }
+
+                primaries[slot] = primary;
+                secondaries[slot] = oldSecondaries[i];
+                deadlines[slot] = oldDeadlines[i];
+                stamps[slot] = oldStamps[i];
+                System.arraycopy(oldStates, i * width, states, slot * width, width);
+            }
+        }
+
+        private void reset(int capacity)
+        {
+            allocate(capacity);
+            size = 0;
+        }
+
+        private void allocate(int capacity)
+        {
+            primaries = new long[capacity];
+            secondaries = new long[capacity];
+            states = new long[capacity * width];
+            deadlines = new long[capacity];
+            stamps = new int[capacity];
+            mask = capacity - 1;
+        }
+    }
+}
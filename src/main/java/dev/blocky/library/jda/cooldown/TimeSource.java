@@ -0,0 +1,49 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cooldown;
+
+/**
+ * The source of the current time, which is used by all timeouted messages.
+ * <br>Every cooldown and rate limit decision reads its time source exactly once, so a time source can be replaced by a
+ * {@link ManualTimeSource manual time source} to simulate millions of events deterministically.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+@FunctionalInterface
+public interface TimeSource
+{
+    /**
+     * A monotonic time source, which is backed by {@link System#nanoTime() System#nanoTime()}.
+     * <br>It starts at the wall-clock time of the moment it was initialized, but it never jumps, if the system clock is adjusted.
+     * (e.g. by NTP) This is the default time source.
+     */
+    TimeSource MONOTONIC = new MonotonicTimeSource();
+
+    /**
+     * A time source, which is backed by {@link System#currentTimeMillis() System#currentTimeMillis()}.
+     * <br>This follows every adjustment of the system clock, so cooldowns may misfire, if the clock jumps.
+     */
+    TimeSource WALL_CLOCK = System::currentTimeMillis;
+
+    /**
+     * The current time of this time source.
+     *
+     * @return The current time in milliseconds
+     */
+    long millis();
+}
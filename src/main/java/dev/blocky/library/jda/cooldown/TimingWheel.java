@@ -0,0 +1,236 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cooldown;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A hierarchical timing wheel, which schedules the expiry of composite keys, which consist of two <b>long</b> values.
+ * <br>The wheel has four levels with 64 buckets each and a tick of 1024 milliseconds, so it covers about 198 days.
+ * Keys, which expire later than that, are parked in the last bucket of the highest level and rescheduled once it is reached.
+ * <br>This class is <b>not</b> thread-safe, it is always guarded by the lock of its owner.
+ *
+ * @author BlockyDotJar
+ * @version v1.1.0
+ * @since v1.1.5
+ */
+final class TimingWheel
+{
+    private static final int TICK_SHIFT = 10;
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final int INITIAL_BUCKET_CAPACITY = 8;
+    private static final int MAX_RETAINED_BUCKET_CAPACITY = 512;
+
+    private final long[][] buckets = new long[LEVELS * WHEEL_SIZE][];
+    private final int[] sizes = new int[LEVELS * WHEEL_SIZE];
+
+    private long currentTick;
+    private boolean started;
+    private int count;
+
+    /**
+     * Schedules the specified key, so the {@link Owner owner} will be asked about it once the deadline is reached.
+     *
+     * @param primary   The primary key, which should be scheduled
+     * @param secondary The secondary key, which should be scheduled
+     * @param deadline  The deadline in milliseconds
+     */
+    void schedule(long primary, long secondary, long deadline)
+    {
+        if (!started)
+        {
+            currentTick = deadline >> TICK_SHIFT;
+            started = true;
+        }
+
+        place(primary, secondary, deadline >> TICK_SHIFT);
+        count++;
+    }
+
+    /**
+     * Advances the wheel to the specified time and evicts every due key, whose deadline has passed.
+     * <br>Keys, whose deadline has been extended in the meantime, are rescheduled instead.
+     *
+     * @param now   The current time in milliseconds
+     * @param owner The {@link Owner owner}, which knows the current deadlines
+     */
+    void advance(long now, @NotNull Owner owner)
+    {
+        long target = now >> TICK_SHIFT;
+
+        if (!started)
+        {
+            currentTick = target;
+            started = true;
+            return;
+        }
+
+        if (target <= currentTick)
+        {
+            return;
+        }
+
+        while (currentTick < target)
+        {
+            if (count == 0)
+            {
+                currentTick = target;
+                return;
+            }
+
+            long tick = ++currentTick;
+
+            for (int level = LEVELS - 1; level > 0; level--)
+            {
+                if ((tick & ((1L << (WHEEL_BITS * level)) - 1)) == 0)
+                {
+                    drain(level, (int) (tick >> (WHEEL_BITS * level)) & WHEEL_MASK, now, owner);
+                }
+            }
+
+            drain(0, (int) tick & WHEEL_MASK, now, owner);
+        }
+    }
+
+    /**
+     * The amount of scheduled keys, including keys, which have been removed from the owner in the meantime.
+     *
+     * @return The amount of scheduled keys
+     */
+    int size()
+    {
+        return count;
+    }
+
+    /**
+     * Removes all scheduled keys.
+     */
+    void clear()
+    {
+        for (int i = 0; i < buckets.length; i++)
+        {
+            buckets[i] = null;
+            sizes[i] = 0;
+        }
+
+        count = 0;
+        started = false;
+    }
+
+    private void drain(int level, int index, long now, @NotNull Owner owner)
+    {
+        int bucket = level * WHEEL_SIZE + index;
+        int size = sizes[bucket];
+
+        if (size == 0)
+        {
+            return;
+        }
+
+        long[] keys = buckets[bucket];
+        buckets[bucket] = null;
+        sizes[bucket] = 0;
+
+        for (int i = 0; i < size; i += 2)
+        {
+            long primary = keys[i];
+            long secondary = keys[i + 1];
+            long deadline = owner.deadlineOf(primary, secondary);
+
+            if (deadline == Long.MIN_VALUE)
+            {
+                count--;
+            }
+            else if (deadline <= now)
+            {
+                owner.evict(primary, secondary);
+                count--;
+            }
+            else
+            {
+                place(primary, secondary, deadline >> TICK_SHIFT);
+            }
+        }
+
+        if (buckets[bucket] == null && keys.length <= MAX_RETAINED_BUCKET_CAPACITY)
+        {
+            buckets[bucket] = keys;
+        }
+    }
+
+    private void place(long primary, long secondary, long deadlineTick)
+    {
+        if (deadlineTick <= currentTick)
+        {
+            deadlineTick = currentTick + 1;
+        }
+
+        int level = 0;
+
+        while (level < LEVELS - 1 && (deadlineTick >> (WHEEL_BITS * level)) - (currentTick >> (WHEEL_BITS * level)) >= WHEEL_SIZE)
+        {
+            level++;
+        }
+
+        long position = deadlineTick >> (WHEEL_BITS * level);
+        long limit = (currentTick >> (WHEEL_BITS * level)) + WHEEL_MASK;
+
+        add(level * WHEEL_SIZE + ((int) Math.min(position, limit) & WHEEL_MASK), primary, secondary);
+    }
+
+    private void add(int bucket, long primary, long secondary)
+    {
+        long[] keys = buckets[bucket];
+        int size = sizes[bucket];
+
+        if (keys == null)
+        {
+            keys = buckets[bucket] = new long[INITIAL_BUCKET_CAPACITY];
+        }
+        else if (size == keys.length)
+        {
+            long[] grown = new long[size << 1];
+            System.arraycopy(keys, 0, grown, 0, size);
+            keys = buckets[bucket] = grown;
+        }
+
+        keys[size] = primary;
+        keys[size + 1] = secondary;
+        sizes[bucket] = size + 2;
+    }
+
+    /**
+     * The owner of a {@link TimingWheel timing wheel}, which knows the current deadline of every key.
+     */
+    interface Owner
+    {
+        /**
+         * @param primary   The primary key, which should be looked up
+         * @param secondary The secondary key, which should be looked up
+         * @return The current deadline of the key or <b>Long#MIN_VALUE</b> if the key is not present anymore
+         */
+        long deadlineOf(long primary, long secondary);
+
+        /**
+         * @param primary   The primary key, which should be removed, because its deadline has passed
+         * @param secondary The secondary key, which should be removed, because its deadline has passed
+         */
+        void evict(long primary, long secondary);
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * Root package of the JDA-Commons cooldowns.
+ *
+ * <br>From here you can navigate to the cooldown features. <br>
+ *
+ * <ul>
+ * <li>{@link dev.blocky.library.jda.cooldown.CooldownMessage Cooldown message}
+ * <br>A precompiled template for the message, which is sent if a timeouted message is under a delay.</li>
+ *
+ * <li>{@link dev.blocky.library.jda.cooldown.CooldownMetrics Cooldown metrics}
+ * <br>Collects metrics about the decisions of all timeouted messages, without adding any lock to them.</li>
+ *
+ * <li>{@link dev.blocky.library.jda.cooldown.CooldownRegistry Cooldown registry}
+ * <br>A thread-safe registry, which maps a snowflake id to the timestamp of the last accepted action.</li>
+ *
+ * <li>{@link dev.blocky.library.jda.cooldown.CooldownScope Cooldown scope}
+ * <br>Describes, for what a cooldown applies. (e.g. per user, per user and command or per channel)</li>
+ *
+ * <li>{@link dev.blocky.library.jda.cooldown.CooldownServer Cooldown server}
+ * <br>A small cooldown daemon, which decides the cooldowns and rate limits of several processes.</li>
+ *
+ * <li>{@link dev.blocky.library.jda.cooldown.CooldownSnapshot Cooldown snapshot}
+ * <br>Persists a cooldown registry in an append-only file, so cooldowns survive a restart.</li>
+ *
+ * <li>{@link dev.blocky.library.jda.cooldown.CooldownStore Cooldown store}
+ * <br>The storage, which decides all cooldowns and rate limits of the timeouted messages.</li>
+ *
+ * <li>{@link dev.blocky.library.jda.cooldown.LocalCooldownStore Local cooldown store}
+ * <br>A cooldown store, which keeps all cooldowns in the current process.</li>
+ *
+ * <li>{@link dev.blocky.library.jda.cooldown.RateLimiter Rate limiter}
+ * <br>A thread-safe rate limiter, which allows a specific amount of actions in a specific period. (e.g. five uses per 30 seconds)</li>
+ *
+ * <li>{@link dev.blocky.library.jda.cooldown.RemoteCooldownStore Remote cooldown store}
+ * <br>A cooldown store, which asks a cooldown server, so several processes share their cooldowns.</li>
+ *
+ * <li>{@link dev.blocky.library.jda.cooldown.TimeSource Time source}
+ * <br>The source of the current time, which is used by all timeouted messages.</li>
+ *
+ * <li>{@link dev.blocky.library.jda.cooldown.ManualTimeSource Manual time source}
+ * <br>A time source, which only moves, if it is told to.</li>
+ * </ul>
+ */
+package dev.blocky.library.jda.cooldown;
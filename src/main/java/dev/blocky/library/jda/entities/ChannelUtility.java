@@ -0,0 +1,168 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.entities;
+
+import dev.blocky.library.jda.Utility;
+import dev.blocky.library.jda.cache.MessageStore;
+import dev.blocky.library.jda.cooldown.CooldownScope;
+import dev.blocky.library.jda.cooldown.RateLimiter;
+import dev.blocky.library.jda.history.HistoryPlanner;
+import dev.blocky.library.jda.purge.PurgeEngine;
+import dev.blocky.library.jda.purge.PurgeFilter;
+import dev.blocky.library.jda.purge.PurgeHandle;
+import dev.blocky.library.jda.search.MessageIndex;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageChannel;
+import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.utils.TimeUtil;
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.time.OffsetDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * The logic, which is shared by the channel wrappers of this package, e.g. {@link GuildTextChannel guild text channel} and
+ * {@link DirectMessageChannel direct message channel}.
+ * <br>Every method works on the wrapped {@link MessageChannel message channel} and the wrapped {@link Member member}, so the wrappers only
+ * pass their fields.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+final class ChannelUtility extends Utility
+{
+    private static final Logger logger = JDALogger.getLog(ChannelUtility.class);
+
+    private ChannelUtility()
+    {
+    }
+
+    @NotNull
+    static PurgeHandle purgeStored(@NotNull MessageChannel channel, @NotNull PurgeFilter filter)
+    {
+        MessageStore store = getMessageStore();
+
+        if (store == null)
+        {
+            logger.error("No message store is set, so no message can be deleted.", new IllegalStateException());
+            return PurgeEngine.purgeByIds(channel, new long[0], null);
+        }
+
+        return PurgeEngine.purgeStored(channel, filter, store, null);
+    }
+
+    @NotNull
+    static PurgeHandle purgeRecent(@NotNull MessageChannel channel, long time, @Nullable TimeUnit unit, @Nullable PurgeFilter filter)
+    {
+        long after = System.currentTimeMillis() - calculateDelay(unit, time);
+        return PurgeEngine.purgeRange(channel, TimeUtil.getDiscordTimestamp(after), Long.MAX_VALUE, filter == null ? null : filter.compile(), null);
+    }
+
+    @NotNull
+    static CompletableFuture<Boolean> containsMessage(@NotNull MessageChannel channel, @NotNull CharSequence content, int checkAmount)
+    {
+        if (!channel.getJDA().getGatewayIntents().contains(GatewayIntent.MESSAGE_CONTENT))
+        {
+            logger.warn("The MESSAGE_CONTENT intent is not enabled, which means, that some stuff could not work.");
+        }
+
+        return HistoryPlanner.containsContent(channel, content, checkAmount + 1);
+    }
+
+    @NotNull
+    static long[] search(@NotNull MessageChannel channel, @NotNull CharSequence query, int limit)
+    {
+        MessageIndex index = getMessageIndex();
+
+        if (index == null)
+        {
+            logger.error("No message index is set, so no message can be found.", new IllegalStateException());
+            return new long[0];
+        }
+
+        return index.search(channel.getIdLong(), query, limit);
+    }
+
+    @NotNull
+    static CompletableFuture<Integer> getMessagesByUser(@NotNull MessageChannel channel, @Nullable Member member, int limit, @Nullable OffsetDateTime after,
+                                                        @Nullable OffsetDateTime before, @NotNull Consumer<? super Message> callback)
+    {
+        if (member == null)
+        {
+            logger.error("The member, which you are specifying, equals null.", new IllegalArgumentException());
+            return CompletableFuture.completedFuture(0);
+        }
+
+        return HistoryPlanner.walkByAuthor(channel, member.getIdLong(), HistoryPlanner.toMinId(after), HistoryPlanner.toMaxId(before), limit,
+                after == null ? 1000 : Integer.MAX_VALUE, callback);
+    }
+
+    @NotNull
+    static long[] getMessageIdsByUser(@NotNull MessageChannel channel, @Nullable Member member, int limit, @Nullable OffsetDateTime after,
+                                      @Nullable OffsetDateTime before)
+    {
+        MessageStore store = getMessageStore();
+
+        if (member == null)
+        {
+            logger.error("The member, which you are specifying, equals null.", new IllegalArgumentException());
+            return new long[0];
+        }
+
+        if (store == null)
+        {
+            logger.error("No message store is set, so no message can be found.", new IllegalStateException());
+            return new long[0];
+        }
+
+        return store.selectByAuthor(channel.getIdLong(), member.getIdLong(), HistoryPlanner.toMinId(after), HistoryPlanner.toMaxId(before), limit);
+    }
+
+    /**
+     * Checks the cooldown of the specified member in the specified channel and starts a <b>new</b> one, if the last one is over.
+     *
+     * @param channel The {@link MessageChannel message channel}, in which the timeouted message was triggered
+     * @param member  The {@link Member member}, who triggered the timeouted message
+     * @param scope   The {@link CooldownScope cooldown scope}, which specifies for what the delay applies
+     * @param delay   The delay in milliseconds
+     * @return <b>0</b> if the cooldown is over, otherwise the remaining time in milliseconds
+     */
+    static long acquireCooldown(@NotNull MessageChannel channel, @NotNull Member member, @Nullable CooldownScope scope, long delay)
+    {
+        return acquireCooldown(channel.getType(), scope, member.getIdLong(), channel.getIdLong(), member.getGuild().getIdLong(), delay);
+    }
+
+    /**
+     * Checks the {@link RateLimiter rate limiter} of the specified member in the specified channel and consumes a permit, if one is available.
+     *
+     * @param channel The {@link MessageChannel message channel}, in which the timeouted message was triggered
+     * @param member  The {@link Member member}, who triggered the timeouted message
+     * @param limiter The {@link RateLimiter rate limiter}, which should be checked
+     * @param scope   The {@link CooldownScope cooldown scope}, which specifies for what the rate limit applies
+     * @return <b>0</b> if a permit was available, otherwise the time in milliseconds until the next permit is available
+     */
+    static long acquireRateLimit(@NotNull MessageChannel channel, @NotNull Member member, @NotNull RateLimiter limiter, @Nullable CooldownScope scope)
+    {
+        return acquireRateLimit(channel.getType(), limiter, scope, member.getIdLong(), channel.getIdLong(), member.getGuild().getIdLong());
+    }
+}
@@ -16,7 +16,18 @@
 package dev.blocky.library.jda.entities;
 
 import dev.blocky.library.jda.Utility;
+import dev.blocky.library.jda.annotations.DeprecatedSince;
+import dev.blocky.library.jda.annotations.ForRemoval;
+import dev.blocky.library.jda.annotations.ReplaceWith;
+import dev.blocky.library.jda.cache.MessageStore;
+import dev.blocky.library.jda.cooldown.CooldownScope;
+import dev.blocky.library.jda.cooldown.RateLimiter;
 import dev.blocky.library.jda.enums.SafetyClear;
+import dev.blocky.library.jda.purge.PurgeArchive;
+import dev.blocky.library.jda.purge.PurgeEngine;
+import dev.blocky.library.jda.purge.PurgeFilter;
+import dev.blocky.library.jda.purge.PurgeHandle;
+import dev.blocky.library.jda.search.MessageIndex;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.TextChannel;
@@ -29,19 +40,21 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 
 import javax.annotation.CheckReturnValue;
-import java.text.DecimalFormat;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 /**
  * Represents a Discord text {@link net.dv8tion.jda.api.entities.GuildChannel guild channel}.
  *
  * @author BlockyDotJar
- * @version v2.1.3
+ * @version v2.1.4
  * @since v1.0.0-alpha.1
  */
 public class GuildTextChannel extends Utility
@@ -152,12 +165,17 @@ public class GuildTextChannel extends Utility
      *
      * @param amount The amount of messages to delete
      * @param clear  The {@link SafetyClear safety clear} option, which helps for specifying different message types, which will not be deleted
-     * @return A list of futures representing all deletion task
+     * @return A list with a single future representing the whole purge
+     * @deprecated Use {@link GuildTextChannel#purge(int, SafetyClear) GuildTextChannel#purge(int, SafetyClear)} instead
      */
     @Nullable
+    @Deprecated
+    @ForRemoval(deadline = "v1.2.0")
+    @DeprecatedSince(version = "v1.1.5")
+    @ReplaceWith(method = "purge(int, SafetyClear)", clazz = "GuildTextChannel")
     public List<CompletableFuture<Void>> purgeMessages(int amount, @Nullable SafetyClear clear)
     {
-        return channel.purgeMessages(checkClearSafety(clear, channel, amount));
+        return deleteMessages(channel, checkClearSafetyAsync(clear, channel, amount));
     }
 
     /**
@@ -166,12 +184,17 @@ public class GuildTextChannel extends Utility
      * CompletionStage#exceptionally(Function)} to handle failures.
      *
      * @param clear The {@link SafetyClear safety clear} option, which helps for specifying different message types, which will not be deleted
-     * @return A list of futures representing all deletion task
+     * @return A list with a single future representing the whole purge
+     * @deprecated Use {@link GuildTextChannel#purge(SafetyClear) GuildTextChannel#purge(SafetyClear)} instead
      */
     @Nullable
+    @Deprecated
+    @ForRemoval(deadline = "v1.2.0")
+    @DeprecatedSince(version = "v1.1.5")
+    @ReplaceWith(method = "purge(SafetyClear)", clazz = "GuildTextChannel")
     public List<CompletableFuture<Void>> purgeChannel(@Nullable SafetyClear clear)
     {
-        return channel.purgeMessages(checkChannelClearSafety(clear, channel));
+        return deleteHistory(channel, clear);
     }
 
     /**
@@ -179,58 +202,331 @@ public class GuildTextChannel extends Utility
      * <br>No checks will be done to prevent failures, use {@link java.util.concurrent.CompletionStage#exceptionally(Function)
      * CompletionStage#exceptionally(Function)} to handle failures.
      *
-     * @return A list of futures representing all deletion task
+     * @return A list with a single future representing the whole purge
+     * @deprecated Use {@link GuildTextChannel#purge() GuildTextChannel#purge()} instead
      */
     @NotNull
+    @Deprecated
+    @ForRemoval(deadline = "v1.2.0")
+    @DeprecatedSince(version = "v1.1.5")
+    @ReplaceWith(method = "purge()", clazz = "GuildTextChannel")
     public List<CompletableFuture<Void>> purgeChannel()
     {
-        return channel.purgeMessages(checkChannelClearSafety(null, channel));
+        return deleteHistory(channel, SafetyClear.NONE);
+    }
+
+    /**
+     * Deletes the newest <b>amount</b> messages of this {@link TextChannel text channel}, which may be deleted by the specified
+     * {@link SafetyClear safety clear} option.
+     * <br>Messages, which are younger than two weeks, are deleted by bulk delete requests and the returned {@link PurgeHandle handle}
+     * can observe and cancel the purge.
+     *
+     * @param amount The amount of messages to delete
+     * @param clear  The {@link SafetyClear safety clear} option, which helps for specifying different message types, which will not be deleted
+     * @return A {@link PurgeHandle handle}, which observes and controls the purge
+     */
+    @NotNull
+    public PurgeHandle purge(int amount, @Nullable SafetyClear clear)
+    {
+        return purgeLatest(channel, amount, PurgeFilter.of(clear).compile());
+    }
+
+    /**
+     * Deletes every message of this {@link TextChannel text channel}, which may be deleted by the specified {@link SafetyClear safety clear} option.
+     * <br>The history is streamed page by page and the returned {@link PurgeHandle handle} can observe and cancel the purge.
+     *
+     * @param clear The {@link SafetyClear safety clear} option, which helps for specifying different message types, which will not be deleted
+     * @return A {@link PurgeHandle handle}, which observes and controls the purge
+     */
+    @NotNull
+    public PurgeHandle purge(@Nullable SafetyClear clear)
+    {
+        return PurgeEngine.purgeMatching(channel, PurgeFilter.of(clear), null);
+    }
+
+    /**
+     * Deletes every message of this {@link TextChannel text channel}, which may be deleted by the specified {@link SafetyClear safety clear} option,
+     * after it was written to the specified {@link PurgeArchive archive}.
+     * <br>Every page of the history is flushed to the archive, before any of its messages is deleted. The archive is not closed by the purge.
+     *
+     * @param clear   The {@link SafetyClear safety clear} option, which helps for specifying different message types, which will not be deleted
+     * @param archive The {@link PurgeArchive archive}, to which every deleted message should be written
+     * @return A {@link PurgeHandle handle}, which observes and controls the purge
+     */
+    @NotNull
+    public PurgeHandle purge(@Nullable SafetyClear clear, @NotNull PurgeArchive archive)
+    {
+        return PurgeEngine.purgeArchived(channel, PurgeFilter.of(clear), archive, null);
+    }
+
+    /**
+     * Deletes every message of this {@link TextChannel text channel}.
+     * <br>The history is streamed page by page and the returned {@link PurgeHandle handle} can observe and cancel the purge.
+     *
+     * @return A {@link PurgeHandle handle}, which observes and controls the purge
+     */
+    @NotNull
+    public PurgeHandle purge()
+    {
+        return purge(SafetyClear.NONE);
+    }
+
+    /**
+     * Deletes the messages of the newest <b>amount</b> messages of this {@link TextChannel text channel}, which are accepted by the specified
+     * {@link PurgeFilter purge filter}.
+     *
+     * @param filter The {@link PurgeFilter purge filter}, which describes the messages, which should be deleted
+     * @param amount The amount of messages to check
+     * @return A {@link PurgeHandle handle}, which observes and controls the purge
+     */
+    @NotNull
+    public PurgeHandle purgeMatching(@NotNull PurgeFilter filter, int amount)
+    {
+        return purgeLatest(channel, amount, filter.compile());
+    }
+
+    /**
+     * Deletes every message of this {@link TextChannel text channel}, which is accepted by the specified {@link PurgeFilter purge filter}.
+     * <br>If the filter has a time window, only the pages of the history, which overlap the time window, are fetched.
+     *
+     * @param filter The {@link PurgeFilter purge filter}, which describes the messages, which should be deleted
+     * @return A {@link PurgeHandle handle}, which observes and controls the purge
+     */
+    @NotNull
+    public PurgeHandle purgeMatching(@NotNull PurgeFilter filter)
+    {
+        return PurgeEngine.purgeMatching(channel, filter, null);
+    }
+
+    /**
+     * Deletes every message of this {@link TextChannel text channel}, which is held by the {@link Utility#setMessageStore(MessageStore) message store} and
+     * accepted by the specified {@link PurgeFilter purge filter}.
+     * <br>The filter is checked against the records of the store, so no page of the history is fetched.
+     *
+     * @param filter The {@link PurgeFilter purge filter}, which describes the messages, which should be deleted
+     * @return A {@link PurgeHandle handle}, which observes and controls the purge
+     */
+    @NotNull
+    public PurgeHandle purgeStored(@NotNull PurgeFilter filter)
+    {
+        return ChannelUtility.purgeStored(channel, filter);
+    }
+
+    /**
+     * Deletes every message of this {@link TextChannel text channel}, which is accepted by the specified {@link PurgeFilter purge filter}, after it was
+     * written to the specified {@link PurgeArchive archive}.
+     * <br>Every page of the history is flushed to the archive, before any of its messages is deleted. The archive is not closed by the purge.
+     *
+     * @param filter  The {@link PurgeFilter purge filter}, which describes the messages, which should be deleted
+     * @param archive The {@link PurgeArchive archive}, to which every deleted message should be written
+     * @return A {@link PurgeHandle handle}, which observes and controls the purge
+     */
+    @NotNull
+    public PurgeHandle purgeMatching(@NotNull PurgeFilter filter, @NotNull PurgeArchive archive)
+    {
+        return PurgeEngine.purgeArchived(channel, filter, archive, null);
+    }
+
+    /**
+     * Deletes every message of this {@link TextChannel text channel}, which is accepted by the specified {@link PurgeFilter purge filter}, and writes a
+     * checkpoint to the specified journal file after every page of the history.
+     * <br>If the journal already holds a checkpoint of this purge, the purge is resumed from there, so an interrupted purge does not
+     * repeat any request.
+     *
+     * @param filter  The {@link PurgeFilter purge filter}, which describes the messages, which should be deleted
+     * @param journal The path of the journal file
+     * @return A {@link PurgeHandle handle}, which observes and controls the purge
+     */
+    @NotNull
+    public PurgeHandle purgeResumable(@NotNull PurgeFilter filter, @NotNull Path journal)
+    {
+        return PurgeEngine.purgeResumable(channel, filter, journal, null);
+    }
+
+    /**
+     * Deletes every message of this {@link TextChannel text channel}, which was created in the specified time window.
+     * <br>Only the pages of the history, which overlap the time window, are fetched.
+     *
+     * @param after  The time, after which the messages were created (if <b>after</b> equals <b>null</b>, there is no lower bound)
+     * @param before The time, before which the messages were created (if <b>before</b> equals <b>null</b>, there is no upper bound)
+     * @param filter The {@link PurgeFilter purge filter}, which describes the messages, which should be deleted
+     *               (if <b>filter</b> equals <b>null</b>, every message in the time window will be deleted)
+     * @return A {@link PurgeHandle handle}, which observes and controls the purge
+     */
+    @NotNull
+    public PurgeHandle purgeBetween(@Nullable OffsetDateTime after, @Nullable OffsetDateTime before, @Nullable PurgeFilter filter)
+    {
+        return PurgeEngine.purgeBetween(channel, after, before, filter == null ? null : filter.compile(), null);
+    }
+
+    /**
+     * Deletes every message of this {@link TextChannel text channel}, which was sent between the messages with the specified ids.
+     * <br>The messages with the specified ids are not deleted themselves and only the pages of the history, which overlap the range,
+     * are fetched.
+     *
+     * @param afterId  The id of the message, after which the messages should be deleted
+     * @param beforeId The id of the message, before which the messages should be deleted
+     * @param filter   The {@link PurgeFilter purge filter}, which describes the messages, which should be deleted
+     *                 (if <b>filter</b> equals <b>null</b>, every message in the range will be deleted)
+     * @return A {@link PurgeHandle handle}, which observes and controls the purge
+     */
+    @NotNull
+    public PurgeHandle purgeBetween(long afterId, long beforeId, @Nullable PurgeFilter filter)
+    {
+        return PurgeEngine.purgeRange(channel, afterId + 1, beforeId, filter == null ? null : filter.compile(), null);
+    }
+
+    /**
+     * Deletes every message of this {@link TextChannel text channel}, which was created in the specified amount of time before now.
+     *
+     * @param time   The amount of time, e.g. <b>2</b> for the last two hours
+     * @param unit   The {@link TimeUnit time unit}, which is used for specifying the type of time (if {@link TimeUnit time unit} equals null the
+     *               default {@link TimeUnit time unit} will be used [{@link TimeUnit#SECONDS TimeUnit#SECONDS}])
+     * @param filter The {@link PurgeFilter purge filter}, which describes the messages, which should be deleted
+     *               (if <b>filter</b> equals <b>null</b>, every recent message will be deleted)
+     * @return A {@link PurgeHandle handle}, which observes and controls the purge
+     */
+    @NotNull
+    public PurgeHandle purgeRecent(long time, @Nullable TimeUnit unit, @Nullable PurgeFilter filter)
+    {
+        return ChannelUtility.purgeRecent(channel, time, unit, filter);
     }
 
     /**
      * Checks if the content, you specified, is written in this channel.
+     * <br>If a {@link Utility#setMessageCache(dev.blocky.library.jda.cache.MessageCache) message cache} is set and holds enough messages
+     * of this channel, a content, which is not written, is detected without any request. This blocks the current thread until the
+     * history was read, so it must never be called from a callback of JDA.
      *
      * @param content     The message content, which should be checked
      * @param checkAmount The amount of messages, which should be checked
      * @return
      * <b>true</b> If the content, you specified, is written in this channel
      * <br><b>false</b> If the content, you specified, is not written in this channel
+     * @deprecated Use {@link GuildTextChannel#containsMessageAsync(CharSequence, int) GuildTextChannel#containsMessageAsync(CharSequence, int)} instead
      */
+    @Deprecated
+    @ForRemoval(deadline = "v1.2.0")
+    @DeprecatedSince(version = "v1.1.5")
+    @ReplaceWith(method = "containsMessageAsync(CharSequence, int)", clazz = "GuildTextChannel")
     public boolean containsMessage(@NotNull CharSequence content, int checkAmount)
     {
-        if (!channel.getJDA().getGatewayIntents().contains(GatewayIntent.MESSAGE_CONTENT))
-        {
-            logger.warn("The MESSAGE_CONTENT intent is not enabled, which means, that some stuff could not work.");
-        }
+        return containsMessageAsync(content, checkAmount).join();
+    }
 
-        for (Message message : channel.getIterableHistory().cache(false))
-        {
-            if (message.getContentRaw().contentEquals(content))
-            {
-                return true;
-            }
+    /**
+     * Checks if the content, you specified, is written in this channel, without blocking the current thread.
+     * <br>Every page of the history is requested from the callback of the previous request, so no thread waits for the history
+     * and many checks can run on a few threads.
+     *
+     * @param content     The message content, which should be checked
+     * @param checkAmount The amount of messages, which should be checked
+     * @return A {@link CompletableFuture future}, which is completed with <b>true</b>, if the content, you specified, is written in this channel
+     */
+    @NotNull
+    @CheckReturnValue
+    public CompletableFuture<Boolean> containsMessageAsync(@NotNull CharSequence content, int checkAmount)
+    {
+        return ChannelUtility.containsMessage(channel, content, checkAmount);
+    }
 
-            if (checkAmount-- <= 0)
-            {
-                break;
-            }
-        }
-        return false;
+    /**
+     * Searches the newest 100 messages of this channel, which contain every word of the specified query, in the
+     * {@link Utility#setMessageIndex(MessageIndex) message index}.
+     *
+     * @param query The query, whose words should be found
+     * @return The ids of the matching messages from the newest to the oldest one
+     */
+    @NotNull
+    public long[] search(@NotNull CharSequence query)
+    {
+        return search(query, 100);
+    }
+
+    /**
+     * Searches the newest <b>limit</b> messages of this channel, which contain every word of the specified query, in the
+     * {@link Utility#setMessageIndex(MessageIndex) message index}.
+     * <br>A word of the query may also be the beginning of a word of a message, so <b>"purg"</b> matches <b>"purged"</b>. Only the messages,
+     * which were added to the index, are found and no request is sent.
+     *
+     * @param query The query, whose words should be found
+     * @param limit The maximum amount of messages, which should be found
+     * @return The ids of the matching messages from the newest to the oldest one
+     */
+    @NotNull
+    public long[] search(@NotNull CharSequence query, int limit)
+    {
+        return ChannelUtility.search(channel, query, limit);
     }
 
     /**
      * Gets all the messages from a specific member in this channel. (max. 1000 messages per channel)
      *
      * @return The written messages of the specified member in this channel
+     * @deprecated Use {@link GuildTextChannel#getMessagesByUser(int, OffsetDateTime, OffsetDateTime) GuildTextChannel#getMessagesByUser(int, OffsetDateTime, OffsetDateTime)} instead
      */
     @NotNull
+    @Deprecated
+    @ForRemoval(deadline = "v1.2.0")
+    @DeprecatedSince(version = "v1.1.5")
+    @ReplaceWith(method = "getMessagesByUser(int, OffsetDateTime, OffsetDateTime)", clazz = "GuildTextChannel")
     public List<Message> getMessagesByUser()
     {
-        return channel.getIterableHistory()
-                .stream()
-                .limit(1000)
-                .filter(m -> m.getAuthor().equals(member.getUser()))
-                .collect(Collectors.toList());
+        return getMessagesByUser(1000, null, null).join();
+    }
+
+    /**
+     * Gets the newest <b>limit</b> messages of the member in this channel, which were written in the specified time window.
+     * <br>The history is read from the newest to the oldest message and no more messages are fetched, as soon as <b>limit</b> messages
+     * are found. If a {@link Utility#setMessageCache(dev.blocky.library.jda.cache.MessageCache) message cache} is set, the cached messages
+     * of the member are read without any request. (if <b>after</b> equals <b>null</b>, at most 1000 messages are checked)
+     *
+     * @param limit  The amount of messages, which should be found
+     * @param after  The time, after which the messages were written (if <b>after</b> equals <b>null</b>, there is no lower bound)
+     * @param before The time, before which the messages were written (if <b>before</b> equals <b>null</b>, there is no upper bound)
+     * @return A {@link CompletableFuture future}, which is completed with the found messages from the newest to the oldest one
+     */
+    @NotNull
+    @CheckReturnValue
+    public CompletableFuture<List<Message>> getMessagesByUser(int limit, @Nullable OffsetDateTime after, @Nullable OffsetDateTime before)
+    {
+        List<Message> messages = new ArrayList<>();
+        return getMessagesByUser(limit, after, before, messages::add).thenApply(found -> messages);
+    }
+
+    /**
+     * Passes the newest <b>limit</b> messages of the member in this channel, which were written in the specified time window, to the
+     * specified callback, as soon as they are found.
+     * <br>The history is read from the newest to the oldest message and no more messages are fetched, as soon as <b>limit</b> messages
+     * are found. (if <b>after</b> equals <b>null</b>, at most 1000 messages are checked)
+     *
+     * @param limit    The amount of messages, which should be found
+     * @param after    The time, after which the messages were written (if <b>after</b> equals <b>null</b>, there is no lower bound)
+     * @param before   The time, before which the messages were written (if <b>before</b> equals <b>null</b>, there is no upper bound)
+     * @param callback The callback, which receives every found message from the newest to the oldest one
+     * @return A {@link CompletableFuture future}, which is completed with the amount of found messages
+     */
+    @NotNull
+    public CompletableFuture<Integer> getMessagesByUser(int limit, @Nullable OffsetDateTime after, @Nullable OffsetDateTime before,
+                                                        @NotNull Consumer<? super Message> callback)
+    {
+        return ChannelUtility.getMessagesByUser(channel, member, limit, after, before, callback);
+    }
+
+    /**
+     * Gets the ids of the newest <b>limit</b> messages of the member in this channel, which were written in the specified time window,
+     * from the {@link Utility#setMessageStore(MessageStore) message store}.
+     * <br>Only the messages, which are held by the store, are found and no request is sent.
+     *
+     * @param limit  The amount of messages, which should be found
+     * @param after  The time, after which the messages were written (if <b>after</b> equals <b>null</b>, there is no lower bound)
+     * @param before The time, before which the messages were written (if <b>before</b> equals <b>null</b>, there is no upper bound)
+     * @return The ids of the found messages from the newest to the oldest one
+     */
+    @NotNull
+    public long[] getMessageIdsByUser(int limit, @Nullable OffsetDateTime after, @Nullable OffsetDateTime before)
+    {
+        return ChannelUtility.getMessageIdsByUser(channel, member, limit, after, before);
     }
 
     /**
@@ -254,94 +550,90 @@ public class GuildTextChannel extends Utility
     @CheckReturnValue
     public MessageAction sendTimeoutedMessage(@NotNull MessageAction message, long delayInSeconds, @Nullable MessageAction delayMessage,
                                               @Nullable TimeUnit unit)
+    {
+        return sendTimeoutedMessage(message, delayInSeconds, delayMessage, unit, CooldownScope.USER);
+    }
+
+    /**
+     * This works like a normal message sending, but with more given options and a delay between using this.
+     * <br>You must specify a delay to time out a command. (the long <b>delayInSeconds must not equal to 0</b>.
+     * If this is <b>true</b> a {@link IllegalArgumentException illegal argument exception} will be thrown. The same is applicable for numbers under 0)
+     * <br>You also can specify a delay message, which will be sent if you are under a delay. (if the delay message
+     * equals <b>null</b>, there will be sent a default error message)
+     * <br>Another option you can use a specified {@link TimeUnit time} like {@link TimeUnit#MINUTES minutes},
+     * {@link TimeUnit#HOURS hours} or even {@link TimeUnit#DAYS days}.
+     * <br>(if {@link TimeUnit the time unit} equals <b>null</b>, there will be used a default {@link TimeUnit time unit}:
+     * {@link TimeUnit#SECONDS TimeUnit#SECONDS})
+     * <br>You also can specify a {@link CooldownScope cooldown scope}, which specifies for what the delay applies.
+     * (if the {@link CooldownScope cooldown scope} equals <b>null</b>, there will be used a default {@link CooldownScope cooldown scope}:
+     * {@link CooldownScope#USER CooldownScope#USER})
+     *
+     * @param message         The {@link MessageAction message action}, which should be used
+     * @param delayInSeconds The delay for the executing command in seconds
+     * @param delayMessage   The error message, which should appear, if the member has not waited for the delay yet
+     * @param unit           The {@link TimeUnit time unit}, which is used for specifying the type of time for the delay
+     * @param scope          The {@link CooldownScope cooldown scope}, which specifies for what the delay applies
+     * @return The specified {@link MessageAction message action}
+     */
+    @NotNull
+    @CheckReturnValue
+    public MessageAction sendTimeoutedMessage(@NotNull MessageAction message, long delayInSeconds, @Nullable MessageAction delayMessage,
+                                              @Nullable TimeUnit unit, @Nullable CooldownScope scope)
     {
         try
         {
-            long id = member.getIdLong();
-            long time;
-            if (getHashMap().containsKey(id))
+            long remaining = ChannelUtility.acquireCooldown(channel, member, scope, calculateDelay(unit, delayInSeconds));
+
+            if (remaining <= 0)
             {
-                time = getHashMap().get(id);
-
-                if ((System.currentTimeMillis() - time) >= calculateDelay(unit, delayInSeconds))
-                {
-                    getHashMap().put(id, System.currentTimeMillis());
-                    return message;
-                }
-                else
-                {
-                    if (delayMessage == null)
-                    {
-                        DecimalFormat df = new DecimalFormat("0.00");
-                        delayMessage = channel.sendMessage(member.getEffectiveName() + ", you must wait "
-                                + df.format((calculateDelay(unit, delayInSeconds) - (System.currentTimeMillis() - time)) / 1000.d) + " seconds ⌛");
-                    }
-                    else
-                    {
-                        return delayMessage;
-                    }
-                }
+                return message;
             }
-            else
+
+            if (delayMessage == null)
             {
-                getHashMap().put(id, System.currentTimeMillis());
-                return message;
+                delayMessage = channel.sendMessage(getCooldownMessage().format(member.getEffectiveName(), remaining));
             }
         }
         catch (NullPointerException e)
         {
-            logger.error("The message Action, which you are specifying, equals null.", e);
+            logger.error("The message action, which you are specifying, equals null.", e);
         }
         return delayMessage;
     }
 
     /**
-     * This works like a normal message sending, but with more given options and a delay between using this.
-     * <br>You must specify a delay to time out a command. (the long <b>delayInSeconds must not equal to 0</b>.
-     * If this is <b>true</b> a {@link IllegalArgumentException illegal argument exception} will be thrown. The same is applicable for numbers under 0)
-     * <br>You also can specify a delay message, which will be sent if you are under a delay. (if the delay message
+     * This works like a normal message sending, but it is limited by a {@link RateLimiter rate limiter} instead of a fixed delay.
+     * <br>A rate limiter allows a specific amount of messages in a specific period (e.g. five uses per 30 seconds), so it should
+     * be created once per command and reused.
+     * <br>You also can specify a delay message, which will be sent if you are rate limited. (if the delay message
      * equals <b>null</b>, there will be sent a default error message)
+     * <br>You also can specify a {@link CooldownScope cooldown scope}, which specifies for what the rate limit applies.
+     * (if the {@link CooldownScope cooldown scope} equals <b>null</b>, there will be used a default {@link CooldownScope cooldown scope}:
+     * {@link CooldownScope#USER CooldownScope#USER})
      *
-     * @param message         The {@link MessageAction message action}, which should be used
-     * @param delayInSeconds The delay for the executing command in seconds
-     * @param delayMessage   The error message, which should appear, if the member has not waited for the delay yet
+     * @param message      The {@link MessageAction message action}, which should be used
+     * @param limiter      The {@link RateLimiter rate limiter}, which limits the executing command
+     * @param delayMessage The error message, which should appear, if the member is rate limited
+     * @param scope        The {@link CooldownScope cooldown scope}, which specifies for what the rate limit applies
      * @return The specified {@link MessageAction message action}
      */
     @NotNull
     @CheckReturnValue
-    public MessageAction sendTimeoutedMessage(@NotNull MessageAction message, long delayInSeconds, @Nullable MessageAction delayMessage)
+    public MessageAction sendTimeoutedMessage(@NotNull MessageAction message, @NotNull RateLimiter limiter, @Nullable MessageAction delayMessage,
+                                              @Nullable CooldownScope scope)
     {
         try
         {
-            long id = member.getIdLong();
-            long time;
-            if (getHashMap().containsKey(id))
+            long remaining = ChannelUtility.acquireRateLimit(channel, member, limiter, scope);
+
+            if (remaining <= 0)
             {
-                time = getHashMap().get(id);
-
-                if ((System.currentTimeMillis() - time) >= calculateDelay(null, delayInSeconds))
-                {
-                    getHashMap().put(id, System.currentTimeMillis());
-                    return message;
-                }
-                else
-                {
-                    if (delayMessage == null)
-                    {
-                        DecimalFormat df = new DecimalFormat("0.00");
-                        delayMessage = channel.sendMessage(member.getEffectiveName() + ", you must wait "
-                                + df.format((calculateDelay(null, delayInSeconds) - (System.currentTimeMillis() - time)) / 1000.d) + " seconds ⌛");
-                    }
-                    else
-                    {
-                        return delayMessage;
-                    }
-                }
+                return message;
             }
-            else
+
+            if (delayMessage == null)
             {
-                getHashMap().put(id, System.currentTimeMillis());
-                return message;
+                delayMessage = channel.sendMessage(getCooldownMessage().format(member.getEffectiveName(), remaining));
             }
         }
         catch (NullPointerException e)
@@ -351,6 +643,25 @@ public class GuildTextChannel extends Utility
         return delayMessage;
     }
 
+    /**
+     * This works like a normal message sending, but with more given options and a delay between using this.
+     * <br>You must specify a delay to time out a command. (the long <b>delayInSeconds must not equal to 0</b>.
+     * If this is <b>true</b> a {@link IllegalArgumentException illegal argument exception} will be thrown. The same is applicable for numbers under 0)
+     * <br>You also can specify a delay message, which will be sent if you are under a delay. (if the delay message
+     * equals <b>null</b>, there will be sent a default error message)
+     *
+     * @param message         The {@link MessageAction message action}, which should be used
+     * @param delayInSeconds The delay for the executing command in seconds
+     * @param delayMessage   The error message, which should appear, if the member has not waited for the delay yet
+     * @return The specified {@link MessageAction message action}
+     */
+    @NotNull
+    @CheckReturnValue
+    public MessageAction sendTimeoutedMessage(@NotNull MessageAction message, long delayInSeconds, @Nullable MessageAction delayMessage)
+    {
+        return sendTimeoutedMessage(message, delayInSeconds, delayMessage, null);
+    }
+
     /**
      * This works like a normal (message component) message sending, but with more given options and a delay between using this. <br>
      * <br>You must specify a delay to time out a command. (the long <b>delayInSeconds must not equal to 0</b>.
@@ -372,38 +683,48 @@ public class GuildTextChannel extends Utility
     @CheckReturnValue
     public ReplyCallbackAction replyTimeoutedMessage(@NotNull ReplyCallbackAction message, long delayInSeconds, @Nullable ReplyCallbackAction delayMessage,
                                                      @Nullable TimeUnit unit)
+    {
+        return replyTimeoutedMessage(message, delayInSeconds, delayMessage, unit, CooldownScope.USER);
+    }
+
+    /**
+     * This works like a normal (message component) message sending, but with more given options and a delay between using this. <br>
+     * <br>You must specify a delay to time out a command. (the long <b>delayInSeconds must not equal to 0</b>.
+     * If this is <b>true</b> a {@link IllegalArgumentException illegal argument exception} will be thrown. The same is applicable for numbers under 0)
+     * <br>You also can specify a delay message, which will be sent if you are under a delay. (if the delay message
+     * equals <b>null</b>, there will be sent a default error message)
+     * <br>Another option you can use a specified {@link TimeUnit time} like {@link TimeUnit#MINUTES minutes},
+     * {@link TimeUnit#HOURS hours} or even {@link TimeUnit#DAYS days}.
+     * <br>(if {@link TimeUnit the time unit} equals <b>null</b>, there will be used a default {@link TimeUnit time unit}:
+     * {@link TimeUnit#SECONDS TimeUnit#SECONDS})
+     * <br>You also can specify a {@link CooldownScope cooldown scope}, which specifies for what the delay applies.
+     * (if the {@link CooldownScope cooldown scope} equals <b>null</b>, there will be used a default {@link CooldownScope cooldown scope}:
+     * {@link CooldownScope#USER CooldownScope#USER})
+     *
+     * @param message        The {@link ReplyCallbackAction reply callback action}, which should be used
+     * @param delayInSeconds The delay for the executing command in seconds
+     * @param delayMessage   The error message, which should appear, if the member has not waited for the delay yet
+     * @param unit           The {@link TimeUnit time unit}, which is used for specifying the type of time for the delay
+     * @param scope          The {@link CooldownScope cooldown scope}, which specifies for what the delay applies
+     * @return The specified {@link MessageAction message action}
+     */
+    @NotNull
+    @CheckReturnValue
+    public ReplyCallbackAction replyTimeoutedMessage(@NotNull ReplyCallbackAction message, long delayInSeconds, @Nullable ReplyCallbackAction delayMessage,
+                                                     @Nullable TimeUnit unit, @Nullable CooldownScope scope)
     {
         try
         {
-            long id = member.getIdLong();
-            long time;
-            if (getHashMap().containsKey(id))
+            long remaining = ChannelUtility.acquireCooldown(channel, member, scope, calculateDelay(unit, delayInSeconds));
+
+            if (remaining <= 0)
             {
-                time = getHashMap().get(id);
-
-                if ((System.currentTimeMillis() - time) >= calculateDelay(unit, delayInSeconds))
-                {
-                    getHashMap().put(id, System.currentTimeMillis());
-                    return message;
-                }
-                else
-                {
-                    if (delayMessage == null)
-                    {
-                        DecimalFormat df = new DecimalFormat("0.00");
-                        channel.sendMessage(member.getEffectiveName() + ", you must wait "
-                                + df.format((calculateDelay(unit, delayInSeconds) - (System.currentTimeMillis() - time)) / 1000.d) + " seconds ⌛").queue();
-                    }
-                    else
-                    {
-                        return delayMessage;
-                    }
-                }
+                return message;
             }
-            else
+
+            if (delayMessage == null)
             {
-                getHashMap().put(id, System.currentTimeMillis());
-                return message;
+                channel.sendMessage(getCooldownMessage().format(member.getEffectiveName(), remaining)).queue();
             }
         }
         catch (NullPointerException e)
@@ -414,52 +735,38 @@ public class GuildTextChannel extends Utility
     }
 
     /**
-     * This works like a normal (message component) message sending, but with more given options and a delay between using this.
-     * <br>You must specify a delay to time out a command. (the long <b>delayInSeconds must not equal to 0</b>.
-     * If this is <b>true</b> a {@link IllegalArgumentException illegal argument exception} will be thrown. The same is applicable for numbers under 0)
-     * <br>You also can specify a delay message, which will be sent if you are under a delay. (if the delay message
+     * This works like a normal (message component) message sending, but it is limited by a {@link RateLimiter rate limiter} instead of a fixed delay.
+     * <br>A rate limiter allows a specific amount of messages in a specific period (e.g. five uses per 30 seconds), so it should
+     * be created once per command and reused.
+     * <br>You also can specify a delay message, which will be sent if you are rate limited. (if the delay message
      * equals <b>null</b>, there will be sent a default error message)
+     * <br>You also can specify a {@link CooldownScope cooldown scope}, which specifies for what the rate limit applies.
+     * (if the {@link CooldownScope cooldown scope} equals <b>null</b>, there will be used a default {@link CooldownScope cooldown scope}:
+     * {@link CooldownScope#USER CooldownScope#USER})
      *
-     * @param message         The {@link ReplyCallbackAction reply callback action}, which should be used
-     * @param delayInSeconds The delay for the executing command in seconds
-     * @param delayMessage   The error message, which should appear, if the member has not waited for the delay yet
-     * @return The specified {@link MessageAction message action}
+     * @param message      The {@link ReplyCallbackAction reply callback action}, which should be used
+     * @param limiter      The {@link RateLimiter rate limiter}, which limits the executing command
+     * @param delayMessage The error message, which should appear, if the member is rate limited
+     * @param scope        The {@link CooldownScope cooldown scope}, which specifies for what the rate limit applies
+     * @return The specified {@link ReplyCallbackAction reply callback action}
      */
     @NotNull
     @CheckReturnValue
-    public ReplyCallbackAction replyTimeoutedMessage(@NotNull ReplyCallbackAction message, long delayInSeconds, @Nullable ReplyCallbackAction delayMessage)
+    public ReplyCallbackAction replyTimeoutedMessage(@NotNull ReplyCallbackAction message, @NotNull RateLimiter limiter,
+                                                     @Nullable ReplyCallbackAction delayMessage, @Nullable CooldownScope scope)
     {
         try
         {
-            long id = member.getIdLong();
-            long time;
-            if (getHashMap().containsKey(id))
+            long remaining = ChannelUtility.acquireRateLimit(channel, member, limiter, scope);
+
+            if (remaining <= 0)
             {
-                time = getHashMap().get(id);
-
-                if ((System.currentTimeMillis() - time) >= calculateDelay(null, delayInSeconds))
-                {
-                    getHashMap().put(id, System.currentTimeMillis());
-                    return message;
-                }
-                else
-                {
-                    if (delayMessage == null)
-                    {
-                        DecimalFormat df = new DecimalFormat("0.00");
-                        channel.sendMessage(member.getEffectiveName() + ", you must wait "
-                                + df.format((calculateDelay(null, delayInSeconds) - (System.currentTimeMillis() - time)) / 1000.d) + " seconds ⌛").queue();
-                    }
-                    else
-                    {
-                        return delayMessage;
-                    }
-                }
+                return message;
             }
-            else
+
+            if (delayMessage == null)
             {
-                getHashMap().put(id, System.currentTimeMillis());
-                return message;
+                channel.sendMessage(getCooldownMessage().format(member.getEffectiveName(), remaining)).queue();
             }
         }
         catch (NullPointerException e)
@@ -469,6 +776,25 @@ public class GuildTextChannel extends Utility
         return delayMessage;
     }
 
+    /**
+     * This works like a normal (message component) message sending, but with more given options and a delay between using this.
+     * <br>You must specify a delay to time out a command. (the long <b>delayInSeconds must not equal to 0</b>.
+     * If this is <b>true</b> a {@link IllegalArgumentException illegal argument exception} will be thrown. The same is applicable for numbers under 0)
+     * <br>You also can specify a delay message, which will be sent if you are under a delay. (if the delay message
+     * equals <b>null</b>, there will be sent a default error message)
+     *
+     * @param message         The {@link ReplyCallbackAction reply callback action}, which should be used
+     * @param delayInSeconds The delay for the executing command in seconds
+     * @param delayMessage   The error message, which should appear, if the member has not waited for the delay yet
+     * @return The specified {@link MessageAction message action}
+     */
+    @NotNull
+    @CheckReturnValue
+    public ReplyCallbackAction replyTimeoutedMessage(@NotNull ReplyCallbackAction message, long delayInSeconds, @Nullable ReplyCallbackAction delayMessage)
+    {
+        return replyTimeoutedMessage(message, delayInSeconds, delayMessage, null);
+    }
+
     @Override
     public boolean equals(@Nullable Object o)
     {
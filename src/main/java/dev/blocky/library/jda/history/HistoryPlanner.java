@@ -0,0 +1,454 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.history;
+
+import dev.blocky.library.jda.cache.MessageCache;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageChannel;
+import net.dv8tion.jda.api.entities.MessageHistory;
+import net.dv8tion.jda.api.utils.TimeUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.annotation.CheckReturnValue;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Fetches a specific amount of messages from the history of a channel with as little data as possible.
+ * <br>Every page request is sized to the amount of messages, which is still needed, so e.g. <b>3</b> messages are fetched with a single
+ * request for <b>3</b> messages and <b>237</b> messages with requests for <b>100</b>, <b>100</b> and <b>37</b> messages. A page can only be
+ * requested, when the oldest message of the previous page is known, so the next page is requested as soon as a page arrives and
+ * before it is visited, but only if the visitor can not stop early, because only then the next page is needed for sure.
+ * <br>If a {@link MessageCache message cache} is set, the newest messages are read from the cache and only the older messages,
+ * which are not held by the cache, are fetched.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+public final class HistoryPlanner
+{
+    /**
+     * The maximum amount of messages of a single history request.
+     */
+    public static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * The default amount of channels, which are searched at the same time, which equals the amount of requests, that Discord allows
+     * per second globally.
+     */
+    public static final int DEFAULT_PARALLELISM = 50;
+
+    private static volatile MessageCache cache;
+
+    private HistoryPlanner()
+    {
+    }
+
+    /**
+     * The {@link MessageCache message cache}, from which the newest messages are read.
+     *
+     * @return The {@link MessageCache message cache} or <b>null</b>, if every message is fetched
+     */
+    @Nullable
+    public static MessageCache getCache()
+    {
+        return cache;
+    }
+
+    /**
+     * Sets the {@link MessageCache message cache}, from which the newest messages are read.
+     * (if <b>cache</b> equals null, every message will be fetched)
+     *
+     * @param cache The {@link MessageCache message cache}, which should be used
+     */
+    public static void setCache(@Nullable MessageCache cache)
+    {
+        HistoryPlanner.cache = cache;
+    }
+
+    /**
+     * The size of the next page request.
+     *
+     * @param remaining The amount of messages, which are still needed
+     * @return The amount of messages, which should be requested
+     */
+    public static int pageSize(int remaining)
+    {
+        return Math.max(1, Math.min(remaining, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * The smallest id of a message, which was sent at or after the specified time.
+     *
+     * @param after The time, after which the messages were sent (can be <b>null</b>)
+     * @return The smallest id or <b>0</b>, if <b>after</b> equals null
+     */
+    public static long toMinId(@Nullable OffsetDateTime after)
+    {
+        return after == null ? 0 : TimeUtil.getDiscordTimestamp(after.toInstant().toEpochMilli());
+    }
+
+    /**
+     * The id, before which every message was sent before the specified time.
+     *
+     * @param before The time, before which the messages were sent (can be <b>null</b>)
+     * @return The id or {@link Long#MAX_VALUE Long#MAX_VALUE}, if <b>before</b> equals null
+     */
+    public static long toMaxId(@Nullable OffsetDateTime before)
+    {
+        return before == null ? Long.MAX_VALUE : TimeUtil.getDiscordTimestamp(before.toInstant().toEpochMilli());
+    }
+
+    /**
+     * Collects the messages of the newest <b>amount</b> messages of the specified channel, which are accepted by the specified filter.
+     *
+     * @param channel The {@link MessageChannel message channel}, whose history should be fetched
+     * @param amount  The amount of messages, which should be checked (at least one message is checked)
+     * @param filter  The filter, which accepts every message, that should be collected
+     * @return A {@link CompletableFuture future}, which is completed with the accepted messages from the newest to the oldest one
+     */
+    @NotNull
+    @CheckReturnValue
+    public static CompletableFuture<List<Message>> collect(@NotNull MessageChannel channel, int amount, @NotNull Predicate<? super Message> filter)
+    {
+        List<Message> messages = new ArrayList<>();
+
+        return walk(channel, Long.MAX_VALUE, amount, true, message ->
+        {
+            if (filter.test(message))
+            {
+                messages.add(message);
+            }
+            return true;
+        }).thenApply(visited -> messages);
+    }
+
+    /**
+     * Checks if any of the newest <b>amount</b> messages of the specified channel is accepted by the specified predicate.
+     * <br>No more pages are requested, after the first accepted message is found.
+     *
+     * @param channel   The {@link MessageChannel message channel}, whose history should be fetched
+     * @param amount    The amount of messages, which should be checked (at least one message is checked)
+     * @param predicate The predicate, which should be checked
+     * @return A {@link CompletableFuture future}, which is completed with <b>true</b>, if a message is accepted
+     */
+    @NotNull
+    @CheckReturnValue
+    public static CompletableFuture<Boolean> anyMatch(@NotNull MessageChannel channel, int amount, @NotNull Predicate<? super Message> predicate)
+    {
+        boolean[] found = new boolean[1];
+
+        return walk(channel, Long.MAX_VALUE, amount, false, message ->
+        {
+            found[0] = predicate.test(message);
+            return !found[0];
+        }).thenApply(visited -> found[0]);
+    }
+
+    /**
+     * Checks if any of the newest <b>amount</b> messages of the specified channel has the specified raw content.
+     * <br>If the {@link MessageCache message cache} has a cached message with the content or holds at least <b>amount</b> messages of
+     * the channel, this is {@link MessageCache#containsContent(MessageChannel, CharSequence, int) answered} without any request.
+     * Otherwise the history is fetched and the messages are checked one by one, so the {@link MessageCache#getCapacity() capacity} of
+     * the cache should cover the amount of checked messages.
+     *
+     * @param channel The {@link MessageChannel message channel}, whose history should be checked
+     * @param content The content, which should be checked
+     * @param amount  The amount of messages, which should be checked (at least one message is checked)
+     * @return A {@link CompletableFuture future}, which is completed with <b>true</b>, if a message has the content
+     */
+    @NotNull
+    @CheckReturnValue
+    public static CompletableFuture<Boolean> containsContent(@NotNull MessageChannel channel, @NotNull CharSequence content, int amount)
+    {
+        MessageCache current = cache;
+        Boolean cached = current == null ? null : current.containsContent(channel, content, Math.max(amount, 1));
+
+        if (cached != null)
+        {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        return anyMatch(channel, amount, message -> message.getContentRaw().contentEquals(content));
+    }
+
+    /**
+     * Passes the newest messages of the specified author, whose ids are in the specified range, to the specified consumer, from the
+     * newest to the oldest one.
+     * <br>If the {@link MessageCache message cache} holds messages of the channel, the messages of the author are read from its
+     * author index first and only the older part of the history is fetched. No more pages are requested, as soon as <b>limit</b>
+     * messages were found, the lower bound of the range was reached or <b>scanLimit</b> messages were fetched.
+     * <br>The consumer is called from the thread, which completes the requests, but never from two threads at the same time.
+     *
+     * @param channel   The {@link MessageChannel message channel}, whose history should be read
+     * @param authorId  The id of the author
+     * @param minId     The smallest id, which should be visited (use <b>0</b> for no lower bound)
+     * @param maxId     The id, below which every visited id is (use {@link Long#MAX_VALUE Long#MAX_VALUE} for no upper bound)
+     * @param limit     The amount of messages, which should be found (at least one message is searched)
+     * @param scanLimit The amount of messages, which should be fetched at most
+     * @param consumer  The consumer, which receives every found message
+     * @return A {@link CompletableFuture future}, which is completed with the amount of found messages
+     */
+    @NotNull
+    @CheckReturnValue
+    public static CompletableFuture<Integer> walkByAuthor(@NotNull MessageChannel channel, long authorId, long minId, long maxId, int limit,
+                                                          int scanLimit, @NotNull Consumer<? super Message> consumer)
+    {
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        int wanted = Math.max(limit, 1);
+        int[] found = new int[1];
+        long before = maxId;
+        MessageCache current = cache;
+
+        if (current != null)
+        {
+            List<Message> cached = new ArrayList<>();
+            before = current.readByAuthor(channel, authorId, minId, maxId, wanted, cached);
+
+            try
+            {
+                for (Message message : cached)
+                {
+                    consumer.accept(message);
+                    found[0]++;
+                }
+            }
+            catch (RuntimeException e)
+            {
+                future.completeExceptionally(e);
+                return future;
+            }
+
+            if (found[0] == wanted || before <= minId)
+            {
+                future.complete(found[0]);
+                return future;
+            }
+        }
+
+        walk(channel, before, scanLimit, false, message ->
+        {
+            if (message.getIdLong() < minId)
+            {
+                return false;
+            }
+
+            if (message.getAuthor().getIdLong() == authorId)
+            {
+                consumer.accept(message);
+                found[0]++;
+            }
+            return found[0] < wanted;
+        }).whenComplete((visited, error) ->
+        {
+            if (error != null)
+            {
+                future.completeExceptionally(error);
+                return;
+            }
+
+            future.complete(found[0]);
+        });
+        return future;
+    }
+
+    /**
+     * Checks if any message of the specified channels, which is not older than the specified id, is accepted by the specified predicate.
+     * <br>The channels are searched at the same time, but never more than <b>parallelism</b> channels at once, so the latency of a search
+     * is close to the latency of the slowest channel. The search is completed by the first accepted message, without waiting for the
+     * other channels. A channel, whose history could not be fetched, is skipped.
+     *
+     * @param channels    The {@link MessageChannel message channels}, whose histories should be searched
+     * @param minId       The smallest id, which should be checked (use <b>0</b> to search the whole histories)
+     * @param predicate   The predicate, which should be checked
+     * @param parallelism The maximum amount of channels, which are searched at the same time
+     *                    (if <b>parallelism</b> is less than 1, there will be used a default of {@value #DEFAULT_PARALLELISM})
+     * @return A {@link CompletableFuture future}, which is completed with <b>true</b>, if a message is accepted
+     */
+    @NotNull
+    @CheckReturnValue
+    public static CompletableFuture<Boolean> anyMatch(@NotNull Collection<? extends MessageChannel> channels, long minId,
+                                                      @NotNull Predicate<? super Message> predicate, int parallelism)
+    {
+        return search(channels, minId, predicate, 1, parallelism, null).thenApply(found -> found > 0);
+    }
+
+    /**
+     * Passes every message of the specified channels, which is not older than the specified id and is accepted by the specified predicate,
+     * to the specified consumer, as soon as it is found.
+     * <br>The channels are searched at the same time, but never more than <b>parallelism</b> channels at once, and every channel is walked
+     * from its newest message to the oldest one. The search stops, as soon as <b>limit</b> messages are found. The consumer is never
+     * called from two threads at the same time. A channel, whose history could not be fetched, is skipped.
+     *
+     * @param channels    The {@link MessageChannel message channels}, whose histories should be searched
+     * @param minId       The smallest id, which should be checked (use <b>0</b> to search the whole histories)
+     * @param predicate   The predicate, which accepts every message, that should be found
+     * @param limit       The amount of messages, after which the search stops (use {@link Integer#MAX_VALUE Integer#MAX_VALUE} for no limit)
+     * @param parallelism The maximum amount of channels, which are searched at the same time
+     *                    (if <b>parallelism</b> is less than 1, there will be used a default of {@value #DEFAULT_PARALLELISM})
+     * @param consumer    The consumer, which receives every found message (can be <b>null</b>)
+     * @return A {@link CompletableFuture future}, which is completed with the amount of found messages
+     */
+    @NotNull
+    @CheckReturnValue
+    public static CompletableFuture<Integer> search(@NotNull Collection<? extends MessageChannel> channels, long minId,
+                                                    @NotNull Predicate<? super Message> predicate, int limit, int parallelism,
+                                                    @Nullable Consumer<? super Message> consumer)
+    {
+        HistorySearch search = new HistorySearch(new ArrayList<>(channels), minId, predicate, limit, consumer);
+        search.start(parallelism < 1 ? DEFAULT_PARALLELISM : parallelism);
+        return search.getFuture();
+    }
+
+    /**
+     * Visits the newest <b>amount</b> messages of the specified channel, which are older than the specified id, from the newest to
+     * the oldest one.
+     *
+     * @param channel    The {@link MessageChannel message channel}, whose history should be fetched
+     * @param beforeId   The id, before which the messages should be visited (use {@link Long#MAX_VALUE Long#MAX_VALUE} for the newest messages)
+     * @param amount     The amount of messages, which should be visited (at least one message is visited)
+     * @param exhaustive <b>true</b>, if the visitor never stops early, so the next page is requested before the current one is visited
+     * @param visitor    The visitor, which returns <b>false</b>, if no more messages should be visited
+     * @return A {@link CompletableFuture future}, which is completed with the amount of visited messages
+     */
+    @NotNull
+    @CheckReturnValue
+    public static CompletableFuture<Integer> walk(@NotNull MessageChannel channel, long beforeId, int amount, boolean exhaustive,
+                                                  @NotNull Predicate<? super Message> visitor)
+    {
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        int need = Math.max(amount, 1);
+        int visited = 0;
+        long before = beforeId;
+        MessageCache current = cache;
+
+        if (current != null)
+        {
+            List<Message> cached = new ArrayList<>();
+            before = current.read(channel, beforeId, need, cached);
+
+            try
+            {
+                for (Message message : cached)
+                {
+                    visited++;
+
+                    if (!visitor.test(message))
+                    {
+                        future.complete(visited);
+                        return future;
+                    }
+                }
+            }
+            catch (RuntimeException e)
+            {
+                future.completeExceptionally(e);
+                return future;
+            }
+
+            if (visited == need)
+            {
+                future.complete(visited);
+                return future;
+            }
+        }
+
+        int left = need - visited;
+        int count = visited;
+
+        fetch(channel, before, pageSize(left)).whenComplete((page, error) ->
+                accept(channel, page, error, pageSize(left), left, count, exhaustive, visitor, future));
+        return future;
+    }
+
+    @NotNull
+    private static CompletableFuture<List<Message>> fetch(@NotNull MessageChannel channel, long beforeId, int size)
+    {
+        try
+        {
+            return beforeId == Long.MAX_VALUE
+                    ? channel.getHistory().retrievePast(size).submit()
+                    : channel.getHistoryBefore(beforeId, size).submit().thenApply(MessageHistory::getRetrievedHistory);
+        }
+        catch (RuntimeException e)
+        {
+            CompletableFuture<List<Message>> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    private static void accept(@NotNull MessageChannel channel, List<Message> page, Throwable error, int requested, int remaining, int visited,
+                               boolean exhaustive, @NotNull Predicate<? super Message> visitor, @NotNull CompletableFuture<Integer> future)
+    {
+        if (error != null)
+        {
+            future.completeExceptionally(error);
+            return;
+        }
+
+        int left = remaining - page.size();
+        boolean more = !page.isEmpty() && page.size() == requested && left > 0;
+        CompletableFuture<List<Message>> next = null;
+
+        if (more && exhaustive)
+        {
+            next = fetch(channel, page.get(page.size() - 1).getIdLong(), pageSize(left));
+        }
+
+        try
+        {
+            for (Message message : page)
+            {
+                visited++;
+
+                if (!visitor.test(message))
+                {
+                    future.complete(visited);
+                    return;
+                }
+            }
+        }
+        catch (RuntimeException e)
+        {
+            future.completeExceptionally(e);
+            return;
+        }
+
+        if (!more)
+        {
+            future.complete(visited);
+            return;
+        }
+
+        if (next == null)
+        {
+            next = fetch(channel, page.get(page.size() - 1).getIdLong(), pageSize(left));
+        }
+
+        int count = visited;
+        int size = pageSize(left);
+
+        next.whenComplete((nextPage, nextError) -> accept(channel, nextPage, nextError, size, left, count, exhaustive, visitor, future));
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.history;
+
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageChannel;
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Searches the histories of several channels at the same time.
+ * <br>Every channel is walked from its newest message down to the lower bound of the search with at most one history request in flight,
+ * so the requests of a channel only use the rate limit bucket of that channel. The amount of channels, which are searched at the same time,
+ * is limited by a cap, so a search of a whole guild does not flood the global rate limit.
+ * <br>As soon as enough messages are found, no more channels are started and every running walk stops at its next message, so an
+ * existence query is completed by the first hit.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+final class HistorySearch
+{
+    private static final Logger logger = JDALogger.getLog(HistorySearch.class);
+
+    private final List<? extends MessageChannel> channels;
+    private final long minId;
+    private final Predicate<? super Message> predicate;
+    private final int limit;
+    private final Consumer<? super Message> consumer;
+    private final CompletableFuture<Integer> future = new CompletableFuture<>();
+
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger completed = new AtomicInteger();
+    private volatile boolean stopped;
+    private int found;
+
+    HistorySearch(@NotNull List<? extends MessageChannel> channels, long minId, @NotNull Predicate<? super Message> predicate, int limit,
+                  @Nullable Consumer<? super Message> consumer)
+    {
+        this.channels = channels;
+        this.minId = minId;
+        this.predicate = predicate;
+        this.limit = Math.max(limit, 1);
+        this.consumer = consumer;
+    }
+
+    void start(int parallelism)
+    {
+        if (channels.isEmpty())
+        {
+            future.complete(0);
+            return;
+        }
+
+        for (int i = 0; i < Math.min(parallelism, channels.size()); i++)
+        {
+            startNext();
+        }
+    }
+
+    @NotNull
+    CompletableFuture<Integer> getFuture()
+    {
+        return future;
+    }
+
+    private void startNext()
+    {
+        int index = next.getAndIncrement();
+
+        if (index >= channels.size() || stopped)
+        {
+            return;
+        }
+
+        MessageChannel channel = channels.get(index);
+
+        HistoryPlanner.walk(channel, Long.MAX_VALUE, Integer.MAX_VALUE, false, message ->
+        {
+            if (stopped || message.getIdLong() < minId)
+            {
+                return false;
+            }
+
+            if (predicate.test(message))
+            {
+                accept(message);
+            }
+            return !stopped;
+        }).whenComplete((visited, error) ->
+        {
+            if (error != null)
+            {
+                logger.error("The history of the channel " + channel.getId() + " could not be searched.", error);
+            }
+
+            if (completed.incrementAndGet() == channels.size())
+            {
+                finish();
+                return;
+            }
+
+            startNext();
+        });
+    }
+
+    private synchronized void accept(@NotNull Message message)
+    {
+        if (stopped)
+        {
+            return;
+        }
+
+        if (consumer != null)
+        {
+            try
+            {
+                consumer.accept(message);
+            }
+            catch (RuntimeException e)
+            {
+                logger.error("The consumer of a search threw an exception.", e);
+            }
+        }
+
+        if (++found >= limit)
+        {
+            stopped = true;
+            future.complete(found);
+        }
+    }
+
+    private synchronized void finish()
+    {
+        future.complete(found);
+    }
+}
@@ -0,0 +1,11 @@
+/**
+ * Root package of the JDA-Commons history features.
+ *
+ * <br>From here you can navigate to the history features. <br>
+ *
+ * <ul>
+ * <li>{@link dev.blocky.library.jda.history.HistoryPlanner History planner}
+ * <br>Fetches a specific amount of messages from the history of a channel with as little data as possible.</li>
+ * </ul>
+ */
+package dev.blocky.library.jda.history;
@@ -17,19 +17,36 @@ package dev.blocky.library.jda.manager;
 
 import dev.blocky.library.jda.annotations.Deadline;
 import dev.blocky.library.jda.entities.SelfMember;
+import dev.blocky.library.jda.history.HistoryPlanner;
+import dev.blocky.library.jda.purge.PurgeEngine;
+import dev.blocky.library.jda.purge.PurgeFilter;
+import dev.blocky.library.jda.purge.PurgeHandle;
+import dev.blocky.library.jda.purge.PurgeReport;
+import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.GuildMessageChannel;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.requests.GatewayIntent;
 import net.dv8tion.jda.internal.utils.JDALogger;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 
+import javax.annotation.CheckReturnValue;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
 /**
  * This is a controller you can control guilds with.
  * <br>The exact use is still unknown.
  *
  * @author BlockyDotJar
- * @version v1.0.0-alpha.6
+ * @version v1.0.0-alpha.7
  * @since v1.0.0
  */
 @Deadline(version = "v1.5.0")
@@ -99,6 +116,110 @@ public class GuildController
         return SelfMember.set(guild);
     }
 
+    /**
+     * Deletes every message of this {@link Guild guild}, which is accepted by the specified {@link PurgeFilter purge filter}, e.g. all
+     * messages of a raider.
+     * <br>All text, news, voice and thread channels, in which the bot can view, read the history of and manage messages, are purged at the
+     * same time, but never more than {@value PurgeEngine#DEFAULT_PARALLELISM} channels at once.
+     *
+     * @param filter The {@link PurgeFilter purge filter}, which describes the messages, which should be deleted
+     * @return A {@link PurgeHandle purge handle}, which exposes the sums of all channels and can cancel every channel
+     */
+    @NotNull
+    public PurgeHandle purgeGuild(@NotNull PurgeFilter filter)
+    {
+        return purgeGuild(filter, PurgeEngine.DEFAULT_PARALLELISM, null);
+    }
+
+    /**
+     * Deletes every message of this {@link Guild guild}, which is accepted by the specified {@link PurgeFilter purge filter}, e.g. all
+     * messages of a raider.
+     * <br>All text, news, voice and thread channels, in which the bot can view, read the history of and manage messages, are purged at the
+     * same time, but never more than <b>parallelism</b> channels at once.
+     *
+     * @param filter      The {@link PurgeFilter purge filter}, which describes the messages, which should be deleted
+     * @param parallelism The maximum amount of channels, which are purged at the same time
+     *                    (if <b>parallelism</b> is less than 1, there will be used a default of {@value PurgeEngine#DEFAULT_PARALLELISM})
+     * @param progress    The listener, which is called with the current {@link PurgeReport report} after every request (can be <b>null</b>)
+     * @return A {@link PurgeHandle purge handle}, which exposes the sums of all channels and can cancel every channel
+     */
+    @NotNull
+    public PurgeHandle purgeGuild(@NotNull PurgeFilter filter, int parallelism, @Nullable Consumer<? super PurgeReport> progress)
+    {
+        return PurgeEngine.purgeChannels(getMessageChannels(Permission.VIEW_CHANNEL, Permission.MESSAGE_HISTORY, Permission.MESSAGE_MANAGE),
+                filter, parallelism, progress);
+    }
+
+    /**
+     * Checks if the content, you specified, was written in any channel of this {@link Guild guild} after the specified time.
+     * <br>All text, news, voice and thread channels, in which the bot can view and read the history, are searched at the same time, but
+     * never more than {@value HistoryPlanner#DEFAULT_PARALLELISM} channels at once, and the search is completed by the first hit.
+     *
+     * @param content The message content, which should be checked
+     * @param after   The time, after which the messages were written (if <b>after</b> equals <b>null</b>, the whole histories are searched)
+     * @return A {@link CompletableFuture future}, which is completed with <b>true</b>, if the content, you specified, was written
+     */
+    @NotNull
+    @CheckReturnValue
+    public CompletableFuture<Boolean> containsMessage(@NotNull CharSequence content, @Nullable OffsetDateTime after)
+    {
+        return anyMessage(message -> message.getContentRaw().contentEquals(content), after);
+    }
+
+    /**
+     * Checks if any message of this {@link Guild guild}, which was written after the specified time, is accepted by the specified predicate.
+     * <br>All text, news, voice and thread channels, in which the bot can view and read the history, are searched at the same time, but
+     * never more than {@value HistoryPlanner#DEFAULT_PARALLELISM} channels at once, and the search is completed by the first hit.
+     *
+     * @param predicate The predicate, which should be checked
+     * @param after     The time, after which the messages were written (if <b>after</b> equals <b>null</b>, the whole histories are searched)
+     * @return A {@link CompletableFuture future}, which is completed with <b>true</b>, if a message is accepted
+     */
+    @NotNull
+    @CheckReturnValue
+    public CompletableFuture<Boolean> anyMessage(@NotNull Predicate<? super Message> predicate, @Nullable OffsetDateTime after)
+    {
+        return HistoryPlanner.anyMatch(getMessageChannels(Permission.VIEW_CHANNEL, Permission.MESSAGE_HISTORY), HistoryPlanner.toMinId(after),
+                predicate, HistoryPlanner.DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Passes every message of this {@link Guild guild}, which was written after the specified time and is accepted by the specified
+     * predicate, to the specified consumer, as soon as it is found.
+     * <br>All text, news, voice and thread channels, in which the bot can view and read the history, are searched at the same time, but
+     * never more than <b>parallelism</b> channels at once, and the search stops, as soon as <b>limit</b> messages are found.
+     *
+     * @param predicate   The predicate, which accepts every message, that should be found
+     * @param after       The time, after which the messages were written (if <b>after</b> equals <b>null</b>, the whole histories are searched)
+     * @param limit       The amount of messages, after which the search stops
+     * @param parallelism The maximum amount of channels, which are searched at the same time
+     *                    (if <b>parallelism</b> is less than 1, there will be used a default of {@value HistoryPlanner#DEFAULT_PARALLELISM})
+     * @param consumer    The consumer, which receives every found message
+     * @return A {@link CompletableFuture future}, which is completed with the amount of found messages
+     */
+    @NotNull
+    @CheckReturnValue
+    public CompletableFuture<Integer> searchMessages(@NotNull Predicate<? super Message> predicate, @Nullable OffsetDateTime after, int limit,
+                                                     int parallelism, @NotNull Consumer<? super Message> consumer)
+    {
+        return HistoryPlanner.search(getMessageChannels(Permission.VIEW_CHANNEL, Permission.MESSAGE_HISTORY), HistoryPlanner.toMinId(after),
+                predicate, limit, parallelism, consumer);
+    }
+
+    @NotNull
+    private List<GuildMessageChannel> getMessageChannels(@NotNull Permission... permissions)
+    {
+        List<GuildMessageChannel> channels = new ArrayList<>();
+        Member self = guild.getSelfMember();
+
+        channels.addAll(guild.getTextChannels());
+        channels.addAll(guild.getNewsChannels());
+        channels.addAll(guild.getVoiceChannels());
+        channels.addAll(guild.getThreadChannels());
+        channels.removeIf(channel -> !self.hasPermission(channel, permissions));
+        return channels;
+    }
+
     @Override
     public boolean equals(@Nullable Object o)
     {
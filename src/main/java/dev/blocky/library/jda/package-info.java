@@ -9,6 +9,22 @@
  *
  * <li>{@link dev.blocky.library.jda.Utility Utility}
  * <br>This is a class, which has many utility methods in it.</li>
+ *
+ * <li>{@link dev.blocky.library.jda.cache Message cache}
+ * <br>Holds the newest messages of every channel, so the history-reading methods do not need to fetch them, and retains compact
+ * records of older history.</li>
+ *
+ * <li>{@link dev.blocky.library.jda.cooldown Cooldowns}
+ * <br>Thread-safe cooldown storage and rate limiters, which are used by all timeouted messages.</li>
+ *
+ * <li>{@link dev.blocky.library.jda.history History}
+ * <br>Fetches the history of a channel with page requests, that are sized to the amount of messages, which is needed.</li>
+ *
+ * <li>{@link dev.blocky.library.jda.purge Purges}
+ * <br>Deletes messages with as few REST requests as Discord allows, which is used by all purge methods.</li>
+ *
+ * <li>{@link dev.blocky.library.jda.search Message search}
+ * <br>A local full-text index, which finds the messages of a channel by their words without fetching its history.</li>
  * </ul>
  */
 package dev.blocky.library.jda;
@@ -0,0 +1,287 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.purge;
+
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageChannel;
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Purges several channels at the same time.
+ * <br>Every channel is purged by its own {@link HistoryPurge history purge}, whose lanes keep at most one request in flight, so the
+ * requests of a channel are only limited by the rate limit buckets of that channel. The amount of channels, which are purged at the same
+ * time, is limited by a cap, so a purge of a whole guild does not flood the global rate limit. A cancel stops every running channel and
+ * completes the channels, which were not started yet, without a request.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+final class ChannelsPurge implements PurgeControl
+{
+    private static final Logger logger = JDALogger.getLog(ChannelsPurge.class);
+
+    private final List<? extends MessageChannel> channels;
+    private final long minId;
+    private final long maxId;
+    private final Predicate<? super Message> filter;
+    private final Consumer<? super PurgeReport> progress;
+    private final CompletableFuture<PurgeResult> future = new CompletableFuture<>();
+    private final long started = System.nanoTime();
+
+    private final AtomicReferenceArray<PurgeHandle> handles;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger completed = new AtomicInteger();
+    private volatile boolean cancelRequested;
+
+    ChannelsPurge(@NotNull List<? extends MessageChannel> channels, long minId, long maxId, @Nullable Predicate<? super Message> filter,
+                  @Nullable Consumer<? super PurgeReport> progress)
+    {
+        this.channels = channels;
+        this.minId = minId;
+        this.maxId = maxId;
+        this.filter = filter;
+        this.progress = progress;
+        this.handles = new AtomicReferenceArray<>(channels.size());
+    }
+
+    void start(int parallelism)
+    {
+        if (channels.isEmpty())
+        {
+            future.complete(getResult());
+            return;
+        }
+
+        for (int i = 0; i < Math.min(parallelism, channels.size()); i++)
+        {
+            startNext();
+        }
+    }
+
+    @Override
+    public boolean cancel()
+    {
+        if (future.isDone() || cancelRequested)
+        {
+            return false;
+        }
+
+        cancelRequested = true;
+
+        for (int i = 0; i < handles.length(); i++)
+        {
+            PurgeHandle handle = handles.get(i);
+
+            if (handle != null)
+            {
+                handle.cancel();
+            }
+        }
+
+        // Channels, which were not started yet, are completed by the callbacks of the running channels.
+        return true;
+    }
+
+    @Override
+    public boolean isCancelled()
+    {
+        return cancelRequested;
+    }
+
+    @Override
+    public boolean isClosed()
+    {
+        if (next.get() < channels.size())
+        {
+            return false;
+        }
+
+        for (int i = 0; i < handles.length(); i++)
+        {
+            PurgeHandle handle = handles.get(i);
+
+            if (handle != null && !handle.isClosed())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public long getStarted()
+    {
+        return started;
+    }
+
+    @Override
+    public int getRestored()
+    {
+        // The channels of a multi-channel purge are never resumed.
+        return 0;
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<PurgeResult> getFuture()
+    {
+        return future;
+    }
+
+    @NotNull
+    @Override
+    public PurgeResult getResult()
+    {
+        return getReport().getTotal();
+    }
+
+    @NotNull
+    @Override
+    public PurgeReport getReport()
+    {
+        Map<Long, PurgeResult> map = new LinkedHashMap<>();
+        int total = 0;
+        int scanned = 0;
+        int bulkDeleted = 0;
+        int singleDeleted = 0;
+        int failed = 0;
+        int cancelled = 0;
+        int bulkRequests = 0;
+        int singleRequests = 0;
+        Throwable failure = null;
+
+        for (int i = 0; i < handles.length(); i++)
+        {
+            PurgeHandle handle = handles.get(i);
+
+            if (handle == null)
+            {
+                continue;
+            }
+
+            PurgeResult result = handle.getResult();
+
+            map.put(channels.get(i).getIdLong(), result);
+            total += result.getTotal();
+            scanned += result.getScanned();
+            bulkDeleted += result.getBulkDeleted();
+            singleDeleted += result.getSingleDeleted();
+            failed += result.getFailed();
+            cancelled += result.getCancelled();
+            bulkRequests += result.getBulkRequests();
+            singleRequests += result.getSingleRequests();
+
+            if (failure == null)
+            {
+                failure = result.getFailure();
+            }
+        }
+        return new PurgeReport(new PurgeResult(total, scanned, bulkDeleted, singleDeleted, failed, cancelled, bulkRequests, singleRequests, failure), map,
+                completed.get());
+    }
+
+    private void startNext()
+    {
+        while (true)
+        {
+            int index = next.getAndIncrement();
+
+            if (index >= channels.size())
+            {
+                return;
+            }
+
+            if (!cancelRequested)
+            {
+                startChannel(index);
+                return;
+            }
+
+            completed(false);
+        }
+    }
+
+    private void startChannel(int index)
+    {
+        PurgeHandle handle = PurgeEngine.purgeRange(channels.get(index), minId, maxId, filter, result -> report());
+        handles.set(index, handle);
+
+        // The purge may have been cancelled, before the handle of this channel was known.
+        if (cancelRequested)
+        {
+            handle.cancel();
+        }
+
+        handle.getFuture().whenComplete((result, error) ->
+        {
+            if (!completed(true))
+            {
+                startNext();
+            }
+        });
+    }
+
+    /**
+     * Records, that a channel is done, and completes this purge, if it was the last channel.
+     *
+     * @param report Whether the progress listener should be called, if this purge is not done yet
+     * @return <b>true -</b> If this purge is done <br><b>false -</b> If some channels are not done yet
+     */
+    private boolean completed(boolean report)
+    {
+        if (completed.incrementAndGet() == channels.size())
+        {
+            future.complete(getResult());
+            return true;
+        }
+
+        if (report)
+        {
+            report();
+        }
+        return false;
+    }
+
+    private void report()
+    {
+        if (progress == null)
+        {
+            return;
+        }
+
+        try
+        {
+            progress.accept(getReport());
+        }
+        catch (RuntimeException e)
+        {
+            logger.error("The progress listener of a purge threw an exception.", e);
+        }
+    }
+}
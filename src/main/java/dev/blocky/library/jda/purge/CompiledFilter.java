@@ -0,0 +1,182 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.purge;
+
+import dev.blocky.library.jda.cache.MessageRecord;
+import net.dv8tion.jda.api.entities.Message;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * The compiled form of a {@link PurgeFilter purge filter}.
+ * <br>The criteria are checked from the cheapest to the most expensive one, so the id range, which needs no call at all, is checked
+ * first and the regular expression last.
+ * <br>The same criteria can also be checked against the {@link MessageRecord records} of a message store, whose content may already
+ * be evicted, in which case a regular expression never matches.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+final class CompiledFilter implements Predicate<Message>
+{
+    static final int ANY = 0;
+    static final int PRESENT = 1;
+    static final int ABSENT = 2;
+
+    private final long minId;
+    private final long maxId;
+    private final int mask;
+    private final boolean guildOnly;
+    private final long[] authors;
+    private final Pattern pattern;
+    private final int attachments;
+
+    private CompiledFilter(long minId, long maxId, int mask, boolean guildOnly, @Nullable long[] authors, @Nullable Pattern pattern, int attachments)
+    {
+        this.minId = minId;
+        this.maxId = maxId;
+        this.mask = mask;
+        this.guildOnly = guildOnly;
+        this.authors = authors;
+        this.pattern = pattern;
+        this.attachments = attachments;
+    }
+
+    /**
+     * Creates the cheapest predicate for the specified criteria.
+     * <br>Filters, which only skip message types or only accept guild messages (which covers every {@link dev.blocky.library.jda.enums.SafetyClear
+     * safety clear} option), get a dedicated predicate, which checks nothing else.
+     */
+    @NotNull
+    static Predicate<Message> create(long minId, long maxId, int mask, boolean guildOnly, @Nullable long[] authors, @Nullable Pattern pattern,
+                                     int attachments)
+    {
+        if (minId > 0 || maxId < Long.MAX_VALUE || authors != null || pattern != null || attachments != ANY || (guildOnly && mask != 0))
+        {
+            return new CompiledFilter(minId, maxId, mask, guildOnly, authors, pattern, attachments);
+        }
+
+        switch (mask)
+        {
+            case 0:
+                return guildOnly ? Message::isFromGuild : message -> true;
+            case PurgeFilter.PINNED:
+                return message -> !message.isPinned();
+            case PurgeFilter.WEBHOOK:
+                return message -> !message.isWebhookMessage();
+            case PurgeFilter.EDITED:
+                return message -> !message.isEdited();
+            case PurgeFilter.PINNED | PurgeFilter.WEBHOOK | PurgeFilter.EDITED:
+                return message -> !message.isEdited() && !message.isPinned() && !message.isWebhookMessage();
+            default:
+                return new CompiledFilter(minId, maxId, mask, false, null, null, ANY);
+        }
+    }
+
+    @Override
+    public boolean test(@NotNull Message message)
+    {
+        long id = message.getIdLong();
+
+        if (id < minId || id >= maxId)
+        {
+            return false;
+        }
+
+        if (mask != 0 && isSkipped(message))
+        {
+            return false;
+        }
+
+        if (guildOnly && !message.isFromGuild())
+        {
+            return false;
+        }
+
+        if (authors != null && Arrays.binarySearch(authors, message.getAuthor().getIdLong()) < 0)
+        {
+            return false;
+        }
+
+        if (attachments != ANY && message.getAttachments().isEmpty() == (attachments == PRESENT))
+        {
+            return false;
+        }
+        return pattern == null || pattern.matcher(message.getContentRaw()).find();
+    }
+
+    /**
+     * Creates the predicate for the records of a message store with the specified criteria.
+     */
+    @NotNull
+    static Predicate<MessageRecord> createStored(long minId, long maxId, int mask, boolean guildOnly, @Nullable long[] authors,
+                                                 @Nullable Pattern pattern, int attachments)
+    {
+        return new CompiledFilter(minId, maxId, mask, guildOnly, authors, pattern, attachments)::testStored;
+    }
+
+    private boolean testStored(@NotNull MessageRecord record)
+    {
+        long id = record.getIdLong();
+
+        if (id < minId || id >= maxId)
+        {
+            return false;
+        }
+
+        if (mask != 0 && (((mask & PurgeFilter.PINNED) != 0 && record.isPinned())
+                || ((mask & PurgeFilter.WEBHOOK) != 0 && record.isWebhookMessage())
+                || ((mask & PurgeFilter.EDITED) != 0 && record.isEdited())))
+        {
+            return false;
+        }
+
+        if (guildOnly && !record.isFromGuild())
+        {
+            return false;
+        }
+
+        if (authors != null && Arrays.binarySearch(authors, record.getAuthorIdLong()) < 0)
+        {
+            return false;
+        }
+
+        if (attachments != ANY && record.hasAttachments() != (attachments == PRESENT))
+        {
+            return false;
+        }
+
+        if (pattern == null)
+        {
+            return true;
+        }
+
+        String content = record.getContentRaw();
+        return content != null && pattern.matcher(content).find();
+    }
+
+    private boolean isSkipped(@NotNull Message message)
+    {
+        return ((mask & PurgeFilter.PINNED) != 0 && message.isPinned())
+                || ((mask & PurgeFilter.WEBHOOK) != 0 && message.isWebhookMessage())
+                || ((mask & PurgeFilter.EDITED) != 0 && message.isEdited());
+    }
+}
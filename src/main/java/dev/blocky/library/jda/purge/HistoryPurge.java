@@ -0,0 +1,312 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.purge;
+
+import dev.blocky.library.jda.history.HistoryPlanner;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageChannel;
+import net.dv8tion.jda.api.entities.MessageHistory;
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Streams the history of a channel into a {@link PurgeTask purge task}.
+ * <br>The history is walked from the newest to the oldest message of a range of snowflake ids. The first page is requested right
+ * before the upper bound and no more pages are requested, as soon as a page reaches past the lower bound, so only the pages, which
+ * overlap the range, are fetched. At most a specific amount of messages is scanned and every page request is sized to the amount of
+ * messages, which is still needed.
+ * <br>Every page is filtered as soon as it arrives and only the ids of the matching messages are kept. The next page is requested
+ * right away, unless too many messages are still waiting for their deletion, in which case the request is sent as soon as the
+ * purge has caught up.
+ * <br>If the purge has a {@link PurgeJournal journal}, a checkpoint is written every few pages and, if the pages arrive slowly, at
+ * least every few seconds, so an interrupted purge can be resumed. A checkpoint forces the journal to the disk, which is too slow to
+ * be done for every page on the threads of JDA. A resumed purge scans the pages since the last checkpoint again, but the messages,
+ * which were deleted since then, are gone, so they are neither deleted nor counted again. The journal is deleted, as soon as the
+ * whole range was purged.
+ * <br>If the purge has a {@link PurgeArchive archive}, the matching messages of every page are written to the archive and the archive
+ * is flushed, before any of them is offered for deletion. If the archive could not be written, the purge stops.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+final class HistoryPurge
+{
+    private static final Logger logger = JDALogger.getLog(HistoryPurge.class);
+
+    /**
+     * The amount of messages, which may wait for their deletion, before no more pages are requested.
+     */
+    static final int MAX_PENDING = 3 * HistoryPlanner.MAX_PAGE_SIZE;
+
+    /**
+     * The amount of pages, after which a checkpoint is written.
+     */
+    static final int CHECKPOINT_PAGES = 10;
+
+    /**
+     * The time in nanoseconds, after which a checkpoint is written, even if less pages arrived.
+     */
+    static final long CHECKPOINT_INTERVAL = TimeUnit.SECONDS.toNanos(5);
+
+    private final MessageChannel channel;
+    private final Predicate<? super Message> filter;
+    private final PurgeTask task;
+    private final long minId;
+    private final long maxId;
+    private final int limit;
+    private final PurgeJournal journal;
+    private final PurgeArchive archive;
+    private final long countedBelow;
+    private volatile long oldest;
+    private volatile boolean exhausted;
+    private int scanned;
+    private int requested;
+    private int pages;
+    private long checkpointed = System.nanoTime();
+
+    HistoryPurge(@NotNull MessageChannel channel, @Nullable Predicate<? super Message> filter, @NotNull PurgeTask task, long minId, long maxId,
+                 int limit)
+    {
+        this(channel, filter, task, minId, maxId, limit, null, null);
+    }
+
+    HistoryPurge(@NotNull MessageChannel channel, @Nullable Predicate<? super Message> filter, @NotNull PurgeTask task, long minId, long maxId,
+                 int limit, @Nullable PurgeJournal journal, @Nullable PurgeArchive archive)
+    {
+        this.channel = channel;
+        this.filter = filter;
+        this.task = task;
+        this.minId = minId;
+        this.maxId = maxId;
+        this.limit = limit;
+        this.oldest = maxId;
+        this.journal = journal;
+        this.archive = archive;
+        // The messages above the oldest message of a checkpoint were already counted by the interrupted purge.
+        this.countedBelow = journal == null ? maxId : journal.getOldest();
+    }
+
+    void start()
+    {
+        if (journal != null)
+        {
+            // The checkpoint needs to be written, before a caller, who waits for the purge, can resume it.
+            task.beforeComplete(this::finish);
+        }
+
+        fetch();
+    }
+
+    private void fetch()
+    {
+        if (task.isCancelled())
+        {
+            task.close();
+            return;
+        }
+
+        CompletableFuture<List<Message>> request;
+        requested = HistoryPlanner.pageSize(limit - scanned);
+
+        try
+        {
+            request = oldest == Long.MAX_VALUE
+                    ? channel.getHistory().retrievePast(requested).submit()
+                    : channel.getHistoryBefore(oldest, requested).submit().thenApply(MessageHistory::getRetrievedHistory);
+        }
+        catch (RuntimeException e)
+        {
+            stop(e);
+            return;
+        }
+
+        request.whenComplete((page, error) ->
+        {
+            if (error != null)
+            {
+                stop(error);
+                return;
+            }
+
+            try
+            {
+                accept(page);
+            }
+            catch (RuntimeException e)
+            {
+                // An exception would be swallowed by the future of the request, so the purge would never complete.
+                logger.error("A page of the purge could not be processed, so the purge stops.", e);
+                stop(e);
+            }
+        });
+    }
+
+    private void accept(@Nullable List<Message> page)
+    {
+        if (page == null || page.isEmpty() || task.isCancelled())
+        {
+            exhausted = !task.isCancelled();
+            task.close();
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        scanned += page.size();
+
+        long[] matched = new long[page.size()];
+        int count = 0;
+        int fresh = 0;
+
+        try
+        {
+            for (Message message : page)
+            {
+                long id = message.getIdLong();
+
+                if (id < countedBelow)
+                {
+                    fresh++;
+                }
+
+                if (id >= minId && id < maxId && (filter == null || filter.test(message)))
+                {
+                    matched[count++] = id;
+                }
+            }
+        }
+        catch (RuntimeException e)
+        {
+            logger.error("The filter of the purge threw an exception, so the purge stops.", e);
+            stop(e);
+            return;
+        }
+
+        task.scanned(fresh);
+
+        if (archive != null && count > 0 && !archive(page, matched, count))
+        {
+            return;
+        }
+
+        for (int i = 0; i < count; i++)
+        {
+            task.offer(matched[i], now);
+        }
+
+        oldest = page.get(page.size() - 1).getIdLong();
+        task.flush();
+
+        if (page.size() < requested || oldest <= minId || scanned >= limit)
+        {
+            exhausted = true;
+            task.close();
+            return;
+        }
+
+        if (journal != null && (++pages >= CHECKPOINT_PAGES || System.nanoTime() - checkpointed >= CHECKPOINT_INTERVAL))
+        {
+            checkpoint();
+        }
+
+        task.whenPendingBelow(MAX_PENDING, this::fetch);
+    }
+
+    private boolean archive(@NotNull List<Message> page, @NotNull long[] matched, int count)
+    {
+        try
+        {
+            int next = 0;
+
+            for (Message message : page)
+            {
+                if (next < count && message.getIdLong() == matched[next])
+                {
+                    archive.write(message);
+                    next++;
+                }
+            }
+
+            // A message may only be deleted, after it is safely stored in the archive.
+            archive.flush();
+            return true;
+        }
+        catch (IOException | RuntimeException e)
+        {
+            logger.error("The messages of the purge could not be written to " + archive.getFile() + ", so the purge stops.", e);
+            stop(e);
+            return false;
+        }
+    }
+
+    private void stop(@NotNull Throwable error)
+    {
+        try
+        {
+            task.fail(error);
+        }
+        finally
+        {
+            task.close();
+        }
+    }
+
+    private void checkpoint()
+    {
+        if (journal == null)
+        {
+            return;
+        }
+
+        pages = 0;
+        checkpointed = System.nanoTime();
+
+        try
+        {
+            journal.write(task.getResumeId(oldest), Math.min(oldest, countedBelow), task.getResult());
+        }
+        catch (IOException e)
+        {
+            logger.error("The checkpoint of the purge could not be written to " + journal.getFile() + ".", e);
+        }
+    }
+
+    private void finish()
+    {
+        if (!exhausted || task.isCancelled())
+        {
+            checkpoint();
+            return;
+        }
+
+        try
+        {
+            journal.delete();
+        }
+        catch (IOException e)
+        {
+            logger.error("The purge journal " + journal.getFile() + " could not be deleted.", e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.purge;
+
+import org.jetbrains.annotations.NotNull;
+
+
+/**
+ * A growable ring buffer of primitive <b>long</b> values, which holds the ids of a lane of a {@link PurgeTask purge task}.
+ * <br>Ids are offered by the history pages and polled by the lanes on different threads, so every method is synchronized.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+final class LongQueue
+{
+    private static final int INITIAL_SIZE = 16;
+
+    private long[] values = new long[INITIAL_SIZE];
+    private int head;
+    private int size;
+
+    synchronized void add(long value)
+    {
+        if (size == values.length)
+        {
+            long[] grown = new long[values.length << 1];
+            int first = values.length - head;
+
+            System.arraycopy(values, head, grown, 0, Math.min(first, size));
+
+            if (first < size)
+            {
+                System.arraycopy(values, 0, grown, first, size - first);
+            }
+
+            values = grown;
+            head = 0;
+        }
+
+        values[(head + size) & (values.length - 1)] = value;
+        size++;
+    }
+
+    /**
+     * Removes up to the specified amount of values from the head of this queue.
+     *
+     * @param target The array, into which the values are copied
+     * @param max    The maximal amount of values, which should be removed
+     * @return The amount of removed values
+     */
+    synchronized int poll(@NotNull long[] target, int max)
+    {
+        int amount = Math.min(max, size);
+
+        for (int i = 0; i < amount; i++)
+        {
+            target[i] = values[head];
+            head = (head + 1) & (values.length - 1);
+        }
+
+        size -= amount;
+        return amount;
+    }
+
+    /**
+     * Removes every value of this queue.
+     *
+     * @return The removed values
+     */
+    @NotNull
+    synchronized long[] clear()
+    {
+        long[] removed = new long[size];
+        poll(removed, size);
+
+        if (values.length > INITIAL_SIZE)
+        {
+            values = new long[INITIAL_SIZE];
+            head = 0;
+        }
+        return removed;
+    }
+
+    synchronized int size()
+    {
+        return size;
+    }
+
+    synchronized boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+}
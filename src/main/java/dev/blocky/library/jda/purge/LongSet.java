@@ -0,0 +1,159 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.purge;
+
+/**
+ * An open addressing hash set of primitive <b>long</b> values, which holds the ids of a {@link PurgeTask purge task}, that are neither
+ * deleted, failed nor cancelled yet.
+ * <br>The set is changed by both lanes and read at every checkpoint, so every method is synchronized. Removed values are deleted by
+ * shifting the following values of their probe sequence back, so no tombstones are left behind.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+final class LongSet
+{
+    private static final int INITIAL_SIZE = 64;
+    private static final long EMPTY = 0;
+
+    private long[] table = new long[INITIAL_SIZE];
+    private int size;
+
+    /**
+     * Adds the specified value to this set.
+     * <br>Discord ids are never <b>0</b>, so this value marks an empty slot and must not be added.
+     *
+     * @param value The value, which should be added
+     */
+    synchronized void add(long value)
+    {
+        if ((size + 1) << 1 > table.length)
+        {
+            resize(table.length << 1);
+        }
+
+        if (insert(table, value))
+        {
+            size++;
+        }
+    }
+
+    synchronized void remove(long value)
+    {
+        int mask = table.length - 1;
+        int slot = slot(value, mask);
+
+        while (table[slot] != value)
+        {
+            if (table[slot] == EMPTY)
+            {
+                return;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        table[slot] = EMPTY;
+        size--;
+
+        // Moves every following value of the cluster, which would no longer be found, into the freed slot.
+        for (int next = (slot + 1) & mask; table[next] != EMPTY; next = (next + 1) & mask)
+        {
+            int home = slot(table[next], mask);
+
+            if (((next - home) & mask) >= ((next - slot) & mask))
+            {
+                table[slot] = table[next];
+                table[next] = EMPTY;
+                slot = next;
+            }
+        }
+
+        if (size == 0 && table.length > INITIAL_SIZE)
+        {
+            table = new long[INITIAL_SIZE];
+        }
+    }
+
+    /**
+     * The largest value of this set.
+     * <br>This scans the whole table, so it should only be called at a checkpoint.
+     *
+     * @param fallback The value, which is returned if this set is empty
+     * @return The largest value or the fallback, if this set is empty
+     */
+    synchronized long max(long fallback)
+    {
+        long max = fallback;
+        boolean found = false;
+
+        for (long value : table)
+        {
+            if (value != EMPTY && (!found || value > max))
+            {
+                max = value;
+                found = true;
+            }
+        }
+        return max;
+    }
+
+    synchronized int size()
+    {
+        return size;
+    }
+
+    private void resize(int length)
+    {
+        long[] resized = new long[length];
+
+        for (long value : table)
+        {
+            if (value != EMPTY)
+            {
+                insert(resized, value);
+            }
+        }
+
+        table = resized;
+    }
+
+    private static boolean insert(long[] table, long value)
+    {
+        int mask = table.length - 1;
+        int slot = slot(value, mask);
+
+        while (table[slot] != EMPTY)
+        {
+            if (table[slot] == value)
+            {
+                return false;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        table[slot] = value;
+        return true;
+    }
+
+    private static int slot(long value, int mask)
+    {
+        long hash = value * 0x9e3779b97f4a7c15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
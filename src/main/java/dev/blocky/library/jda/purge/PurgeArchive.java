@@ -0,0 +1,217 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.purge;
+
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.utils.data.DataArray;
+import net.dv8tion.jda.api.utils.data.DataObject;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A gzip-compressed NDJSON file, into which a purge writes every message, before it is deleted.
+ * <br>Every message is written as one JSON object per line, which contains the id, the channel, the author, the timestamps, the
+ * raw content and the urls of the attachments of the message. The messages are streamed into the file page by page and a page is
+ * only deleted, after it was flushed to the file and the file was synced to the disk, so the archive holds every deleted message,
+ * even if the purge is interrupted or the machine crashes.
+ * <br>Only a small, fixed-size buffer is held in memory, so archiving a channel needs the same amount of memory, regardless of how
+ * many messages it has.
+ * <br>The archive is not closed by the purge, so it should be {@link #close() closed}, as soon as the purge is done.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+public final class PurgeArchive implements Closeable
+{
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final byte NEW_LINE = '\n';
+
+    private final Path file;
+    private final FileChannel channel;
+    private final OutputStream out;
+
+    private long count;
+    private boolean closed;
+
+    private PurgeArchive(@NotNull Path file, @NotNull FileChannel channel, @NotNull OutputStream out)
+    {
+        this.file = file;
+        this.channel = channel;
+        this.out = out;
+    }
+
+    /**
+     * Creates a new archive in the specified file.
+     * <br>If the file already exists, it will be overwritten.
+     *
+     * @param file The file, in which the archive should be stored
+     * @return A <b>new</b> {@link PurgeArchive purge archive}
+     * @throws IOException If the file could not be created
+     */
+    @NotNull
+    public static PurgeArchive open(@NotNull Path file) throws IOException
+    {
+        return open(file, false);
+    }
+
+    /**
+     * Opens an archive in the specified file.
+     * <br>If the archive is appended to an existing archive, the file consists of several gzip members, which are read as one
+     * stream by every gzip reader, so e.g. a {@link PurgeEngine#purgeResumable(net.dv8tion.jda.api.entities.MessageChannel, PurgeFilter, Path,
+     * java.util.function.Consumer) resumed purge} can keep its archive.
+     *
+     * @param file   The file, in which the archive should be stored
+     * @param append <b>true -</b> If the messages should be appended to the file <br><b>false -</b> If the file should be overwritten
+     * @return A <b>new</b> {@link PurgeArchive purge archive}
+     * @throws IOException If the file could not be opened
+     */
+    @NotNull
+    public static PurgeArchive open(@NotNull Path file, boolean append) throws IOException
+    {
+        FileChannel channel = append
+                ? FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)
+                : FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        try
+        {
+            // The gzip stream is flushed with SYNC_FLUSH, so every flushed page can be decompressed, even if the archive is never closed.
+            OutputStream stream = new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE, true);
+            return new PurgeArchive(file, channel, new BufferedOutputStream(stream, BUFFER_SIZE));
+        }
+        catch (IOException e)
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the specified message to the buffer of this archive.
+     *
+     * @param message The {@link Message message}, which should be archived
+     * @throws IOException If the buffer could not be written to the file
+     */
+    public synchronized void write(@NotNull Message message) throws IOException
+    {
+        if (closed)
+        {
+            throw new IOException("The purge archive is already closed.");
+        }
+
+        List<String> attachments = new ArrayList<>(message.getAttachments().size());
+
+        for (Message.Attachment attachment : message.getAttachments())
+        {
+            attachments.add(attachment.getUrl());
+        }
+
+        DataObject line = DataObject.empty()
+                .put("id", message.getId())
+                .put("channel_id", message.getChannel().getId())
+                .put("author_id", message.getAuthor().getId())
+                .put("author", message.getAuthor().getAsTag())
+                .put("timestamp", message.getTimeCreated().toString())
+                .put("edited_timestamp", message.getTimeEdited() == null ? null : message.getTimeEdited().toString())
+                .put("content", message.getContentRaw())
+                .put("attachments", DataArray.fromCollection(attachments));
+
+        out.write(line.toJson());
+        out.write(NEW_LINE);
+        count++;
+    }
+
+    /**
+     * Writes every buffered message to the file and syncs the file to the disk.
+     * <br>The messages are only safe from a crash of the machine, after they were synced, so a purge calls this, before it deletes them.
+     *
+     * @throws IOException If the file could not be written or synced
+     */
+    public synchronized void flush() throws IOException
+    {
+        if (!closed)
+        {
+            out.flush();
+            channel.force(true);
+        }
+    }
+
+    /**
+     * The amount of messages, which were written to this archive.
+     *
+     * @return The amount of archived messages
+     */
+    public synchronized long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * The file, in which the archive is stored.
+     *
+     * @return The {@link Path path} of the archive
+     */
+    @NotNull
+    public Path getFile()
+    {
+        return file;
+    }
+
+    /**
+     * Writes every buffered message and the gzip trailer to the file and closes it.
+     *
+     * @throws IOException If the file could not be written
+     */
+    @Override
+    public synchronized void close() throws IOException
+    {
+        if (closed)
+        {
+            return;
+        }
+
+        closed = true;
+
+        try
+        {
+            out.close();
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PurgeArchive{" +
+                "file=" + file +
+                ", count=" + getCount() +
+                '}';
+    }
+}
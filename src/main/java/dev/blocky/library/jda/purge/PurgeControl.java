@@ -0,0 +1,75 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.purge;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A running purge, which is controlled by a {@link PurgeHandle purge handle}.
+ * <br>This is either the purge of a single channel or the purge of several channels at the same time.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+interface PurgeControl
+{
+    /**
+     * The current tally of the purge, which is the sum of all channels, if several channels are purged.
+     *
+     * @return The current {@link PurgeResult tally}
+     */
+    @NotNull
+    PurgeResult getResult();
+
+    /**
+     * The current tallies of the purge, mapped by the id of the channel.
+     *
+     * @return The current {@link PurgeReport report}
+     */
+    @NotNull
+    PurgeReport getReport();
+
+    /**
+     * The time, at which the purge was started.
+     *
+     * @return The value of {@link System#nanoTime()} at the start of the purge
+     */
+    long getStarted();
+
+    /**
+     * The amount of messages, which were deleted by an interrupted purge, before this purge resumed it.
+     *
+     * @return The amount of restored deleted messages
+     */
+    int getRestored();
+
+    /**
+     * Checks if every message, which should be deleted, is known.
+     *
+     * @return <b>true -</b> If no more messages are added to the purge <br><b>false -</b> If the history is still scanned
+     */
+    boolean isClosed();
+
+    boolean cancel();
+
+    boolean isCancelled();
+
+    @NotNull
+    CompletableFuture<PurgeResult> getFuture();
+}
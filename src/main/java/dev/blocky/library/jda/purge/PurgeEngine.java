@@ -0,0 +1,435 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.purge;
+
+import dev.blocky.library.jda.cache.MessageStore;
+import dev.blocky.library.jda.history.HistoryPlanner;
+import net.dv8tion.jda.api.entities.GuildMessageChannel;
+import net.dv8tion.jda.api.entities.ISnowflake;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageChannel;
+import net.dv8tion.jda.api.utils.TimeUtil;
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import javax.annotation.CheckReturnValue;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Deletes messages with as few REST requests as Discord allows.
+ * <br>The messages are partitioned by the timestamp of their snowflake id. Messages of a
+ * {@link GuildMessageChannel guild message channel}, which are younger than two weeks, are deleted by bulk delete requests
+ * with up to {@value #BULK_DELETE_LIMIT} messages each. All other messages are deleted one by one by a queue, which only keeps a
+ * single request in flight, so the queue is paced by the rate limit of the route instead of flooding the requester.
+ * <br>Both lanes run at the same time, because Discord rate limits them independently.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+public final class PurgeEngine
+{
+    /**
+     * The maximum amount of messages of a single bulk delete request.
+     */
+    public static final int BULK_DELETE_LIMIT = 100;
+
+    /**
+     * The maximum age of a message in milliseconds, which can still be deleted by a bulk delete request.
+     * <br>This is ten minutes below the limit of Discord, so a message does not become too old while the purge is running.
+     */
+    public static final long BULK_DELETE_AGE = TimeUnit.DAYS.toMillis(14) - TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * The default maximum amount of channels, which are purged at the same time by {@link #purgeChannels(Collection, PurgeFilter, int, Consumer)
+     * PurgeEngine#purgeChannels(Collection, PurgeFilter, int, Consumer)}.
+     */
+    public static final int DEFAULT_PARALLELISM = 8;
+
+    private static final Logger logger = JDALogger.getLog(PurgeEngine.class);
+
+    private PurgeEngine()
+    {
+    }
+
+    /**
+     * Deletes the specified messages.
+     *
+     * @param channel  The {@link MessageChannel message channel}, which contains the messages
+     * @param messages The messages, which should be deleted
+     * @return A {@link PurgeHandle handle}, which observes and controls the purge
+     */
+    @NotNull
+    @CheckReturnValue
+    public static PurgeHandle purge(@NotNull MessageChannel channel, @NotNull Collection<? extends ISnowflake> messages)
+    {
+        return purge(channel, messages, null);
+    }
+
+    /**
+     * Deletes the specified messages.
+     *
+     * @param channel  The {@link MessageChannel message channel}, which contains the messages
+     * @param messages The messages, which should be deleted
+     * @param progress The listener, which is called with the current {@link PurgeResult tally} after every request (can be <b>null</b>)
+     * @return A {@link PurgeHandle handle}, which observes and controls the purge
+     */
+    @NotNull
+    @CheckReturnValue
+    public static PurgeHandle purge(@NotNull MessageChannel channel, @NotNull Collection<? extends ISnowflake> messages,
+                                    @Nullable Consumer<? super PurgeResult> progress)
+    {
+        long[] ids = new long[messages.size()];
+        int size = 0;
+
+        for (ISnowflake message : messages)
+        {
+            ids[size++] = message.getIdLong();
+        }
+        return purgeByIds(channel, size == ids.length ? ids : Arrays.copyOf(ids, size), progress);
+    }
+
+    /**
+     * Deletes the messages with the specified ids.
+     *
+     * @param channel  The {@link MessageChannel message channel}, which contains the messages
+     * @param ids      The ids of the messages, which should be deleted
+     * @param progress The listener, which is called with the current {@link PurgeResult tally} after every request (can be <b>null</b>)
+     * @return A {@link PurgeHandle handle}, which observes and controls the purge
+     */
+    @NotNull
+    @CheckReturnValue
+    public static PurgeHandle purgeByIds(@NotNull MessageChannel channel, @NotNull long[] ids, @Nullable Consumer<? super PurgeResult> progress)
+    {
+        long[] sorted = ids.clone();
+        Arrays.sort(sorted);
+
+        int distinct = 0;
+
+        for (int i = 0; i < sorted.length; i++)
+        {
+            if (i == 0 || sorted[i] != sorted[i - 1])
+            {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+
+        PurgeTask task = new PurgeTask(channel, progress);
+        long now = System.currentTimeMillis();
+
+        // Newest messages first, so the bulk lane reaches the messages near the age limit last.
+        for (int i = distinct - 1; i >= 0; i--)
+        {
+            task.offer(sorted[i], now);
+        }
+
+        task.close();
+        return new PurgeHandle(task);
+    }
+
+    /**
+     * Deletes every message of the history of the specified channel, which matches the specified filter.
+     * <br>The history is streamed page by page, so the next page is fetched while the previous pages are deleted. Only the ids of
+     * at most {@value HistoryPurge#MAX_PENDING} messages, which are waiting for their deletion, are held at once, so the memory
+     * and the time until the first message is deleted do not depend on the size of the channel.
+     *
+     * @param channel  The {@link MessageChannel message channel}, which should be purged
+     * @param filter   The filter, which decides, if a message should be deleted (if <b>filter</b> equals <b>null</b>, every message will be deleted)
+     * @param progress The listener, which is called with the current {@link PurgeResult tally} after every request (can be <b>null</b>)
+     * @return A {@link PurgeHandle handle}, which observes and controls the purge
+     */
+    @NotNull
+    @CheckReturnValue
+    public static PurgeHandle purgeHistory(@NotNull MessageChannel channel, @Nullable Predicate<? super Message> filter,
+                                           @Nullable Consumer<? super PurgeResult> progress)
+    {
+        return purgeRange(channel, 0, Long.MAX_VALUE, filter, progress);
+    }
+
+    /**
+     * Deletes every message of the specified channel, which is accepted by the specified {@link PurgeFilter purge filter}.
+     * <br>If the filter has a time window, only the pages of the history, which overlap the time window, are fetched.
+     *
+     * @param channel  The {@link MessageChannel message channel}, which should be purged
+     * @param filter   The {@link PurgeFilter purge filter}, which describes the messages, which should be deleted
+     * @param progress The listener, which is called with the current {@link PurgeResult tally} after every request (can be <b>null</b>)
+     * @return A {@link PurgeHandle handle}, which observes and controls the purge
+     */
+    @NotNull
+    @CheckReturnValue
+    public static PurgeHandle purgeMatching(@NotNull MessageChannel channel, @NotNull PurgeFilter filter,
+                                            @Nullable Consumer<? super PurgeResult> progress)
+    {
+        return purgeRange(channel, filter.getMinId(), filter.getMaxId(), filter.compile(), progress);
+    }
+
+    /**
+     * Deletes every message of the specified channel, which is held by the specified {@link MessageStore message store} and accepted
+     * by the specified {@link PurgeFilter purge filter}.
+     * <br>The filter is checked against the records of the store, so no page of the history is fetched and only the delete requests
+     * are sent. Messages, which are not held by the store, are not deleted.
+     *
+     * @param channel  The {@link MessageChannel message channel}, which should be purged
+     * @param filter   The {@link PurgeFilter purge filter}, which describes the messages, which should be deleted
+     * @param store    The {@link MessageStore message store}, which holds the history of the channel
+     * @param progress The listener, which is called with the current {@link PurgeResult tally} after every request (can be <b>null</b>)
+     * @return A {@link PurgeHandle handle}, which observes and controls the purge
+     */
+    @NotNull
+    @CheckReturnValue
+    public static PurgeHandle purgeStored(@NotNull MessageChannel channel, @NotNull PurgeFilter filter, @NotNull MessageStore store,
+                                          @Nullable Consumer<? super PurgeResult> progress)
+    {
+        return purgeByIds(channel, store.select(channel.getIdLong(), filter.compileStored()), progress);
+    }
+
+    /**
+     * Deletes every message of the specified channel, which is accepted by the specified {@link PurgeFilter purge filter}, after it
+     * was written to the specified {@link PurgeArchive archive}.
+     * <br>The matching messages of every page are written to the archive and the archive is flushed, before any of them is deleted,
+     * so the archive holds every deleted message. If the archive could not be written, the purge stops with a failure.
+     * <br>The archive is not closed by the purge, so it should be closed, as soon as the {@link PurgeHandle#getFuture() future} of the
+     * purge is completed.
+     *
+     * @param channel  The {@link MessageChannel message channel}, which should be purged
+     * @param filter   The {@link PurgeFilter purge filter}, which describes the messages, which should be deleted
+     * @param archive  The {@link PurgeArchive archive}, to which every deleted message should be written
+     * @param progress The listener, which is called with the current {@link PurgeResult tally} after every request (can be <b>null</b>)
+     * @return A {@link PurgeHandle handle}, which observes and controls the purge
+     */
+    @NotNull
+    @CheckReturnValue
+    public static PurgeHandle purgeArchived(@NotNull MessageChannel channel, @NotNull PurgeFilter filter, @NotNull PurgeArchive archive,
+                                            @Nullable Consumer<? super PurgeResult> progress)
+    {
+        long minId = Math.max(filter.getMinId(), 0);
+        long maxId = filter.getMaxId();
+
+        PurgeTask task = new PurgeTask(channel, progress);
+
+        if (minId >= maxId)
+        {
+            logger.error("The lower bound of the range, which you are specifying, must be smaller than the upper bound.",
+                    new IllegalArgumentException());
+
+            task.close();
+            return new PurgeHandle(task);
+        }
+
+        new HistoryPurge(channel, filter.compile(), task, minId, maxId, Integer.MAX_VALUE, null, archive).start();
+        return new PurgeHandle(task);
+    }
+
+    /**
+     * Deletes every message of the specified channel, which is accepted by the specified {@link PurgeFilter purge filter}, and
+     * writes a checkpoint to the specified journal file every few pages of the history.
+     * <br>A checkpoint holds the id, below which the history still needs to be scanned, and the counters of the purge. If the journal
+     * already holds a checkpoint of the same channel and the same filter criteria, the purge is resumed from this checkpoint, so a purge,
+     * which was interrupted by a crash, a restart or {@link PurgeHandle#cancel()}, does not repeat any successful request. Messages,
+     * which could not be deleted before the interruption, are scanned and tried again, so they are only counted by the resumed purge.
+     * Messages, which were deleted after the last checkpoint, are gone from the history, so the result of the resumed purge does not
+     * count them. The journal is deleted, as soon as the whole history was purged.
+     *
+     * @param channel  The {@link MessageChannel message channel}, which should be purged
+     * @param filter   The {@link PurgeFilter purge filter}, which describes the messages, which should be deleted
+     * @param journal  The path of the journal file
+     * @param progress The listener, which is called with the current {@link PurgeResult tally} after every request (can be <b>null</b>)
+     * @return A {@link PurgeHandle handle}, which observes and controls the purge
+     */
+    @NotNull
+    @CheckReturnValue
+    public static PurgeHandle purgeResumable(@NotNull MessageChannel channel, @NotNull PurgeFilter filter, @NotNull Path journal,
+                                             @Nullable Consumer<? super PurgeResult> progress)
+    {
+        return purgeResumable(channel, filter, journal, null, progress);
+    }
+
+    /**
+     * Deletes every message of the specified channel, which is accepted by the specified {@link PurgeFilter purge filter}, writes
+     * every message to the specified {@link PurgeArchive archive}, before it is deleted, and writes a checkpoint to the specified
+     * journal file every few pages of the history.
+     * <br>A resumed purge may write the messages of the pages since the last checkpoint to the archive again, so the archive
+     * should be {@link PurgeArchive#open(Path, boolean) opened} in append mode and may contain a message twice, but never misses one.
+     *
+     * @param channel  The {@link MessageChannel message channel}, which should be purged
+     * @param filter   The {@link PurgeFilter purge filter}, which describes the messages, which should be deleted
+     * @param journal  The path of the journal file
+     * @param archive  The {@link PurgeArchive archive}, to which every deleted message should be written (can be <b>null</b>)
+     * @param progress The listener, which is called with the current {@link PurgeResult tally} after every request (can be <b>null</b>)
+     * @return A {@link PurgeHandle handle}, which observes and controls the purge
+     */
+    @NotNull
+    @CheckReturnValue
+    public static PurgeHandle purgeResumable(@NotNull MessageChannel channel, @NotNull PurgeFilter filter, @NotNull Path journal,
+                                             @Nullable PurgeArchive archive, @Nullable Consumer<? super PurgeResult> progress)
+    {
+        long minId = Math.max(filter.getMinId(), 0);
+        long maxId = filter.getMaxId();
+
+        PurgeTask task = new PurgeTask(channel, progress);
+
+        if (minId >= maxId)
+        {
+            logger.error("The lower bound of the range, which you are specifying, must be smaller than the upper bound.",
+                    new IllegalArgumentException());
+
+            task.close();
+            return new PurgeHandle(task);
+        }
+
+        PurgeJournal checkpoint = new PurgeJournal(journal, channel.getIdLong(), minId, maxId, filter.fingerprint());
+
+        try
+        {
+            if (checkpoint.load())
+            {
+                task.restore(checkpoint.getCounters());
+            }
+        }
+        catch (IOException e)
+        {
+            logger.error("The purge journal " + journal + " could not be read, so the purge starts from the top.", e);
+        }
+
+        new HistoryPurge(channel, filter.compile(), task, minId, checkpoint.getCursor(), Integer.MAX_VALUE, checkpoint, archive).start();
+        return new PurgeHandle(task);
+    }
+
+    /**
+     * Deletes every message of the specified channel, which was created in the specified time window and is accepted by the specified filter.
+     *
+     * @param channel  The {@link MessageChannel message channel}, which should be purged
+     * @param after    The time, after which the messages were created (if <b>after</b> equals <b>null</b>, there is no lower bound)
+     * @param before   The time, before which the messages were created (if <b>before</b> equals <b>null</b>, there is no upper bound)
+     * @param filter   The filter, which decides, if a message should be deleted (if <b>filter</b> equals <b>null</b>, every message will be deleted)
+     * @param progress The listener, which is called with the current {@link PurgeResult tally} after every request (can be <b>null</b>)
+     * @return A {@link PurgeHandle handle}, which observes and controls the purge
+     */
+    @NotNull
+    @CheckReturnValue
+    public static PurgeHandle purgeBetween(@NotNull MessageChannel channel, @Nullable OffsetDateTime after, @Nullable OffsetDateTime before,
+                                           @Nullable Predicate<? super Message> filter, @Nullable Consumer<? super PurgeResult> progress)
+    {
+        return purgeRange(channel, HistoryPlanner.toMinId(after), HistoryPlanner.toMaxId(before), filter, progress);
+    }
+
+    /**
+     * Deletes every message of the specified channel, whose id is in the specified range and which is accepted by the specified filter.
+     * <br>The ids do not need to belong to existing messages, so every snowflake, e.g. one of {@link TimeUtil#getDiscordTimestamp(long)
+     * TimeUtil#getDiscordTimestamp(long)}, can be used as a bound. The history is only fetched from the upper bound down to the lower bound,
+     * so a purge of a small range costs only a few history requests, regardless of how many messages are newer than the range.
+     *
+     * @param channel  The {@link MessageChannel message channel}, which should be purged
+     * @param minId    The smallest id, which should be deleted
+     * @param maxId    The id, below which every deleted id is (use {@link Long#MAX_VALUE Long#MAX_VALUE} for no upper bound)
+     * @param filter   The filter, which decides, if a message should be deleted (if <b>filter</b> equals <b>null</b>, every message will be deleted)
+     * @param progress The listener, which is called with the current {@link PurgeResult tally} after every request (can be <b>null</b>)
+     * @return A {@link PurgeHandle handle}, which observes and controls the purge
+     */
+    @NotNull
+    @CheckReturnValue
+    public static PurgeHandle purgeRange(@NotNull MessageChannel channel, long minId, long maxId,
+                                         @Nullable Predicate<? super Message> filter, @Nullable Consumer<? super PurgeResult> progress)
+    {
+        PurgeTask task = new PurgeTask(channel, progress);
+
+        if (minId >= maxId)
+        {
+            logger.error("The lower bound of the range, which you are specifying, must be smaller than the upper bound.",
+                    new IllegalArgumentException());
+
+            task.close();
+            return new PurgeHandle(task);
+        }
+
+        new HistoryPurge(channel, filter, task, Math.max(minId, 0), maxId, Integer.MAX_VALUE).start();
+        return new PurgeHandle(task);
+    }
+
+    /**
+     * Deletes every message of the newest <b>limit</b> messages of the specified channel, which is accepted by the specified filter.
+     * <br>Every history request is sized to the amount of messages, which is still needed, so e.g. only <b>3</b> messages are fetched,
+     * if the limit is <b>3</b>.
+     *
+     * @param channel  The {@link MessageChannel message channel}, which should be purged
+     * @param limit    The amount of messages, which should be checked (at least one message is checked)
+     * @param filter   The filter, which decides, if a message should be deleted (if <b>filter</b> equals <b>null</b>, every message will be deleted)
+     * @param progress The listener, which is called with the current {@link PurgeResult tally} after every request (can be <b>null</b>)
+     * @return A {@link PurgeHandle handle}, which observes and controls the purge
+     */
+    @NotNull
+    @CheckReturnValue
+    public static PurgeHandle purgeLatest(@NotNull MessageChannel channel, int limit, @Nullable Predicate<? super Message> filter,
+                                          @Nullable Consumer<? super PurgeResult> progress)
+    {
+        PurgeTask task = new PurgeTask(channel, progress);
+        new HistoryPurge(channel, filter, task, 0, Long.MAX_VALUE, Math.max(limit, 1)).start();
+        return new PurgeHandle(task);
+    }
+
+    /**
+     * Deletes every message of the specified channels, which is accepted by the specified {@link PurgeFilter purge filter}.
+     * <br>The channels are purged at the same time, but never more than <b>parallelism</b> channels at once. Every channel keeps at most
+     * one request per rate limit bucket in flight, so a purge of many channels takes about as long as the purge of the slowest channel,
+     * as long as the cap is not reached.
+     *
+     * @param channels    The {@link MessageChannel message channels}, which should be purged
+     * @param filter      The {@link PurgeFilter purge filter}, which describes the messages, which should be deleted
+     * @param parallelism The maximum amount of channels, which are purged at the same time
+     *                    (if <b>parallelism</b> is less than 1, there will be used a default of {@value #DEFAULT_PARALLELISM})
+     * @param progress    The listener, which is called with the current {@link PurgeReport report} after every request (can be <b>null</b>)
+     * @return A {@link PurgeHandle purge handle}, which exposes the sums of all channels and can cancel every channel
+     */
+    @NotNull
+    @CheckReturnValue
+    public static PurgeHandle purgeChannels(@NotNull Collection<? extends MessageChannel> channels, @NotNull PurgeFilter filter, int parallelism,
+                                            @Nullable Consumer<? super PurgeReport> progress)
+    {
+        ChannelsPurge purge = new ChannelsPurge(new ArrayList<>(channels), filter.getMinId(), filter.getMaxId(), filter.compile(), progress);
+        purge.start(parallelism < 1 ? DEFAULT_PARALLELISM : parallelism);
+        return new PurgeHandle(purge);
+    }
+
+    /**
+     * Checks if the message with the specified id can be deleted by a bulk delete request.
+     *
+     * @param channel The {@link MessageChannel message channel}, which contains the message
+     * @param id      The id of the message
+     * @param now     The current time in milliseconds since the unix epoch
+     * @return <b>true -</b> If the message is in a {@link GuildMessageChannel guild message channel} and younger than
+     * {@link #BULK_DELETE_AGE PurgeEngine#BULK_DELETE_AGE} <br><b>false -</b> If the message must be deleted on its own
+     */
+    public static boolean isBulkDeletable(@NotNull MessageChannel channel, long id, long now)
+    {
+        return channel instanceof GuildMessageChannel && isYoungerThan(id, now - BULK_DELETE_AGE);
+    }
+
+    static boolean isYoungerThan(long id, long millis)
+    {
+        return id >= TimeUtil.getDiscordTimestamp(millis);
+    }
+}
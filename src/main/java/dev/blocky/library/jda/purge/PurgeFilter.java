@@ -0,0 +1,319 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.purge;
+
+import dev.blocky.library.jda.cache.MessageRecord;
+import dev.blocky.library.jda.enums.SafetyClear;
+import dev.blocky.library.jda.history.HistoryPlanner;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.UserSnowflake;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.annotation.CheckReturnValue;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Describes, which messages should be deleted by a purge.
+ * <br>Unlike a single {@link SafetyClear safety clear} option, the criteria of a filter can be combined, so e.g. pinned and webhook
+ * messages can be skipped, while edited messages are still deleted. A filter is {@link #compile() compiled} once into a predicate,
+ * which is reused for every message of a purge.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+public final class PurgeFilter
+{
+    static final int PINNED = 1;
+    static final int WEBHOOK = 1 << 1;
+    static final int EDITED = 1 << 2;
+
+    private final EnumSet<SafetyClear> skipped = EnumSet.noneOf(SafetyClear.class);
+    private boolean guildOnly;
+    private long[] authors;
+    private OffsetDateTime after;
+    private OffsetDateTime before;
+    private Pattern pattern;
+    private Boolean attachments;
+
+    private PurgeFilter()
+    {
+    }
+
+    /**
+     * Creates a <b>new</b> {@link PurgeFilter purge filter}, which accepts every message.
+     *
+     * @return A <b>new</b> {@link PurgeFilter purge filter}
+     */
+    @NotNull
+    @CheckReturnValue
+    public static PurgeFilter create()
+    {
+        return new PurgeFilter();
+    }
+
+    /**
+     * Creates a <b>new</b> {@link PurgeFilter purge filter}, which behaves like the specified {@link SafetyClear safety clear} option.
+     * (if <b>clear</b> equals null, the {@link SafetyClear safety clear} enum will be set to {@link SafetyClear#NONE SafetyClear#NONE}).
+     * <br>{@link SafetyClear#NONE SafetyClear#NONE} only accepts messages of a guild and every other option skips the messages, it describes.
+     *
+     * @param clear The {@link SafetyClear safety clear} option, which helps for specifying different message types, which will not be deleted
+     * @return A <b>new</b> {@link PurgeFilter purge filter}
+     */
+    @NotNull
+    @CheckReturnValue
+    public static PurgeFilter of(@Nullable SafetyClear clear)
+    {
+        PurgeFilter filter = new PurgeFilter();
+
+        if (clear == null || clear == SafetyClear.NONE)
+        {
+            return filter.fromGuild();
+        }
+        return filter.skip(clear);
+    }
+
+    /**
+     * Skips all messages, which are described by the specified {@link SafetyClear safety clear} options.
+     * <br>{@link SafetyClear#ALL SafetyClear#ALL} skips pinned, webhook and edited messages and {@link SafetyClear#NONE SafetyClear#NONE}
+     * does not skip anything.
+     *
+     * @param clear The {@link SafetyClear safety clear} options, which describe the messages, which will not be deleted
+     * @return The current {@link PurgeFilter purge filter}
+     */
+    @NotNull
+    public PurgeFilter skip(@NotNull SafetyClear... clear)
+    {
+        for (SafetyClear option : clear)
+        {
+            if (option == SafetyClear.ALL)
+            {
+                skipped.add(SafetyClear.PINNED_MESSAGES);
+                skipped.add(SafetyClear.WEBHOOK_MESSAGES);
+                skipped.add(SafetyClear.EDITED_MESSAGES);
+            }
+            else if (option != SafetyClear.NONE)
+            {
+                skipped.add(option);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Only accepts messages, which were sent in a guild.
+     *
+     * @return The current {@link PurgeFilter purge filter}
+     */
+    @NotNull
+    public PurgeFilter fromGuild()
+    {
+        guildOnly = true;
+        return this;
+    }
+
+    /**
+     * Only accepts messages, which were sent by one of the specified users.
+     * <br>Calling this method again replaces the previous users.
+     *
+     * @param users The users, whose messages should be deleted
+     * @return The current {@link PurgeFilter purge filter}
+     */
+    @NotNull
+    public PurgeFilter fromAuthors(@NotNull UserSnowflake... users)
+    {
+        long[] ids = new long[users.length];
+
+        for (int i = 0; i < users.length; i++)
+        {
+            ids[i] = users[i].getIdLong();
+        }
+        return fromAuthors(ids);
+    }
+
+    /**
+     * Only accepts messages, which were sent by one of the users with the specified ids.
+     * <br>Calling this method again replaces the previous users.
+     *
+     * @param userIds The ids of the users, whose messages should be deleted
+     * @return The current {@link PurgeFilter purge filter}
+     */
+    @NotNull
+    public PurgeFilter fromAuthors(@NotNull long... userIds)
+    {
+        authors = userIds.clone();
+        Arrays.sort(authors);
+        return this;
+    }
+
+    /**
+     * Only accepts messages, which were created in the specified time window.
+     *
+     * @param after  The time, after which the messages were created (can be <b>null</b>)
+     * @param before The time, before which the messages were created (can be <b>null</b>)
+     * @return The current {@link PurgeFilter purge filter}
+     */
+    @NotNull
+    public PurgeFilter between(@Nullable OffsetDateTime after, @Nullable OffsetDateTime before)
+    {
+        this.after = after;
+        this.before = before;
+        return this;
+    }
+
+    /**
+     * Only accepts messages, whose raw content contains a match of the specified regular expression.
+     *
+     * @param regex The regular expression (if <b>regex</b> equals <b>null</b>, the content will not be checked)
+     * @return The current {@link PurgeFilter purge filter}
+     */
+    @NotNull
+    public PurgeFilter matching(@Nullable Pattern regex)
+    {
+        pattern = regex;
+        return this;
+    }
+
+    /**
+     * Only accepts messages, which have or do not have attachments.
+     *
+     * @param attachments <b>true</b>, if only messages with attachments, <b>false</b>, if only messages without attachments or <b>null</b>,
+     *                    if every message should be accepted
+     * @return The current {@link PurgeFilter purge filter}
+     */
+    @NotNull
+    public PurgeFilter withAttachments(@Nullable Boolean attachments)
+    {
+        this.attachments = attachments;
+        return this;
+    }
+
+    /**
+     * Compiles this filter into a predicate.
+     * <br>The time window is compiled into a range of snowflake ids and the skipped message types into a bit mask, so the predicate
+     * neither allocates nor evaluates criteria, which are not set. Later changes to this filter do not affect the returned predicate.
+     *
+     * @return The predicate, which accepts every message, that should be deleted
+     */
+    @NotNull
+    @CheckReturnValue
+    public Predicate<Message> compile()
+    {
+        int attachmentMode = attachments == null ? CompiledFilter.ANY : attachments ? CompiledFilter.PRESENT : CompiledFilter.ABSENT;
+
+        return CompiledFilter.create(getMinId(), getMaxId(), getMask(), guildOnly, authors == null ? null : authors.clone(), pattern, attachmentMode);
+    }
+
+    /**
+     * Compiles this filter into a predicate for the {@link MessageRecord records} of a {@link dev.blocky.library.jda.cache.MessageStore
+     * message store}, so a purge can be planned without fetching the history.
+     * <br>If the content of a record was already evicted from the store, a {@link #matching(Pattern) regular expression} never matches,
+     * so such a message is never deleted. Later changes to this filter do not affect the returned predicate.
+     *
+     * @return The predicate, which accepts every record, whose message should be deleted
+     */
+    @NotNull
+    @CheckReturnValue
+    public Predicate<MessageRecord> compileStored()
+    {
+        int attachmentMode = attachments == null ? CompiledFilter.ANY : attachments ? CompiledFilter.PRESENT : CompiledFilter.ABSENT;
+
+        return CompiledFilter.createStored(getMinId(), getMaxId(), getMask(), guildOnly, authors == null ? null : authors.clone(), pattern,
+                attachmentMode);
+    }
+
+    /**
+     * The smallest id, which is accepted by the time window of this filter.
+     *
+     * @return The smallest accepted id
+     */
+    long getMinId()
+    {
+        return HistoryPlanner.toMinId(after);
+    }
+
+    /**
+     * The id, below which every id is, that is accepted by the time window of this filter.
+     *
+     * @return The exclusive upper bound of the accepted ids
+     */
+    long getMaxId()
+    {
+        return HistoryPlanner.toMaxId(before);
+    }
+
+    /**
+     * A 64-bit fingerprint of the criteria of this filter, which stays the same across restarts, so a checkpoint of a purge can only
+     * be resumed by a purge with the same criteria.
+     *
+     * @return The fingerprint of the criteria
+     */
+    long fingerprint()
+    {
+        String criteria = skipped + "|" + guildOnly + "|" + Arrays.toString(authors) + "|" + getMinId() + "|" + getMaxId() + "|"
+                + (pattern == null ? "" : pattern.flags() + "/" + pattern.pattern()) + "|" + attachments;
+
+        // FNV-1a, because String#hashCode only has 32 bits.
+        long hash = 0xcbf29ce484222325L;
+
+        for (int i = 0; i < criteria.length(); i++)
+        {
+            hash ^= criteria.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private int getMask()
+    {
+        int mask = 0;
+
+        if (skipped.contains(SafetyClear.PINNED_MESSAGES))
+        {
+            mask |= PINNED;
+        }
+
+        if (skipped.contains(SafetyClear.WEBHOOK_MESSAGES))
+        {
+            mask |= WEBHOOK;
+        }
+
+        if (skipped.contains(SafetyClear.EDITED_MESSAGES))
+        {
+            mask |= EDITED;
+        }
+        return mask;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PurgeFilter{" +
+                "skipped=" + skipped +
+                ", guildOnly=" + guildOnly +
+                ", authors=" + Arrays.toString(authors) +
+                ", after=" + after +
+                ", before=" + before +
+                ", pattern=" + pattern +
+                ", attachments=" + attachments +
+                '}';
+    }
+}
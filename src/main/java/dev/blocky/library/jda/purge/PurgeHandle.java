@@ -0,0 +1,208 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.purge;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A handle of a purge, which is still running or already done.
+ * <br>The handle exposes live counters of the purge and can stop it, so long-running purges of big channels can be observed and
+ * cancelled without shutting down the bot. If several channels are purged at the same time, the counters are the sums of all
+ * channels and {@link #cancel()} stops every channel.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+public final class PurgeHandle
+{
+    private final PurgeControl control;
+
+    PurgeHandle(@NotNull PurgeControl control)
+    {
+        this.control = control;
+    }
+
+    /**
+     * The amount of messages, which were checked by the filter of the purge so far.
+     *
+     * @return The amount of scanned messages
+     */
+    public int getScanned()
+    {
+        return getResult().getScanned();
+    }
+
+    /**
+     * The amount of messages, which were accepted by the filter of the purge so far.
+     *
+     * @return The amount of matched messages
+     */
+    public int getMatched()
+    {
+        return getResult().getTotal();
+    }
+
+    /**
+     * The amount of messages, which were deleted so far.
+     *
+     * @return The amount of deleted messages
+     */
+    public int getDeleted()
+    {
+        return getResult().getDeleted();
+    }
+
+    /**
+     * The amount of messages, which could not be deleted.
+     *
+     * @return The amount of failed messages
+     */
+    public int getFailed()
+    {
+        return getResult().getFailed();
+    }
+
+    /**
+     * The current {@link PurgeResult tally} of the purge.
+     *
+     * @return The current {@link PurgeResult tally}
+     */
+    @NotNull
+    public PurgeResult getResult()
+    {
+        return control.getResult();
+    }
+
+    /**
+     * The current {@link PurgeReport tallies} of the purge, mapped by the id of the channel.
+     * <br>A purge of a single channel reports just this channel.
+     *
+     * @return The current {@link PurgeReport report}
+     */
+    @NotNull
+    public PurgeReport getReport()
+    {
+        return control.getReport();
+    }
+
+    /**
+     * The average amount of messages, which were deleted per second since the purge was started.
+     * <br>The messages, which were deleted before a resumed purge was interrupted, are not part of the rate, because they were not
+     * deleted since the purge was started.
+     *
+     * @return The amount of deleted messages per second
+     */
+    public double getRate()
+    {
+        long elapsed = System.nanoTime() - control.getStarted();
+        return elapsed <= 0 ? 0 : (getDeleted() - control.getRestored()) * 1e9 / elapsed;
+    }
+
+    /**
+     * The estimated time until the purge is done, which is based on the current {@link #getRate() rate}.
+     * <br>The time can only be estimated, after the whole history was scanned, because the amount of matched messages is not known before.
+     *
+     * @param unit The {@link TimeUnit time unit} of the estimated time (if {@link TimeUnit time unit} equals null the
+     *             default {@link TimeUnit time unit} will be used [{@link TimeUnit#SECONDS TimeUnit#SECONDS}])
+     * @return The estimated time or <b>-1</b>, if the time can not be estimated yet
+     */
+    public long getEta(@Nullable TimeUnit unit)
+    {
+        if (unit == null)
+        {
+            unit = TimeUnit.SECONDS;
+        }
+
+        PurgeResult result = getResult();
+
+        if (result.getRemaining() == 0 && control.isClosed())
+        {
+            return 0;
+        }
+
+        double rate = getRate();
+
+        if (!control.isClosed() || rate <= 0)
+        {
+            return -1;
+        }
+        return unit.convert((long) (result.getRemaining() / rate * 1e9), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops the purge.
+     * <br>No more pages of the history are fetched, no more delete requests are sent and no more channels are started. Requests, which
+     * are already in flight, are not cancelled, so the {@link #getFuture() future} is completed as soon as they are done.
+     *
+     * @return <b>true -</b> If the purge was running <br><b>false -</b> If the purge was already done or cancelled
+     */
+    public boolean cancel()
+    {
+        return control.cancel();
+    }
+
+    /**
+     * Checks if the purge was cancelled.
+     *
+     * @return <b>true -</b> If the purge was cancelled <br><b>false -</b> If the purge was not cancelled
+     */
+    public boolean isCancelled()
+    {
+        return control.isCancelled();
+    }
+
+    /**
+     * Checks if the purge is done.
+     *
+     * @return <b>true -</b> If the purge is done <br><b>false -</b> If the purge is still running
+     */
+    public boolean isDone()
+    {
+        return control.getFuture().isDone();
+    }
+
+    /**
+     * The future of the purge, which is completed with the final {@link PurgeResult tally}, even if the purge was cancelled.
+     * <br>If several channels are purged, the tally is the sum of all channels and the tallies of the channels can be obtained with
+     * {@link #getReport()}.
+     *
+     * @return The {@link CompletableFuture future} of the purge
+     */
+    @NotNull
+    public CompletableFuture<PurgeResult> getFuture()
+    {
+        return control.getFuture();
+    }
+
+    boolean isClosed()
+    {
+        return control.isClosed();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PurgeHandle{" +
+                "result=" + getResult() +
+                ", cancelled=" + isCancelled() +
+                '}';
+    }
+}
@@ -0,0 +1,237 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.purge;
+
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A small journal file, which stores the checkpoint of a resumable purge.
+ * <br>A checkpoint consists of the channel, the range and the {@link PurgeFilter#fingerprint() filter fingerprint} of the purge, the
+ * id, below which the history still needs to be scanned, the id of the oldest message, which was scanned so far, and the counters of
+ * all messages, which were processed so far. A checkpoint is only loaded by a purge of the same channel, range and filter.
+ * <br>Every checkpoint is written to a temporary file, which is forced to the disk and atomically replaces the journal afterwards, so
+ * a crash never leaves a torn checkpoint behind.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+final class PurgeJournal
+{
+    private static final Logger logger = JDALogger.getLog(PurgeJournal.class);
+
+    private static final long MAGIC = 0x4a44435055524745L;
+    private static final int FORMAT_VERSION = 3;
+    private static final int COUNTERS = 6;
+    private static final int SIZE = 8 + 4 + 6 * 8 + COUNTERS * 4;
+
+    private final Path file;
+    private final long channelId;
+    private final long minId;
+    private final long maxId;
+    private final long fingerprint;
+    private final ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+
+    private long cursor;
+    private long oldest;
+    private final int[] counters = new int[COUNTERS];
+
+    PurgeJournal(@NotNull Path file, long channelId, long minId, long maxId, long fingerprint)
+    {
+        this.file = file;
+        this.channelId = channelId;
+        this.minId = minId;
+        this.maxId = maxId;
+        this.fingerprint = fingerprint;
+        this.cursor = maxId;
+        this.oldest = maxId;
+    }
+
+    /**
+     * Loads the checkpoint of the journal, if the journal exists and belongs to the same channel, range and filter.
+     *
+     * @return <b>true -</b> If a checkpoint was loaded <br><b>false -</b> If the purge has to start from the top
+     * @throws IOException If the journal could not be read
+     */
+    boolean load() throws IOException
+    {
+        if (!Files.exists(file))
+        {
+            return false;
+        }
+
+        ByteBuffer read = ByteBuffer.allocate(SIZE);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            while (read.hasRemaining() && channel.read(read) >= 0)
+            {
+                // Reads the whole checkpoint.
+            }
+        }
+
+        read.flip();
+
+        if (read.remaining() < 8 + 4 || read.getLong() != MAGIC)
+        {
+            logger.error("The file " + file + " is not a purge journal, so the purge starts from the top.", new IllegalArgumentException());
+            return false;
+        }
+
+        if (read.getInt() != FORMAT_VERSION || read.remaining() < SIZE - 8 - 4)
+        {
+            logger.warn("The purge journal " + file + " was written by another version, so the purge starts from the top.");
+            return false;
+        }
+
+        if (read.getLong() != channelId || read.getLong() != minId || read.getLong() != maxId || read.getLong() != fingerprint)
+        {
+            logger.warn("The purge journal " + file + " belongs to another purge or filter, so the purge starts from the top.");
+            return false;
+        }
+
+        cursor = read.getLong();
+        oldest = read.getLong();
+
+        for (int i = 0; i < COUNTERS; i++)
+        {
+            counters[i] = read.getInt();
+        }
+        return true;
+    }
+
+    /**
+     * Writes a checkpoint.
+     *
+     * @param cursor The id, below which the history still needs to be scanned
+     * @param oldest The id of the oldest message, which was scanned so far
+     * @param result The {@link PurgeResult tally} of the messages, which were processed so far
+     * @throws IOException If the checkpoint could not be written
+     */
+    synchronized void write(long cursor, long oldest, @NotNull PurgeResult result) throws IOException
+    {
+        buffer.clear();
+        buffer.putLong(MAGIC).putInt(FORMAT_VERSION);
+        buffer.putLong(channelId).putLong(minId).putLong(maxId).putLong(fingerprint).putLong(cursor).putLong(oldest);
+        buffer.putInt(result.getScanned());
+        buffer.putInt(result.getBulkDeleted());
+        buffer.putInt(result.getSingleDeleted());
+        buffer.putInt(result.getFailed());
+        buffer.putInt(result.getBulkRequests());
+        buffer.putInt(result.getSingleRequests());
+        buffer.flip();
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+        {
+            while (buffer.hasRemaining())
+            {
+                channel.write(buffer);
+            }
+
+            // The checkpoint needs to be on the disk, before it replaces the journal.
+            channel.force(true);
+        }
+
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory();
+        this.cursor = cursor;
+        this.oldest = oldest;
+    }
+
+    /**
+     * Deletes the journal, because the purge is done.
+     *
+     * @throws IOException If the journal could not be deleted
+     */
+    synchronized void delete() throws IOException
+    {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * The id, below which the history still needs to be scanned.
+     *
+     * @return The id of the last checkpoint
+     */
+    long getCursor()
+    {
+        return cursor;
+    }
+
+    /**
+     * The id of the oldest message, which was scanned before the last checkpoint.
+     * <br>The cursor may lie above this id, if messages were still waiting for their deletion, so a resumed purge scans the messages
+     * between both ids again, but it must not count them again.
+     *
+     * @return The id of the oldest scanned message
+     */
+    long getOldest()
+    {
+        return oldest;
+    }
+
+    /**
+     * The counters of the last checkpoint in the order scanned, bulk deleted, single deleted, failed, bulk requests and single requests.
+     *
+     * @return The counters of the last checkpoint
+     */
+    @NotNull
+    int[] getCounters()
+    {
+        return counters;
+    }
+
+    @NotNull
+    Path getFile()
+    {
+        return file;
+    }
+
+    /**
+     * Forces the directory of the journal to the disk, so the renamed journal survives a crash.
+     * <br>Some platforms can not open a directory, in which case the rename is only as durable as the file system makes it.
+     */
+    private void forceDirectory()
+    {
+        Path directory = file.toAbsolutePath().getParent();
+
+        if (directory == null)
+        {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ))
+        {
+            channel.force(true);
+        }
+        catch (IOException e)
+        {
+            // The directory can not be forced on this platform.
+        }
+    }
+}
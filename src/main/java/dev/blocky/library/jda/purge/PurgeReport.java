@@ -0,0 +1,84 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.purge;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The aggregated tally of a purge over several channels, which is either the final report or the progress of a purge, that is still running.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+public final class PurgeReport
+{
+    private final PurgeResult total;
+    private final Map<Long, PurgeResult> results;
+    private final int completedChannels;
+
+    PurgeReport(@NotNull PurgeResult total, @NotNull Map<Long, PurgeResult> results, int completedChannels)
+    {
+        this.total = total;
+        this.results = Collections.unmodifiableMap(results);
+        this.completedChannels = completedChannels;
+    }
+
+    /**
+     * The sum of the tallies of all channels.
+     *
+     * @return The {@link PurgeResult tally} of all channels
+     */
+    @NotNull
+    public PurgeResult getTotal()
+    {
+        return total;
+    }
+
+    /**
+     * The tallies of all channels, which were started so far, mapped by the id of the channel.
+     *
+     * @return The {@link PurgeResult tallies} of the channels
+     */
+    @NotNull
+    public Map<Long, PurgeResult> getResults()
+    {
+        return results;
+    }
+
+    /**
+     * The amount of channels, whose purge is done.
+     *
+     * @return The amount of completed channels
+     */
+    public int getCompletedChannels()
+    {
+        return completedChannels;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PurgeReport{" +
+                "total=" + total +
+                ", channels=" + results.size() +
+                ", completedChannels=" + completedChannels +
+                '}';
+    }
+}
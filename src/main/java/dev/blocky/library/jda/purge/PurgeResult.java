@@ -0,0 +1,199 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.purge;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The tally of a purge, which is either the final result or the progress of a purge, that is still running.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+public final class PurgeResult
+{
+    private final int total;
+    private final int scanned;
+    private final int bulkDeleted;
+    private final int singleDeleted;
+    private final int failed;
+    private final int cancelled;
+    private final int bulkRequests;
+    private final int singleRequests;
+    private final Throwable failure;
+
+    PurgeResult(int total, int scanned, int bulkDeleted, int singleDeleted, int failed, int cancelled, int bulkRequests, int singleRequests,
+                @Nullable Throwable failure)
+    {
+        this.total = total;
+        this.scanned = scanned;
+        this.bulkDeleted = bulkDeleted;
+        this.singleDeleted = singleDeleted;
+        this.failed = failed;
+        this.cancelled = cancelled;
+        this.bulkRequests = bulkRequests;
+        this.singleRequests = singleRequests;
+        this.failure = failure;
+    }
+
+    /**
+     * The amount of messages, which should be deleted by the purge.
+     *
+     * @return The amount of messages, which should be deleted
+     */
+    public int getTotal()
+    {
+        return total;
+    }
+
+    /**
+     * The amount of messages, which were checked by the filter of the purge so far.
+     * <br>This equals the total amount of messages, if the messages were specified directly.
+     *
+     * @return The amount of scanned messages
+     */
+    public int getScanned()
+    {
+        return scanned;
+    }
+
+    /**
+     * The amount of messages, which were deleted so far.
+     *
+     * @return The amount of deleted messages
+     */
+    public int getDeleted()
+    {
+        return bulkDeleted + singleDeleted;
+    }
+
+    /**
+     * The amount of messages, which were deleted by a bulk delete request.
+     *
+     * @return The amount of bulk deleted messages
+     */
+    public int getBulkDeleted()
+    {
+        return bulkDeleted;
+    }
+
+    /**
+     * The amount of messages, which were deleted one by one, because they are older than two weeks or are not in a guild.
+     *
+     * @return The amount of single deleted messages
+     */
+    public int getSingleDeleted()
+    {
+        return singleDeleted;
+    }
+
+    /**
+     * The amount of messages, which could not be deleted.
+     *
+     * @return The amount of failed messages
+     */
+    public int getFailed()
+    {
+        return failed;
+    }
+
+    /**
+     * The amount of messages, which were not deleted, because the purge was cancelled.
+     *
+     * @return The amount of cancelled messages
+     */
+    public int getCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * The amount of messages, which are neither deleted, failed nor cancelled yet.
+     *
+     * @return The amount of remaining messages
+     */
+    public int getRemaining()
+    {
+        return total - getDeleted() - failed - cancelled;
+    }
+
+    /**
+     * The amount of bulk delete requests, which were sent so far.
+     *
+     * @return The amount of bulk delete requests
+     */
+    public int getBulkRequests()
+    {
+        return bulkRequests;
+    }
+
+    /**
+     * The amount of single delete requests, which were sent so far.
+     *
+     * @return The amount of single delete requests
+     */
+    public int getSingleRequests()
+    {
+        return singleRequests;
+    }
+
+    /**
+     * The amount of REST requests, which were sent so far.
+     *
+     * @return The amount of REST requests
+     */
+    public int getRequests()
+    {
+        return bulkRequests + singleRequests;
+    }
+
+    /**
+     * The first failure of the purge.
+     *
+     * @return The first failure or <b>null</b>, if no message failed
+     */
+    @Nullable
+    public Throwable getFailure()
+    {
+        return failure;
+    }
+
+    /**
+     * Checks if the purge is done.
+     *
+     * @return <b>true -</b> If every message is either deleted, failed or cancelled <br><b>false -</b> If some messages are remaining
+     */
+    public boolean isDone()
+    {
+        return getRemaining() == 0;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PurgeResult{" +
+                "total=" + total +
+                ", scanned=" + scanned +
+                ", bulkDeleted=" + bulkDeleted +
+                ", singleDeleted=" + singleDeleted +
+                ", failed=" + failed +
+                ", cancelled=" + cancelled +
+                ", bulkRequests=" + bulkRequests +
+                ", singleRequests=" + singleRequests +
+                '}';
+    }
+}
@@ -0,0 +1,550 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.purge;
+
+import net.dv8tion.jda.api.entities.GuildMessageChannel;
+import net.dv8tion.jda.api.entities.MessageChannel;
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * A single running purge, which drives the bulk lane and the single lane of the {@link PurgeEngine purge engine}.
+ * <br>The ids are offered while the purge is already running, so a purge can start deleting before all messages are known.
+ * Every lane keeps at most one request in flight and sends the next request from the callback of the previous one.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+final class PurgeTask implements PurgeControl
+{
+    private static final Logger logger = JDALogger.getLog(PurgeTask.class);
+
+    private final MessageChannel channel;
+    private final Consumer<? super PurgeResult> progress;
+    private final CompletableFuture<PurgeResult> future = new CompletableFuture<>();
+
+    private final LongQueue bulk = new LongQueue();
+    private final LongQueue singles = new LongQueue();
+    private final LongSet pendingIds = new LongSet();
+    private final AtomicBoolean bulkRunning = new AtomicBoolean();
+    private final AtomicBoolean singleRunning = new AtomicBoolean();
+    private final AtomicBoolean completed = new AtomicBoolean();
+    private volatile boolean closed;
+    private volatile boolean cancelRequested;
+    private volatile int restored;
+    private final long started = System.nanoTime();
+
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger scanned = new AtomicInteger();
+    private final AtomicInteger cancelled = new AtomicInteger();
+    private final AtomicInteger bulkDeleted = new AtomicInteger();
+    private final AtomicInteger singleDeleted = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger bulkRequests = new AtomicInteger();
+    private final AtomicInteger singleRequests = new AtomicInteger();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final AtomicLong newestFailed = new AtomicLong(-1);
+    private final AtomicLong newestCancelled = new AtomicLong(-1);
+
+    private final AtomicReference<Runnable> drained = new AtomicReference<>();
+    private volatile int drainedBelow;
+    private volatile Runnable finisher;
+
+    PurgeTask(@NotNull MessageChannel channel, @Nullable Consumer<? super PurgeResult> progress)
+    {
+        this.channel = channel;
+        this.progress = progress;
+    }
+
+    /**
+     * Adds the message with the specified id to this purge.
+     * <br>Ids should be offered from the newest to the oldest message, so the bulk lane reaches the messages near the age
+     * limit last. The lanes are not started until {@link #flush()} or {@link #close()} is called.
+     *
+     * @param id  The id of the message
+     * @param now The current time in milliseconds since the unix epoch
+     */
+    void offer(long id, long now)
+    {
+        total.incrementAndGet();
+
+        if (cancelRequested)
+        {
+            cancelled.incrementAndGet();
+            newestCancelled.accumulateAndGet(id, Math::max);
+            return;
+        }
+
+        pendingIds.add(id);
+
+        if (PurgeEngine.isBulkDeletable(channel, id, now))
+        {
+            bulk.add(id);
+        }
+        else
+        {
+            singles.add(id);
+        }
+    }
+
+    /**
+     * Starts the lanes for all offered ids.
+     * <br>The bulk lane waits for a full chunk, until this purge is closed.
+     */
+    void flush()
+    {
+        startBulk();
+        startSingles();
+    }
+
+    /**
+     * Marks, that no more ids will be offered, so the purge completes as soon as both lanes are drained.
+     */
+    void close()
+    {
+        closed = true;
+        flush();
+        tryComplete();
+    }
+
+    /**
+     * Restores the counters of a purge, which was interrupted before, so the result of this purge covers the whole purge.
+     * <br>The failed messages of the interrupted purge are not restored, because they are tried again. This needs to be called before
+     * any id is offered.
+     *
+     * @param counters The counters in the order scanned, bulk deleted, single deleted, failed, bulk requests and single requests
+     */
+    void restore(@NotNull int[] counters)
+    {
+        scanned.set(counters[0]);
+        bulkDeleted.set(counters[1]);
+        singleDeleted.set(counters[2]);
+        bulkRequests.set(counters[4]);
+        singleRequests.set(counters[5]);
+        // Failed messages are above the resume id, so they are scanned, offered and counted again.
+        total.set(counters[1] + counters[2]);
+        restored = counters[1] + counters[2];
+    }
+
+    /**
+     * Records, that the specified amount of messages was checked by the filter of the purge.
+     *
+     * @param amount The amount of checked messages
+     */
+    void scanned(int amount)
+    {
+        scanned.addAndGet(amount);
+    }
+
+    /**
+     * Stops this purge.
+     * <br>No more ids are accepted and every id, which was not sent yet, is cancelled and released. Requests, which are already in
+     * flight, are not cancelled, so the purge completes as soon as they are done.
+     *
+     * @return <b>true -</b> If this purge was running <br><b>false -</b> If this purge was already done or cancelled
+     */
+    @Override
+    public boolean cancel()
+    {
+        if (completed.get() || cancelRequested)
+        {
+            return false;
+        }
+
+        cancelRequested = true;
+        close();
+        return true;
+    }
+
+    @Override
+    public boolean isCancelled()
+    {
+        return cancelRequested;
+    }
+
+    @Override
+    public boolean isClosed()
+    {
+        return closed;
+    }
+
+    @Override
+    public long getStarted()
+    {
+        return started;
+    }
+
+    @Override
+    public int getRestored()
+    {
+        return restored;
+    }
+
+    /**
+     * Records a failure, which did not come from a delete request, e.g. a failed history request.
+     *
+     * @param error The failure
+     */
+    void fail(@NotNull Throwable error)
+    {
+        fail(0, error);
+    }
+
+    /**
+     * Runs the specified callback once, as soon as less than the specified amount of offered messages is neither deleted nor failed.
+     *
+     * @param limit    The amount of pending messages
+     * @param callback The callback, which should be run
+     */
+    void whenPendingBelow(int limit, @NotNull Runnable callback)
+    {
+        drainedBelow = limit;
+        drained.set(callback);
+        runDrained();
+    }
+
+    /**
+     * Sets the callback, which is run after both lanes are drained, but before the {@link #getFuture() future} of this purge is
+     * completed, so everything, which the callback writes, is done as soon as the future is completed.
+     * <br>This needs to be called before this purge is closed.
+     *
+     * @param finisher The callback, which should be run
+     */
+    void beforeComplete(@NotNull Runnable finisher)
+    {
+        this.finisher = finisher;
+    }
+
+    /**
+     * The id, from which an interrupted purge can be resumed without skipping a message.
+     * <br>Deleted messages are gone from the history, so resuming right above the newest message, which was not deleted yet, sends
+     * no successful delete request twice. Cancelled and failed messages are not deleted, so they are purged again after a resume.
+     *
+     * @param cursor The id of the oldest message, which was scanned so far
+     * @return The id, below which the history still needs to be scanned
+     */
+    long getResumeId(long cursor)
+    {
+        long resume = Math.max(cursor, Math.max(newestFailed.get(), newestCancelled.get()) + 1);
+        return Math.max(pendingIds.max(-1) + 1, resume);
+    }
+
+    int getPending()
+    {
+        return total.get() - bulkDeleted.get() - singleDeleted.get() - failed.get() - cancelled.get();
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<PurgeResult> getFuture()
+    {
+        return future;
+    }
+
+    @NotNull
+    @Override
+    public PurgeResult getResult()
+    {
+        return new PurgeResult(total.get(), Math.max(scanned.get(), total.get()), bulkDeleted.get(), singleDeleted.get(), failed.get(),
+                cancelled.get(), bulkRequests.get(), singleRequests.get(), failure.get());
+    }
+
+    @NotNull
+    @Override
+    public PurgeReport getReport()
+    {
+        PurgeResult result = getResult();
+        return new PurgeReport(result, Collections.singletonMap(channel.getIdLong(), result), future.isDone() ? 1 : 0);
+    }
+
+    private boolean hasBulkWork()
+    {
+        int available = bulk.size();
+        return available >= PurgeEngine.BULK_DELETE_LIMIT || (closed && available > 0);
+    }
+
+    private void startBulk()
+    {
+        if (hasBulkWork() && bulkRunning.compareAndSet(false, true))
+        {
+            nextBulk();
+        }
+    }
+
+    private void nextBulk()
+    {
+        while (true)
+        {
+            if (cancelRequested)
+            {
+                drainCancelled(bulk);
+            }
+
+            if (!hasBulkWork())
+            {
+                bulkRunning.set(false);
+
+                if (hasBulkWork() && bulkRunning.compareAndSet(false, true))
+                {
+                    continue;
+                }
+
+                tryComplete();
+                return;
+            }
+
+            long cutoff = System.currentTimeMillis() - PurgeEngine.BULK_DELETE_AGE;
+            List<String> chunk = new ArrayList<>(PurgeEngine.BULK_DELETE_LIMIT);
+            long[] ids = new long[PurgeEngine.BULK_DELETE_LIMIT];
+            int polled;
+
+            while (chunk.size() < PurgeEngine.BULK_DELETE_LIMIT && (polled = bulk.poll(ids, PurgeEngine.BULK_DELETE_LIMIT - chunk.size())) > 0)
+            {
+                for (int i = 0; i < polled; i++)
+                {
+                    // The purge may have run long enough, that a message is no longer allowed in a bulk delete request.
+                    if (PurgeEngine.isYoungerThan(ids[i], cutoff))
+                    {
+                        chunk.add(Long.toUnsignedString(ids[i]));
+                    }
+                    else
+                    {
+                        singles.add(ids[i]);
+                    }
+                }
+            }
+
+            // Discord needs at least two messages for a bulk delete request.
+            if (chunk.size() < 2)
+            {
+                for (String single : chunk)
+                {
+                    singles.add(Long.parseUnsignedLong(single));
+                }
+
+                startSingles();
+                continue;
+            }
+
+            startSingles();
+
+            CompletableFuture<Void> request;
+
+            try
+            {
+                request = ((GuildMessageChannel) channel).deleteMessagesByIds(chunk).submit();
+            }
+            catch (RuntimeException e)
+            {
+                fail(chunk.size(), e);
+                failedIds(chunk);
+                processed(chunk);
+                report();
+                continue;
+            }
+
+            bulkRequests.incrementAndGet();
+            request.whenComplete((ignored, error) ->
+            {
+                if (error == null)
+                {
+                    bulkDeleted.addAndGet(chunk.size());
+                }
+                else
+                {
+                    fail(chunk.size(), error);
+                    failedIds(chunk);
+                }
+
+                processed(chunk);
+                report();
+                nextBulk();
+            });
+            return;
+        }
+    }
+
+    private void startSingles()
+    {
+        if (!singles.isEmpty() && singleRunning.compareAndSet(false, true))
+        {
+            nextSingle();
+        }
+    }
+
+    private void nextSingle()
+    {
+        long[] next = new long[1];
+
+        while (true)
+        {
+            if (cancelRequested)
+            {
+                drainCancelled(singles);
+            }
+
+            if (singles.poll(next, 1) == 0)
+            {
+                singleRunning.set(false);
+
+                if (!singles.isEmpty() && singleRunning.compareAndSet(false, true))
+                {
+                    continue;
+                }
+
+                tryComplete();
+                return;
+            }
+
+            long id = next[0];
+            CompletableFuture<Void> request;
+
+            try
+            {
+                request = channel.deleteMessageById(id).submit();
+            }
+            catch (RuntimeException e)
+            {
+                fail(1, e);
+                newestFailed.accumulateAndGet(id, Math::max);
+                pendingIds.remove(id);
+                report();
+                continue;
+            }
+
+            singleRequests.incrementAndGet();
+            request.whenComplete((ignored, error) ->
+            {
+                if (error == null)
+                {
+                    singleDeleted.incrementAndGet();
+                }
+                else
+                {
+                    fail(1, error);
+                    newestFailed.accumulateAndGet(id, Math::max);
+                }
+
+                pendingIds.remove(id);
+                report();
+                nextSingle();
+            });
+            return;
+        }
+    }
+
+    private void drainCancelled(@NotNull LongQueue queue)
+    {
+        for (long id : queue.clear())
+        {
+            cancelled.incrementAndGet();
+            newestCancelled.accumulateAndGet(id, Math::max);
+            pendingIds.remove(id);
+        }
+    }
+
+    private void processed(@NotNull List<String> chunk)
+    {
+        for (String id : chunk)
+        {
+            pendingIds.remove(Long.parseUnsignedLong(id));
+        }
+    }
+
+    private void failedIds(@NotNull List<String> chunk)
+    {
+        for (String id : chunk)
+        {
+            newestFailed.accumulateAndGet(Long.parseUnsignedLong(id), Math::max);
+        }
+    }
+
+    private void fail(int amount, @NotNull Throwable error)
+    {
+        failed.addAndGet(amount);
+        failure.compareAndSet(null, error);
+    }
+
+    private void report()
+    {
+        runDrained();
+
+        if (progress == null)
+        {
+            return;
+        }
+
+        try
+        {
+            progress.accept(getResult());
+        }
+        catch (RuntimeException e)
+        {
+            logger.error("The progress listener of a purge threw an exception.", e);
+        }
+    }
+
+    private void runDrained()
+    {
+        if (drained.get() == null || getPending() >= drainedBelow)
+        {
+            return;
+        }
+
+        Runnable callback = drained.getAndSet(null);
+
+        if (callback != null)
+        {
+            callback.run();
+        }
+    }
+
+    private void tryComplete()
+    {
+        if (closed && !bulkRunning.get() && !singleRunning.get() && bulk.isEmpty() && singles.isEmpty()
+                && completed.compareAndSet(false, true))
+        {
+            Runnable callback = finisher;
+
+            if (callback != null)
+            {
+                try
+                {
+                    callback.run();
+                }
+                catch (RuntimeException e)
+                {
+                    logger.error("The purge could not be finished.", e);
+                }
+            }
+
+            future.complete(getResult());
+        }
+    }
+}
@@ -0,0 +1,26 @@
+/**
+ * Root package of the JDA-Commons purges.
+ *
+ * <br>From here you can navigate to the purge features. <br>
+ *
+ * <ul>
+ * <li>{@link dev.blocky.library.jda.purge.PurgeArchive Purge archive}
+ * <br>A gzip-compressed NDJSON file, into which a purge writes every message, before it is deleted.</li>
+ *
+ * <li>{@link dev.blocky.library.jda.purge.PurgeEngine Purge engine}
+ * <br>Deletes messages with as few REST requests as Discord allows.</li>
+ *
+ * <li>{@link dev.blocky.library.jda.purge.PurgeFilter Purge filter}
+ * <br>Describes, which messages should be deleted by a purge.</li>
+ *
+ * <li>{@link dev.blocky.library.jda.purge.PurgeHandle Purge handle}
+ * <br>A handle of a purge, which exposes live counters and can cancel the purge.</li>
+ *
+ * <li>{@link dev.blocky.library.jda.purge.PurgeReport Purge report}
+ * <br>The aggregated tally of a purge over several channels.</li>
+ *
+ * <li>{@link dev.blocky.library.jda.purge.PurgeResult Purge result}
+ * <br>The tally of a purge, which is either the final result or the progress of a purge, that is still running.</li>
+ * </ul>
+ */
+package dev.blocky.library.jda.purge;
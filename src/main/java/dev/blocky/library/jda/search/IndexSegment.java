@@ -0,0 +1,562 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.search;
+
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.function.Consumer;
+
+/**
+ * An immutable segment file of a {@link MessageIndex message index}.
+ * <br>A segment starts with a header, which is followed by the posting lists and the term dictionary. The dictionary is sorted by
+ * the channel id and the term and points to the posting list of every term. A posting list holds the ascending ids of the messages,
+ * which contain the term, as the first id and the deltas to the previous id, which are written as variable-length integers, so most
+ * ids take only a few bytes.
+ * <br>The dictionary is held in memory and the posting lists are read from a memory-mapped file, so a lookup never copies more
+ * than the posting lists, which are needed. Every segment has a generation, which is the number in its file name and tells the
+ * index, which postings were written before a message was edited or deleted.
+ * <br>A closed segment is unmapped at once, so its file can be deleted, even if the platform does not delete mapped files, and it
+ * must not be read anymore afterwards.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+final class IndexSegment implements Closeable
+{
+    private static final Logger logger = JDALogger.getLog(IndexSegment.class);
+
+    private static final long MAGIC = 0x4a4443494e444558L;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 8 + 4 + 4 + 8;
+
+    private final Path file;
+    private final int generation;
+    private final MappedByteBuffer buffer;
+    private final long[] channelIds;
+    private final String[] terms;
+    private final int[] offsets;
+    private final int[] counts;
+    private final long postingCount;
+
+    private boolean closed;
+
+    private IndexSegment(@NotNull Path file, int generation, @NotNull MappedByteBuffer buffer, @NotNull long[] channelIds,
+                         @NotNull String[] terms, @NotNull int[] offsets, @NotNull int[] counts)
+    {
+        this.file = file;
+        this.generation = generation;
+        this.buffer = buffer;
+        this.channelIds = channelIds;
+        this.terms = terms;
+        this.offsets = offsets;
+        this.counts = counts;
+
+        long postingCount = 0;
+
+        for (int count : counts)
+        {
+            postingCount += count;
+        }
+
+        this.postingCount = postingCount;
+    }
+
+    /**
+     * Writes a <b>new</b> segment, which holds the specified posting lists.
+     * <br>The segment is written to a temporary file, which is atomically moved to the specified file afterwards, so a crash never
+     * leaves a torn segment behind.
+     *
+     * @param file       The file of the segment
+     * @param generation The generation of the segment
+     * @param postings   The posting lists, which are mapped by the channel id and the sorted terms
+     * @return The <b>new</b> {@link IndexSegment segment}
+     * @throws IOException If the segment could not be written
+     */
+    @NotNull
+    static IndexSegment write(@NotNull Path file, int generation, @NotNull NavigableMap<Long, NavigableMap<String, LongList>> postings)
+            throws IOException
+    {
+        try (Writer writer = new Writer(file))
+        {
+            for (Map.Entry<Long, NavigableMap<String, LongList>> channelTerms : postings.entrySet())
+            {
+                for (Map.Entry<String, LongList> term : channelTerms.getValue().entrySet())
+                {
+                    writer.add(channelTerms.getKey(), term.getKey(), term.getValue().toSortedArray());
+                }
+            }
+            return writer.finish(generation);
+        }
+    }
+
+    /**
+     * Merges the specified segments into a <b>new</b> segment.
+     * <br>The dictionaries of the segments are already sorted, so they are merged in a single pass and only the posting lists of one
+     * term are held in memory at once. A posting of a segment, whose generation is less than the generation in the tombstones, was
+     * written before the message was edited or deleted, so it is dropped. Terms, which have no postings left, are dropped as well.
+     *
+     * @param file       The file of the <b>new</b> segment
+     * @param generation The generation of the <b>new</b> segment, which must be greater than the generations of the segments
+     * @param segments   The segments, which should be merged
+     * @param tombstones The first valid generation of every edited or deleted message
+     * @return The <b>new</b> {@link IndexSegment segment}
+     * @throws IOException If the segment could not be written
+     */
+    @NotNull
+    static IndexSegment merge(@NotNull Path file, int generation, @NotNull List<IndexSegment> segments, @NotNull LongIntMap tombstones)
+            throws IOException
+    {
+        int[] positions = new int[segments.size()];
+
+        try (Writer writer = new Writer(file))
+        {
+            while (true)
+            {
+                IndexSegment first = null;
+                int firstIndex = -1;
+
+                for (int i = 0; i < positions.length; i++)
+                {
+                    IndexSegment segment = segments.get(i);
+
+                    if (positions[i] < segment.terms.length && (first == null || segment.compare(positions[i], first, positions[firstIndex]) < 0))
+                    {
+                        first = segment;
+                        firstIndex = i;
+                    }
+                }
+
+                if (first == null)
+                {
+                    return writer.finish(generation);
+                }
+
+                long channelId = first.channelIds[positions[firstIndex]];
+                String term = first.terms[positions[firstIndex]];
+                LongList ids = new LongList();
+
+                for (int i = 0; i < positions.length; i++)
+                {
+                    IndexSegment segment = segments.get(i);
+
+                    if (positions[i] < segment.terms.length && segment.compare(positions[i], first, positions[firstIndex]) == 0)
+                    {
+                        for (long id : segment.postings(positions[i]))
+                        {
+                            if (tombstones.get(id, 0) <= segment.generation)
+                            {
+                                ids.add(id);
+                            }
+                        }
+                    }
+                }
+
+                for (int i = 0; i < positions.length; i++)
+                {
+                    IndexSegment segment = segments.get(i);
+
+                    if (positions[i] < segment.terms.length && segment.channelIds[positions[i]] == channelId && segment.terms[positions[i]].equals(term))
+                    {
+                        positions[i]++;
+                    }
+                }
+
+                if (ids.size() > 0)
+                {
+                    writer.add(channelId, term, ids.toSortedArray());
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens an existing segment and loads its dictionary.
+     *
+     * @param file       The file of the segment
+     * @param generation The generation of the segment
+     * @return The opened {@link IndexSegment segment} or null, if the file is not a segment
+     * @throws IOException If the segment could not be read
+     */
+    @Nullable
+    static IndexSegment open(@NotNull Path file, int generation) throws IOException
+    {
+        MappedByteBuffer buffer;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE)
+            {
+                return null;
+            }
+
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.getLong() != MAGIC || buffer.getInt() != FORMAT_VERSION)
+        {
+            Unmapper.unmap(buffer);
+            return null;
+        }
+
+        int termCount = buffer.getInt();
+        long dictionaryOffset = buffer.getLong();
+
+        if (termCount < 0 || dictionaryOffset < HEADER_SIZE || dictionaryOffset > buffer.limit())
+        {
+            Unmapper.unmap(buffer);
+            return null;
+        }
+
+        long[] channelIds = new long[termCount];
+        String[] terms = new String[termCount];
+        int[] offsets = new int[termCount];
+        int[] counts = new int[termCount];
+
+        ByteBuffer dictionary = buffer.duplicate();
+        dictionary.position((int) dictionaryOffset);
+
+        for (int i = 0; i < termCount; i++)
+        {
+            channelIds[i] = dictionary.getLong();
+
+            byte[] bytes = new byte[dictionary.getShort() & 0xffff];
+            dictionary.get(bytes);
+
+            terms[i] = new String(bytes, StandardCharsets.UTF_8);
+            offsets[i] = dictionary.getInt();
+            counts[i] = dictionary.getInt();
+        }
+        return new IndexSegment(file, generation, buffer, channelIds, terms, offsets, counts);
+    }
+
+    /**
+     * Passes the posting list of every term of the specified channel, which starts with the specified token, to the specified consumer.
+     * <br>The dictionary is sorted by the channel id and the term, so the first matching term is found with a binary search and the
+     * matching terms follow it. Only the matching terms are visited and only their posting lists are decoded.
+     *
+     * @param channelId The id of the channel, whose terms should be read
+     * @param token     The token, with which the terms should start
+     * @param consumer  The consumer, which receives the ascending ids of every matching posting list
+     */
+    void read(long channelId, @NotNull String token, @NotNull Consumer<long[]> consumer)
+    {
+        for (int i = lowerBound(channelId, token); i < terms.length && channelIds[i] == channelId && terms[i].startsWith(token); i++)
+        {
+            consumer.accept(postings(i));
+        }
+    }
+
+    @NotNull
+    Path getFile()
+    {
+        return file;
+    }
+
+    int getGeneration()
+    {
+        return generation;
+    }
+
+    long getPostingCount()
+    {
+        return postingCount;
+    }
+
+    /**
+     * Unmaps the segment, so its file can be deleted.
+     * <br>The segment must not be read by any thread anymore, because reading an unmapped buffer crashes the JVM.
+     */
+    @Override
+    public void close()
+    {
+        if (closed)
+        {
+            return;
+        }
+
+        closed = true;
+        Unmapper.unmap(buffer);
+    }
+
+    private int compare(int index, @NotNull IndexSegment other, int otherIndex)
+    {
+        int channel = Long.compare(channelIds[index], other.channelIds[otherIndex]);
+        return channel != 0 ? channel : terms[index].compareTo(other.terms[otherIndex]);
+    }
+
+    private int lowerBound(long channelId, @NotNull String token)
+    {
+        int low = 0;
+        int high = channelIds.length;
+
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+
+            if (channelIds[middle] < channelId || (channelIds[middle] == channelId && terms[middle].compareTo(token) < 0))
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    @NotNull
+    private long[] postings(int index)
+    {
+        ByteBuffer read = buffer.duplicate();
+        read.position(offsets[index]);
+
+        long[] ids = new long[counts[index]];
+        long previous = 0;
+
+        for (int i = 0; i < ids.length; i++)
+        {
+            previous += readVarLong(read);
+            ids[i] = previous;
+        }
+        return ids;
+    }
+
+    private static int writeVarLong(@NotNull DataOutputStream out, long value) throws IOException
+    {
+        int written = 1;
+
+        while ((value & ~0x7fL) != 0)
+        {
+            out.writeByte((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+            written++;
+        }
+
+        out.writeByte((int) value);
+        return written;
+    }
+
+    private static long readVarLong(@NotNull ByteBuffer in)
+    {
+        long value = 0;
+        int shift = 0;
+        byte read;
+
+        do
+        {
+            read = in.get();
+            value |= (long) (read & 0x7f) << shift;
+            shift += 7;
+        }
+        while ((read & 0x80) != 0);
+
+        return value;
+    }
+
+    /**
+     * Unmaps memory-mapped buffers, before they are collected.
+     * <br>There is no public API for this, so Java 9 and newer use {@code sun.misc.Unsafe#invokeCleaner(ByteBuffer)} and Java 8 uses
+     * the cleaner of the buffer. If neither is available, a buffer is released, as soon as it is collected.
+     */
+    private static final class Unmapper
+    {
+        private static final Object UNSAFE;
+        private static final Method INVOKE_CLEANER;
+        private static final Method CLEANER;
+        private static final Method CLEAN;
+
+        static
+        {
+            Object unsafe = null;
+            Method invokeCleaner = null;
+            Method cleaner = null;
+            Method clean = null;
+
+            try
+            {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+
+                Field field = unsafeClass.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                unsafe = field.get(null);
+            }
+            catch (ReflectiveOperationException | RuntimeException e)
+            {
+                invokeCleaner = null;
+
+                try
+                {
+                    cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+                    clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+                }
+                catch (ReflectiveOperationException | RuntimeException ex)
+                {
+                    logger.warn("Mapped segments cannot be unmapped on this JVM, so their files may only be deleted, after they were collected.", ex);
+                }
+            }
+
+            UNSAFE = unsafe;
+            INVOKE_CLEANER = invokeCleaner;
+            CLEANER = cleaner;
+            CLEAN = clean;
+        }
+
+        private static void unmap(@NotNull MappedByteBuffer buffer)
+        {
+            try
+            {
+                if (INVOKE_CLEANER != null)
+                {
+                    INVOKE_CLEANER.invoke(UNSAFE, buffer);
+                }
+                else if (CLEANER != null)
+                {
+                    Object cleaner = CLEANER.invoke(buffer);
+
+                    if (cleaner != null)
+                    {
+                        CLEAN.invoke(cleaner);
+                    }
+                }
+            }
+            catch (ReflectiveOperationException | RuntimeException e)
+            {
+                logger.warn("A mapped segment could not be unmapped, so its file may only be deleted, after it was collected.", e);
+            }
+        }
+    }
+
+    /**
+     * Writes the posting lists of a segment in the order of the dictionary.
+     * <br>The posting lists are streamed to a temporary file and the dictionary is collected in memory, until the segment is finished.
+     */
+    private static final class Writer implements Closeable
+    {
+        private final Path file;
+        private final Path temp;
+        private final DataOutputStream out;
+        private final ByteArrayOutputStream dictionaryBytes = new ByteArrayOutputStream();
+        private final DataOutputStream dictionary = new DataOutputStream(dictionaryBytes);
+
+        private int position = HEADER_SIZE;
+        private int termCount;
+        private boolean finished;
+
+        private Writer(@NotNull Path file) throws IOException
+        {
+            this.file = file;
+            this.temp = file.resolveSibling(file.getFileName() + ".tmp");
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 65536));
+
+            out.writeLong(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            // The amount of terms and the offset of the dictionary are written, as soon as they are known.
+            out.writeInt(0);
+            out.writeLong(0);
+        }
+
+        private void add(long channelId, @NotNull String term, @NotNull long[] sorted) throws IOException
+        {
+            byte[] bytes = term.getBytes(StandardCharsets.UTF_8);
+
+            dictionary.writeLong(channelId);
+            dictionary.writeShort(bytes.length);
+            dictionary.write(bytes);
+            dictionary.writeInt(position);
+            dictionary.writeInt(sorted.length);
+
+            long previous = 0;
+
+            for (long id : sorted)
+            {
+                position += writeVarLong(out, id - previous);
+                previous = id;
+            }
+
+            if (position < 0)
+            {
+                throw new IOException("The segment " + file + " is too large.");
+            }
+
+            termCount++;
+        }
+
+        @NotNull
+        private IndexSegment finish(int generation) throws IOException
+        {
+            dictionaryBytes.writeTo(out);
+            out.close();
+            finished = true;
+
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE))
+            {
+                ByteBuffer header = ByteBuffer.allocate(4 + 8);
+                header.putInt(termCount).putLong(position).flip();
+
+                while (header.hasRemaining())
+                {
+                    channel.write(header, 8 + 4 + header.position());
+                }
+
+                channel.force(true);
+            }
+
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            IndexSegment segment = open(file, generation);
+
+            if (segment == null)
+            {
+                throw new IOException("The segment " + file + " could not be read after it was written.");
+            }
+            return segment;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            if (!finished)
+            {
+                out.close();
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.search;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An open addressing hash map, which maps primitive <b>long</b> keys to primitive <b>int</b> values and holds the tombstones of a
+ * {@link MessageIndex message index}.
+ * <br>The map is only accessed, while the monitor of the index is held, and a merge reads a {@link #copy() copy} of it, so no method
+ * is synchronized.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+final class LongIntMap
+{
+    private static final int INITIAL_SIZE = 64;
+    private static final long EMPTY = 0;
+
+    private long[] keys = new long[INITIAL_SIZE];
+    private int[] values = new int[INITIAL_SIZE];
+    private int size;
+
+    /**
+     * The value of the specified key.
+     *
+     * @param key      The key, whose value should be returned
+     * @param fallback The value, which is returned if the key is not mapped
+     * @return The value of the key or the fallback, if the key is not mapped
+     */
+    int get(long key, int fallback)
+    {
+        int mask = keys.length - 1;
+
+        for (int slot = slot(key, mask); keys[slot] != EMPTY; slot = (slot + 1) & mask)
+        {
+            if (keys[slot] == key)
+            {
+                return values[slot];
+            }
+        }
+        return fallback;
+    }
+
+    /**
+     * Maps the specified key to the specified value.
+     * <br>Discord ids are never <b>0</b>, so this key marks an empty slot and must not be mapped.
+     *
+     * @param key   The key, which should be mapped
+     * @param value The value of the key
+     */
+    void put(long key, int value)
+    {
+        if ((size + 1) << 1 > keys.length)
+        {
+            resize(keys.length << 1);
+        }
+
+        if (insert(keys, values, key, value))
+        {
+            size++;
+        }
+    }
+
+    /**
+     * Removes every mapping, which is not accepted by the specified predicate.
+     * <br>The map is rebuilt with the remaining mappings, so it also shrinks, if most of the mappings were removed.
+     *
+     * @param predicate The predicate, which accepts the mappings, that should be kept
+     * @return The amount of removed mappings
+     */
+    int retain(@NotNull EntryPredicate predicate)
+    {
+        int length = INITIAL_SIZE;
+        int kept = 0;
+
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (keys[i] != EMPTY && predicate.test(keys[i], values[i]))
+            {
+                kept++;
+            }
+        }
+
+        while (kept << 1 > length)
+        {
+            length <<= 1;
+        }
+
+        long[] retainedKeys = new long[length];
+        int[] retainedValues = new int[length];
+
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (keys[i] != EMPTY && predicate.test(keys[i], values[i]))
+            {
+                insert(retainedKeys, retainedValues, keys[i], values[i]);
+            }
+        }
+
+        int removed = size - kept;
+
+        keys = retainedKeys;
+        values = retainedValues;
+        size = kept;
+        return removed;
+    }
+
+    /**
+     * Passes every mapping of this map to the specified consumer.
+     *
+     * @param consumer The consumer, which receives every key and its value
+     * @param <E>      The exception, which may be thrown by the consumer
+     * @throws E If the consumer throws it
+     */
+    <E extends Exception> void forEach(@NotNull EntryConsumer<E> consumer) throws E
+    {
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (keys[i] != EMPTY)
+            {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * Copies this map, so it can be read, while this map is changed.
+     *
+     * @return A <b>new</b> {@link LongIntMap map} with the same mappings
+     */
+    @NotNull
+    LongIntMap copy()
+    {
+        LongIntMap copy = new LongIntMap();
+        copy.keys = keys.clone();
+        copy.values = values.clone();
+        copy.size = size;
+        return copy;
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    private void resize(int length)
+    {
+        long[] resizedKeys = new long[length];
+        int[] resizedValues = new int[length];
+
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (keys[i] != EMPTY)
+            {
+                insert(resizedKeys, resizedValues, keys[i], values[i]);
+            }
+        }
+
+        keys = resizedKeys;
+        values = resizedValues;
+    }
+
+    private static boolean insert(long[] keys, int[] values, long key, int value)
+    {
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+
+        while (keys[slot] != EMPTY)
+        {
+            if (keys[slot] == key)
+            {
+                values[slot] = value;
+                return false;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        return true;
+    }
+
+    private static int slot(long key, int mask)
+    {
+        long hash = key * 0x9e3779b97f4a7c15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * A consumer, which receives the mappings of a {@link LongIntMap map}.
+     *
+     * @param <E> The exception, which may be thrown by the consumer
+     */
+    interface EntryConsumer<E extends Exception>
+    {
+        void accept(long key, int value) throws E;
+    }
+
+    /**
+     * A predicate, which tests the mappings of a {@link LongIntMap map}.
+     */
+    interface EntryPredicate
+    {
+        boolean test(long key, int value);
+    }
+}
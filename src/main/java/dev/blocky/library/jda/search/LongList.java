@@ -0,0 +1,102 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.search;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive <b>long</b> values, which holds the ids of a posting list.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+final class LongList
+{
+    private static final int INITIAL_SIZE = 4;
+
+    private long[] values = new long[INITIAL_SIZE];
+    private int size;
+
+    void add(long value)
+    {
+        if (size == values.length)
+        {
+            values = Arrays.copyOf(values, size << 1);
+        }
+
+        values[size++] = value;
+    }
+
+    void addAll(@NotNull long[] other)
+    {
+        if (size + other.length > values.length)
+        {
+            values = Arrays.copyOf(values, Math.max(size << 1, size + other.length));
+        }
+
+        System.arraycopy(other, 0, values, size, other.length);
+        size += other.length;
+    }
+
+    /**
+     * Removes the first occurrence of the specified value.
+     * <br>The last value is moved into the freed slot, so the order of the values is not kept.
+     *
+     * @param value The value, which should be removed
+     */
+    void remove(long value)
+    {
+        for (int i = 0; i < size; i++)
+        {
+            if (values[i] == value)
+            {
+                values[i] = values[--size];
+                return;
+            }
+        }
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Sorts the values of this list and removes the duplicates.
+     *
+     * @return The sorted and distinct values
+     */
+    @NotNull
+    long[] toSortedArray()
+    {
+        long[] sorted = Arrays.copyOf(values, size);
+        Arrays.sort(sorted);
+
+        int distinct = 0;
+
+        for (int i = 0; i < sorted.length; i++)
+        {
+            if (i == 0 || sorted[i] != sorted[i - 1])
+            {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        return distinct == sorted.length ? sorted : Arrays.copyOf(sorted, distinct);
+    }
+}
@@ -0,0 +1,1170 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.search;
+
+import dev.blocky.library.jda.history.HistoryPlanner;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageChannel;
+import net.dv8tion.jda.api.events.ShutdownEvent;
+import net.dv8tion.jda.api.events.message.MessageBulkDeleteEvent;
+import net.dv8tion.jda.api.events.message.MessageDeleteEvent;
+import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+import net.dv8tion.jda.api.events.message.MessageUpdateEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+
+import javax.annotation.CheckReturnValue;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * A local full-text index, which maps the words of the messages of every channel to the ids of the messages, which contain them.
+ * <br>The index is stored in a directory and consists of immutable {@link IndexSegment segments}. New messages are buffered in memory
+ * and written to a new segment, as soon as a specific amount of postings is buffered or the index is flushed. The full buffer is
+ * handed to a background thread, which writes the segment and runs the merges, so adding a message never waits for the disk. Until
+ * its segment is written, the handed buffer is searched like a segment. Every segment holds a
+ * sorted term dictionary per channel and the posting lists of the terms, whose ids are compressed as deltas, so the index stays small
+ * and a search only reads the posting lists of the matching terms.
+ * <br>The content of a message is split into lowercase words, which consist of letters and digits. A query is split in the same way
+ * and a message matches, if every word of the query is the beginning of one of its words, so <b>"purg mess"</b> matches <b>"Purged
+ * the messages"</b>. The matching terms are found with a binary search in the sorted dictionaries.
+ * <br>Postings are never changed in a segment, so an edited or deleted message gets a tombstone, which holds the first segment
+ * generation, whose postings of the message are still valid. An edited message is valid from the generation of its new content on and
+ * a deleted message is never valid again. The tombstones are checked at query time and written to the directory. After every flush,
+ * the two newest segments are merged, as long as the older one is at most twice as large as the newer one, so every segment is more
+ * than twice as large as the next one and the amount of segments only grows logarithmically. A merge drops the postings, which are hidden by tombstones, and the tombstones, which no longer hide any posting.
+ * <br>The generations of the merged segments are written to a manifest, before their tombstones are dropped, so a merged segment,
+ * whose file could not be deleted, is never loaded again.
+ * <br>The index is fed by the gateway events, after it was registered as an event listener (e.g. with
+ * {@link net.dv8tion.jda.api.JDA#addEventListener(Object...) JDA#addEventListener(Object...)}), and older messages can be added with
+ * {@link #backfill(MessageChannel, int)}. The channel wrappers use the index, after it was set with
+ * {@link dev.blocky.library.jda.Utility#setMessageIndex(MessageIndex) Utility#setMessageIndex(MessageIndex)}.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+public final class MessageIndex extends ListenerAdapter implements Closeable
+{
+    private static final Logger logger = JDALogger.getLog(MessageIndex.class);
+
+    /**
+     * The default amount of postings, which are buffered in memory, before they are written to a new segment.
+     */
+    public static final int DEFAULT_FLUSH_THRESHOLD = 1_000_000;
+
+    /**
+     * The maximum length of an indexed word, longer words are cut to this length.
+     */
+    public static final int MAX_TERM_LENGTH = 64;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".idx";
+    private static final String TOMBSTONE_FILE = "tombstones.ids";
+    private static final String MANIFEST_FILE = "merged.ids";
+    private static final int DELETED = Integer.MAX_VALUE;
+    private static final int MERGE_FACTOR = 2;
+
+    private final Path directory;
+    private final int flushThreshold;
+    private final ExecutorService writer;
+    private final List<IndexSegment> segments = new ArrayList<>();
+    private final List<PendingSegment> pending = new ArrayList<>();
+    private final Map<Long, BufferedMessage> bufferedMessages = new HashMap<>();
+    private final LongIntMap tombstones = new LongIntMap();
+
+    private TreeMap<Long, NavigableMap<String, LongList>> buffer = new TreeMap<>();
+
+    private DataOutputStream tombstoneOut;
+    private int buffered;
+    private int nextSegment;
+    private boolean closed;
+
+    private MessageIndex(@NotNull Path directory, int flushThreshold)
+    {
+        this.directory = directory;
+        this.flushThreshold = flushThreshold;
+        this.writer = Executors.newSingleThreadExecutor(runnable ->
+        {
+            Thread thread = new Thread(runnable, "JDA-Commons Message-Index " + directory);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens the index, which is stored in the specified directory, with the default flush threshold.
+     * <br>If the directory does not exist, it will be created.
+     *
+     * @param directory The directory, in which the index is stored
+     * @return The opened {@link MessageIndex message index}
+     * @throws IOException If the index could not be opened
+     */
+    @NotNull
+    public static MessageIndex open(@NotNull Path directory) throws IOException
+    {
+        return open(directory, DEFAULT_FLUSH_THRESHOLD);
+    }
+
+    /**
+     * Opens the index, which is stored in the specified directory.
+     * <br>If the directory does not exist, it will be created. The flush threshold must be greater than 0.
+     * (if this is not the case, the {@link #DEFAULT_FLUSH_THRESHOLD default flush threshold} will be used)
+     *
+     * @param directory      The directory, in which the index is stored
+     * @param flushThreshold The amount of postings, which are buffered in memory, before they are written to a new segment
+     * @return The opened {@link MessageIndex message index}
+     * @throws IOException If the index could not be opened
+     */
+    @NotNull
+    public static MessageIndex open(@NotNull Path directory, int flushThreshold) throws IOException
+    {
+        if (flushThreshold < 1)
+        {
+            logger.error("The flush threshold must be greater than 0.", new IllegalArgumentException());
+            flushThreshold = DEFAULT_FLUSH_THRESHOLD;
+        }
+
+        Files.createDirectories(directory);
+
+        MessageIndex index = new MessageIndex(directory, flushThreshold);
+        Path tombstoneFile = directory.resolve(TOMBSTONE_FILE);
+
+        Files.deleteIfExists(tombstoneFile.resolveSibling(TOMBSTONE_FILE + ".tmp"));
+
+        if (Files.exists(tombstoneFile))
+        {
+            try (InputStream in = Files.newInputStream(tombstoneFile);
+                 DataInputStream data = new DataInputStream(new BufferedInputStream(in)))
+            {
+                while (true)
+                {
+                    long messageId = data.readLong();
+                    int validFrom = data.readInt();
+
+                    index.tombstones.put(messageId, Math.max(validFrom, index.tombstones.get(messageId, 0)));
+                }
+            }
+            catch (EOFException e)
+            {
+                // A torn tombstone at the end of the file is ignored.
+            }
+        }
+
+        index.tombstoneOut = openTombstones(tombstoneFile);
+
+        Path manifestFile = directory.resolve(MANIFEST_FILE);
+        Set<Integer> merged = new HashSet<>();
+        Set<Integer> undeleted = new HashSet<>();
+
+        Files.deleteIfExists(manifestFile.resolveSibling(MANIFEST_FILE + ".tmp"));
+
+        if (Files.exists(manifestFile))
+        {
+            try (InputStream in = Files.newInputStream(manifestFile);
+                 DataInputStream data = new DataInputStream(new BufferedInputStream(in)))
+            {
+                while (true)
+                {
+                    merged.add(data.readInt());
+                }
+            }
+            catch (EOFException e)
+            {
+                // A torn generation at the end of the file is ignored.
+            }
+        }
+
+        List<Path> files = new ArrayList<>();
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*"))
+        {
+            for (Path file : stream)
+            {
+                String name = file.getFileName().toString();
+
+                if (name.endsWith(SEGMENT_SUFFIX + ".tmp"))
+                {
+                    // A segment, which was not written completely, is never referenced.
+                    Files.deleteIfExists(file);
+                }
+                else if (name.endsWith(SEGMENT_SUFFIX))
+                {
+                    files.add(file);
+                }
+            }
+        }
+
+        for (Path file : files)
+        {
+            String name = file.getFileName().toString();
+            int generation = 0;
+
+            try
+            {
+                generation = Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            }
+            catch (NumberFormatException e)
+            {
+                logger.warn("The segment " + file + " has no number in its name, so it is treated as the oldest segment.");
+            }
+
+            if (merged.contains(generation))
+            {
+                // The tombstones, which hid the postings of a merged segment, may already be dropped.
+                try
+                {
+                    Files.delete(file);
+                }
+                catch (IOException e)
+                {
+                    logger.warn("The merged segment " + file + " could not be deleted, so it is skipped.", e);
+                    undeleted.add(generation);
+                }
+                continue;
+            }
+
+            IndexSegment segment = IndexSegment.open(file, generation);
+
+            if (segment == null)
+            {
+                logger.error("The file " + file + " is not a segment of a message index, so it is skipped.", new IllegalArgumentException());
+                continue;
+            }
+
+            index.segments.add(segment);
+            index.nextSegment = Math.max(index.nextSegment, generation + 1);
+        }
+
+        for (int generation : merged)
+        {
+            index.nextSegment = Math.max(index.nextSegment, generation + 1);
+        }
+
+        // The manifest only keeps the segments, which are still stored, and its torn end is dropped.
+        if (!merged.isEmpty())
+        {
+            index.rewriteManifest(undeleted);
+        }
+
+        index.segments.sort(Comparator.comparingInt(IndexSegment::getGeneration));
+        return index;
+    }
+
+    @Override
+    public void onMessageReceived(@NotNull MessageReceivedEvent event)
+    {
+        add(event.getMessage());
+    }
+
+    @Override
+    public void onMessageUpdate(@NotNull MessageUpdateEvent event)
+    {
+        Message message = event.getMessage();
+        update(message.getChannel().getIdLong(), message.getIdLong(), message.getContentRaw());
+    }
+
+    @Override
+    public void onMessageDelete(@NotNull MessageDeleteEvent event)
+    {
+        remove(event.getMessageIdLong());
+    }
+
+    @Override
+    public void onMessageBulkDelete(@NotNull MessageBulkDeleteEvent event)
+    {
+        for (String id : event.getMessageIds())
+        {
+            remove(Long.parseUnsignedLong(id));
+        }
+    }
+
+    @Override
+    public void onShutdown(@NotNull ShutdownEvent event)
+    {
+        try
+        {
+            close();
+        }
+        catch (IOException e)
+        {
+            logger.error("The message index " + directory + " could not be closed.", e);
+        }
+    }
+
+    /**
+     * Adds the words of the specified message to the index.
+     *
+     * @param message The {@link Message message}, which should be added
+     */
+    public void add(@NotNull Message message)
+    {
+        add(message.getChannel().getIdLong(), message.getIdLong(), message.getContentRaw());
+    }
+
+    /**
+     * Adds the words of the specified content to the index.
+     * <br>If too many postings are buffered afterwards, they are handed to the background thread, which writes them to a new segment.
+     *
+     * @param channelId The id of the channel, which contains the message
+     * @param messageId The id of the message
+     * @param content   The content of the message
+     */
+    public synchronized void add(long channelId, long messageId, @NotNull CharSequence content)
+    {
+        if (closed)
+        {
+            return;
+        }
+
+        Set<String> terms = tokenize(content);
+
+        if (terms.isEmpty())
+        {
+            return;
+        }
+
+        // A message, which is added twice, keeps only the postings of its last content.
+        unbuffer(messageId);
+
+        NavigableMap<String, LongList> channelTerms = buffer.computeIfAbsent(channelId, id -> new TreeMap<>());
+
+        for (String term : terms)
+        {
+            channelTerms.computeIfAbsent(term, key -> new LongList()).add(messageId);
+        }
+
+        bufferedMessages.put(messageId, new BufferedMessage(channelId, terms.toArray(new String[0])));
+        buffered += terms.size();
+
+        if (buffered >= flushThreshold)
+        {
+            freeze();
+            writer.execute(this::writeInBackground);
+        }
+    }
+
+    /**
+     * Replaces the words of the specified message with the words of its new content.
+     * <br>The buffered postings of the message are dropped and the postings, which were already written to a segment, are hidden by a
+     * tombstone, so the message only matches the words of its new content.
+     *
+     * @param channelId The id of the channel, which contains the message
+     * @param messageId The id of the message
+     * @param content   The new content of the message
+     */
+    public synchronized void update(long channelId, long messageId, @NotNull CharSequence content)
+    {
+        if (closed)
+        {
+            return;
+        }
+
+        unbuffer(messageId);
+        tombstone(messageId, nextSegment);
+        add(channelId, messageId, content);
+    }
+
+    /**
+     * Removes the specified message from the index, so it is never returned by a search again.
+     *
+     * @param messageId The id of the message, which was deleted
+     */
+    public synchronized void remove(long messageId)
+    {
+        if (closed)
+        {
+            return;
+        }
+
+        unbuffer(messageId);
+        tombstone(messageId, DELETED);
+    }
+
+    /**
+     * Adds the newest <b>amount</b> messages of the specified channel to the index.
+     * <br>The history is read with the {@link HistoryPlanner history planner}, so the messages, which are held by the message cache, are
+     * not requested again.
+     *
+     * @param channel The {@link MessageChannel message channel}, whose history should be added
+     * @param amount  The amount of messages, which should be added
+     * @return A {@link CompletableFuture future}, which is completed with the amount of added messages
+     */
+    @NotNull
+    @CheckReturnValue
+    public CompletableFuture<Integer> backfill(@NotNull MessageChannel channel, int amount)
+    {
+        return HistoryPlanner.walk(channel, Long.MAX_VALUE, amount, true, message ->
+        {
+            add(message);
+            return true;
+        });
+    }
+
+    /**
+     * Searches the messages of the specified channel, which match every word of the specified query.
+     *
+     * @param channelId The id of the channel, whose messages should be searched
+     * @param query     The query, whose words should be the beginnings of the words of the messages
+     * @param limit     The maximum amount of ids, which should be returned
+     * @return The ids of the newest matching messages, from the newest to the oldest one
+     */
+    @NotNull
+    public synchronized long[] search(long channelId, @NotNull CharSequence query, int limit)
+    {
+        Set<String> tokens = tokenize(query);
+
+        if (tokens.isEmpty() || limit < 1)
+        {
+            return new long[0];
+        }
+
+        long[] matches = null;
+
+        for (String token : tokens)
+        {
+            LongList postings = new LongList();
+
+            for (IndexSegment segment : segments)
+            {
+                int generation = segment.getGeneration();
+                segment.read(channelId, token, ids -> postings.addAll(valid(ids, generation)));
+            }
+
+            for (PendingSegment segment : pending)
+            {
+                read(segment.postings, channelId, token, ids -> postings.addAll(valid(ids, segment.generation)));
+            }
+
+            // The buffered postings of edited and deleted messages are already dropped.
+            read(buffer, channelId, token, postings::addAll);
+
+            long[] ids = postings.toSortedArray();
+            matches = matches == null ? ids : intersect(matches, ids);
+
+            if (matches.length == 0)
+            {
+                return matches;
+            }
+        }
+
+        long[] newest = new long[Math.min(limit, matches.length)];
+
+        for (int i = 0; i < newest.length; i++)
+        {
+            newest[i] = matches[matches.length - 1 - i];
+        }
+        return newest;
+    }
+
+    /**
+     * Writes the buffered postings to a new segment and the tombstones to the directory.
+     * <br>Afterwards, the two newest segments are merged, as long as the older one is at most twice as large as the newer one. This
+     * waits, until the background thread has written every segment, which was handed to it before.
+     *
+     * @throws IOException If a segment could not be written
+     */
+    public void flush() throws IOException
+    {
+        synchronized (this)
+        {
+            if (closed)
+            {
+                return;
+            }
+
+            tombstoneOut.flush();
+            freeze();
+        }
+
+        await(this::writePending);
+    }
+
+    /**
+     * Flushes the index and merges all segments into a single one.
+     * <br>The merged segment holds no postings of edited or deleted messages anymore, so all tombstones are dropped. This reads and
+     * writes the whole index, so it should only be called rarely, e.g. when the bot is idle.
+     *
+     * @throws IOException If a segment could not be written
+     */
+    public void compact() throws IOException
+    {
+        synchronized (this)
+        {
+            if (closed)
+            {
+                return;
+            }
+
+            tombstoneOut.flush();
+            freeze();
+        }
+
+        await(() ->
+        {
+            writePending();
+            merge(true);
+        });
+    }
+
+    /**
+     * Flushes the index and closes it, so no more messages are added or found.
+     *
+     * @throws IOException If the index could not be flushed
+     */
+    @Override
+    public void close() throws IOException
+    {
+        synchronized (this)
+        {
+            if (closed)
+            {
+                return;
+            }
+
+            closed = true;
+            freeze();
+        }
+
+        try
+        {
+            await(this::writePending);
+        }
+        finally
+        {
+            writer.shutdown();
+
+            synchronized (this)
+            {
+                tombstoneOut.close();
+
+                for (IndexSegment segment : segments)
+                {
+                    segment.close();
+                }
+
+                segments.clear();
+                pending.clear();
+            }
+        }
+    }
+
+    /**
+     * The directory, in which the index is stored.
+     *
+     * @return The directory of the index
+     */
+    @NotNull
+    public Path getDirectory()
+    {
+        return directory;
+    }
+
+    /**
+     * The amount of segments, which were written to the directory.
+     *
+     * @return The amount of segments
+     */
+    public synchronized int getSegmentCount()
+    {
+        return segments.size();
+    }
+
+    /**
+     * The amount of postings, which are buffered in memory and not yet handed to the background thread.
+     *
+     * @return The amount of buffered postings
+     */
+    public synchronized int getBufferedCount()
+    {
+        return buffered;
+    }
+
+    /**
+     * The amount of tombstones, which hide the postings of edited or deleted messages.
+     * <br>The tombstones are dropped, as soon as the postings, which they hide, are merged away.
+     *
+     * @return The amount of tombstones
+     */
+    public synchronized int getTombstoneCount()
+    {
+        return tombstones.size();
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "MessageIndex{" +
+                "directory=" + directory +
+                ", segments=" + segments.size() +
+                ", buffered=" + buffered +
+                ", tombstones=" + tombstones.size() +
+                '}';
+    }
+
+    /**
+     * Splits the specified text into its distinct lowercase words, which consist of letters and digits.
+     *
+     * @param text The text, which should be split
+     * @return The distinct words of the text
+     */
+    @NotNull
+    static Set<String> tokenize(@NotNull CharSequence text)
+    {
+        Set<String> terms = new LinkedHashSet<>();
+        StringBuilder term = new StringBuilder();
+
+        for (int i = 0; i <= text.length(); i++)
+        {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+
+            if (Character.isLetterOrDigit(c))
+            {
+                if (term.length() < MAX_TERM_LENGTH)
+                {
+                    term.append(Character.toLowerCase(c));
+                }
+            }
+            else if (term.length() > 0)
+            {
+                terms.add(term.toString());
+                term.setLength(0);
+            }
+        }
+        return terms;
+    }
+
+    @NotNull
+    private long[] valid(@NotNull long[] ids, int generation)
+    {
+        if (tombstones.size() == 0)
+        {
+            return ids;
+        }
+
+        long[] valid = new long[ids.length];
+        int count = 0;
+
+        for (long id : ids)
+        {
+            if (tombstones.get(id, 0) <= generation)
+            {
+                valid[count++] = id;
+            }
+        }
+        return count == valid.length ? valid : Arrays.copyOf(valid, count);
+    }
+
+    private void unbuffer(long messageId)
+    {
+        BufferedMessage message = bufferedMessages.remove(messageId);
+
+        if (message == null)
+        {
+            return;
+        }
+
+        NavigableMap<String, LongList> channelTerms = buffer.get(message.channelId);
+
+        for (String term : message.terms)
+        {
+            LongList ids = channelTerms.get(term);
+            ids.remove(messageId);
+
+            if (ids.size() == 0)
+            {
+                channelTerms.remove(term);
+            }
+        }
+
+        if (channelTerms.isEmpty())
+        {
+            buffer.remove(message.channelId);
+        }
+
+        buffered -= message.terms.length;
+    }
+
+    private void tombstone(long messageId, int validFrom)
+    {
+        if (tombstones.get(messageId, 0) >= validFrom)
+        {
+            return;
+        }
+
+        tombstones.put(messageId, validFrom);
+
+        try
+        {
+            tombstoneOut.writeLong(messageId);
+            tombstoneOut.writeInt(validFrom);
+        }
+        catch (IOException e)
+        {
+            logger.error("The tombstone of the message " + messageId + " could not be written to " + directory + ".", e);
+        }
+    }
+
+    /**
+     * Hands the buffered postings to the background thread.
+     * <br>The generation of their segment is reserved now, so every tombstone, which is written afterwards, hides them.
+     */
+    private void freeze()
+    {
+        if (buffer.isEmpty())
+        {
+            return;
+        }
+
+        pending.add(new PendingSegment(nextSegment++, buffer));
+
+        buffer = new TreeMap<>();
+        bufferedMessages.clear();
+        buffered = 0;
+    }
+
+    private void writeInBackground()
+    {
+        try
+        {
+            writePending();
+        }
+        catch (IOException e)
+        {
+            logger.error("The buffered postings could not be written to a new segment of " + directory + ".", e);
+        }
+    }
+
+    /**
+     * Writes every pending segment and merges the newest segments after every written segment.
+     * <br>This is only called by the background thread, so the segments are written and merged without holding the monitor and the
+     * monitor is only held, while a written segment replaces its postings. The segments are kept in the order, in which they were
+     * written, because a merged segment gets a newer generation than the postings, which are still pending. A segment, which could not be written, stays pending, so
+     * its postings are still found and it is written again by the next flush.
+     *
+     * @throws IOException If a segment could not be written
+     */
+    private void writePending() throws IOException
+    {
+        while (true)
+        {
+            PendingSegment next;
+
+            synchronized (this)
+            {
+                if (pending.isEmpty())
+                {
+                    break;
+                }
+
+                next = pending.get(0);
+            }
+
+            IndexSegment segment = IndexSegment.write(segmentFile(next.generation), next.generation, next.postings);
+
+            synchronized (this)
+            {
+                pending.remove(0);
+                segments.add(segment);
+            }
+
+            while (merge(false))
+            {
+                // Every merge may allow the next one.
+            }
+        }
+    }
+
+    /**
+     * Merges the newest segments or every segment.
+     * <br>This is only called by the background thread. The segments are merged with a copy of the tombstones, so the monitor is
+     * only held, while the merged segment replaces the segments and the tombstones, which no longer hide any posting, are dropped.
+     *
+     * @param all If every segment should be merged
+     * @return If segments were merged
+     * @throws IOException If the merged segment could not be written
+     */
+    private boolean merge(boolean all) throws IOException
+    {
+        List<IndexSegment> merging;
+        LongIntMap hidden;
+        int generation;
+
+        synchronized (this)
+        {
+            int size = segments.size();
+            int from;
+
+            if (all)
+            {
+                from = size > 1 || (size == 1 && tombstones.size() > 0) ? 0 : -1;
+            }
+            else
+            {
+                from = size > 1 && segments.get(size - 2).getPostingCount() <= segments.get(size - 1).getPostingCount() * MERGE_FACTOR ? size - 2 : -1;
+            }
+
+            if (from < 0)
+            {
+                return false;
+            }
+
+            merging = new ArrayList<>(segments.subList(from, size));
+            hidden = tombstones.copy();
+            // The merged segment gets a new generation, so no file, which is still mapped, is replaced, and every tombstone, which is
+            // written during the merge, also hides the merged postings.
+            generation = nextSegment++;
+        }
+
+        IndexSegment merged = IndexSegment.merge(segmentFile(generation), generation, merging, hidden);
+
+        try
+        {
+            appendManifest(merging);
+        }
+        catch (IOException e)
+        {
+            // Without the manifest, the merged segments would be loaded again, so they are kept and the merged segment is dropped.
+            merged.close();
+            Files.deleteIfExists(merged.getFile());
+            throw e;
+        }
+
+        synchronized (this)
+        {
+            // Only the background thread changes the segments, so the merged segments are still the newest ones.
+            segments.removeAll(merging);
+            segments.add(merged);
+        }
+
+        for (IndexSegment segment : merging)
+        {
+            // No search reads the merged segments anymore, so they are unmapped, before their files are deleted.
+            segment.close();
+
+            try
+            {
+                Files.deleteIfExists(segment.getFile());
+            }
+            catch (IOException e)
+            {
+                logger.warn("The merged segment " + segment.getFile() + " could not be deleted, so it is deleted, when the index is opened again.", e);
+            }
+        }
+
+        synchronized (this)
+        {
+            int oldest = oldestGeneration();
+            // Without buffered postings, a single segment holds no hidden posting at all, but a tombstone, which was written during
+            // the merge, still hides the merged postings.
+            boolean single = segments.size() == 1 && pending.isEmpty() && buffer.isEmpty();
+
+            if (tombstones.retain((messageId, validFrom) -> !(single && hidden.get(messageId, 0) == validFrom) && (validFrom == DELETED || validFrom > oldest)) > 0)
+            {
+                rewriteTombstones();
+            }
+        }
+        return true;
+    }
+
+    private int oldestGeneration()
+    {
+        int oldest = Integer.MAX_VALUE;
+
+        for (IndexSegment segment : segments)
+        {
+            oldest = Math.min(oldest, segment.getGeneration());
+        }
+
+        // The pending postings are hidden by the tombstones as well.
+        for (PendingSegment segment : pending)
+        {
+            oldest = Math.min(oldest, segment.generation);
+        }
+        return oldest;
+    }
+
+    /**
+     * Runs the specified task on the background thread and waits for it.
+     * <br>The background thread runs its tasks in order, so every task, which was handed to it before, is finished as well. An
+     * interrupt does not stop the wait, because the task would still touch the segments, which are closed afterwards.
+     *
+     * @param task The task, which should be run
+     * @throws IOException If the task failed
+     */
+    private void await(@NotNull IndexTask task) throws IOException
+    {
+        Future<Void> future = writer.submit(() ->
+        {
+            task.run();
+            return null;
+        });
+
+        boolean interrupted = false;
+
+        try
+        {
+            while (true)
+            {
+                try
+                {
+                    future.get();
+                    return;
+                }
+                catch (InterruptedException e)
+                {
+                    interrupted = true;
+                }
+                catch (ExecutionException e)
+                {
+                    Throwable cause = e.getCause();
+
+                    if (cause instanceof IOException)
+                    {
+                        throw (IOException) cause;
+                    }
+
+                    if (cause instanceof RuntimeException)
+                    {
+                        throw (RuntimeException) cause;
+                    }
+                    throw (Error) cause;
+                }
+            }
+        }
+        finally
+        {
+            if (interrupted)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void rewriteTombstones() throws IOException
+    {
+        Path file = directory.resolve(TOMBSTONE_FILE);
+        Path temp = file.resolveSibling(TOMBSTONE_FILE + ".tmp");
+
+        tombstoneOut.close();
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 65536));
+            tombstones.forEach((messageId, validFrom) ->
+            {
+                out.writeLong(messageId);
+                out.writeInt(validFrom);
+            });
+
+            out.flush();
+            channel.force(true);
+        }
+
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        tombstoneOut = openTombstones(file);
+    }
+
+    private void appendManifest(@NotNull List<IndexSegment> merged) throws IOException
+    {
+        ByteBuffer generations = ByteBuffer.allocate(merged.size() * Integer.BYTES);
+
+        for (IndexSegment segment : merged)
+        {
+            generations.putInt(segment.getGeneration());
+        }
+
+        generations.flip();
+
+        try (FileChannel channel = FileChannel.open(directory.resolve(MANIFEST_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND))
+        {
+            while (generations.hasRemaining())
+            {
+                channel.write(generations);
+            }
+
+            channel.force(true);
+        }
+    }
+
+    private void rewriteManifest(@NotNull Set<Integer> generations) throws IOException
+    {
+        Path file = directory.resolve(MANIFEST_FILE);
+
+        if (generations.isEmpty())
+        {
+            Files.deleteIfExists(file);
+            return;
+        }
+
+        Path temp = file.resolveSibling(MANIFEST_FILE + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(generations.size() * Integer.BYTES);
+
+            for (int generation : generations)
+            {
+                buffer.putInt(generation);
+            }
+
+            buffer.flip();
+
+            while (buffer.hasRemaining())
+            {
+                channel.write(buffer);
+            }
+
+            channel.force(true);
+        }
+
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @NotNull
+    private Path segmentFile(int generation)
+    {
+        return directory.resolve(String.format(Locale.ROOT, "%s%06d%s", SEGMENT_PREFIX, generation, SEGMENT_SUFFIX));
+    }
+
+    @NotNull
+    private static DataOutputStream openTombstones(@NotNull Path file) throws IOException
+    {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+    }
+
+    private static void read(@NotNull NavigableMap<Long, NavigableMap<String, LongList>> postings, long channelId, @NotNull String token,
+                             @NotNull Consumer<long[]> consumer)
+    {
+        NavigableMap<String, LongList> channelTerms = postings.get(channelId);
+
+        if (channelTerms == null)
+        {
+            return;
+        }
+
+        for (Map.Entry<String, LongList> term : channelTerms.tailMap(token, true).entrySet())
+        {
+            if (!term.getKey().startsWith(token))
+            {
+                break;
+            }
+
+            consumer.accept(term.getValue().toSortedArray());
+        }
+    }
+
+    @NotNull
+    private static long[] intersect(@NotNull long[] first, @NotNull long[] second)
+    {
+        long[] common = new long[Math.min(first.length, second.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+
+        while (i < first.length && j < second.length)
+        {
+            if (first[i] < second[j])
+            {
+                i++;
+            }
+            else if (first[i] > second[j])
+            {
+                j++;
+            }
+            else
+            {
+                common[count++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return count == common.length ? common : Arrays.copyOf(common, count);
+    }
+
+    /**
+     * A task of the background thread, which may fail with an {@link IOException}.
+     */
+    private interface IndexTask
+    {
+        void run() throws IOException;
+    }
+
+    /**
+     * The postings, which were handed to the background thread, and the generation, which was reserved for their segment.
+     * <br>The postings are never changed afterwards, so they are written without holding the monitor.
+     */
+    private static final class PendingSegment
+    {
+        private final int generation;
+        private final NavigableMap<Long, NavigableMap<String, LongList>> postings;
+
+        private PendingSegment(int generation, @NotNull NavigableMap<Long, NavigableMap<String, LongList>> postings)
+        {
+            this.generation = generation;
+            this.postings = postings;
+        }
+    }
+
+    /**
+     * The channel and the distinct terms of a message, whose postings are buffered, so they can be dropped again.
+     */
+    private static final class BufferedMessage
+    {
+        private final long channelId;
+        private final String[] terms;
+
+        private BufferedMessage(long channelId, @NotNull String[] terms)
+        {
+            this.channelId = channelId;
+            this.terms = terms;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+/**
+ * Root package of the JDA-Commons message search.
+ *
+ * <br>From here you can navigate to the search features. <br>
+ *
+ * <ul>
+ * <li>{@link dev.blocky.library.jda.search.MessageIndex Message index}
+ * <br>A local full-text index, which maps the words of the messages of every channel to the ids of the messages, which contain them.</li>
+ * </ul>
+ */
+package dev.blocky.library.jda.search;
@@ -0,0 +1,113 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Tests the {@link ContentIndex content index}.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+class ContentIndexTest
+{
+    @Test
+    void hashIsNeverZeroAndDependsOnEveryCharacter()
+    {
+        assertNotEquals(0, ContentIndex.hash(""));
+        assertEquals(ContentIndex.hash("hello"), ContentIndex.hash(new StringBuilder("hello")));
+        assertNotEquals(ContentIndex.hash("hello"), ContentIndex.hash("hellp"));
+        assertNotEquals(ContentIndex.hash("ab"), ContentIndex.hash("ba"));
+    }
+
+    @Test
+    void countsDropToZeroWhenEveryCopyIsRemoved()
+    {
+        ContentIndex index = new ContentIndex(4);
+        long hash = ContentIndex.hash("hello");
+
+        index.add(hash);
+        index.add(hash);
+        assertEquals(2, index.count(hash));
+
+        index.remove(hash);
+        assertEquals(1, index.count(hash));
+
+        index.remove(hash);
+        index.remove(hash);
+        assertEquals(0, index.count(hash));
+    }
+
+    @Test
+    void removingFromAProbeSequenceKeepsTheFollowingHashes()
+    {
+        ContentIndex index = new ContentIndex(16);
+
+        // All of these hashes have the same home slot, so they form one long probe sequence.
+        for (long key = 1; key <= 16; key++)
+        {
+            index.add(key << 32 | key);
+        }
+
+        for (long key = 1; key <= 16; key += 2)
+        {
+            index.remove(key << 32 | key);
+        }
+
+        for (long key = 1; key <= 16; key++)
+        {
+            assertEquals(key % 2 == 0 ? 1 : 0, index.count(key << 32 | key), "key " + key);
+        }
+    }
+
+    @Test
+    void countsMatchTheModel()
+    {
+        Random random = new Random(1);
+        ContentIndex index = new ContentIndex(64);
+        Map<Long, Integer> model = new HashMap<>();
+
+        for (int operation = 0; operation < 100_000; operation++)
+        {
+            // A few distinct hashes with equal low bits, so the probe sequences overlap.
+            long hash = (long) random.nextInt(48) << 40 | random.nextInt(4) + 1;
+
+            // The table is sized for 64 messages, so at most 64 distinct hashes are held at the same time.
+            if (model.containsKey(hash) ? random.nextBoolean() : model.size() < 64)
+            {
+                index.add(hash);
+                model.merge(hash, 1, Integer::sum);
+            }
+            else if (model.containsKey(hash))
+            {
+                index.remove(hash);
+                model.computeIfPresent(hash, (key, count) -> count == 1 ? null : count - 1);
+            }
+
+            long probe = (long) random.nextInt(48) << 40 | random.nextInt(4) + 1;
+            assertEquals(model.getOrDefault(probe, 0).intValue(), index.count(probe), "operation " + operation);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cache;
+
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.User;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the {@link MessageRing message ring} against a sorted map, which holds the messages, that should be live.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+class MessageRingTest
+{
+    @Test
+    void fullRingDropsTheOldestMessageAndRaisesTheFloor()
+    {
+        MessageRing ring = new MessageRing(3, 10, new AtomicLong(), new AtomicLong());
+
+        for (long id = 10; id <= 50; id += 10)
+        {
+            assertTrue(ring.add(message(id, 1, "content")));
+        }
+
+        List<Message> read = new ArrayList<>();
+
+        assertEquals(21, ring.read(Long.MAX_VALUE, 10, read));
+        assertEquals(ids(50, 40, 30), ids(read));
+
+        // A message below the floor is ignored and a message, which is older than every message of a full ring, raises the floor.
+        ring.add(message(15, 1, "content"));
+        ring.add(message(25, 1, "content"));
+        assertEquals(3, ring.size());
+
+        read.clear();
+        assertEquals(26, ring.read(40, 10, read));
+        assertEquals(ids(30), ids(read));
+    }
+
+    @Test
+    void readsSkipTombstonesAndMatchTheModel()
+    {
+        Random random = new Random(1);
+
+        for (int round = 0; round < 1000; round++)
+        {
+            int capacity = 1 + random.nextInt(20);
+            long first = 1000 + random.nextInt(50);
+            MessageRing ring = new MessageRing(capacity, first, new AtomicLong(), new AtomicLong());
+            // Every id, which is held by the ring, mapped to true, if the message is live, or false, if it is a tombstone.
+            TreeMap<Long, Boolean> model = new TreeMap<>();
+            long floor = first - 1;
+            long next = first;
+
+            for (int operation = 0; operation < 300; operation++)
+            {
+                int kind = random.nextInt(10);
+
+                if (kind < 6)
+                {
+                    long id = next;
+                    next += 1 + random.nextInt(3);
+
+                    // Some messages arrive late, so they are inserted at their position.
+                    if (random.nextInt(5) == 0)
+                    {
+                        id = next - 1 - random.nextInt(10);
+                    }
+
+                    ring.add(message(id, id % 3, "content"));
+
+                    if (id > floor)
+                    {
+                        boolean added = model.put(id, true) == null;
+
+                        if (added && model.size() > capacity)
+                        {
+                            floor = model.pollFirstEntry().getKey();
+                        }
+                    }
+                }
+                else if (kind < 8 && !model.isEmpty())
+                {
+                    List<Long> held = new ArrayList<>(model.keySet());
+                    long id = held.get(random.nextInt(held.size()));
+
+                    ring.remove(id);
+                    model.put(id, false);
+                }
+                else
+                {
+                    long before = random.nextBoolean() ? Long.MAX_VALUE : 900 + random.nextInt((int) (next - 895));
+                    int amount = 1 + random.nextInt(30);
+                    List<Message> read = new ArrayList<>();
+                    List<Long> expected = new ArrayList<>();
+
+                    assertEquals(Math.min(before, floor + 1), ring.read(before, amount, read));
+
+                    for (Map.Entry<Long, Boolean> entry : model.headMap(before, false).descendingMap().entrySet())
+                    {
+                        if (expected.size() < amount && entry.getValue())
+                        {
+                            expected.add(entry.getKey());
+                        }
+                    }
+
+                    assertEquals(expected, ids(read), "round " + round + ", operation " + operation);
+
+                    long author = random.nextInt(3);
+                    long minId = first + random.nextInt(100);
+
+                    read.clear();
+                    expected.clear();
+                    ring.readByAuthor(author, minId, before, amount, read);
+
+                    for (Map.Entry<Long, Boolean> entry : model.headMap(before, false).descendingMap().entrySet())
+                    {
+                        if (expected.size() < amount && entry.getValue() && entry.getKey() >= minId && entry.getKey() % 3 == author)
+                        {
+                            expected.add(entry.getKey());
+                        }
+                    }
+
+                    assertEquals(expected, ids(read), "round " + round + ", operation " + operation);
+                }
+
+                assertEquals(model.size(), ring.size());
+            }
+        }
+    }
+
+    @Test
+    void contentIsOnlyAbsentIfNoLiveMessageHasIt()
+    {
+        MessageRing ring = new MessageRing(10, 1, new AtomicLong(), new AtomicLong());
+
+        ring.add(message(1, 1, "hello"));
+        ring.add(message(2, 1, "world"));
+        ring.add(message(3, 1, "hello"));
+
+        long hello = ContentIndex.hash("hello");
+        long world = ContentIndex.hash("world");
+        long other = ContentIndex.hash("other");
+
+        assertEquals(Boolean.TRUE, ring.contains("hello", hello, 3));
+        assertEquals(Boolean.FALSE, ring.contains("other", other, 3));
+        // Older messages, which are not held by the ring, would need to be checked.
+        assertNull(ring.contains("other", other, 4));
+        assertEquals(Boolean.TRUE, ring.contains("hello", hello, 4));
+
+        ring.update(message(2, 1, "edited"));
+        assertEquals(Boolean.FALSE, ring.contains("world", world, 3));
+
+        ring.remove(1);
+        assertEquals(Boolean.TRUE, ring.contains("hello", hello, 2));
+
+        ring.remove(3);
+        assertEquals(Boolean.FALSE, ring.contains("hello", hello, 1));
+    }
+
+    @Test
+    void hashHitsAreConfirmedByTheContentsOfTheWindow()
+    {
+        MessageRing ring = new MessageRing(10, 1, new AtomicLong(), new AtomicLong());
+
+        ring.add(message(1, 1, "hello"));
+        ring.add(message(2, 1, "world"));
+        ring.add(message(3, 1, "again"));
+
+        long hello = ContentIndex.hash("hello");
+
+        // The only message with the hash is older than the newest two messages.
+        assertEquals(Boolean.FALSE, ring.contains("hello", hello, 2));
+        assertEquals(Boolean.TRUE, ring.contains("hello", hello, 3));
+
+        // A content with an equal hash is told apart by its real content.
+        assertEquals(Boolean.FALSE, ring.contains("other", hello, 3));
+        assertNull(ring.contains("other", hello, 4));
+    }
+
+    @Test
+    void sharedCountersFollowTheRing()
+    {
+        AtomicLong slots = new AtomicLong();
+        AtomicLong bytes = new AtomicLong();
+        MessageRing ring = new MessageRing(2, 1, slots, bytes);
+
+        ring.add(message(1, 1, "a"));
+        ring.add(message(2, 1, "bb"));
+        ring.add(message(3, 1, "ccc"));
+
+        assertEquals(2, slots.get());
+        assertEquals(2L * MessageRing.MESSAGE_OVERHEAD + 2 * 5, bytes.get());
+        assertEquals(bytes.get(), ring.getBytes());
+
+        // A tombstone keeps its slot, but not its bytes.
+        ring.remove(3);
+        assertEquals(2, slots.get());
+        assertEquals(MessageRing.MESSAGE_OVERHEAD + 4, bytes.get());
+
+        ring.evict();
+        assertEquals(0, slots.get());
+        assertEquals(0, bytes.get());
+        assertFalse(ring.add(message(4, 1, "dddd")));
+    }
+
+    @NotNull
+    private static Message message(long id, long authorId, @NotNull String content)
+    {
+        User author = (User) Proxy.newProxyInstance(User.class.getClassLoader(), new Class<?>[]{ User.class }, (proxy, method, args) ->
+        {
+            if (method.getName().equals("getIdLong"))
+            {
+                return authorId;
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+
+        return (Message) Proxy.newProxyInstance(Message.class.getClassLoader(), new Class<?>[]{ Message.class }, (proxy, method, args) ->
+        {
+            switch (method.getName())
+            {
+                case "getIdLong":
+                    return id;
+                case "getAuthor":
+                    return author;
+                case "getContentRaw":
+                    return content;
+                case "getAttachments":
+                case "getEmbeds":
+                    return Collections.emptyList();
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    @NotNull
+    private static List<Long> ids(long... ids)
+    {
+        List<Long> list = new ArrayList<>(ids.length);
+
+        for (long id : ids)
+        {
+            list.add(id);
+        }
+        return list;
+    }
+
+    @NotNull
+    private static List<Long> ids(@NotNull List<Message> messages)
+    {
+        List<Long> list = new ArrayList<>(messages.size());
+
+        for (Message message : messages)
+        {
+            list.add(message.getIdLong());
+        }
+        return list;
+    }
+}
@@ -0,0 +1,234 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cache;
+
+import dev.blocky.library.jda.purge.PurgeFilter;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.entities.channel.unions.MessageChannelUnion;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the {@link MessageStore message store} and the chains, which link its records per channel and per author.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+class MessageStoreTest
+{
+    @Test
+    void recordsExposeTheFlagsAndTheContentOfTheirMessages()
+    {
+        MessageStore store = new MessageStore(10, 1024);
+
+        store.add(message(100, 1, 7, "hello", true));
+        store.add(message(100, 2, 8, "world", false));
+
+        assertArrayEquals(new long[]{ 1 }, store.select(100, MessageRecord::isPinned));
+        assertArrayEquals(new long[]{ 2 }, store.select(100, record -> "world".equals(record.getContentRaw())));
+        assertArrayEquals(new long[]{ 2 }, store.select(100, record -> record.getAuthorIdLong() == 8 && record.getChannelIdLong() == 100));
+
+        // Adding a message again updates its record.
+        store.add(message(100, 2, 8, "edited", true));
+        assertEquals(2, store.getMessageCount());
+        assertArrayEquals(new long[]{ 2, 1 }, store.select(100, MessageRecord::isPinned));
+    }
+
+    @Test
+    void recordsWithoutContentArenaHaveNoContent()
+    {
+        MessageStore store = new MessageStore(10, 0);
+
+        store.add(message(100, 1, 7, "hello", false));
+
+        assertTrue(store.contains(1));
+        assertArrayEquals(new long[]{ 1 }, store.select(100, record ->
+        {
+            assertNull(record.getContentRaw());
+            return true;
+        }));
+    }
+
+    @Test
+    void droppedContentsAreNotReadAsEmptyContents()
+    {
+        MessageStore store = new MessageStore(10, 64);
+        Predicate<MessageRecord> empty = PurgeFilter.create().matching(Pattern.compile("^$")).compileStored();
+
+        store.add(message(100, 1, 7, "", false));
+        store.add(message(100, 2, 7, repeat('a', 40), false));
+        // The content of the second message is overwritten by the third one and the fourth one is larger than the whole arena.
+        store.add(message(100, 3, 7, repeat('b', 40), false));
+        store.add(message(100, 4, 7, repeat('c', 100), false));
+
+        Map<Long, String> contents = new LinkedHashMap<>();
+        store.select(100, record ->
+        {
+            contents.put(record.getIdLong(), record.getContentRaw());
+            return true;
+        });
+
+        assertEquals("", contents.get(1L));
+        assertNull(contents.get(2L));
+        assertEquals(repeat('b', 40), contents.get(3L));
+        assertNull(contents.get(4L));
+
+        // A regex, which matches an empty content, must not match a content, which is not known anymore.
+        assertArrayEquals(new long[]{ 1 }, store.select(100, empty));
+    }
+
+    @Test
+    void selectionsFollowTheChainsThroughEvictionsRemovesAndInvalidations()
+    {
+        int maxMessages = 5000;
+        MessageStore store = new MessageStore(maxMessages, 0);
+        Random random = new Random(1);
+        // Every live message mapped to its channel and its author.
+        Map<Long, long[]> live = new LinkedHashMap<>();
+        Deque<Long> written = new ArrayDeque<>();
+
+        for (long id = 1; id <= 40_000; id++)
+        {
+            // The first half is spread over 50 channels and the second half over 5 channels, so most channels run empty.
+            long channel = 100 + random.nextInt(id <= 20_000 ? 50 : 5);
+            long author = 1 + random.nextInt(7);
+
+            store.add(message(channel, id, author, "", false));
+            written.add(id);
+            live.put(id, new long[]{ channel, author });
+
+            if (written.size() > maxMessages)
+            {
+                live.remove(written.poll());
+            }
+
+            if (random.nextInt(10) == 0)
+            {
+                long victim = id - random.nextInt(100);
+
+                store.remove(victim);
+                live.remove(victim);
+            }
+
+            if (id % 997 == 0)
+            {
+                long channelId = 100 + random.nextInt(5);
+
+                store.invalidate(channelId);
+                live.values().removeIf(value -> value[0] == channelId);
+            }
+
+            if (id % 1000 == 0)
+            {
+                for (long channelId = 100; channelId < 105; channelId++)
+                {
+                    assertArrayEquals(expected(live, channelId, -1, Integer.MAX_VALUE), store.select(channelId, record -> true), "id " + id);
+                    assertArrayEquals(expected(live, channelId, 3, 10), store.selectByAuthor(channelId, 3, 0, Long.MAX_VALUE, 10), "id " + id);
+                }
+
+                assertEquals(live.size(), store.getMessageCount());
+            }
+        }
+
+        assertFalse(store.contains(1));
+        assertEquals(5, store.getChannelCount());
+    }
+
+    @NotNull
+    private static long[] expected(@NotNull Map<Long, long[]> live, long channelId, long authorId, int limit)
+    {
+        return live.entrySet().stream()
+                .filter(entry -> entry.getValue()[0] == channelId && (authorId == -1 || entry.getValue()[1] == authorId))
+                .mapToLong(Map.Entry::getKey)
+                .map(id -> -id)
+                .sorted()
+                .map(id -> -id)
+                .limit(limit)
+                .toArray();
+    }
+
+    @NotNull
+    private static String repeat(char character, int length)
+    {
+        char[] chars = new char[length];
+        Arrays.fill(chars, character);
+        return new String(chars);
+    }
+
+    @NotNull
+    private static Message message(long channelId, long id, long authorId, @NotNull String content, boolean pinned)
+    {
+        MessageChannelUnion channel = (MessageChannelUnion) Proxy.newProxyInstance(MessageChannelUnion.class.getClassLoader(),
+                new Class<?>[]{ MessageChannelUnion.class }, (proxy, method, args) -> idOf(method.getName(), channelId));
+        User author = (User) Proxy.newProxyInstance(User.class.getClassLoader(), new Class<?>[]{ User.class },
+                (proxy, method, args) -> idOf(method.getName(), authorId));
+
+        return (Message) Proxy.newProxyInstance(Message.class.getClassLoader(), new Class<?>[]{ Message.class }, (proxy, method, args) ->
+        {
+            switch (method.getName())
+            {
+                case "getIdLong":
+                    return id;
+                case "getChannel":
+                    return channel;
+                case "getAuthor":
+                    return author;
+                case "getContentRaw":
+                    return content;
+                case "getAttachments":
+                    return Collections.emptyList();
+                case "isPinned":
+                    return pinned;
+                case "isEdited":
+                case "isWebhookMessage":
+                    return false;
+                case "isFromGuild":
+                    return true;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    @NotNull
+    private static Object idOf(@NotNull String method, long id)
+    {
+        if (method.equals("getIdLong"))
+        {
+            return id;
+        }
+        throw new UnsupportedOperationException(method);
+    }
+}
@@ -0,0 +1,195 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cooldown;
+
+import dev.blocky.library.jda.Utility;
+import net.dv8tion.jda.api.entities.ChannelType;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests the {@link CooldownMessage cooldown message} and profiles the allocations of the path, which rejects a timeouted message.
+ * <br>The allocations are read from the {@link com.sun.management.ThreadMXBean thread bean} of the JVM, so these tests are skipped, if
+ * the JVM cannot measure the allocations of a thread.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+class CooldownMessageTest
+{
+    private static final int WARMUP = 50_000;
+    private static final int CALLS = 100_000;
+    private static final long USER = 1L << 40;
+
+    @Test
+    void resolvesThePlaceholders()
+    {
+        CooldownMessage message = CooldownMessage.compile("{user} waits {remaining}s, {user}!");
+        char separator = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT)).getDecimalSeparator();
+
+        assertEquals("Blocky waits 1" + separator + "23s, Blocky!", message.format("Blocky", 1_234));
+        assertEquals("plain", CooldownMessage.compile("plain").format("Blocky", 0));
+    }
+
+    @Test
+    void roundsLikeTheExactDecimalFormat()
+    {
+        DecimalFormat format = new DecimalFormat("0.00");
+        format.setRoundingMode(RoundingMode.HALF_EVEN);
+
+        StringBuilder builder = new StringBuilder();
+
+        for (long millis = 0; millis < 200_000; millis += 7)
+        {
+            builder.setLength(0);
+
+            // The exact amount of milliseconds is formatted, because a double would misround some ties.
+            String expected = format.format(BigDecimal.valueOf(millis, 3));
+            assertEquals(expected, CooldownMessage.appendSeconds(builder, millis).toString(), "millis=" + millis);
+        }
+    }
+
+    @Test
+    void appendingToABuilderDoesNotAllocate()
+    {
+        CooldownMessage message = CooldownMessage.DEFAULT;
+        StringBuilder builder = new StringBuilder(256);
+
+        long allocated = allocatedPerCall(() ->
+        {
+            builder.setLength(0);
+            return message.appendTo(builder, "Blocky", 4_321).length();
+        });
+
+        assertEquals(0, allocated);
+    }
+
+    @Test
+    void formattingOnlyAllocatesTheMessage()
+    {
+        CooldownMessage message = CooldownMessage.DEFAULT;
+        StringBuilder resolved = message.appendTo(new StringBuilder(), "Blocky", 4_321);
+
+        // The outbound message costs, whatever the JVM needs to copy a resolved message into a string.
+        long outbound = allocatedPerCall(() -> resolved.toString().length());
+        long allocated = allocatedPerCall(() -> message.format("Blocky", 4_321).length());
+
+        assertEquals(outbound, allocated);
+    }
+
+    @Test
+    void rejectingAnActionDoesNotAllocate()
+    {
+        CooldownRegistry registry = new CooldownRegistry();
+        RateLimiter limiter = RateLimiter.tokenBucket(1, 1, TimeUnit.HOURS);
+
+        assertEquals(0, registry.tryAcquire(USER, 0, 60_000));
+        assertEquals(0, limiter.tryAcquire(USER, 0));
+
+        assertEquals(0, allocatedPerCall(() -> registry.tryAcquire(USER, 1_000, 60_000)));
+        assertEquals(0, allocatedPerCall(() -> limiter.tryAcquire(USER, 1_000)));
+    }
+
+    @Test
+    void rejectingATimeoutedMessageDoesNotAllocate()
+    {
+        ManualTimeSource time = new ManualTimeSource(0);
+        RateLimiter limiter = RateLimiter.tokenBucket(1, 1, TimeUnit.HOURS);
+        // Another user, so the registries, which are shared by all tests, do not hold a cooldown of this user yet.
+        long user = USER + 1;
+
+        Utility.setTimeSource(time);
+
+        try
+        {
+            assertEquals(0, Caller.acquireCooldown(user, 60_000));
+            assertEquals(0, Caller.acquireRateLimit(limiter, user));
+
+            time.advance(1, TimeUnit.SECONDS);
+
+            // The whole path of a timeouted message, which reads the time, asks the store and records the decision in the metrics.
+            assertEquals(0, allocatedPerCall(() -> Caller.acquireCooldown(user, 60_000)));
+            assertEquals(0, allocatedPerCall(() -> Caller.acquireRateLimit(limiter, user)));
+        }
+        finally
+        {
+            Utility.setTimeSource(null);
+        }
+    }
+
+    private static long allocatedPerCall(LongSupplier call)
+    {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean, "The JVM cannot measure allocations.");
+
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(bean.isThreadAllocatedMemorySupported(), "The JVM cannot measure allocations.");
+
+        bean.setThreadAllocatedMemoryEnabled(true);
+
+        long thread = Thread.currentThread().getId();
+        long sink = 0;
+
+        for (int i = 0; i < WARMUP; i++)
+        {
+            sink += call.getAsLong();
+        }
+
+        long before = bean.getThreadAllocatedBytes(thread);
+
+        for (int i = 0; i < CALLS; i++)
+        {
+            sink += call.getAsLong();
+        }
+
+        long after = bean.getThreadAllocatedBytes(thread);
+
+        // The sink keeps the results alive, so the calls are not eliminated.
+        assertTrue(sink != Long.MIN_VALUE);
+
+        // The bean allocates a few bytes itself, which are rounded away.
+        return (after - before) / CALLS;
+    }
+
+    /**
+     * Calls the protected methods of the {@link Utility utility}, which decide every timeouted message.
+     */
+    private static final class Caller extends Utility
+    {
+        static long acquireCooldown(long userId, long delay)
+        {
+            return Utility.acquireCooldown(ChannelType.TEXT, CooldownScope.USER, userId, 2, 3, delay);
+        }
+
+        static long acquireRateLimit(@NotNull RateLimiter limiter, long userId)
+        {
+            return Utility.acquireRateLimit(ChannelType.TEXT, limiter, CooldownScope.USER, userId, 2, 3);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cooldown;
+
+import net.dv8tion.jda.api.entities.ChannelType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the counters, the histogram and the heavy keeper of the {@link CooldownMetrics cooldown metrics}.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+class CooldownMetricsTest
+{
+    private static final int HEAVY_USERS = 10;
+
+    @Test
+    void decisionsAreCountedPerChannelType()
+    {
+        CooldownMetrics metrics = new CooldownMetrics();
+
+        metrics.record(ChannelType.TEXT, 1, 0);
+        metrics.record(ChannelType.TEXT, 1, 0);
+        metrics.record(ChannelType.TEXT, 1, 500);
+        metrics.record(ChannelType.PRIVATE, 2, 0);
+        metrics.record(ChannelType.PRIVATE, 2, 1_000);
+        metrics.record(ChannelType.PRIVATE, 2, 2_000);
+
+        CooldownMetrics.Snapshot snapshot = metrics.snapshot();
+
+        assertEquals(2, snapshot.getAllowed(ChannelType.TEXT));
+        assertEquals(1, snapshot.getRejected(ChannelType.TEXT));
+        assertEquals(1, snapshot.getAllowed(ChannelType.PRIVATE));
+        assertEquals(2, snapshot.getRejected(ChannelType.PRIVATE));
+        assertEquals(0, snapshot.getAllowed(ChannelType.NEWS));
+        assertEquals(3, snapshot.getTotalAllowed());
+        assertEquals(3, snapshot.getTotalRejected());
+
+        // Only rejected decisions are tracked by the heavy keeper.
+        assertEquals(2, snapshot.getHotKeys().size());
+        assertEquals(2, snapshot.getHotKeys().get(0).getId());
+        assertEquals(2, snapshot.getHotKeys().get(0).getCount());
+
+        metrics.reset();
+        CooldownMetrics.Snapshot reset = metrics.snapshot();
+
+        assertEquals(0, reset.getTotalAllowed());
+        assertEquals(0, reset.getTotalRejected());
+        assertEquals(0, reset.getRemainingPercentile(0.99));
+        assertTrue(reset.getHotKeys().isEmpty());
+    }
+
+    @Test
+    void remainingTimesAreBucketedByPowersOfTwo()
+    {
+        CooldownMetrics metrics = new CooldownMetrics();
+
+        for (long remaining : new long[]{ 1, 2, 3, 1_000, Long.MAX_VALUE })
+        {
+            metrics.record(ChannelType.TEXT, 1, remaining);
+        }
+
+        CooldownMetrics.Snapshot snapshot = metrics.snapshot();
+        long[] expected = new long[64];
+
+        expected[0] = 1;
+        expected[1] = 2;
+        // 512 (inclusive) to 1024 (exclusive) milliseconds.
+        expected[9] = 1;
+        expected[62] = 1;
+
+        assertArrayEquals(expected, snapshot.getHistogram());
+        assertEquals(1, snapshot.getRemainingPercentile(0));
+        assertEquals(3, snapshot.getRemainingPercentile(0.5));
+        assertEquals(1_023, snapshot.getRemainingPercentile(0.8));
+        assertEquals(Long.MAX_VALUE, snapshot.getRemainingPercentile(1));
+
+        // A snapshot is a copy, which is not changed by later decisions.
+        metrics.record(ChannelType.TEXT, 1, 1);
+        assertEquals(1, snapshot.getHistogram()[0]);
+    }
+
+    @Test
+    void theMostThrottledUsersAreKeptBetweenManyRareUsers()
+    {
+        CooldownMetrics metrics = new CooldownMetrics();
+        List<Long> rejections = new ArrayList<>();
+
+        // The heavy user i is rejected (10 - i) * 200 times and 20,000 other users are rejected once.
+        for (long user = 1; user <= HEAVY_USERS; user++)
+        {
+            for (long i = 0; i < (HEAVY_USERS + 1 - user) * 200; i++)
+            {
+                rejections.add(user);
+            }
+        }
+
+        for (long user = 1_000; user < 21_000; user++)
+        {
+            rejections.add(user);
+        }
+
+        Collections.shuffle(rejections, new Random(1));
+
+        for (long user : rejections)
+        {
+            metrics.record(ChannelType.TEXT, user, 1_000);
+        }
+
+        List<CooldownMetrics.HotKey> top = metrics.snapshot(5).getHotKeys();
+        assertEquals(5, top.size());
+
+        for (int i = 0; i < top.size(); i++)
+        {
+            long real = (HEAVY_USERS - i) * 200L;
+
+            assertEquals(i + 1, top.get(i).getId());
+            // The heavy keeper never overestimates a key and only loses a few counts to the decays of the rare users.
+            assertTrue(top.get(i).getCount() <= real && top.get(i).getCount() >= real * 9 / 10, top.get(i).toString());
+        }
+
+        Set<Long> ids = new HashSet<>();
+        metrics.snapshot(HEAVY_USERS).getHotKeys().forEach(key -> ids.add(key.getId()));
+
+        for (long user = 1; user <= HEAVY_USERS; user++)
+        {
+            assertTrue(ids.contains(user), "missing user " + user);
+        }
+
+        assertTrue(metrics.snapshot(0).getHotKeys().isEmpty());
+        assertTrue(metrics.snapshot(-1).getHotKeys().isEmpty());
+    }
+}
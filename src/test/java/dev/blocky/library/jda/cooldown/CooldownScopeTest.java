@@ -0,0 +1,134 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cooldown;
+
+import dev.blocky.library.jda.Utility;
+import net.dv8tion.jda.api.entities.ChannelType;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Tests the {@link CooldownScope cooldown scopes} of the timeouted messages, which are decided by the {@link Utility utility}.
+ * <br>The registries of the utility are shared by all tests, so every test uses its own users and channels.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+class CooldownScopeTest
+{
+    private static final long DELAY = 60_000;
+    private static final long GUILD = 21;
+    private static final long OTHER_GUILD = 22;
+
+    private final ManualTimeSource time = new ManualTimeSource(0);
+
+    @BeforeEach
+    void setTimeSource()
+    {
+        Utility.setTimeSource(time);
+    }
+
+    @AfterEach
+    void resetTimeSource()
+    {
+        Utility.setTimeSource(null);
+    }
+
+    @Test
+    void theDefaultScopeAppliesToEveryChannelAndCommand()
+    {
+        long user = 3L << 40;
+
+        assertEquals(0, Caller.acquire(null, user, 11, GUILD));
+        assertEquals(DELAY, Caller.acquire(null, user, 12, OTHER_GUILD));
+        assertEquals(DELAY, Caller.acquire(CooldownScope.USER, user, 12, OTHER_GUILD));
+
+        time.advance(DELAY, TimeUnit.MILLISECONDS);
+        assertEquals(0, Caller.acquire(CooldownScope.USER, user, 12, OTHER_GUILD));
+    }
+
+    @Test
+    void commandScopesAreSeparatedByTheirNames()
+    {
+        long user = (3L << 40) + 1;
+
+        assertEquals(0, Caller.acquire(CooldownScope.command("ban"), user, 11, GUILD));
+        assertEquals(DELAY, Caller.acquire(CooldownScope.command(new StringBuilder("ban")), user, 12, GUILD));
+        assertEquals(0, Caller.acquire(CooldownScope.command("kick"), user, 11, GUILD));
+        assertEquals(0, Caller.acquire(CooldownScope.USER, user, 11, GUILD));
+    }
+
+    @Test
+    void channelAndGuildScopesAreSeparatedByTheirIds()
+    {
+        long user = (3L << 40) + 2;
+
+        assertEquals(0, Caller.acquire(CooldownScope.USER_CHANNEL, user, 11, GUILD));
+        assertEquals(DELAY, Caller.acquire(CooldownScope.USER_CHANNEL, user, 11, GUILD));
+        assertEquals(0, Caller.acquire(CooldownScope.USER_CHANNEL, user, 12, GUILD));
+
+        assertEquals(0, Caller.acquire(CooldownScope.USER_GUILD, user, 11, GUILD));
+        assertEquals(DELAY, Caller.acquire(CooldownScope.USER_GUILD, user, 12, GUILD));
+        assertEquals(0, Caller.acquire(CooldownScope.USER_GUILD, user, 12, OTHER_GUILD));
+    }
+
+    @Test
+    void channelScopesApplyToEveryUserOfTheChannel()
+    {
+        long channel = 4L << 40;
+
+        assertEquals(0, Caller.acquire(CooldownScope.CHANNEL, 1, channel, GUILD));
+        assertEquals(DELAY, Caller.acquire(CooldownScope.CHANNEL, 2, channel, GUILD));
+        assertEquals(0, Caller.acquire(CooldownScope.CHANNEL, 1, channel + 1, GUILD));
+    }
+
+    @Test
+    void keysArePackedFromTheIds()
+    {
+        CooldownScope ban = CooldownScope.command("ban");
+
+        assertEquals(ban, CooldownScope.command(new StringBuilder("ban")));
+        assertEquals(ban.hashCode(), CooldownScope.command("ban").hashCode());
+        assertNotEquals(ban, CooldownScope.command("kick"));
+        assertEquals(CooldownScope.hash("ban"), ban.getSecondaryKey(11, GUILD));
+
+        assertEquals(1, CooldownScope.USER.getPrimaryKey(1, 11));
+        assertEquals(0, CooldownScope.USER.getSecondaryKey(11, GUILD));
+        assertEquals(11, CooldownScope.USER_CHANNEL.getSecondaryKey(11, GUILD));
+        assertEquals(GUILD, CooldownScope.USER_GUILD.getSecondaryKey(11, GUILD));
+        assertEquals(11, CooldownScope.CHANNEL.getPrimaryKey(1, 11));
+        assertEquals(0, CooldownScope.CHANNEL.getSecondaryKey(11, GUILD));
+    }
+
+    /**
+     * Calls the protected method of the {@link Utility utility}, which decides every timeouted message.
+     */
+    private static final class Caller extends Utility
+    {
+        static long acquire(@Nullable CooldownScope scope, long userId, long channelId, long guildId)
+        {
+            return Utility.acquireCooldown(ChannelType.TEXT, scope, userId, channelId, guildId, DELAY);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cooldown;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the {@link CooldownSnapshot cooldown snapshot}.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+class CooldownSnapshotTest
+{
+    private static final long START = 1_600_000_000_000L;
+    private static final long USER = 1L << 40;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void activeEntriesSurviveARestart() throws IOException
+    {
+        Path file = directory.resolve("user.cooldowns");
+        ManualTimeSource time = new ManualTimeSource(START);
+        CooldownRegistry registry = new CooldownRegistry();
+
+        try (CooldownSnapshot snapshot = CooldownSnapshot.open(file, registry, time))
+        {
+            registry.tryAcquire(USER, START, 60_000);
+            registry.tryAcquire(USER + 1, 7, START, 60_000);
+            registry.tryAcquire(USER + 2, START, 1_000);
+            registry.tryAcquire(USER + 3, START, 60_000);
+            assertEquals(4, snapshot.checkpoint());
+
+            // The removal is written as a tombstone.
+            registry.remove(USER + 3);
+            assertEquals(1, snapshot.checkpoint());
+            assertEquals(0, snapshot.checkpoint());
+        }
+
+        time.advance(10, TimeUnit.SECONDS);
+
+        CooldownRegistry restored = new CooldownRegistry();
+
+        try (CooldownSnapshot ignored = CooldownSnapshot.open(file, restored, time))
+        {
+            assertEquals(START, restored.get(USER, -1));
+            assertEquals(START, restored.get(USER + 1, 7, -1));
+            assertFalse(restored.contains(USER + 2));
+            assertFalse(restored.contains(USER + 3));
+            assertEquals(50_000, restored.tryAcquire(USER, time.millis(), 60_000));
+        }
+    }
+
+    @Test
+    void restoredEntriesAreEvictedOnceTheyExpire() throws IOException
+    {
+        Path file = directory.resolve("user.cooldowns");
+        ManualTimeSource time = new ManualTimeSource(START);
+        CooldownRegistry registry = new CooldownRegistry();
+
+        try (CooldownSnapshot ignored = CooldownSnapshot.open(file, registry, time))
+        {
+            // Half of the cooldowns last a day, so many segments restore a long cooldown before the short ones.
+            for (long i = 0; i <= 10_000; i++)
+            {
+                registry.tryAcquire(USER + i, START, i % 2 == 0 ? TimeUnit.MINUTES.toMillis(1) : TimeUnit.DAYS.toMillis(1));
+            }
+        }
+
+        CooldownRegistry restored = new CooldownRegistry();
+
+        try (CooldownSnapshot ignored = CooldownSnapshot.open(file, restored, time))
+        {
+            assertEquals(10_001, restored.size());
+
+            // The wheels are started at the time of the restore, not at the first restored deadline, so the short cooldowns are evicted.
+            restored.expire(START + TimeUnit.HOURS.toMillis(1));
+            assertEquals(5_000, restored.size());
+            assertFalse(restored.contains(USER));
+            assertTrue(restored.contains(USER + 1));
+        }
+    }
+
+    @Test
+    void outdatedRecordsAreCompacted() throws IOException
+    {
+        Path file = directory.resolve("user.cooldowns");
+        ManualTimeSource time = new ManualTimeSource(START);
+        CooldownRegistry registry = new CooldownRegistry();
+
+        try (CooldownSnapshot snapshot = CooldownSnapshot.open(file, registry, time))
+        {
+            for (int round = 0; round < 10; round++)
+            {
+                for (long i = 0; i < 1_000; i++)
+                {
+                    registry.put(USER + i, time.millis(), 60_000);
+                }
+
+                snapshot.checkpoint();
+                time.advance(1, TimeUnit.SECONDS);
+            }
+
+            // The sixth checkpoint found 5,000 records for 1,000 entries and rewrote the file, so four rounds were appended since.
+            assertEquals(5_000, snapshot.getRecordCount());
+
+            // The file holds five records per entry, so it is rewritten with one record per entry.
+            assertEquals(1_000, snapshot.checkpoint());
+            assertEquals(1_000, snapshot.getRecordCount());
+            assertFalse(Files.exists(file.resolveSibling(file.getFileName() + ".tmp")));
+        }
+
+        CooldownRegistry restored = new CooldownRegistry();
+
+        try (CooldownSnapshot ignored = CooldownSnapshot.open(file, restored, time))
+        {
+            assertEquals(1_000, restored.size());
+            assertEquals(START + 9_000, restored.get(USER, -1));
+        }
+    }
+
+    @Test
+    void foreignFilesAreOverwritten() throws IOException
+    {
+        Path file = directory.resolve("user.cooldowns");
+        Files.write(file, new String(new char[128]).replace('\0', 'x').getBytes(StandardCharsets.UTF_8));
+
+        CooldownRegistry registry = new CooldownRegistry();
+
+        try (CooldownSnapshot snapshot = CooldownSnapshot.open(file, registry, new ManualTimeSource(START)))
+        {
+            assertEquals(0, registry.size());
+            assertEquals(0, snapshot.getRecordCount());
+
+            registry.tryAcquire(USER, START, 60_000);
+        }
+
+        CooldownRegistry restored = new CooldownRegistry();
+
+        try (CooldownSnapshot ignored = CooldownSnapshot.open(file, restored, new ManualTimeSource(START)))
+        {
+            assertTrue(restored.contains(USER));
+        }
+    }
+}
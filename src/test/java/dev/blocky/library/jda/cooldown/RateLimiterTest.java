@@ -0,0 +1,163 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cooldown;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the algorithms of the {@link RateLimiter rate limiter}.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+class RateLimiterTest
+{
+    private static final long USER = 1L << 40;
+
+    @Test
+    void tokenBucketAllowsBurstsAndRefillsContinuously()
+    {
+        RateLimiter limiter = RateLimiter.tokenBucket(5, 30, TimeUnit.SECONDS);
+
+        for (int i = 0; i < 5; i++)
+        {
+            assertEquals(0, limiter.tryAcquire(USER, 0));
+        }
+
+        assertEquals(6_000, limiter.tryAcquire(USER, 0));
+        assertEquals(1_000, limiter.tryAcquire(USER, 5_000));
+        assertEquals(0, limiter.tryAcquire(USER, 6_000));
+        assertEquals(6_000, limiter.tryAcquire(USER, 6_000));
+
+        // A full period refills the whole bucket.
+        for (int i = 0; i < 5; i++)
+        {
+            assertEquals(0, limiter.tryAcquire(USER, 36_000));
+        }
+
+        assertTrue(limiter.tryAcquire(USER, 36_000) > 0);
+    }
+
+    @Test
+    void slidingWindowLogAllowsExactlyThePermitsOfAnyWindow()
+    {
+        RateLimiter limiter = RateLimiter.slidingWindowLog(3, 10, TimeUnit.SECONDS);
+
+        assertEquals(0, limiter.tryAcquire(USER, 0));
+        assertEquals(0, limiter.tryAcquire(USER, 1_000));
+        assertEquals(0, limiter.tryAcquire(USER, 2_000));
+        assertEquals(7_000, limiter.tryAcquire(USER, 3_000));
+        assertEquals(1, limiter.tryAcquire(USER, 9_999));
+        assertEquals(0, limiter.tryAcquire(USER, 10_000));
+        assertEquals(1_000, limiter.tryAcquire(USER, 10_000));
+        assertEquals(0, limiter.tryAcquire(USER, 11_000));
+    }
+
+    @Test
+    void slidingWindowCounterWeightsThePreviousWindow()
+    {
+        RateLimiter limiter = RateLimiter.slidingWindowCounter(10, 10, TimeUnit.SECONDS);
+
+        for (int i = 0; i < 10; i++)
+        {
+            assertEquals(0, limiter.tryAcquire(USER, i));
+        }
+
+        assertTrue(limiter.tryAcquire(USER, 10) > 0);
+
+        // The previous window still counts completely at the start of the next one.
+        assertEquals(1_000, limiter.tryAcquire(USER, 10_000));
+        assertEquals(0, limiter.tryAcquire(USER, 11_000));
+        assertTrue(limiter.tryAcquire(USER, 11_000) > 0);
+
+        // Two windows later, the old counts are gone.
+        for (int i = 0; i < 10; i++)
+        {
+            assertEquals(0, limiter.tryAcquire(USER, 40_000));
+        }
+    }
+
+    @Test
+    void keysAreLimitedIndependently()
+    {
+        for (RateLimiter.Algorithm algorithm : RateLimiter.Algorithm.values())
+        {
+            RateLimiter limiter = RateLimiter.create(algorithm, 1, 10, TimeUnit.SECONDS);
+
+            assertEquals(0, limiter.tryAcquire(USER, 0), algorithm.name());
+            assertTrue(limiter.tryAcquire(USER, 0) > 0, algorithm.name());
+            assertEquals(0, limiter.tryAcquire(USER + 1, 0), algorithm.name());
+            assertEquals(0, limiter.tryAcquire(CooldownScope.USER_CHANNEL, USER, 7, 0, 0), algorithm.name());
+        }
+    }
+
+    @Test
+    void concurrentAcquiresNeverExceedThePermits() throws InterruptedException
+    {
+        for (RateLimiter.Algorithm algorithm : RateLimiter.Algorithm.values())
+        {
+            RateLimiter limiter = RateLimiter.create(algorithm, 50, 1, TimeUnit.MINUTES);
+            AtomicInteger accepted = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> workers = new ArrayList<>();
+
+            for (int i = 0; i < 8; i++)
+            {
+                Thread worker = new Thread(() ->
+                {
+                    try
+                    {
+                        start.await();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        return;
+                    }
+
+                    for (int j = 0; j < 1_000; j++)
+                    {
+                        if (limiter.tryAcquire(USER, 1_000) == 0)
+                        {
+                            accepted.incrementAndGet();
+                        }
+                    }
+                });
+
+                worker.start();
+                workers.add(worker);
+            }
+
+            start.countDown();
+
+            for (Thread worker : workers)
+            {
+                worker.join();
+            }
+
+            assertEquals(50, accepted.get(), algorithm.name());
+        }
+    }
+}
@@ -0,0 +1,304 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cooldown;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests a {@link RemoteCooldownStore remote cooldown store} against a {@link CooldownServer cooldown server} on the loopback interface.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+class RemoteCooldownStoreTest
+{
+    private static final long USER = 1L << 40;
+
+    @Test
+    void serverDecidesWithItsOwnTimeSource() throws IOException
+    {
+        ManualTimeSource time = new ManualTimeSource(1_000);
+
+        try (CooldownServer server = CooldownServer.start(loopback(), time);
+             RemoteCooldownStore store = RemoteCooldownStore.connect(server.getAddress(), 5, TimeUnit.SECONDS, null))
+        {
+            // The times of the client are ignored, as long as the server answers.
+            assertEquals(0, store.tryAcquire(CooldownScope.Type.USER, USER, 0, 0, 5_000));
+            assertEquals(5_000, store.tryAcquire(CooldownScope.Type.USER, USER, 0, 999_999, 5_000));
+
+            time.advance(2_000, TimeUnit.MILLISECONDS);
+            assertEquals(3_000, store.tryAcquire(CooldownScope.Type.USER, USER, 0, 0, 5_000));
+
+            time.advance(3_000, TimeUnit.MILLISECONDS);
+            assertEquals(0, store.tryAcquire(CooldownScope.Type.USER, USER, 0, 0, 5_000));
+            assertTrue(server.getStore().getRegistry(CooldownScope.Type.USER).contains(USER));
+
+            RateLimiter limiter = RateLimiter.tokenBucket(3, 1, TimeUnit.MINUTES);
+            int granted = 0;
+
+            for (int i = 0; i < 10; i++)
+            {
+                if (store.tryAcquire(limiter, CooldownScope.Type.USER_CHANNEL, USER, 7, 0) == 0)
+                {
+                    granted++;
+                }
+            }
+
+            assertEquals(3, granted);
+        }
+    }
+
+    @Test
+    void rateLimitersWithTheSameConfigurationAreSeparatedByTheirNames() throws IOException
+    {
+        try (CooldownServer server = CooldownServer.start(loopback(), null);
+             RemoteCooldownStore first = RemoteCooldownStore.connect(server.getAddress(), 5, TimeUnit.SECONDS, null);
+             RemoteCooldownStore second = RemoteCooldownStore.connect(server.getAddress(), 5, TimeUnit.SECONDS, null))
+        {
+            RateLimiter ban = RateLimiter.tokenBucket(1, 1, TimeUnit.MINUTES).named("ban");
+            RateLimiter kick = RateLimiter.tokenBucket(1, 1, TimeUnit.MINUTES).named("kick");
+
+            assertEquals(0, first.tryAcquire(ban, CooldownScope.Type.USER, USER, 0, 0));
+            assertEquals(0, first.tryAcquire(kick, CooldownScope.Type.USER, USER, 0, 0));
+
+            // Another process creates its own rate limiter, but the same name refers to the same state on the server.
+            RateLimiter otherBan = RateLimiter.tokenBucket(1, 1, TimeUnit.MINUTES).named("ban");
+
+            assertTrue(second.tryAcquire(otherBan, CooldownScope.Type.USER, USER, 0, 0) > 0);
+            assertTrue(second.tryAcquire(kick, CooldownScope.Type.USER, USER, 0, 0) > 0);
+            assertEquals(0, second.tryAcquire(RateLimiter.tokenBucket(1, 1, TimeUnit.MINUTES), CooldownScope.Type.USER, USER, 0, 0));
+        }
+    }
+
+    @Test
+    void pipelinedRequestsOfManyThreadsAreAllDecidedByTheServer() throws Exception
+    {
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+
+        try (CooldownServer server = CooldownServer.start(loopback(), null);
+             RemoteCooldownStore store = RemoteCooldownStore.connect(server.getAddress(), 5, TimeUnit.SECONDS, null))
+        {
+            AtomicInteger granted = new AtomicInteger();
+            List<Future<?>> futures = new ArrayList<>();
+
+            for (int i = 0; i < 16_000; i++)
+            {
+                long user = USER + i % 100;
+
+                futures.add(pool.submit(() ->
+                {
+                    if (store.tryAcquire(CooldownScope.Type.USER, user, 0, 0, 60_000) == 0)
+                    {
+                        granted.incrementAndGet();
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures)
+            {
+                future.get(30, TimeUnit.SECONDS);
+            }
+
+            assertEquals(100, granted.get());
+            assertEquals(100, server.getStore().getRegistry(CooldownScope.Type.USER).size());
+            assertTrue(store.isConnected());
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void fallbackDecidesIfTheServerDoesNotAnswerInTime() throws Exception
+    {
+        LocalCooldownStore fallback = new LocalCooldownStore();
+
+        try (SilentServer silent = new SilentServer();
+             RemoteCooldownStore store = RemoteCooldownStore.connect(silent.getAddress(), 50, TimeUnit.MILLISECONDS, fallback))
+        {
+            long start = System.nanoTime();
+
+            assertEquals(0, store.tryAcquire(CooldownScope.Type.USER, USER, 0, 10_000, 5_000));
+            assertEquals(4_000, store.tryAcquire(CooldownScope.Type.USER, USER, 0, 11_000, 5_000));
+
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+            assertTrue(fallback.getRegistry(CooldownScope.Type.USER).contains(USER));
+            assertTrue(store.isConnected());
+        }
+    }
+
+    @Test
+    void fallbackDecidesAfterTheServerDisconnected() throws Exception
+    {
+        LocalCooldownStore fallback = new LocalCooldownStore();
+        CooldownServer server = CooldownServer.start(loopback(), null);
+
+        try (RemoteCooldownStore store = RemoteCooldownStore.connect(server.getAddress(), 5, TimeUnit.SECONDS, fallback))
+        {
+            assertEquals(0, store.tryAcquire(CooldownScope.Type.USER, USER, 0, 0, 60_000));
+
+            server.close();
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+            while (store.isConnected() && System.nanoTime() < deadline)
+            {
+                Thread.sleep(10);
+            }
+
+            assertFalse(store.isConnected());
+
+            // The fallback never saw the first decision, so it grants the user again, but it remembers its own decisions.
+            long start = System.nanoTime();
+
+            assertEquals(0, store.tryAcquire(CooldownScope.Type.USER, USER, 0, 1_000, 60_000));
+            assertEquals(59_000, store.tryAcquire(CooldownScope.Type.USER, USER, 0, 2_000, 60_000));
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        }
+        finally
+        {
+            server.close();
+        }
+    }
+
+    @Test
+    void lostConnectionsAreReestablished() throws Exception
+    {
+        LocalCooldownStore fallback = new LocalCooldownStore();
+        CooldownServer server = CooldownServer.start(loopback(), null);
+        InetSocketAddress address = server.getAddress();
+
+        try (RemoteCooldownStore store = RemoteCooldownStore.connect(address, 5, TimeUnit.SECONDS, fallback))
+        {
+            server.close();
+            awaitConnected(store, false);
+
+            assertEquals(0, store.tryAcquire(CooldownScope.Type.USER, USER, 0, 0, 60_000));
+            assertTrue(fallback.getRegistry(CooldownScope.Type.USER).contains(USER));
+
+            // The server comes back at the same address, so the store uses it again after its backoff.
+            server = CooldownServer.start(address, null);
+            awaitConnected(store, true);
+
+            assertEquals(0, store.tryAcquire(CooldownScope.Type.USER, USER + 1, 0, 0, 60_000));
+            assertTrue(server.getStore().getRegistry(CooldownScope.Type.USER).contains(USER + 1));
+            assertFalse(fallback.getRegistry(CooldownScope.Type.USER).contains(USER + 1));
+        }
+        finally
+        {
+            server.close();
+        }
+    }
+
+    private static void awaitConnected(RemoteCooldownStore store, boolean connected) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+
+        while (store.isConnected() != connected && System.nanoTime() < deadline)
+        {
+            Thread.sleep(10);
+        }
+
+        assertEquals(connected, store.isConnected());
+    }
+
+    private static InetSocketAddress loopback()
+    {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+    }
+
+    /**
+     * A server, which answers the handshake, but never answers a request.
+     */
+    private static final class SilentServer implements AutoCloseable
+    {
+        private final ServerSocketChannel server = ServerSocketChannel.open().bind(loopback());
+        private final Thread thread = new Thread(this::serve, "Silent Cooldown-Server");
+
+        private volatile SocketChannel connection;
+
+        private SilentServer() throws IOException
+        {
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private InetSocketAddress getAddress() throws IOException
+        {
+            return (InetSocketAddress) server.getLocalAddress();
+        }
+
+        private void serve()
+        {
+            try
+            {
+                connection = server.accept();
+
+                ByteBuffer handshake = ByteBuffer.allocate(CooldownProtocol.HANDSHAKE_SIZE);
+
+                while (handshake.hasRemaining() && connection.read(handshake) >= 0)
+                {
+                    // The handshake is read completely.
+                }
+
+                handshake.flip();
+                connection.write(handshake);
+
+                ByteBuffer requests = ByteBuffer.allocate(CooldownProtocol.REQUEST_SIZE * 64);
+
+                while (connection.read(requests) >= 0)
+                {
+                    requests.clear();
+                }
+            }
+            catch (IOException e)
+            {
+                // The server was closed.
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            server.close();
+
+            if (connection != null)
+            {
+                connection.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cooldown;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the {@link StateTable state table}.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+class StateTableTest
+{
+    /**
+     * Counts the updates of an entry, which expires <b>argument</b> milliseconds after its last update.
+     */
+    private static final StateTable.Updater COUNTER = new StateTable.Updater()
+    {
+        @Override
+        public long update(@NotNull long[] state, int offset, boolean fresh, long now, long argument)
+        {
+            state[offset + 1] = now;
+            return ++state[offset];
+        }
+
+        @Override
+        public long deadline(@NotNull long[] state, int offset, long argument)
+        {
+            return state[offset + 1] + argument;
+        }
+    };
+
+    @Test
+    void updateKeepsStateUntilDeadline()
+    {
+        StateTable table = new StateTable(4, 2);
+
+        assertEquals(1, table.update(1, 2, 1000, COUNTER, 5000));
+        assertEquals(2, table.update(1, 2, 2000, COUNTER, 5000));
+        assertEquals(1, table.update(1, 3, 2000, COUNTER, 5000));
+        assertEquals(2, table.get(1, 2, 0, -1));
+
+        // The deadline of the first key is 7000, so the state is fresh again afterwards.
+        assertEquals(1, table.update(1, 2, 7000, COUNTER, 5000));
+    }
+
+    @Test
+    void zeroIsAValidPrimaryKey()
+    {
+        StateTable table = new StateTable(1, 2);
+
+        assertFalse(table.contains(0, 0));
+        assertEquals(1, table.update(0, 0, 0, COUNTER, 1000));
+        assertTrue(table.contains(0, 0));
+
+        List<Long> primaries = new ArrayList<>();
+        table.forEach((primary, secondary, state, offset, deadline) -> primaries.add(primary));
+
+        assertEquals(1, primaries.size());
+        assertEquals(0L, primaries.get(0));
+    }
+
+    @Test
+    void expireEvictsObsoleteEntries()
+    {
+        StateTable table = new StateTable(8, 2);
+
+        for (long id = 1; id <= 10_000; id++)
+        {
+            table.update(id, 0, 0, COUNTER, id < 5_000 ? 10_000 : 100_000);
+        }
+
+        assertEquals(10_000, table.size());
+
+        table.expire(50_000);
+
+        assertEquals(5_001, table.size());
+        assertFalse(table.contains(1, 0));
+        assertTrue(table.contains(5_000, 0));
+
+        table.expire(200_000);
+
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    void rehashKeepsEveryEntry()
+    {
+        StateTable table = new StateTable(2, 2);
+
+        for (long id = 1; id <= 100_000; id++)
+        {
+            table.update(id << 22, id, 0, COUNTER, Long.MAX_VALUE / 2);
+        }
+
+        assertEquals(100_000, table.size());
+
+        for (long id = 1; id <= 100_000; id++)
+        {
+            assertTrue(table.contains(id << 22, id));
+        }
+
+        for (long id = 1; id <= 100_000; id += 2)
+        {
+            assertTrue(table.remove(id << 22, id));
+        }
+
+        assertEquals(50_000, table.size());
+        assertFalse(table.contains(1L << 22, 1));
+        assertTrue(table.contains(2L << 22, 2));
+    }
+
+    @Test
+    void checkpointOnlyPassesModifiedEntries()
+    {
+        StateTable table = new StateTable(4, 2);
+        table.track();
+
+        table.update(1, 0, 0, COUNTER, 10_000);
+        table.update(2, 0, 0, COUNTER, 10_000);
+
+        List<Long> first = new ArrayList<>();
+        table.checkpoint(false, (primary, secondary, state, offset, deadline) -> first.add(primary));
+
+        assertEquals(2, first.size());
+
+        table.update(2, 0, 1, COUNTER, 10_000);
+        table.remove(1, 0);
+
+        List<Long> second = new ArrayList<>();
+        List<Long> deadlines = new ArrayList<>();
+
+        table.checkpoint(false, (primary, secondary, state, offset, deadline) ->
+        {
+            second.add(primary);
+            deadlines.add(deadline);
+        });
+
+        assertEquals(2, second.size());
+        assertTrue(second.contains(1L));
+        assertTrue(second.contains(2L));
+        assertEquals(Long.MIN_VALUE, (long) deadlines.get(second.indexOf(1L)));
+    }
+
+    @Test
+    void concurrentUpdatesAreNotLost() throws InterruptedException
+    {
+        StateTable table = new StateTable(16, 2);
+        int threads = 8;
+        int updates = 20_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+
+        for (int i = 0; i < threads; i++)
+        {
+            Thread worker = new Thread(() ->
+            {
+                try
+                {
+                    start.await();
+                }
+                catch (InterruptedException e)
+                {
+                    return;
+                }
+
+                for (int j = 0; j < updates; j++)
+                {
+                    table.update(42, j & 7, 0, COUNTER, Long.MAX_VALUE / 2);
+                }
+            });
+
+            worker.start();
+            workers.add(worker);
+        }
+
+        start.countDown();
+
+        for (Thread worker : workers)
+        {
+            worker.join();
+        }
+
+        long total = 0;
+
+        for (int secondary = 0; secondary < 8; secondary++)
+        {
+            total += table.get(42, secondary, 0, 0);
+        }
+
+        assertEquals((long) threads * updates, total);
+    }
+}
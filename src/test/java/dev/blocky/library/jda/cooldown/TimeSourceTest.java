@@ -0,0 +1,151 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cooldown;
+
+import dev.blocky.library.jda.Utility;
+import net.dv8tion.jda.api.entities.ChannelType;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the {@link TimeSource time sources}, from which the {@link Utility utility} reads the time of every timeouted message.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+class TimeSourceTest
+{
+    private static final long USER = 5L << 40;
+
+    @Test
+    void manualTimeSourcesOnlyMoveIfTheyAreSetOrAdvanced()
+    {
+        ManualTimeSource time = new ManualTimeSource(1_000);
+
+        assertEquals(1_000, time.millis());
+        assertEquals(1_000, time.millis());
+
+        assertEquals(3_000, time.advance(2, TimeUnit.SECONDS));
+        assertEquals(3_005, time.advance(5, null));
+
+        time.set(42);
+        assertEquals(42, time.millis());
+    }
+
+    @Test
+    void theMonotonicTimeSourceNeverGoesBackwards()
+    {
+        long previous = TimeSource.MONOTONIC.millis();
+
+        // It is anchored at the wall clock, so the timestamps stay close to the unix epoch.
+        assertTrue(Math.abs(previous - System.currentTimeMillis()) < TimeUnit.MINUTES.toMillis(1), "drift " + previous);
+
+        for (int i = 0; i < 1_000_000; i++)
+        {
+            long now = TimeSource.MONOTONIC.millis();
+
+            assertTrue(now >= previous, now + " < " + previous);
+            previous = now;
+        }
+    }
+
+    @Test
+    void everyDecisionReadsTheTimeSourceOnce()
+    {
+        ManualTimeSource time = new ManualTimeSource(0);
+        AtomicInteger reads = new AtomicInteger();
+        RateLimiter limiter = RateLimiter.tokenBucket(1, 1, TimeUnit.HOURS);
+
+        Utility.setTimeSource(() ->
+        {
+            reads.incrementAndGet();
+            return time.millis();
+        });
+
+        try
+        {
+            Caller.acquireCooldown(USER, 60_000);
+            assertEquals(1, reads.getAndSet(0));
+
+            Caller.acquireRateLimit(limiter, USER);
+            assertEquals(1, reads.getAndSet(0));
+        }
+        finally
+        {
+            Utility.setTimeSource(null);
+        }
+
+        assertSame(TimeSource.MONOTONIC, Utility.getTimeSource());
+    }
+
+    @Test
+    void cooldownsCanBeSimulatedDeterministically()
+    {
+        ManualTimeSource time = new ManualTimeSource(0);
+        long user = USER + 1;
+        int accepted = 0;
+
+        Utility.setTimeSource(time);
+
+        try
+        {
+            // A million messages, which are sent one millisecond after another, with a cooldown of a second.
+            for (int i = 0; i < 1_000_000; i++)
+            {
+                long remaining = Caller.acquireCooldown(user, 1_000);
+
+                assertEquals(i % 1_000 == 0 ? 0 : 1_000 - i % 1_000, remaining, "message " + i);
+
+                if (remaining == 0)
+                {
+                    accepted++;
+                }
+
+                time.advance(1, null);
+            }
+        }
+        finally
+        {
+            Utility.setTimeSource(null);
+        }
+
+        assertEquals(1_000, accepted);
+    }
+
+    /**
+     * Calls the protected methods of the {@link Utility utility}, which decide every timeouted message.
+     */
+    private static final class Caller extends Utility
+    {
+        static long acquireCooldown(long userId, long delay)
+        {
+            return Utility.acquireCooldown(ChannelType.TEXT, CooldownScope.USER, userId, 2, 3, delay);
+        }
+
+        static long acquireRateLimit(@NotNull RateLimiter limiter, long userId)
+        {
+            return Utility.acquireRateLimit(ChannelType.TEXT, limiter, CooldownScope.USER, userId, 2, 3);
+        }
+    }
+}
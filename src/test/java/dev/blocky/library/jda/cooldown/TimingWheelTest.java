@@ -0,0 +1,173 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.cooldown;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the {@link TimingWheel timing wheel}.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+class TimingWheelTest
+{
+    @Test
+    void evictsKeysOnceTheirDeadlineHasPassed()
+    {
+        TimingWheel wheel = new TimingWheel();
+        Deadlines owner = new Deadlines();
+
+        owner.schedule(wheel, 1, 5_000);
+        owner.schedule(wheel, 2, 70_000);
+        owner.schedule(wheel, 3, 5_000_000);
+
+        wheel.advance(4_000, owner);
+        assertTrue(owner.evicted.isEmpty());
+
+        wheel.advance(6_200, owner);
+        assertEquals(listOf(1), owner.evicted);
+
+        wheel.advance(69_000, owner);
+        assertEquals(listOf(1), owner.evicted);
+
+        wheel.advance(72_000, owner);
+        assertEquals(listOf(1, 2), owner.evicted);
+
+        wheel.advance(5_002_000, owner);
+        assertEquals(listOf(1, 2, 3), owner.evicted);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void reschedulesExtendedDeadlines()
+    {
+        TimingWheel wheel = new TimingWheel();
+        Deadlines owner = new Deadlines();
+
+        owner.schedule(wheel, 1, 5_000);
+        owner.deadlines.put(1L, 20_000L);
+
+        wheel.advance(10_000, owner);
+        assertTrue(owner.evicted.isEmpty());
+        assertEquals(1, wheel.size());
+
+        wheel.advance(22_000, owner);
+        assertEquals(listOf(1), owner.evicted);
+    }
+
+    @Test
+    void dropsRemovedKeys()
+    {
+        TimingWheel wheel = new TimingWheel();
+        Deadlines owner = new Deadlines();
+
+        owner.schedule(wheel, 1, 5_000);
+        owner.schedule(wheel, 2, 5_000);
+        owner.deadlines.remove(1L);
+
+        wheel.advance(10_000, owner);
+
+        assertEquals(listOf(2), owner.evicted);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void parksDeadlinesBeyondTheHighestLevel()
+    {
+        TimingWheel wheel = new TimingWheel();
+        Deadlines owner = new Deadlines();
+        long year = TimeUnit.DAYS.toMillis(365);
+
+        owner.schedule(wheel, 1, 0);
+        owner.schedule(wheel, 2, year);
+
+        wheel.advance(TimeUnit.DAYS.toMillis(200), owner);
+        assertEquals(listOf(1), owner.evicted);
+
+        wheel.advance(year - 10_000, owner);
+        assertEquals(listOf(1), owner.evicted);
+
+        wheel.advance(year + 2_000, owner);
+        assertEquals(listOf(1, 2), owner.evicted);
+    }
+
+    @Test
+    void evictsManyKeysOfTheSameBucket()
+    {
+        TimingWheel wheel = new TimingWheel();
+        Deadlines owner = new Deadlines();
+
+        for (long key = 1; key <= 10_000; key++)
+        {
+            owner.schedule(wheel, key, 3_000 + key % 1_000);
+        }
+
+        wheel.advance(5_000, owner);
+
+        assertEquals(10_000, owner.evicted.size());
+        assertEquals(0, wheel.size());
+    }
+
+    private static List<Long> listOf(long... keys)
+    {
+        List<Long> list = new ArrayList<>();
+
+        for (long key : keys)
+        {
+            list.add(key);
+        }
+        return list;
+    }
+
+    /**
+     * An owner, which keeps the deadlines of primary keys in a map.
+     */
+    private static final class Deadlines implements TimingWheel.Owner
+    {
+        private final Map<Long, Long> deadlines = new HashMap<>();
+        private final List<Long> evicted = new ArrayList<>();
+
+        private void schedule(TimingWheel wheel, long primary, long deadline)
+        {
+            deadlines.put(primary, deadline);
+            wheel.schedule(primary, 0, deadline);
+        }
+
+        @Override
+        public long deadlineOf(long primary, long secondary)
+        {
+            return deadlines.getOrDefault(primary, Long.MIN_VALUE);
+        }
+
+        @Override
+        public void evict(long primary, long secondary)
+        {
+            deadlines.remove(primary);
+            evicted.add(primary);
+        }
+    }
+}
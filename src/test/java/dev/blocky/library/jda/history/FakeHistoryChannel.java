@@ -0,0 +1,537 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.history;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageChannel;
+import net.dv8tion.jda.api.entities.MessageHistory;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.entities.channel.unions.MessageChannelUnion;
+import net.dv8tion.jda.api.requests.RestAction;
+import net.dv8tion.jda.api.requests.restaction.AuditableRestAction;
+import net.dv8tion.jda.api.utils.TimeUtil;
+import net.dv8tion.jda.internal.JDAImpl;
+import net.dv8tion.jda.internal.requests.Route;
+import net.dv8tion.jda.internal.utils.config.AuthorizationConfig;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * A message channel, whose history is held in memory and which answers the history and delete requests of JDA without Discord.
+ * <br>Every history request is recorded, so a test can check the sizes and the order of the requests. The requests are completed
+ * asynchronously or, if the channel holds them, as soon as {@link #release()} is called, so a test can also check, how many requests
+ * are in flight at the same time.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+public final class FakeHistoryChannel
+{
+    // A retrieve action needs a JDA instance, but it never queues a request, because its submit method is overridden.
+    private static final JDA API = new JDAImpl(new AuthorizationConfig("fake"));
+
+    private final NavigableMap<Long, Message> messages = new ConcurrentSkipListMap<>();
+    private final List<Request> requests = Collections.synchronizedList(new ArrayList<>());
+    private final Queue<Runnable> held = new ConcurrentLinkedQueue<>();
+    private final Set<Long> deleted = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger inFlight;
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final long id;
+    private final MessageChannel channel;
+    private final MessageChannel owner;
+    private final MessageChannelUnion union;
+
+    private volatile boolean hold;
+    private volatile RuntimeException failure;
+    private volatile Consumer<? super Collection<Long>> deleteListener;
+
+    /**
+     * Creates a channel, which counts its own requests in flight.
+     *
+     * @param id   The id of the channel
+     * @param type The interface, which the channel implements (e.g. {@link net.dv8tion.jda.api.entities.TextChannel TextChannel})
+     */
+    public FakeHistoryChannel(long id, @NotNull Class<? extends MessageChannel> type)
+    {
+        this(id, type, new AtomicInteger());
+    }
+
+    /**
+     * Creates a channel, which counts its requests in flight with the specified counter, so several channels can share it.
+     *
+     * @param id       The id of the channel
+     * @param type     The interface, which the channel implements (e.g. {@link net.dv8tion.jda.api.entities.TextChannel TextChannel})
+     * @param inFlight The counter of the history requests, which are in flight
+     */
+    public FakeHistoryChannel(long id, @NotNull Class<? extends MessageChannel> type, @NotNull AtomicInteger inFlight)
+    {
+        this.id = id;
+        this.inFlight = inFlight;
+        this.channel = proxy(type, this::invoke);
+        // A message history checks the permissions of a guild channel, so the pages are owned by a plain message channel.
+        this.owner = proxy(MessageChannel.class, this::invoke);
+        this.union = proxy(MessageChannelUnion.class, this::invoke);
+    }
+
+    /**
+     * Adds a message to the history.
+     *
+     * @param messageId The id of the message
+     * @param authorId  The id of the author of the message
+     * @param content   The raw content of the message
+     * @return The added {@link Message message}
+     */
+    @NotNull
+    public Message add(long messageId, long authorId, @NotNull String content)
+    {
+        Message message = message(messageId, authorId, content);
+        messages.put(messageId, message);
+        return message;
+    }
+
+    /**
+     * Adds messages, which were sent one millisecond after another, so the newest message was sent at the specified time.
+     *
+     * @param amount   The amount of messages, which should be added
+     * @param newest   The time in milliseconds, at which the newest message was sent
+     * @param authorId The id of the author of the messages
+     * @param content  The raw content of the messages
+     * @return The ids of the added messages from the newest to the oldest one
+     */
+    @NotNull
+    public long[] fill(int amount, long newest, long authorId, @NotNull String content)
+    {
+        long[] ids = new long[amount];
+
+        for (int i = 0; i < amount; i++)
+        {
+            ids[i] = TimeUtil.getDiscordTimestamp(newest - i);
+            add(ids[i], authorId, content);
+        }
+        return ids;
+    }
+
+    /**
+     * The channel, which should be passed to the code under test.
+     *
+     * @return The fake {@link MessageChannel message channel}
+     */
+    @NotNull
+    public MessageChannel getChannel()
+    {
+        return channel;
+    }
+
+    /**
+     * The history requests, which were sent to this channel, in the order, in which they were sent.
+     *
+     * @return A copy of the history requests
+     */
+    @NotNull
+    public List<Request> getRequests()
+    {
+        synchronized (requests)
+        {
+            return new ArrayList<>(requests);
+        }
+    }
+
+    /**
+     * The ids of the messages, which were deleted.
+     *
+     * @return The ids of the deleted messages
+     */
+    @NotNull
+    public Set<Long> getDeleted()
+    {
+        return deleted;
+    }
+
+    /**
+     * The maximum amount of history requests, which were in flight at the same time.
+     *
+     * @return The maximum amount of requests in flight
+     */
+    public int getMaxInFlight()
+    {
+        return maxInFlight.get();
+    }
+
+    /**
+     * The amount of requests, which are held by this channel.
+     *
+     * @return The amount of held requests
+     */
+    public int getHeld()
+    {
+        return held.size();
+    }
+
+    /**
+     * Holds every following request, until {@link #release()} is called.
+     *
+     * @param hold If the requests should be held
+     */
+    public void setHold(boolean hold)
+    {
+        this.hold = hold;
+    }
+
+    /**
+     * Fails every following history request with the specified exception.
+     *
+     * @param failure The exception, with which the requests fail, or <b>null</b>, if they should succeed again
+     */
+    public void setFailure(@Nullable RuntimeException failure)
+    {
+        this.failure = failure;
+    }
+
+    /**
+     * Sets the listener, which is called with the ids of every delete request, before the messages are deleted.
+     *
+     * @param deleteListener The listener, which may throw an exception to fail the request
+     */
+    public void setDeleteListener(@Nullable Consumer<? super Collection<Long>> deleteListener)
+    {
+        this.deleteListener = deleteListener;
+    }
+
+    /**
+     * Completes every held request on the calling thread, including the requests, which are sent while they are completed.
+     *
+     * @return The amount of completed requests
+     */
+    public int release()
+    {
+        int released = 0;
+        Runnable complete;
+
+        while ((complete = held.poll()) != null)
+        {
+            complete.run();
+            released++;
+        }
+        return released;
+    }
+
+    /**
+     * Completes the oldest held request on the calling thread.
+     *
+     * @return <b>true</b>, if a request was held
+     */
+    public boolean releaseOne()
+    {
+        Runnable complete = held.poll();
+
+        if (complete == null)
+        {
+            return false;
+        }
+
+        complete.run();
+        return true;
+    }
+
+    @NotNull
+    private Message message(long messageId, long authorId, @NotNull String content)
+    {
+        User author = proxy(User.class, (proxy, method, args) ->
+        {
+            switch (method.getName())
+            {
+                case "getIdLong":
+                    return authorId;
+                case "getId":
+                    return Long.toUnsignedString(authorId);
+                case "getAsTag":
+                    return "User#" + (authorId % 10000);
+                default:
+                    return object(proxy, method.getName(), args, "User:" + authorId);
+            }
+        });
+
+        return proxy(Message.class, (proxy, method, args) ->
+        {
+            switch (method.getName())
+            {
+                case "getIdLong":
+                    return messageId;
+                case "getId":
+                    return Long.toUnsignedString(messageId);
+                case "getTimeCreated":
+                    return TimeUtil.getTimeCreated(messageId);
+                case "getTimeEdited":
+                    return null;
+                case "getContentRaw":
+                    return content;
+                case "getAuthor":
+                    return author;
+                case "getChannel":
+                    return union;
+                case "getAttachments":
+                case "getEmbeds":
+                    return Collections.emptyList();
+                case "isPinned":
+                case "isWebhookMessage":
+                    return false;
+                default:
+                    return object(proxy, method.getName(), args, "Message:" + messageId);
+            }
+        });
+    }
+
+    private Object invoke(@NotNull Object proxy, @NotNull Method method, @Nullable Object[] args)
+    {
+        switch (method.getName())
+        {
+            case "getIdLong":
+                return id;
+            case "getId":
+                return Long.toUnsignedString(id);
+            case "getJDA":
+                return API;
+            case "getHistory":
+                return new MessageHistory(owner)
+                {
+                    @NotNull
+                    @Override
+                    public RestAction<List<Message>> retrievePast(int amount)
+                    {
+                        CompletableFuture<List<Message>> page = request(Long.MAX_VALUE, amount);
+                        return proxy(RestAction.class, (action, submit, ignored) -> submit(action, submit.getName(), ignored, page));
+                    }
+                };
+            case "getHistoryBefore":
+                long before = args[0] instanceof Long ? (Long) args[0] : Long.parseUnsignedLong(args[0].toString());
+                CompletableFuture<MessageHistory> history = request(before, (Integer) args[1]).thenApply(this::history);
+
+                return new MessageHistory.MessageRetrieveAction(Route.Messages.GET_MESSAGE_HISTORY.compile(Long.toUnsignedString(id)), owner)
+                {
+                    @NotNull
+                    @Override
+                    public CompletableFuture<MessageHistory> submit(boolean shouldQueue)
+                    {
+                        return history;
+                    }
+                };
+            case "deleteMessagesByIds":
+                List<Long> ids = new ArrayList<>();
+
+                for (Object messageId : (Collection<?>) args[0])
+                {
+                    ids.add(Long.parseUnsignedLong(messageId.toString()));
+                }
+                return delete(ids);
+            case "deleteMessageById":
+                return delete(Collections.singletonList(args[0] instanceof Long ? (Long) args[0] : Long.parseUnsignedLong(args[0].toString())));
+            default:
+                return object(proxy, method.getName(), args, "FakeHistoryChannel:" + id);
+        }
+    }
+
+    @NotNull
+    private CompletableFuture<List<Message>> request(long before, int amount)
+    {
+        requests.add(new Request(before, amount));
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+
+        RuntimeException error = failure;
+        List<Message> page = new ArrayList<>(messages.headMap(before, false).descendingMap().values());
+
+        if (page.size() > amount)
+        {
+            page = new ArrayList<>(page.subList(0, amount));
+        }
+
+        List<Message> result = page;
+        CompletableFuture<List<Message>> future = new CompletableFuture<>();
+
+        complete(() ->
+        {
+            inFlight.decrementAndGet();
+
+            if (error != null)
+            {
+                future.completeExceptionally(error);
+            }
+            else
+            {
+                future.complete(result);
+            }
+        });
+        return future;
+    }
+
+    @NotNull
+    private MessageHistory history(@NotNull List<Message> page)
+    {
+        return new MessageHistory(owner)
+        {
+            @NotNull
+            @Override
+            public List<Message> getRetrievedHistory()
+            {
+                return page;
+            }
+        };
+    }
+
+    @NotNull
+    private AuditableRestAction<Void> delete(@NotNull List<Long> ids)
+    {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+
+        return proxy(AuditableRestAction.class, (action, method, args) ->
+        {
+            if (!method.getName().equals("submit"))
+            {
+                return object(action, method.getName(), args, "DeleteAction");
+            }
+
+            complete(() ->
+            {
+                try
+                {
+                    Consumer<? super Collection<Long>> listener = deleteListener;
+
+                    if (listener != null)
+                    {
+                        listener.accept(ids);
+                    }
+
+                    for (long messageId : ids)
+                    {
+                        messages.remove(messageId);
+                        deleted.add(messageId);
+                    }
+
+                    future.complete(null);
+                }
+                catch (RuntimeException | AssertionError e)
+                {
+                    future.completeExceptionally(e);
+                }
+            });
+            return future;
+        });
+    }
+
+    private void complete(@NotNull Runnable complete)
+    {
+        if (hold)
+        {
+            held.add(complete);
+        }
+        else
+        {
+            ForkJoinPool.commonPool().execute(complete);
+        }
+    }
+
+    @Nullable
+    private static Object submit(@NotNull Object proxy, @NotNull String name, @Nullable Object[] args, @NotNull CompletableFuture<?> future)
+    {
+        return name.equals("submit") ? future : object(proxy, name, args, "RestAction");
+    }
+
+    @Nullable
+    private static Object object(@NotNull Object proxy, @NotNull String name, @Nullable Object[] args, @NotNull String description)
+    {
+        switch (name)
+        {
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return description;
+            default:
+                throw new UnsupportedOperationException(name);
+        }
+    }
+
+    @NotNull
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(@NotNull Class<?> type, @NotNull InvocationHandler handler)
+    {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{ type }, handler);
+    }
+
+    /**
+     * A history request, which was sent to a {@link FakeHistoryChannel fake channel}.
+     */
+    public static final class Request
+    {
+        private final long beforeId;
+        private final int size;
+
+        private Request(long beforeId, int size)
+        {
+            this.beforeId = beforeId;
+            this.size = size;
+        }
+
+        /**
+         * The id, before which the messages were requested.
+         *
+         * @return The id or {@link Long#MAX_VALUE Long#MAX_VALUE}, if the newest messages were requested
+         */
+        public long getBeforeId()
+        {
+            return beforeId;
+        }
+
+        /**
+         * The amount of requested messages.
+         *
+         * @return The size of the page
+         */
+        public int getSize()
+        {
+            return size;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Request{" +
+                    "beforeId=" + beforeId +
+                    ", size=" + size +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,227 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.history;
+
+import dev.blocky.library.jda.cache.MessageCache;
+import net.dv8tion.jda.api.entities.TextChannel;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the {@link HistoryPlanner history planner} against a {@link FakeHistoryChannel fake channel}.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+class HistoryPlannerTest
+{
+    private static final long CHANNEL = 7;
+    private static final long AUTHOR = 1L << 40;
+
+    @Test
+    void pagesAreSizedToTheRemainingAmount() throws Exception
+    {
+        FakeHistoryChannel small = new FakeHistoryChannel(CHANNEL, TextChannel.class);
+        small.fill(1000, System.currentTimeMillis(), AUTHOR, "text");
+
+        assertEquals(3, walk(small, 3, false));
+        assertRequests(small, Long.MAX_VALUE, 3);
+
+        FakeHistoryChannel large = new FakeHistoryChannel(CHANNEL, TextChannel.class);
+        long[] ids = large.fill(1000, System.currentTimeMillis(), AUTHOR, "text");
+
+        assertEquals(237, walk(large, 237, false));
+        assertRequests(large, Long.MAX_VALUE, 100, ids[99], 100, ids[199], 37);
+    }
+
+    @Test
+    void onlyExhaustiveWalksPrefetchTheNextPage() throws Exception
+    {
+        for (boolean exhaustive : new boolean[]{ false, true })
+        {
+            FakeHistoryChannel fake = new FakeHistoryChannel(CHANNEL, TextChannel.class);
+            fake.fill(250, System.currentTimeMillis(), AUTHOR, "text");
+
+            // The amount of requests, which were sent, as soon as the first message of every page is visited.
+            List<Integer> sent = new ArrayList<>();
+            int[] visited = new int[1];
+
+            HistoryPlanner.walk(fake.getChannel(), Long.MAX_VALUE, 250, exhaustive, message ->
+            {
+                if (visited[0]++ % 100 == 0)
+                {
+                    sent.add(fake.getRequests().size());
+                }
+                return true;
+            }).get(30, TimeUnit.SECONDS);
+
+            assertEquals(exhaustive ? Arrays.asList(2, 3, 3) : Arrays.asList(1, 2, 3), sent, "exhaustive " + exhaustive);
+            assertEquals(3, fake.getRequests().size());
+        }
+    }
+
+    @Test
+    void walksStopAtTheEndOfTheHistory() throws Exception
+    {
+        FakeHistoryChannel shorter = new FakeHistoryChannel(CHANNEL, TextChannel.class);
+        long[] ids = shorter.fill(150, System.currentTimeMillis(), AUTHOR, "text");
+
+        // The second page is not full, so there is no older message left.
+        assertEquals(150, walk(shorter, 1000, true));
+        assertRequests(shorter, Long.MAX_VALUE, 100, ids[99], 100);
+
+        FakeHistoryChannel exact = new FakeHistoryChannel(CHANNEL, TextChannel.class);
+        ids = exact.fill(200, System.currentTimeMillis(), AUTHOR, "text");
+
+        // The amount is reached with the second page, so no empty page is requested.
+        assertEquals(200, walk(exact, 200, true));
+        assertRequests(exact, Long.MAX_VALUE, 100, ids[99], 100);
+    }
+
+    @Test
+    void authorWalksStopAtTheLowerBoundOfTheRange() throws Exception
+    {
+        FakeHistoryChannel fake = new FakeHistoryChannel(CHANNEL, TextChannel.class);
+        long[] ids = fake.fill(1000, System.currentTimeMillis(), AUTHOR, "text");
+        List<Long> found = new ArrayList<>();
+
+        int amount = HistoryPlanner.walkByAuthor(fake.getChannel(), AUTHOR, ids[149], Long.MAX_VALUE, Integer.MAX_VALUE, 1000,
+                message -> found.add(message.getIdLong())).get(30, TimeUnit.SECONDS);
+
+        assertEquals(150, amount);
+        assertEquals(150, found.size());
+        assertEquals(ids[149], (long) found.get(found.size() - 1));
+        assertRequests(fake, Long.MAX_VALUE, 100, ids[99], 100);
+    }
+
+    @Test
+    void cachedMessagesAreReadBeforeTheHistoryIsFetched() throws Exception
+    {
+        HistoryPlanner.setCache(new MessageCache());
+
+        try
+        {
+            FakeHistoryChannel fake = new FakeHistoryChannel(CHANNEL, TextChannel.class);
+            long[] ids = fake.fill(250, System.currentTimeMillis(), AUTHOR, "text");
+            cache(fake, ids, 120);
+
+            assertEquals(100, walk(fake, 100, false));
+            assertRequests(fake);
+
+            // Only the part of the history, which is older than the cached messages, is fetched.
+            assertEquals(250, walk(fake, 250, true));
+            assertRequests(fake, ids[119], 100, ids[219], 30);
+        }
+        finally
+        {
+            HistoryPlanner.setCache(null);
+        }
+    }
+
+    @Test
+    void cachedMessagesOfTheAuthorAreReadBeforeTheHistoryIsFetched() throws Exception
+    {
+        HistoryPlanner.setCache(new MessageCache());
+
+        try
+        {
+            FakeHistoryChannel fake = new FakeHistoryChannel(CHANNEL, TextChannel.class);
+            long[] ids = fake.fill(250, System.currentTimeMillis(), AUTHOR, "text");
+            cache(fake, ids, 120);
+
+            assertEquals(120, (int) HistoryPlanner.walkByAuthor(fake.getChannel(), AUTHOR, 0, Long.MAX_VALUE, 120, 1000, message -> {})
+                    .get(30, TimeUnit.SECONDS));
+            assertRequests(fake);
+
+            assertEquals(150, (int) HistoryPlanner.walkByAuthor(fake.getChannel(), AUTHOR, 0, Long.MAX_VALUE, 150, 1000, message -> {})
+                    .get(30, TimeUnit.SECONDS));
+            assertRequests(fake, ids[119], 100);
+        }
+        finally
+        {
+            HistoryPlanner.setCache(null);
+        }
+    }
+
+    @Test
+    void contentsAreCheckedByTheCacheIfItHoldsEnoughMessages() throws Exception
+    {
+        HistoryPlanner.setCache(new MessageCache());
+
+        try
+        {
+            FakeHistoryChannel fake = new FakeHistoryChannel(CHANNEL, TextChannel.class);
+            long[] ids = fake.fill(250, System.currentTimeMillis(), AUTHOR, "text");
+            cache(fake, ids, 120);
+
+            assertTrue(HistoryPlanner.containsContent(fake.getChannel(), "text", 200).get(30, TimeUnit.SECONDS));
+            assertFalse(HistoryPlanner.containsContent(fake.getChannel(), "other", 120).get(30, TimeUnit.SECONDS));
+            assertRequests(fake);
+
+            // The cache holds less than 200 messages, so the absence of the content is only known after the rest is fetched.
+            assertFalse(HistoryPlanner.containsContent(fake.getChannel(), "other", 200).get(30, TimeUnit.SECONDS));
+            assertRequests(fake, ids[119], 80);
+        }
+        finally
+        {
+            HistoryPlanner.setCache(null);
+        }
+    }
+
+    private static int walk(@NotNull FakeHistoryChannel fake, int amount, boolean exhaustive) throws Exception
+    {
+        return HistoryPlanner.walk(fake.getChannel(), Long.MAX_VALUE, amount, exhaustive, message -> true).get(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Adds the newest <b>amount</b> messages of the specified channel to the cache, from the oldest to the newest one, like they
+     * would have been received.
+     */
+    private static void cache(@NotNull FakeHistoryChannel fake, long[] ids, int amount)
+    {
+        for (int i = amount - 1; i >= 0; i--)
+        {
+            // Adding a message again replaces it with an equal one, so the history is not changed.
+            HistoryPlanner.getCache().add(fake.add(ids[i], AUTHOR, "text"));
+        }
+    }
+
+    /**
+     * Checks the requests of the specified channel, which are given as pairs of the id, before which the messages were requested,
+     * and the size of the page.
+     */
+    private static void assertRequests(@NotNull FakeHistoryChannel fake, long... expected)
+    {
+        List<FakeHistoryChannel.Request> requests = fake.getRequests();
+        assertEquals(expected.length / 2, requests.size(), requests.toString());
+
+        for (int i = 0; i < requests.size(); i++)
+        {
+            assertEquals(expected[2 * i], requests.get(i).getBeforeId(), "request " + i);
+            assertEquals(expected[2 * i + 1], requests.get(i).getSize(), "request " + i);
+        }
+    }
+}
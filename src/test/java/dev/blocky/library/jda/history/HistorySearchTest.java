@@ -0,0 +1,156 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.history;
+
+import net.dv8tion.jda.api.entities.TextChannel;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the {@link HistorySearch searches} of the {@link HistoryPlanner history planner} against several
+ * {@link FakeHistoryChannel fake channels}.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+class HistorySearchTest
+{
+    private static final long AUTHOR = 1L << 40;
+
+    @Test
+    void searchesAreLimitedToTheDefaultParallelism() throws Exception
+    {
+        assertEquals(HistoryPlanner.DEFAULT_PARALLELISM, search(120, 0));
+    }
+
+    @Test
+    void searchesAreLimitedToTheSpecifiedParallelism() throws Exception
+    {
+        assertEquals(3, search(10, 3));
+    }
+
+    @Test
+    void anyMatchStopsAtTheFirstAcceptedMessage() throws Exception
+    {
+        FakeHistoryChannel fake = new FakeHistoryChannel(1, TextChannel.class);
+        long[] ids = fake.fill(1000, System.currentTimeMillis(), AUTHOR, "text");
+        AtomicInteger tested = new AtomicInteger();
+
+        assertTrue(HistoryPlanner.anyMatch(fake.getChannel(), 1000, message ->
+        {
+            tested.incrementAndGet();
+            return message.getIdLong() == ids[5];
+        }).get(30, TimeUnit.SECONDS));
+
+        // The walk can stop early, so the second page is never requested.
+        assertEquals(6, tested.get());
+        assertEquals(1, fake.getRequests().size());
+    }
+
+    @Test
+    void anyMatchStopsAtTheSmallestId() throws Exception
+    {
+        FakeHistoryChannel fake = new FakeHistoryChannel(1, TextChannel.class);
+        long[] ids = fake.fill(1000, System.currentTimeMillis(), AUTHOR, "text");
+        AtomicInteger tested = new AtomicInteger();
+
+        assertFalse(HistoryPlanner.anyMatch(Collections.singletonList(fake.getChannel()), ids[49], message ->
+        {
+            tested.incrementAndGet();
+            return false;
+        }, 0).get(30, TimeUnit.SECONDS));
+
+        assertEquals(50, tested.get());
+        assertEquals(1, fake.getRequests().size());
+    }
+
+    @Test
+    void anyMatchDoesNotWaitForTheOtherChannels() throws Exception
+    {
+        FakeHistoryChannel slow = new FakeHistoryChannel(1, TextChannel.class);
+        slow.fill(150, System.currentTimeMillis(), AUTHOR, "text");
+        slow.setHold(true);
+
+        FakeHistoryChannel fast = new FakeHistoryChannel(2, TextChannel.class);
+        fast.fill(150, System.currentTimeMillis(), AUTHOR, "match");
+
+        assertTrue(HistoryPlanner.anyMatch(Arrays.asList(slow.getChannel(), fast.getChannel()), 0,
+                message -> message.getContentRaw().equals("match"), 0).get(30, TimeUnit.SECONDS));
+        assertEquals(1, slow.getHeld());
+
+        // The search is already completed, so the page of the slow channel is not visited and no further page is requested.
+        slow.release();
+        assertEquals(1, slow.getRequests().size());
+        assertEquals(1, fast.getRequests().size());
+    }
+
+    /**
+     * Searches the specified amount of channels, whose requests are held, and returns the maximum amount of requests, which were in
+     * flight at the same time.
+     */
+    private static int search(int amount, int parallelism) throws Exception
+    {
+        AtomicInteger inFlight = new AtomicInteger();
+        List<FakeHistoryChannel> fakes = new ArrayList<>();
+        List<TextChannel> channels = new ArrayList<>();
+
+        for (int i = 0; i < amount; i++)
+        {
+            FakeHistoryChannel fake = new FakeHistoryChannel(i + 1, TextChannel.class, inFlight);
+            fake.fill(150, System.currentTimeMillis(), AUTHOR, "text");
+            fake.setHold(true);
+
+            fakes.add(fake);
+            channels.add((TextChannel) fake.getChannel());
+        }
+
+        CompletableFuture<Integer> future = HistoryPlanner.search(channels, 0, message -> false, Integer.MAX_VALUE, parallelism, null);
+
+        while (!future.isDone())
+        {
+            for (FakeHistoryChannel fake : fakes)
+            {
+                fake.release();
+            }
+        }
+
+        assertEquals(0, future.get(30, TimeUnit.SECONDS));
+        assertEquals(0, inFlight.get());
+
+        int maxInFlight = 0;
+
+        for (FakeHistoryChannel fake : fakes)
+        {
+            // Every channel was searched completely, so its second page was not full.
+            assertEquals(2, fake.getRequests().size());
+            maxInFlight = Math.max(maxInFlight, fake.getMaxInFlight());
+        }
+        return maxInFlight;
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.purge;
+
+import dev.blocky.library.jda.history.FakeHistoryChannel;
+import net.dv8tion.jda.api.entities.TextChannel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests the {@link ChannelsPurge purges of several channels} against {@link FakeHistoryChannel fake channels}.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+class ChannelsPurgeTest
+{
+    private static final long AUTHOR = 1L << 40;
+
+    @Test
+    void purgesAreLimitedToTheDefaultParallelism() throws Exception
+    {
+        assertEquals(PurgeEngine.DEFAULT_PARALLELISM, purge(20, 0));
+    }
+
+    @Test
+    void purgesAreLimitedToTheSpecifiedParallelism() throws Exception
+    {
+        assertEquals(3, purge(10, 3));
+    }
+
+    /**
+     * Purges the specified amount of channels, whose requests are held, and returns the maximum amount of history requests, which
+     * were in flight at the same time.
+     */
+    private static int purge(int amount, int parallelism) throws Exception
+    {
+        AtomicInteger inFlight = new AtomicInteger();
+        List<FakeHistoryChannel> fakes = new ArrayList<>();
+        List<TextChannel> channels = new ArrayList<>();
+
+        for (int i = 0; i < amount; i++)
+        {
+            FakeHistoryChannel fake = new FakeHistoryChannel(i + 1, TextChannel.class, inFlight);
+            fake.fill(150, System.currentTimeMillis(), AUTHOR, "text");
+            fake.setHold(true);
+
+            fakes.add(fake);
+            channels.add((TextChannel) fake.getChannel());
+        }
+
+        PurgeHandle handle = PurgeEngine.purgeChannels(channels, PurgeFilter.create(), parallelism, null);
+
+        while (!handle.isDone())
+        {
+            for (FakeHistoryChannel fake : fakes)
+            {
+                fake.release();
+            }
+        }
+
+        PurgeResult result = handle.getFuture().get(30, TimeUnit.SECONDS);
+
+        assertEquals(amount * 150, result.getDeleted());
+        assertEquals(0, result.getFailed());
+        assertEquals(0, inFlight.get());
+
+        int maxInFlight = 0;
+
+        for (FakeHistoryChannel fake : fakes)
+        {
+            assertEquals(150, fake.getDeleted().size());
+            maxInFlight = Math.max(maxInFlight, fake.getMaxInFlight());
+        }
+        return maxInFlight;
+    }
+}
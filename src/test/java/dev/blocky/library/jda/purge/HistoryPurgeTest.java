@@ -0,0 +1,96 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.purge;
+
+import dev.blocky.library.jda.history.FakeHistoryChannel;
+import dev.blocky.library.jda.history.HistoryPlanner;
+import net.dv8tion.jda.api.entities.TextChannel;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the {@link HistoryPurge streaming purges} of a history against a {@link FakeHistoryChannel fake channel}.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+class HistoryPurgeTest
+{
+    private static final long CHANNEL = 7;
+    private static final long AUTHOR = 1L << 40;
+
+    @Test
+    void theFirstPageIsDeletedBeforeTheHistoryIsScanned() throws Exception
+    {
+        FakeHistoryChannel fake = new FakeHistoryChannel(CHANNEL, TextChannel.class);
+        fake.fill(5000, System.currentTimeMillis(), AUTHOR, "text");
+        fake.setHold(true);
+
+        PurgeHandle handle = PurgeEngine.purgeHistory(fake.getChannel(), null, null);
+
+        assertEquals(1, fake.getHeld());
+        assertTrue(fake.releaseOne());
+
+        // The first page is handed to the deletion, while the second page is requested.
+        assertEquals(2, fake.getHeld());
+        assertEquals(2, fake.getRequests().size());
+        assertEquals(100, handle.getScanned());
+        assertEquals(100, handle.getMatched());
+
+        fake.release();
+
+        PurgeResult result = handle.getFuture().get(30, TimeUnit.SECONDS);
+
+        assertEquals(5000, result.getScanned());
+        assertEquals(5000, result.getDeleted());
+        assertEquals(5000, fake.getDeleted().size());
+    }
+
+    @Test
+    void theScanNeverRunsFarAheadOfTheDeletion() throws Exception
+    {
+        FakeHistoryChannel fake = new FakeHistoryChannel(CHANNEL, TextChannel.class);
+        fake.fill(5000, System.currentTimeMillis(), AUTHOR, "text");
+        AtomicInteger maxAhead = new AtomicInteger();
+
+        fake.setDeleteListener(deleting -> maxAhead.accumulateAndGet(requested(fake) - fake.getDeleted().size(), Math::max));
+
+        PurgeResult result = PurgeEngine.purgeHistory(fake.getChannel(), null, null).getFuture().get(30, TimeUnit.SECONDS);
+
+        assertEquals(5000, result.getDeleted());
+
+        // Only the messages, which wait for their deletion, and the page, which is requested, are held at once.
+        assertTrue(maxAhead.get() < HistoryPurge.MAX_PENDING + HistoryPlanner.MAX_PAGE_SIZE, "scanned ahead " + maxAhead.get());
+    }
+
+    private static int requested(@NotNull FakeHistoryChannel fake)
+    {
+        int requested = 0;
+
+        for (FakeHistoryChannel.Request request : fake.getRequests())
+        {
+            requested += request.getSize();
+        }
+        return requested;
+    }
+}
@@ -0,0 +1,192 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.purge;
+
+import dev.blocky.library.jda.history.FakeHistoryChannel;
+import net.dv8tion.jda.api.entities.TextChannel;
+import net.dv8tion.jda.api.utils.data.DataObject;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests a {@link PurgeArchive purge archive}, which is written by a purge against a fake channel.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+class PurgeArchiveTest
+{
+    private static final long CHANNEL = 7;
+    private static final long AUTHOR = 1L << 40;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void everyMessageIsFlushedToTheArchiveBeforeItIsDeleted() throws Exception
+    {
+        FakeHistoryChannel fake = new FakeHistoryChannel(CHANNEL, TextChannel.class);
+        long[] ids = fake.fill(250, System.currentTimeMillis(), AUTHOR, "hello \"world\"");
+        Path file = directory.resolve("archive.ndjson.gz");
+        List<Integer> archivedBeforeDelete = new ArrayList<>();
+
+        fake.setDeleteListener(deleting ->
+        {
+            // Only the flushed pages can be read from the file, while the archive is still open.
+            Set<Long> archived = ids(read(file));
+
+            synchronized (archivedBeforeDelete)
+            {
+                archivedBeforeDelete.add(archived.size());
+            }
+
+            for (long id : deleting)
+            {
+                assertTrue(archived.contains(id), "deleted before it was archived: " + id);
+            }
+        });
+
+        try (PurgeArchive archive = PurgeArchive.open(file))
+        {
+            PurgeResult result = PurgeEngine.purgeArchived(fake.getChannel(), PurgeFilter.create(), archive, null).getFuture()
+                    .get(30, TimeUnit.SECONDS);
+
+            assertEquals(250, result.getDeleted());
+            assertEquals(0, result.getFailed());
+            assertEquals(250, archive.getCount());
+        }
+
+        assertEquals(250, fake.getDeleted().size());
+        assertTrue(archivedBeforeDelete.stream().allMatch(size -> size > 0));
+
+        List<DataObject> lines = read(file);
+        assertEquals(250, lines.size());
+
+        Set<Long> expected = new HashSet<>();
+
+        for (long id : ids)
+        {
+            expected.add(id);
+        }
+
+        assertEquals(expected, ids(lines));
+
+        DataObject first = lines.get(0);
+
+        assertEquals(Long.toUnsignedString(ids[0]), first.getString("id"));
+        assertEquals(Long.toUnsignedString(CHANNEL), first.getString("channel_id"));
+        assertEquals(Long.toUnsignedString(AUTHOR), first.getString("author_id"));
+        assertEquals("hello \"world\"", first.getString("content"));
+        assertNull(first.getString("edited_timestamp", null));
+        assertEquals(0, first.getArray("attachments").length());
+    }
+
+    @Test
+    void appendedArchivesAreReadAsOneStream() throws IOException
+    {
+        FakeHistoryChannel fake = new FakeHistoryChannel(CHANNEL, TextChannel.class);
+        Path file = directory.resolve("archive.ndjson.gz");
+
+        try (PurgeArchive archive = PurgeArchive.open(file))
+        {
+            archive.write(fake.add(1L << 30, AUTHOR, "first"));
+        }
+
+        try (PurgeArchive archive = PurgeArchive.open(file, true))
+        {
+            archive.write(fake.add(2L << 30, AUTHOR, "second"));
+        }
+
+        List<DataObject> lines = read(file);
+
+        assertEquals(2, lines.size());
+        assertEquals("first", lines.get(0).getString("content"));
+        assertEquals("second", lines.get(1).getString("content"));
+    }
+
+    /**
+     * Reads every complete line of the archive, even if its gzip stream was not finished yet.
+     */
+    @NotNull
+    private static List<DataObject> read(@NotNull Path file)
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file)))
+        {
+            byte[] buffer = new byte[8192];
+            int read;
+
+            while ((read = in.read(buffer)) > 0)
+            {
+                bytes.write(buffer, 0, read);
+            }
+        }
+        catch (EOFException e)
+        {
+            // The trailer of an open archive is not written yet.
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        String text = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        List<DataObject> lines = new ArrayList<>();
+
+        for (String line : text.split("\n"))
+        {
+            if (!line.isEmpty())
+            {
+                lines.add(DataObject.fromJson(line));
+            }
+        }
+        return lines;
+    }
+
+    @NotNull
+    private static Set<Long> ids(@NotNull List<DataObject> lines)
+    {
+        Set<Long> ids = new HashSet<>();
+
+        for (DataObject line : lines)
+        {
+            ids.add(Long.parseUnsignedLong(line.getString("id")));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.purge;
+
+import dev.blocky.library.jda.enums.SafetyClear;
+import net.dv8tion.jda.api.entities.ChannelType;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageChannel;
+import net.dv8tion.jda.api.entities.MessageType;
+import net.dv8tion.jda.api.entities.PrivateChannel;
+import net.dv8tion.jda.api.entities.TextChannel;
+import net.dv8tion.jda.api.utils.TimeUtil;
+import net.dv8tion.jda.internal.entities.ReceivedMessage;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the predicates, which are compiled by a {@link PurgeFilter purge filter}.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+class PurgeFilterTest
+{
+    private static final MessageChannel GUILD_CHANNEL = channel(TextChannel.class, ChannelType.TEXT);
+    private static final MessageChannel PRIVATE_CHANNEL = channel(PrivateChannel.class, ChannelType.PRIVATE);
+
+    @Test
+    void safetyClearFiltersBehaveLikeTheSafetyClearOptions()
+    {
+        for (SafetyClear clear : SafetyClear.values())
+        {
+            Predicate<Message> filter = PurgeFilter.of(clear).compile();
+
+            for (int flags = 0; flags < 16; flags++)
+            {
+                Message message = message(1, (flags & 8) == 0 ? GUILD_CHANNEL : PRIVATE_CHANNEL, (flags & 1) != 0, (flags & 2) != 0,
+                        (flags & 4) != 0, "content");
+
+                assertEquals(matches(clear, message), filter.test(message), clear + " with flags " + flags);
+            }
+        }
+    }
+
+    @Test
+    void timeWindowAndPatternAreCombined()
+    {
+        OffsetDateTime after = OffsetDateTime.of(2022, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        OffsetDateTime before = after.plusDays(1);
+        long inside = TimeUtil.getDiscordTimestamp(after.plusHours(12).toInstant().toEpochMilli());
+        long outside = TimeUtil.getDiscordTimestamp(before.plusHours(12).toInstant().toEpochMilli());
+
+        Predicate<Message> filter = PurgeFilter.create()
+                .between(after, before)
+                .matching(Pattern.compile("spam"))
+                .compile();
+
+        assertTrue(filter.test(message(inside, "buy spam now")));
+        assertFalse(filter.test(message(inside, "hello")));
+        assertFalse(filter.test(message(outside, "buy spam now")));
+    }
+
+    /**
+     * The switch, which was run for every message, before the filters were compiled.
+     */
+    private static boolean matches(@NotNull SafetyClear clear, @NotNull Message message)
+    {
+        switch (clear)
+        {
+            case NONE:
+                return message.isFromGuild();
+            case ALL:
+                return !message.isEdited() && !message.isPinned() && !message.isWebhookMessage();
+            case PINNED_MESSAGES:
+                return !message.isPinned();
+            case WEBHOOK_MESSAGES:
+                return !message.isWebhookMessage();
+            case EDITED_MESSAGES:
+                return !message.isEdited();
+            default:
+                return false;
+        }
+    }
+
+    @NotNull
+    private static Message message(long id, @NotNull MessageChannel channel, boolean pinned, boolean webhook, boolean edited,
+                                   @NotNull String content)
+    {
+        return new ReceivedMessage(id, channel, MessageType.DEFAULT, null, webhook, false, pinned, null, content, null, null, null,
+                edited ? OffsetDateTime.now() : null, null, Collections.emptyList(), Collections.emptyList(), Collections.emptyList(),
+                Collections.emptyList(), Collections.emptyList(), 0, null, null);
+    }
+
+    @NotNull
+    private static Message message(long id, @NotNull String content)
+    {
+        return (Message) Proxy.newProxyInstance(Message.class.getClassLoader(), new Class<?>[]{ Message.class }, (proxy, method, args) ->
+        {
+            switch (method.getName())
+            {
+                case "getIdLong":
+                    return id;
+                case "getContentRaw":
+                    return content;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    @NotNull
+    private static MessageChannel channel(@NotNull Class<? extends MessageChannel> type, @NotNull ChannelType channelType)
+    {
+        return (MessageChannel) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{ type },
+                (proxy, method, args) -> method.getName().equals("getType") ? channelType : null);
+    }
+}
@@ -0,0 +1,157 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.purge;
+
+import dev.blocky.library.jda.history.FakeHistoryChannel;
+import net.dv8tion.jda.api.entities.TextChannel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the {@link PurgeHandle purge handles}, which observe and cancel purges of {@link FakeHistoryChannel fake channels}.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+class PurgeHandleTest
+{
+    private static final long AUTHOR = 1L << 40;
+
+    @Test
+    void theCountersFollowThePurge() throws Exception
+    {
+        FakeHistoryChannel fake = new FakeHistoryChannel(7, TextChannel.class);
+        fake.fill(500, System.currentTimeMillis(), AUTHOR, "text");
+        fake.setHold(true);
+
+        PurgeHandle handle = PurgeEngine.purgeHistory(fake.getChannel(), message -> (message.getIdLong() >> 22) % 2 == 0, null);
+
+        assertTrue(fake.releaseOne());
+        assertEquals(100, handle.getScanned());
+        assertEquals(50, handle.getMatched());
+        assertEquals(0, handle.getDeleted());
+        assertFalse(handle.isDone());
+        // The history is not scanned completely, so the amount of remaining messages is not known yet.
+        assertEquals(-1, handle.getEta(TimeUnit.SECONDS));
+
+        fake.release();
+        handle.getFuture().get(30, TimeUnit.SECONDS);
+
+        assertTrue(handle.isDone());
+        assertEquals(500, handle.getScanned());
+        assertEquals(handle.getMatched(), handle.getDeleted());
+        assertEquals(0, handle.getFailed());
+        assertTrue(handle.getRate() > 0);
+        assertEquals(0, handle.getEta(TimeUnit.SECONDS));
+    }
+
+    @Test
+    void failedRequestsAreCounted() throws Exception
+    {
+        FakeHistoryChannel fake = new FakeHistoryChannel(7, TextChannel.class);
+        fake.fill(150, System.currentTimeMillis(), AUTHOR, "text");
+        fake.setDeleteListener(deleting ->
+        {
+            throw new IllegalStateException("Missing permissions");
+        });
+
+        PurgeHandle handle = PurgeEngine.purgeHistory(fake.getChannel(), null, null);
+        PurgeResult result = handle.getFuture().get(30, TimeUnit.SECONDS);
+
+        assertEquals(150, handle.getScanned());
+        assertEquals(150, handle.getFailed());
+        assertEquals(0, handle.getDeleted());
+        assertTrue(result.getFailure() instanceof IllegalStateException);
+        assertTrue(fake.getDeleted().isEmpty());
+    }
+
+    @Test
+    void cancelStopsTheScanAndThePendingDeletes() throws Exception
+    {
+        FakeHistoryChannel fake = new FakeHistoryChannel(7, TextChannel.class);
+        fake.fill(5000, System.currentTimeMillis(), AUTHOR, "text");
+        fake.setHold(true);
+
+        PurgeHandle handle = PurgeEngine.purgeHistory(fake.getChannel(), null, null);
+
+        // The first page is deleted, while the second page is requested.
+        assertTrue(fake.releaseOne());
+        assertEquals(2, fake.getHeld());
+
+        assertTrue(handle.cancel());
+        assertFalse(handle.cancel());
+        assertTrue(handle.isCancelled());
+
+        fake.release();
+
+        PurgeResult result = handle.getFuture().get(30, TimeUnit.SECONDS);
+
+        // The requests in flight are completed, but no further page is requested and no further message is deleted.
+        assertEquals(2, fake.getRequests().size());
+        assertEquals(100, result.getDeleted());
+        assertEquals(100, fake.getDeleted().size());
+        assertEquals(0, result.getRemaining());
+    }
+
+    @Test
+    void cancelStopsEveryChannelOfAnAggregatePurge() throws Exception
+    {
+        List<FakeHistoryChannel> fakes = new ArrayList<>();
+        List<TextChannel> channels = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++)
+        {
+            FakeHistoryChannel fake = new FakeHistoryChannel(i + 1, TextChannel.class);
+            fake.fill(500, System.currentTimeMillis(), AUTHOR, "text");
+            fake.setHold(true);
+
+            fakes.add(fake);
+            channels.add((TextChannel) fake.getChannel());
+        }
+
+        PurgeHandle handle = PurgeEngine.purgeChannels(channels, PurgeFilter.create(), 2, null);
+
+        assertTrue(fakes.get(0).releaseOne());
+        assertTrue(fakes.get(1).releaseOne());
+        assertEquals(200, handle.getScanned());
+
+        assertTrue(handle.cancel());
+        assertTrue(handle.isCancelled());
+
+        for (FakeHistoryChannel fake : fakes)
+        {
+            fake.release();
+        }
+
+        PurgeResult result = handle.getFuture().get(30, TimeUnit.SECONDS);
+
+        assertEquals(200, result.getScanned());
+        assertEquals(200, result.getDeleted());
+
+        for (int i = 2; i < fakes.size(); i++)
+        {
+            assertTrue(fakes.get(i).getRequests().isEmpty(), "channel " + i + " was started after the cancel");
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.purge;
+
+import dev.blocky.library.jda.history.FakeHistoryChannel;
+import net.dv8tion.jda.api.entities.TextChannel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the checkpoints of a {@link PurgeJournal purge journal}, which are written and resumed by a purge against a fake channel.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+class PurgeJournalTest
+{
+    private static final long CHANNEL = 7;
+    private static final long AUTHOR = 1L << 40;
+    private static final long OTHER_AUTHOR = 2L << 40;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void anInterruptedPurgeIsResumedWithoutCountingAMessageTwice() throws Exception
+    {
+        FakeHistoryChannel fake = new FakeHistoryChannel(CHANNEL, TextChannel.class);
+        fake.fill(2500, System.currentTimeMillis(), AUTHOR, "text");
+
+        Path journal = directory.resolve("purge.journal");
+        AtomicReference<PurgeHandle> running = new AtomicReference<>();
+
+        // The purge is interrupted by the first delete request.
+        fake.setDeleteListener(ids ->
+        {
+            PurgeHandle handle;
+
+            while ((handle = running.get()) == null)
+            {
+                Thread.yield();
+            }
+
+            handle.cancel();
+        });
+
+        PurgeHandle first = PurgeEngine.purgeResumable(fake.getChannel(), PurgeFilter.create(), journal, null);
+        running.set(first);
+
+        PurgeResult interrupted = first.getFuture().get(30, TimeUnit.SECONDS);
+
+        assertTrue(interrupted.getDeleted() > 0 && interrupted.getDeleted() < 2500);
+        assertTrue(Files.exists(journal));
+
+        fake.setDeleteListener(null);
+        int requests = fake.getRequests().size();
+
+        PurgeHandle second = PurgeEngine.purgeResumable(fake.getChannel(), PurgeFilter.create(), journal, null);
+        long resumed = System.nanoTime();
+        PurgeResult result = second.getFuture().get(30, TimeUnit.SECONDS);
+        long done = System.nanoTime();
+
+        // The resumed purge starts below the deleted messages instead of at the top of the history.
+        assertTrue(fake.getRequests().get(requests).getBeforeId() < Long.MAX_VALUE);
+
+        assertEquals(2500, fake.getDeleted().size());
+        assertEquals(2500, result.getDeleted());
+        assertEquals(2500, result.getScanned());
+        assertEquals(0, result.getRemaining());
+        assertFalse(Files.exists(journal));
+
+        // The messages of the interrupted purge were not deleted since the resumed purge was started.
+        assertTrue(second.getRate() <= (result.getDeleted() - interrupted.getDeleted()) * 1e9 / (done - resumed));
+    }
+
+    @Test
+    void aCheckpointIsOnlyResumedByAPurgeOfTheSameFilter() throws Exception
+    {
+        Path journal = directory.resolve("purge.journal");
+        PurgeFilter filter = PurgeFilter.create().fromAuthors(AUTHOR);
+        PurgeFilter other = PurgeFilter.create().fromAuthors(OTHER_AUTHOR);
+
+        FakeHistoryChannel fake = new FakeHistoryChannel(CHANNEL, TextChannel.class);
+        long[] ids = fake.fill(300, System.currentTimeMillis(), AUTHOR, "text");
+
+        checkpoint(journal, other, ids[99]);
+        PurgeResult ignored = PurgeEngine.purgeResumable(fake.getChannel(), filter, journal, null).getFuture().get(30, TimeUnit.SECONDS);
+
+        assertEquals(Long.MAX_VALUE, fake.getRequests().get(0).getBeforeId());
+        assertEquals(300, ignored.getDeleted());
+        assertEquals(300, ignored.getScanned());
+        assertFalse(Files.exists(journal));
+
+        fake = new FakeHistoryChannel(CHANNEL, TextChannel.class);
+        ids = fake.fill(300, System.currentTimeMillis(), AUTHOR, "text");
+
+        checkpoint(journal, filter, ids[99]);
+        PurgeResult resumed = PurgeEngine.purgeResumable(fake.getChannel(), filter, journal, null).getFuture().get(30, TimeUnit.SECONDS);
+
+        assertEquals(ids[99], fake.getRequests().get(0).getBeforeId());
+        assertEquals(200, fake.getDeleted().size());
+        assertEquals(300, resumed.getDeleted());
+        assertEquals(300, resumed.getScanned());
+        assertFalse(Files.exists(journal));
+    }
+
+    /**
+     * Writes a checkpoint, after which the 100 messages above the specified cursor were scanned and deleted.
+     */
+    private static void checkpoint(Path file, PurgeFilter filter, long cursor) throws Exception
+    {
+        PurgeJournal journal = new PurgeJournal(file, CHANNEL, Math.max(filter.getMinId(), 0), filter.getMaxId(), filter.fingerprint());
+        journal.write(cursor, cursor, new PurgeResult(100, 100, 100, 0, 0, 0, 1, 0, null));
+    }
+}
@@ -0,0 +1,293 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.purge;
+
+import net.dv8tion.jda.api.entities.MessageChannel;
+import net.dv8tion.jda.api.entities.PrivateChannel;
+import net.dv8tion.jda.api.entities.TextChannel;
+import net.dv8tion.jda.api.requests.restaction.AuditableRestAction;
+import net.dv8tion.jda.api.utils.TimeUtil;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the bulk lane and the single lane of a {@link PurgeTask purge task} against a fake channel.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+class PurgeTaskTest
+{
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    @Test
+    void youngMessagesAreBulkDeletedAndOldMessagesAreDeletedOneByOne() throws Exception
+    {
+        FakeChannel fake = new FakeChannel(TextChannel.class, false);
+        PurgeTask task = new PurgeTask(fake.channel, null);
+        long now = System.currentTimeMillis();
+
+        // The ids are offered from the newest to the oldest message.
+        offer(task, now, 250, DAY);
+        offer(task, now, 30, 20 * DAY);
+        task.close();
+
+        PurgeResult result = task.getFuture().get(30, TimeUnit.SECONDS);
+
+        assertEquals(280, result.getTotal());
+        assertEquals(250, result.getBulkDeleted());
+        assertEquals(30, result.getSingleDeleted());
+        assertEquals(3, result.getBulkRequests());
+        assertEquals(30, result.getSingleRequests());
+        assertEquals(0, result.getFailed());
+        assertEquals(280, fake.deleted.size());
+
+        for (int size : fake.bulkSizes)
+        {
+            assertTrue(size >= 2 && size <= PurgeEngine.BULK_DELETE_LIMIT, "bulk request with " + size + " messages");
+        }
+
+        assertEquals(1, fake.maxBulkInFlight.get());
+        assertEquals(1, fake.maxSingleInFlight.get());
+    }
+
+    @Test
+    void lastYoungMessageIsDeletedOnItsOwn() throws Exception
+    {
+        FakeChannel fake = new FakeChannel(TextChannel.class, false);
+        PurgeTask task = new PurgeTask(fake.channel, null);
+
+        offer(task, System.currentTimeMillis(), 101, DAY);
+        task.close();
+
+        PurgeResult result = task.getFuture().get(30, TimeUnit.SECONDS);
+
+        // Discord needs at least two messages for a bulk delete request, so the remaining message goes to the single lane.
+        assertEquals(100, result.getBulkDeleted());
+        assertEquals(1, result.getSingleDeleted());
+        assertEquals(101, fake.deleted.size());
+    }
+
+    @Test
+    void privateChannelsOnlyUseTheSingleLane() throws Exception
+    {
+        FakeChannel fake = new FakeChannel(PrivateChannel.class, false);
+        PurgeTask task = new PurgeTask(fake.channel, null);
+
+        offer(task, System.currentTimeMillis(), 50, DAY);
+        task.close();
+
+        PurgeResult result = task.getFuture().get(30, TimeUnit.SECONDS);
+
+        assertEquals(0, result.getBulkRequests());
+        assertEquals(50, result.getSingleDeleted());
+        assertEquals(50, fake.deleted.size());
+    }
+
+    @Test
+    void cancelReleasesQueuedMessagesAndWaitsForRequestsInFlight() throws Exception
+    {
+        FakeChannel fake = new FakeChannel(TextChannel.class, true);
+        PurgeTask task = new PurgeTask(fake.channel, null);
+        long now = System.currentTimeMillis();
+
+        offer(task, now, 300, DAY);
+        offer(task, now, 20, 20 * DAY);
+        task.flush();
+
+        // One request of each lane is in flight now.
+        assertEquals(2, fake.held.size());
+        assertTrue(task.cancel());
+        assertFalse(task.cancel());
+        assertFalse(task.getFuture().isDone());
+
+        fake.release();
+
+        PurgeResult result = task.getFuture().get(30, TimeUnit.SECONDS);
+
+        assertEquals(100, result.getBulkDeleted());
+        assertEquals(1, result.getSingleDeleted());
+        assertEquals(219, result.getCancelled());
+        assertEquals(0, result.getRemaining());
+        assertEquals(0, task.getPending());
+        assertTrue(fake.held.isEmpty());
+    }
+
+    @Test
+    void failedRequestsAreCountedAndResumedFrom() throws Exception
+    {
+        FakeChannel fake = new FakeChannel(TextChannel.class, false);
+        PurgeTask task = new PurgeTask(fake.channel, null);
+        long now = System.currentTimeMillis();
+
+        fake.failBulk = true;
+        offer(task, now, 10, DAY);
+        task.close();
+
+        PurgeResult result = task.getFuture().get(30, TimeUnit.SECONDS);
+
+        assertEquals(10, result.getFailed());
+        assertEquals(0, result.getDeleted());
+        assertNotNull(result.getFailure());
+        // The newest failed message is purged again after a resume.
+        assertEquals(id(now, 0, DAY) + 1, task.getResumeId(0));
+    }
+
+    private static void offer(@NotNull PurgeTask task, long now, int amount, long age)
+    {
+        for (int i = 0; i < amount; i++)
+        {
+            task.offer(id(now, i, age), now);
+        }
+    }
+
+    private static long id(long now, int index, long age)
+    {
+        return TimeUtil.getDiscordTimestamp(now - age - index);
+    }
+
+    /**
+     * A channel, which records every delete request and completes it asynchronously or, if it holds the requests, as soon as
+     * {@link #release()} is called.
+     */
+    private static final class FakeChannel
+    {
+        private final Set<Long> deleted = ConcurrentHashMap.newKeySet();
+        private final List<Integer> bulkSizes = new ArrayList<>();
+        private final Queue<Runnable> held = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger bulkInFlight = new AtomicInteger();
+        private final AtomicInteger singleInFlight = new AtomicInteger();
+        private final AtomicInteger maxBulkInFlight = new AtomicInteger();
+        private final AtomicInteger maxSingleInFlight = new AtomicInteger();
+        private final boolean hold;
+        private final MessageChannel channel;
+
+        private volatile boolean failBulk;
+
+        private FakeChannel(@NotNull Class<? extends MessageChannel> type, boolean hold)
+        {
+            this.hold = hold;
+            this.channel = (MessageChannel) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{ type }, (proxy, method, args) ->
+            {
+                switch (method.getName())
+                {
+                    case "deleteMessagesByIds":
+                        @SuppressWarnings("unchecked")
+                        List<String> ids = new ArrayList<>((Collection<String>) args[0]);
+
+                        synchronized (bulkSizes)
+                        {
+                            bulkSizes.add(ids.size());
+                        }
+
+                        return request(bulkInFlight, maxBulkInFlight, () ->
+                        {
+                            if (failBulk)
+                            {
+                                throw new IllegalStateException("The bulk delete request failed.");
+                            }
+
+                            ids.forEach(id -> assertTrue(deleted.add(Long.parseUnsignedLong(id)), "deleted twice: " + id));
+                        });
+                    case "deleteMessageById":
+                        long id = (Long) args[0];
+                        return request(singleInFlight, maxSingleInFlight, () -> assertTrue(deleted.add(id), "deleted twice: " + id));
+                    case "getIdLong":
+                        return 1L;
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    case "toString":
+                        return "FakeChannel";
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+        }
+
+        @NotNull
+        @SuppressWarnings("unchecked")
+        private AuditableRestAction<Void> request(@NotNull AtomicInteger inFlight, @NotNull AtomicInteger maxInFlight, @NotNull Runnable delete)
+        {
+            return (AuditableRestAction<Void>) Proxy.newProxyInstance(AuditableRestAction.class.getClassLoader(),
+                    new Class<?>[]{ AuditableRestAction.class }, (proxy, method, args) ->
+                    {
+                        if (!method.getName().equals("submit"))
+                        {
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+
+                        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+
+                        CompletableFuture<Void> future = new CompletableFuture<>();
+                        Runnable complete = () ->
+                        {
+                            inFlight.decrementAndGet();
+
+                            try
+                            {
+                                delete.run();
+                                future.complete(null);
+                            }
+                            catch (RuntimeException e)
+                            {
+                                future.completeExceptionally(e);
+                            }
+                        };
+
+                        if (hold)
+                        {
+                            held.add(complete);
+                        }
+                        else
+                        {
+                            ForkJoinPool.commonPool().execute(complete);
+                        }
+                        return future;
+                    });
+        }
+
+        private void release()
+        {
+            Runnable complete;
+
+            while ((complete = held.poll()) != null)
+            {
+                complete.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/**
+ * Copyright 2022 Dominic (aka. BlockyDotJar)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.blocky.library.jda.search;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the {@link MessageIndex message index} with its buffer, its segments, its tombstones and its merges.
+ *
+ * @author BlockyDotJar
+ * @version v1.0.0
+ * @since v1.1.5
+ */
+class MessageIndexTest
+{
+    private static final long CHANNEL = 7;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void queriesMatchTheBeginningsOfWordsOfOneChannel() throws IOException
+    {
+        try (MessageIndex index = MessageIndex.open(directory))
+        {
+            index.add(CHANNEL, 1, "Hello World");
+            index.add(CHANNEL, 2, "hello there");
+            index.add(CHANNEL, 3, "worldwide news");
+            index.add(CHANNEL + 1, 4, "hello world");
+
+            assertArrayEquals(new long[]{ 2, 1 }, index.search(CHANNEL, "HELLO", 10));
+            assertArrayEquals(new long[]{ 3, 1 }, index.search(CHANNEL, "world", 10));
+            assertArrayEquals(new long[]{ 1 }, index.search(CHANNEL, "hel wor", 10));
+            assertArrayEquals(new long[]{ 2 }, index.search(CHANNEL, "hello", 1));
+            assertArrayEquals(new long[0], index.search(CHANNEL, "orld", 10));
+            assertArrayEquals(new long[0], index.search(CHANNEL, "", 10));
+        }
+    }
+
+    @Test
+    void editsAndDeletesHideTheOldPostingsOfEverySegment() throws IOException
+    {
+        try (MessageIndex index = MessageIndex.open(directory, 50))
+        {
+            fill(index);
+            index.flush();
+
+            assertTrue(index.getSegmentCount() > 0);
+            assertEquals(100, index.search(CHANNEL, "spec", 1000).length);
+
+            index.update(CHANNEL, 10, "edited text");
+            index.update(CHANNEL, 999, "edited again");
+            index.remove(20);
+
+            assertEquals(98, index.search(CHANNEL, "special", 1000).length);
+            assertArrayEquals(new long[]{ 999, 10 }, index.search(CHANNEL, "edit", 10));
+            // The edited message 999 and the deleted message 20 no longer match their old numbers.
+            assertArrayEquals(new long[]{ 998, 997, 996, 995, 994, 993, 992, 991, 990, 99 }, index.search(CHANNEL, "number99", 100));
+            assertArrayEquals(new long[]{ 209, 208, 207, 206, 205, 204, 203, 202, 201, 200 }, index.search(CHANNEL, "number20", 100));
+        }
+    }
+
+    @Test
+    void segmentsAreMergedAndCompactedAcrossRestarts() throws IOException
+    {
+        try (MessageIndex index = MessageIndex.open(directory, 50))
+        {
+            fill(index);
+            index.update(CHANNEL, 10, "edited text");
+            index.remove(20);
+            index.flush();
+
+            // Every flush merges the newest segments, so 20 flushes leave only a few segments.
+            assertTrue(index.getSegmentCount() <= 5, "segments: " + index.getSegmentCount());
+        }
+
+        try (MessageIndex index = MessageIndex.open(directory, 50))
+        {
+            assertEquals(98, index.search(CHANNEL, "special", 1000).length);
+            assertArrayEquals(new long[]{ 10 }, index.search(CHANNEL, "edited", 10));
+            assertTrue(index.getTombstoneCount() > 0);
+
+            index.compact();
+
+            assertEquals(1, index.getSegmentCount());
+            assertEquals(0, index.getTombstoneCount());
+            assertEquals(998, index.search(CHANNEL, "hello", 5000).length);
+        }
+
+        try (MessageIndex index = MessageIndex.open(directory, 50))
+        {
+            assertEquals(1, index.getSegmentCount());
+            assertEquals(98, index.search(CHANNEL, "special", 1000).length);
+            assertArrayEquals(new long[]{ 10 }, index.search(CHANNEL, "edited", 10));
+        }
+    }
+
+    @Test
+    void handedPostingsAreFoundAndHiddenBeforeTheyAreWritten() throws IOException
+    {
+        try (MessageIndex index = MessageIndex.open(directory, 50))
+        {
+            fill(index);
+
+            // The background thread may still write the handed postings, so they are searched and hidden like a segment.
+            index.update(CHANNEL, 10, "edited text");
+            index.remove(20);
+
+            assertEquals(98, index.search(CHANNEL, "special", 1000).length);
+            assertArrayEquals(new long[]{ 10 }, index.search(CHANNEL, "edited", 10));
+            assertEquals(998, index.search(CHANNEL, "hello", 5000).length);
+
+            index.flush();
+
+            assertEquals(0, index.getBufferedCount());
+            assertEquals(98, index.search(CHANNEL, "special", 1000).length);
+            assertArrayEquals(new long[]{ 10 }, index.search(CHANNEL, "edited", 10));
+            assertEquals(998, index.search(CHANNEL, "hello", 5000).length);
+        }
+    }
+
+    @Test
+    void mergedSegmentsAreDeletedAndNeverLoadedAgain(@TempDir Path backup) throws IOException
+    {
+        List<Path> copies = new ArrayList<>();
+
+        try (MessageIndex index = MessageIndex.open(directory, 50))
+        {
+            fill(index);
+            index.update(CHANNEL, 10, "edited text");
+            index.remove(20);
+            index.flush();
+
+            for (Path file : segmentFiles())
+            {
+                copies.add(Files.copy(file, backup.resolve(file.getFileName())));
+            }
+
+            index.compact();
+
+            assertEquals(1, segmentFiles().size());
+            assertEquals(0, index.getTombstoneCount());
+        }
+
+        // The merged segments come back, as if they could not be deleted, but their tombstones are already dropped.
+        for (Path copy : copies)
+        {
+            Files.copy(copy, directory.resolve(copy.getFileName()));
+        }
+
+        try (MessageIndex index = MessageIndex.open(directory, 50))
+        {
+            assertEquals(1, index.getSegmentCount());
+            assertEquals(98, index.search(CHANNEL, "special", 1000).length);
+            assertArrayEquals(new long[]{ 209, 208, 207, 206, 205, 204, 203, 202, 201, 200 }, index.search(CHANNEL, "number20", 100));
+        }
+
+        assertEquals(1, segmentFiles().size());
+        assertFalse(Files.exists(directory.resolve("merged.ids")));
+    }
+
+    @NotNull
+    private List<Path> segmentFiles() throws IOException
+    {
+        List<Path> files = new ArrayList<>();
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "segment-*.idx"))
+        {
+            stream.forEach(files::add);
+        }
+        return files;
+    }
+
+    private static void fill(@NotNull MessageIndex index)
+    {
+        for (long id = 1; id <= 1000; id++)
+        {
+            index.add(CHANNEL, id, "hello world number" + id + (id % 10 == 0 ? " special" : ""));
+        }
+    }
+}